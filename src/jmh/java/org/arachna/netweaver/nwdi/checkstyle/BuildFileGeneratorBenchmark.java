@@ -0,0 +1,175 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.velocity.app.VelocityEngine;
+import org.apache.velocity.context.Context;
+import org.arachna.ant.ExcludeDataDictionarySourceDirectoryFilter;
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the generation of Ant build files by {@link BuildFileGenerator} for synthetic tracks of different sizes.
+ *
+ * @author Dirk Weigenand
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class BuildFileGeneratorBenchmark {
+    /**
+     * number of development components in the synthetic track.
+     */
+    @Param({ "10", "100", "1000" })
+    private int components;
+
+    /**
+     * the synthetic track.
+     */
+    private SyntheticTrack track;
+
+    /**
+     * the generator under test.
+     */
+    private BuildFileGenerator generator;
+
+    /**
+     * location of the build file for all development components.
+     */
+    private File projectBuildFile;
+
+    /**
+     * context of the first development component of the track.
+     */
+    private Context componentContext;
+
+    /**
+     * Create the synthetic track and the generator.
+     *
+     * @throws IOException
+     *             when the track could not be created.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        track = new SyntheticTrack(components, 5, 5);
+        generator =
+            new BuildFileGenerator(new VelocityEngine(), track.getAntHelper(), new File(track.getWorkspace(),
+                "checkstyle-config.xml").getAbsolutePath(), new HashSet<String>(), new HashSet<String>());
+        projectBuildFile = new File(track.getWorkspace(), "checkstyle-project-build.xml");
+
+        final DevelopmentComponent component = track.getComponents().iterator().next();
+        componentContext = generator.createContext(component, getSources(component));
+    }
+
+    /**
+     * Remove the generated build files and their fingerprints so each invocation generates them again.
+     */
+    @Setup(Level.Invocation)
+    public void removeBuildFiles() {
+        delete(projectBuildFile);
+
+        for (final DevelopmentComponent component : track.getComponents()) {
+            delete(new File(String.format(BuildFileGenerator.BUILD_XML_PATH_TEMPLATE, track.getAntHelper().getBaseLocation(component))));
+        }
+    }
+
+    /**
+     * Delete the synthetic track.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        track.delete();
+    }
+
+    /**
+     * Collect the template model of all development components.
+     *
+     * @return the created context.
+     */
+    @Benchmark
+    public Context createContext() {
+        return generator.createContext(track.getComponents());
+    }
+
+    /**
+     * Render the build file template of one development component.
+     *
+     * @return the rendered build file.
+     */
+    @Benchmark
+    public String evaluateContext() {
+        final StringWriter writer = new StringWriter();
+        generator.evaluateContext(writer, componentContext);
+
+        return writer.toString();
+    }
+
+    /**
+     * Generate one build file per development component (execution mode 'Ant').
+     *
+     * @param blackhole
+     *            sink for the generated build descriptors.
+     */
+    @Benchmark
+    public void executePerComponent(final Blackhole blackhole) {
+        for (final DevelopmentComponent component : track.getComponents()) {
+            blackhole.consume(generator.execute(component));
+        }
+    }
+
+    /**
+     * Generate one build file for all development components (execution mode 'Ant, single build file').
+     *
+     * @return the build descriptor of the generated build file.
+     */
+    @Benchmark
+    public BuildDescriptor executeSingleBuildFile() {
+        return generator.execute(track.getComponents(), projectBuildFile.getAbsolutePath());
+    }
+
+    /**
+     * Determine the source folders of the given development component.
+     *
+     * @param component
+     *            development component.
+     * @return the source folders of the given development component.
+     */
+    private Collection<String> getSources(final DevelopmentComponent component) {
+        return track.getAntHelper().createSourceFileSets(component, new ExcludeDataDictionarySourceDirectoryFilter());
+    }
+
+    /**
+     * Delete the given build file and its fingerprint.
+     *
+     * @param buildFile
+     *            build file to delete.
+     */
+    private static void delete(final File buildFile) {
+        buildFile.delete();
+        new File(buildFile.getPath() + BuildFileGenerator.FINGERPRINT_SUFFIX).delete();
+    }
+}
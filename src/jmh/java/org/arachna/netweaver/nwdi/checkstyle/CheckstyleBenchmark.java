@@ -0,0 +1,143 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import hudson.model.BuildListener;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+
+/**
+ * Measures checking a synthetic development component with the checkstyle configuration bundled with the plugin using the
+ * {@link InProcessCheckstyleRunner}, both from scratch and incrementally without changes.
+ *
+ * @author Dirk Weigenand
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class CheckstyleBenchmark {
+    /**
+     * number of source files per java package (the development component contains ten packages).
+     */
+    @Param({ "10", "100" })
+    private int filesPerPackage;
+
+    /**
+     * maximum number of threads checking the sources of the development component.
+     */
+    @Param({ "1", "4" })
+    private int threads;
+
+    /**
+     * the synthetic track containing one development component.
+     */
+    private SyntheticTrack track;
+
+    /**
+     * the development component to check.
+     */
+    private DevelopmentComponent component;
+
+    /**
+     * runner checking all sources.
+     */
+    private InProcessCheckstyleRunner fullRunner;
+
+    /**
+     * runner checking changed sources only.
+     */
+    private InProcessCheckstyleRunner incrementalRunner;
+
+    /**
+     * listener discarding progress messages.
+     */
+    private final BuildListener listener = SyntheticTrack.createSilentListener();
+
+    /**
+     * Create the synthetic development component and the runners. The cache of the incremental runner is populated by an initial
+     * run.
+     *
+     * @throws IOException
+     *             when the track or the bundled configuration could not be created or read.
+     * @throws CheckstyleException
+     *             when the bundled configuration could not be parsed.
+     * @throws InterruptedException
+     *             when the initial run was interrupted.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, CheckstyleException, InterruptedException {
+        track = new SyntheticTrack(1, 10, filesPerPackage);
+        component = track.getComponents().iterator().next();
+
+        final String bundledConfiguration = SyntheticTrack.readBundledConfiguration();
+        final Configuration configuration = ConfigurationHelper.parse(bundledConfiguration);
+        final String configurationHash = DigestHelper.digest(bundledConfiguration);
+        final ClassPathResolver classPathResolver = new ClassPathResolver(track.getAntHelper());
+        fullRunner =
+            new InProcessCheckstyleRunner(configuration, configurationHash, track.getAntHelper(), new HashSet<String>(),
+                new ContentExcludeFilter(new HashSet<String>()), false, null, classPathResolver, new SourceFileProvider(),
+                new TimingRecorder(false), threads, ResultFormat.XML, Collections.<SourceFileConsumer>emptyList());
+        incrementalRunner =
+            new InProcessCheckstyleRunner(configuration, configurationHash, track.getAntHelper(), new HashSet<String>(),
+                new ContentExcludeFilter(new HashSet<String>()), true, null, classPathResolver, new SourceFileProvider(),
+                new TimingRecorder(false), 1, ResultFormat.XML, Collections.<SourceFileConsumer>emptyList());
+        incrementalRunner.execute(component, listener);
+    }
+
+    /**
+     * Delete the synthetic track.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        track.delete();
+    }
+
+    /**
+     * Check all sources of the development component.
+     *
+     * @return whether checking succeeded.
+     * @throws InterruptedException
+     *             when checking was interrupted.
+     */
+    @Benchmark
+    public boolean checkAll() throws InterruptedException {
+        return fullRunner.execute(component, listener);
+    }
+
+    /**
+     * Check the unchanged development component incrementally (all results are taken from the cache).
+     *
+     * @return whether checking succeeded.
+     * @throws InterruptedException
+     *             when checking was interrupted.
+     */
+    @Benchmark
+    public boolean checkIncrementallyUnchanged() throws InterruptedException {
+        return incrementalRunner.execute(component, listener);
+    }
+}
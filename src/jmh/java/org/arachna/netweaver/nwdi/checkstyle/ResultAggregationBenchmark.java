@@ -0,0 +1,215 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.arachna.ant.AntHelper;
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures parsing and merging the 'checkstyle-result.xml' files of synthetic tracks into the build level report, index and
+ * violation store.
+ *
+ * @author Dirk Weigenand
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ResultAggregationBenchmark {
+    /**
+     * number of audited files per development component.
+     */
+    private static final int FILES_PER_COMPONENT = 50;
+
+    /**
+     * number of violations per audited file.
+     */
+    private static final int VIOLATIONS_PER_FILE = 10;
+
+    /**
+     * checks reported in the synthetic results.
+     */
+    private static final String[] CHECKS = new String[] { "com.puppycrawl.tools.checkstyle.checks.coding.MagicNumberCheck",
+        "com.puppycrawl.tools.checkstyle.checks.javadoc.JavadocMethodCheck",
+        "com.puppycrawl.tools.checkstyle.checks.imports.UnusedImportsCheck",
+        "com.puppycrawl.tools.checkstyle.checks.whitespace.WhitespaceAroundCheck" };
+
+    /**
+     * number of development components in the synthetic track.
+     */
+    @Param({ "10", "100", "1000" })
+    private int components;
+
+    /**
+     * whether chunked result files are written and read instead of 'checkstyle-result.xml' files.
+     */
+    @Param({ "false", "true" })
+    private boolean chunked;
+
+    /**
+     * format of the result files.
+     */
+    private ResultFormat format;
+
+    /**
+     * the synthetic track (without sources).
+     */
+    private SyntheticTrack track;
+
+    /**
+     * source folders mapped to development components.
+     */
+    private final List<Collection<String>> sourceFolders = new ArrayList<Collection<String>>();
+
+    /**
+     * result files of development components.
+     */
+    private final List<File> resultFiles = new ArrayList<File>();
+
+    /**
+     * Create the synthetic track and write a result file for each development component.
+     *
+     * @throws IOException
+     *             when the result files could not be written.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        track = new SyntheticTrack(components, 0, 0);
+        final AntHelper antHelper = track.getAntHelper();
+        format = new ResultFormat(chunked, 0, 0);
+
+        for (final DevelopmentComponent component : track.getComponents()) {
+            final String sourceFolder = antHelper.getBaseLocation(component) + '/' + SyntheticTrack.SOURCE_FOLDER;
+            final File resultFile =
+                format.getResultFile(new File(String.format(InProcessCheckstyleRunner.RESULT_XML_PATH_TEMPLATE, antHelper
+                    .getBaseLocation(component))).getParentFile());
+            resultFile.getParentFile().mkdirs();
+            writeResult(format.createWriter(resultFile), sourceFolder);
+
+            sourceFolders.add(Arrays.asList(sourceFolder));
+            resultFiles.add(resultFile);
+        }
+    }
+
+    /**
+     * Delete the synthetic track.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        track.delete();
+    }
+
+    /**
+     * Merge the result files into a report, an index and a violation store in the workspace (as done after checking the
+     * development components of a build).
+     *
+     * @return the number of violations per check.
+     * @throws IOException
+     *             when reading or writing failed.
+     */
+    @Benchmark
+    public Map<String, Integer> aggregate() throws IOException {
+        final File workspace = track.getWorkspace();
+        final ResultWriter report = format.createWriter(format.getResultFile(workspace));
+        final ViolationIndex index = new ViolationIndex();
+        final ViolationStore store = new ViolationStore(workspace);
+        final ResultAggregator aggregator = new ResultAggregator(Arrays.asList(report, index, store));
+        final List<DevelopmentComponent> componentList = new ArrayList<DevelopmentComponent>(track.getComponents());
+
+        try {
+            report.start();
+
+            for (int i = 0; i < resultFiles.size(); i++) {
+                aggregator.aggregate(componentList.get(i).getNormalizedName("~"), resultFiles.get(i), sourceFolders.get(i));
+            }
+
+            report.finish();
+            store.write(new File(workspace, ViolationStore.FILE_NAME));
+        }
+        finally {
+            report.close();
+            store.close();
+        }
+
+        index.write(new File(workspace, ResultAggregator.INDEX_FILE_NAME));
+
+        return index.getChecks();
+    }
+
+    /**
+     * Parse the result files counting violations only.
+     *
+     * @return the number of violations.
+     * @throws IOException
+     *             when reading failed.
+     */
+    @Benchmark
+    public int parse() throws IOException {
+        final ViolationIndex index = new ViolationIndex();
+        final ResultAggregator aggregator = new ResultAggregator(Arrays.asList(index));
+
+        for (int i = 0; i < resultFiles.size(); i++) {
+            aggregator.aggregate("component", resultFiles.get(i), sourceFolders.get(i));
+        }
+
+        return index.getViolationCount();
+    }
+
+    /**
+     * Write a synthetic result file.
+     *
+     * @param writer
+     *            writer for the result file.
+     * @param sourceFolder
+     *            source folder the audited files are located in.
+     * @throws IOException
+     *             when writing failed.
+     */
+    private static void writeResult(final ResultWriter writer, final String sourceFolder) throws IOException {
+        try {
+            writer.start();
+
+            for (int f = 0; f < FILES_PER_COMPONENT; f++) {
+                final List<Violation> violations = new ArrayList<Violation>();
+
+                for (int v = 0; v < VIOLATIONS_PER_FILE; v++) {
+                    final String check = CHECKS[(f + v) % CHECKS.length];
+                    violations.add(new Violation(v * 7 + 1, v % 3, v % 2 == 0 ? "warning" : "error", String.format(
+                        "Violation %d of '%s'.", v, check.substring(check.lastIndexOf('.') + 1)), check));
+                }
+
+                writer.write(String.format("%s/org/example/p%02d/Class%03d.java", sourceFolder, f % 5, f), violations);
+            }
+
+            writer.finish();
+        }
+        finally {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,238 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import hudson.model.BuildListener;
+import hudson.util.StreamBuildListener;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.arachna.ant.AntHelper;
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+import org.arachna.netweaver.dc.types.DevelopmentComponentFactory;
+
+/**
+ * Synthetic track of development components with generated Java sources in a temporary workspace. Used as fixture by the
+ * benchmarks.
+ *
+ * @author Dirk Weigenand
+ */
+final class SyntheticTrack {
+    /**
+     * vendor of the generated development components.
+     */
+    static final String VENDOR = "example.org";
+
+    /**
+     * source folder of the generated development components.
+     */
+    static final String SOURCE_FOLDER = "src/packages";
+
+    /**
+     * checkstyle configuration bundled with the plugin.
+     */
+    private static final String BUNDLED_CONFIGURATION = "/checkstyle-configuration.xml";
+
+    /**
+     * encoding of generated files.
+     */
+    private static final String ENCODING = "UTF-8";
+
+    /**
+     * size of buffer used for reading the bundled configuration.
+     */
+    private static final int BUFFER_SIZE = 4096;
+
+    /**
+     * the temporary workspace.
+     */
+    private final File workspace;
+
+    /**
+     * helper for determining the locations of development components in the workspace.
+     */
+    private final AntHelper antHelper;
+
+    /**
+     * the generated development components.
+     */
+    private final List<DevelopmentComponent> components = new ArrayList<DevelopmentComponent>();
+
+    /**
+     * Create a synthetic track in a new temporary workspace.
+     *
+     * @param componentCount
+     *            number of development components to generate.
+     * @param packagesPerComponent
+     *            number of java packages per development component.
+     * @param filesPerPackage
+     *            number of source files per java package.
+     * @throws IOException
+     *             when the workspace could not be created.
+     */
+    SyntheticTrack(final int componentCount, final int packagesPerComponent, final int filesPerPackage) throws IOException {
+        workspace = File.createTempFile("nwdi-checkstyle", "");
+
+        if (!workspace.delete() || !workspace.mkdirs()) {
+            throw new IOException(String.format("Could not create workspace %s.", workspace));
+        }
+
+        final DevelopmentComponentFactory factory = new DevelopmentComponentFactory();
+        antHelper = new AntHelper(workspace.getAbsolutePath(), factory);
+
+        for (int i = 0; i < componentCount; i++) {
+            final DevelopmentComponent component = factory.create(VENDOR, String.format("app/dc%04d", i));
+            component.addSourceFolder(SOURCE_FOLDER);
+            component.setOutputFolder(new File(antHelper.getBaseLocation(component), "classes").getAbsolutePath());
+            components.add(component);
+
+            for (int p = 0; p < packagesPerComponent; p++) {
+                final String packageName = String.format("org.example.dc%04d.p%02d", i, p);
+                final File packageFolder =
+                    new File(antHelper.getBaseLocation(component), SOURCE_FOLDER + '/' + packageName.replace('.', '/'));
+
+                for (int f = 0; f < filesPerPackage; f++) {
+                    writeSource(packageFolder, packageName, String.format("Class%03d", f));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the generated development components.
+     */
+    Collection<DevelopmentComponent> getComponents() {
+        return components;
+    }
+
+    /**
+     * @return the helper for determining the locations of development components in the workspace.
+     */
+    AntHelper getAntHelper() {
+        return antHelper;
+    }
+
+    /**
+     * @return the temporary workspace.
+     */
+    File getWorkspace() {
+        return workspace;
+    }
+
+    /**
+     * Delete the temporary workspace.
+     */
+    void delete() {
+        delete(workspace);
+    }
+
+    /**
+     * Read the checkstyle configuration bundled with the plugin.
+     *
+     * @return the bundled checkstyle configuration.
+     * @throws IOException
+     *             when the configuration could not be read.
+     */
+    static String readBundledConfiguration() throws IOException {
+        final Reader reader = new InputStreamReader(SyntheticTrack.class.getResourceAsStream(BUNDLED_CONFIGURATION), ENCODING);
+        final StringBuilder configuration = new StringBuilder();
+
+        try {
+            final char[] buffer = new char[BUFFER_SIZE];
+            int read;
+
+            while ((read = reader.read(buffer)) != -1) {
+                configuration.append(buffer, 0, read);
+            }
+        }
+        finally {
+            reader.close();
+        }
+
+        return configuration.toString();
+    }
+
+    /**
+     * Create a build listener discarding all messages.
+     *
+     * @return a build listener discarding all messages.
+     */
+    static BuildListener createSilentListener() {
+        return new StreamBuildListener(new OutputStream() {
+            @Override
+            public void write(final int b) {
+            }
+
+            @Override
+            public void write(final byte[] b, final int off, final int len) {
+            }
+        }, Charset.forName(ENCODING));
+    }
+
+    /**
+     * Write a source file containing typical checkstyle violations (missing Javadoc, magic numbers, unused imports).
+     *
+     * @param packageFolder
+     *            folder of java package.
+     * @param packageName
+     *            name of java package.
+     * @param className
+     *            name of class.
+     * @throws IOException
+     *             when the file could not be written.
+     */
+    private static void writeSource(final File packageFolder, final String packageName, final String className)
+        throws IOException {
+        if (!packageFolder.isDirectory() && !packageFolder.mkdirs()) {
+            throw new IOException(String.format("Could not create %s.", packageFolder));
+        }
+
+        final Writer writer = new OutputStreamWriter(new FileOutputStream(new File(packageFolder, className + ".java")), ENCODING);
+
+        try {
+            writer.write(String.format("package %s;%n%n", packageName));
+            writer.write(String.format("import java.util.ArrayList;%nimport java.util.List;%nimport java.util.Map;%n%n"));
+            writer.write(String.format("/**%n * Generated class %s.%n */%npublic class %s {%n", className, className));
+            writer.write(String.format("    private final List<String> values = new ArrayList<String>();%n%n"));
+            writer.write(String.format("    /**%n     * @param value%n     *            the value to add.%n     */%n"));
+            writer.write(String.format("    public void add(final String value) {%n        values.add(value);%n    }%n%n"));
+            writer.write(String.format("    public int compute(int x) {%n        int result = x * 42;%n"));
+            writer.write(String.format("        for (int i=0; i<values.size(); i++) {%n"));
+            writer.write(String.format("            if (values.get(i).length() > 17) result += 3;%n        }%n"));
+            writer.write(String.format("        return result;%n    }%n}%n"));
+        }
+        finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Delete the given file or folder recursively.
+     *
+     * @param file
+     *            file or folder to delete.
+     */
+    private static void delete(final File file) {
+        final File[] children = file.listFiles();
+
+        if (children != null) {
+            for (final File child : children) {
+                delete(child);
+            }
+        }
+
+        file.delete();
+    }
+}
@@ -0,0 +1,161 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessage;
+import com.puppycrawl.tools.checkstyle.api.SeverityLevel;
+import com.puppycrawl.tools.checkstyle.checks.coding.MagicNumberCheck;
+
+/**
+ * Measures collecting the violations reported by checkstyle in the audit listeners. Times and allocations are reported per
+ * violation; run with the GC profiler to see the bytes allocated per violation ('gc.alloc.rate.norm'), e.g.
+ * <code>mvn -Pbenchmark test-compile exec:exec -Djmh.args="ViolationCollectionBenchmark -prof gc"</code>.
+ *
+ * The audit events and localized messages are created up front since they are allocated by checkstyle anyway.
+ *
+ * @author Dirk Weigenand
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ViolationCollectionBenchmark {
+    /**
+     * number of audited files.
+     */
+    private static final int FILES = 10;
+
+    /**
+     * number of violations per audited file.
+     */
+    private static final int VIOLATIONS_PER_FILE = 100;
+
+    /**
+     * total number of violations reported.
+     */
+    private static final int VIOLATIONS = FILES * VIOLATIONS_PER_FILE;
+
+    /**
+     * names of audited files.
+     */
+    private final List<String> fileNames = new ArrayList<String>();
+
+    /**
+     * events reported by checkstyle.
+     */
+    private final List<AuditEvent> events = new ArrayList<AuditEvent>();
+
+    /**
+     * buffer reused across invocations.
+     */
+    private final ViolationBuffer buffer = new ViolationBuffer();
+
+    /**
+     * Create the events reported for the synthetic files.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        for (int f = 0; f < FILES; f++) {
+            final String fileName = String.format("/workspace/src/packages/com/example/Class%d.java", f);
+            fileNames.add(fileName);
+
+            for (int v = 0; v < VIOLATIONS_PER_FILE; v++) {
+                events.add(new AuditEvent(this, fileName, new LocalizedMessage(v + 1, v % 80,
+                    "com.puppycrawl.tools.checkstyle.checks.coding.messages", "magic.number", new Object[] { Integer
+                        .toString(v) }, SeverityLevel.WARNING, null, MagicNumberCheck.class, null)));
+            }
+        }
+    }
+
+    /**
+     * Collect violations the way the listeners did before {@link ViolationBuffer}: one {@link Violation} object with an eagerly
+     * formatted message per event.
+     *
+     * @return the collected violations.
+     */
+    @Benchmark
+    @OperationsPerInvocation(VIOLATIONS)
+    public Map<String, List<Violation>> collectEagerly() {
+        final Map<String, List<Violation>> violations = new HashMap<String, List<Violation>>();
+
+        for (final AuditEvent event : events) {
+            List<Violation> fileViolations = violations.get(event.getFileName());
+
+            if (fileViolations == null) {
+                fileViolations = new ArrayList<Violation>();
+                violations.put(event.getFileName(), fileViolations);
+            }
+
+            fileViolations.add(new Violation(event.getLine(), event.getColumn(), event.getSeverityLevel().getName(), event
+                .getMessage(), event.getSourceName()));
+        }
+
+        return violations;
+    }
+
+    /**
+     * Collect violations into a reused {@link ViolationBuffer} (the hot path while checkstyle audits files).
+     *
+     * @return the number of violations collected.
+     */
+    @Benchmark
+    @OperationsPerInvocation(VIOLATIONS)
+    public int collect() {
+        buffer.clear();
+
+        for (final AuditEvent event : events) {
+            buffer.add(event);
+        }
+
+        return buffer.size();
+    }
+
+    /**
+     * Collect violations into a reused {@link ViolationBuffer} and render all of them, i.e. create the {@link Violation} objects
+     * and format their messages.
+     *
+     * @return the total length of the rendered messages.
+     */
+    @Benchmark
+    @OperationsPerInvocation(VIOLATIONS)
+    public int collectAndRender() {
+        buffer.clear();
+
+        for (final AuditEvent event : events) {
+            buffer.add(event);
+        }
+
+        int length = 0;
+
+        for (final String fileName : fileNames) {
+            for (final Violation violation : buffer.getViolations(fileName)) {
+                length += violation.getMessage().length();
+            }
+        }
+
+        return length;
+    }
+}
@@ -0,0 +1,228 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import hudson.model.BuildListener;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.arachna.ant.AntHelper;
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+
+import com.puppycrawl.tools.checkstyle.api.SeverityLevel;
+
+/**
+ * Limits the analysis of a build for quick gating builds: no further development components are checked once the configured number
+ * of errors (violations with severity 'error') has been reached (fail fast) or the configured time budget has been spent.
+ * Development components already being checked are checked to completion. Development components not checked are recorded, their
+ * results of earlier builds are removed so they are not reported again.
+ *
+ * Instances of this class are meant to be used for one build and may be used concurrently.
+ *
+ * @author Dirk Weigenand
+ */
+final class AnalysisBudget {
+    /**
+     * helper for determining the base locations of development components.
+     */
+    private final AntHelper antHelper;
+
+    /**
+     * number of errors stopping the analysis (0 for no limit).
+     */
+    private final int maxErrors;
+
+    /**
+     * time ({@link System#nanoTime()}) after which no further development components are checked (<code>Long.MAX_VALUE</code> for
+     * no limit).
+     */
+    private final long deadline;
+
+    /**
+     * number of errors found so far.
+     */
+    private final AtomicInteger errors = new AtomicInteger();
+
+    /**
+     * names of development components not checked.
+     */
+    private final List<String> uncheckedComponents = Collections.synchronizedList(new ArrayList<String>());
+
+    /**
+     * Create a budget for the analysis of a build starting now.
+     *
+     * @param antHelper
+     *            helper for determining the base locations of development components.
+     * @param maxErrors
+     *            number of errors stopping the analysis (0 for no limit).
+     * @param timeBudget
+     *            time budget in minutes (0 for no limit).
+     */
+    AnalysisBudget(final AntHelper antHelper, final int maxErrors, final int timeBudget) {
+        this(antHelper, maxErrors, timeBudget, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Create a budget for the analysis of a build starting now.
+     *
+     * @param antHelper
+     *            helper for determining the base locations of development components.
+     * @param maxErrors
+     *            number of errors stopping the analysis (0 for no limit).
+     * @param timeBudget
+     *            time budget in the given unit (0 for no limit).
+     * @param unit
+     *            unit of the time budget.
+     */
+    AnalysisBudget(final AntHelper antHelper, final int maxErrors, final long timeBudget, final TimeUnit unit) {
+        this.antHelper = antHelper;
+        this.maxErrors = Math.max(0, maxErrors);
+        deadline = timeBudget > 0 ? System.nanoTime() + unit.toNanos(timeBudget) : Long.MAX_VALUE;
+    }
+
+    /**
+     * @return whether the analysis is limited at all.
+     */
+    boolean isLimited() {
+        return maxErrors > 0 || deadline != Long.MAX_VALUE;
+    }
+
+    /**
+     * @return whether the configured number of errors has been reached.
+     */
+    boolean isErrorLimitReached() {
+        return maxErrors > 0 && errors.get() >= maxErrors;
+    }
+
+    /**
+     * @return whether the time budget has been spent.
+     */
+    boolean isTimeBudgetSpent() {
+        return deadline != Long.MAX_VALUE && System.nanoTime() - deadline > 0;
+    }
+
+    /**
+     * @return whether no further development components shall be checked.
+     */
+    boolean isExhausted() {
+        return isErrorLimitReached() || isTimeBudgetSpent();
+    }
+
+    /**
+     * Add the given number of errors found in a development component.
+     *
+     * @param count
+     *            number of errors found.
+     */
+    void addErrors(final int count) {
+        errors.addAndGet(count);
+    }
+
+    /**
+     * @return the names of the development components not checked.
+     */
+    List<String> getUncheckedComponents() {
+        synchronized (uncheckedComponents) {
+            final List<String> names = new ArrayList<String>(uncheckedComponents);
+            Collections.sort(names);
+
+            return names;
+        }
+    }
+
+    /**
+     * Record the given development component as not checked and remove its results of earlier builds.
+     *
+     * @param component
+     *            development component not checked.
+     * @param logger
+     *            logger for reporting the skipped development component.
+     */
+    void skip(final DevelopmentComponent component, final PrintStream logger) {
+        final String name = component.getNormalizedName("~");
+        uncheckedComponents.add(name);
+        logger.println(String.format("Skipping %s: %s.", name, isErrorLimitReached() ? String.format(
+            "%d errors reached", maxErrors) : "time budget spent"));
+
+        final File resultFolder = getResultFolder(component);
+        new File(resultFolder, ResultAggregator.AGGREGATED_RESULT_FILE_NAME).delete();
+        new File(resultFolder, ChunkedResultFile.FILE_NAME).delete();
+    }
+
+    /**
+     * Wrap the given check so that it is only executed while this budget is not exhausted and the errors it finds are counted.
+     *
+     * @param check
+     *            check to limit.
+     * @return the limited check (the given check when the analysis is not limited).
+     */
+    ComponentCheck limit(final ComponentCheck check) {
+        if (!isLimited()) {
+            return check;
+        }
+
+        return new ComponentCheck() {
+            public boolean execute(final DevelopmentComponent component, final BuildListener listener) throws IOException,
+                InterruptedException {
+                if (isExhausted()) {
+                    skip(component, listener.getLogger());
+
+                    return true;
+                }
+
+                final boolean result = check.execute(component, listener);
+
+                if (maxErrors > 0) {
+                    addErrors(countErrors(component));
+                }
+
+                return result;
+            }
+        };
+    }
+
+    /**
+     * Count the violations with severity 'error' in the result file of the given development component.
+     *
+     * @param component
+     *            the development component checked.
+     * @return number of errors found in the given development component.
+     * @throws IOException
+     *             when the result file could not be read.
+     */
+    private int countErrors(final DevelopmentComponent component) throws IOException {
+        final File resultFile = ResultFormat.findResultFile(getResultFolder(component));
+
+        if (ChunkedResultFile.FILE_NAME.equals(resultFile.getName())) {
+            return ChunkedResultFile.open(resultFile).getErrorCount();
+        }
+
+        final ViolationIndex counter = new ViolationIndex();
+        new ResultAggregator(Collections.singleton(counter)).aggregate(component.getNormalizedName("~"), resultFile,
+            Collections.<String>emptyList());
+
+        final Integer errors = counter.getSeverities().get(SeverityLevel.ERROR.getName());
+
+        return errors == null ? 0 : errors;
+    }
+
+    /**
+     * Returns the folder containing the result files of the given development component.
+     *
+     * @param component
+     *            the development component.
+     * @return the folder containing the result files of the given development component.
+     */
+    private File getResultFolder(final DevelopmentComponent component) {
+        return new File(String.format(InProcessCheckstyleRunner.RESULT_XML_PATH_TEMPLATE, antHelper.getBaseLocation(component)))
+            .getParentFile();
+    }
+}
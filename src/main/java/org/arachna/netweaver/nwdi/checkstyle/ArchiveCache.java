@@ -0,0 +1,133 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import hudson.FilePath;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps copies of the archives on the class paths of development components in the temporary directory of an agent, so that
+ * archives are copied from the node running the build once and not for every build.
+ *
+ * Archives are named after a key derived from path, size and modification time of the original archive, so an archive changed
+ * on the node running the build is copied again under a new name. To keep the folder from growing without bound, archives (and
+ * abandoned partial copies) neither copied nor used by this agent within {@link #MAX_AGE} milliseconds are deleted whenever a
+ * batch starts. Instances may be used concurrently.
+ *
+ * @author Dirk Weigenand
+ */
+final class ArchiveCache {
+    /**
+     * name of the folder (in the temporary directory of the agent) keeping copies of archives.
+     */
+    static final String FOLDER_NAME = "nwdi-checkstyle-classpath";
+
+    /**
+     * time in milliseconds an archive is kept after it was used last.
+     */
+    static final long MAX_AGE = TimeUnit.DAYS.toMillis(7);
+
+    /**
+     * the instance living in this JVM.
+     */
+    private static final ArchiveCache INSTANCE = new ArchiveCache(new File(System.getProperty("java.io.tmpdir"), FOLDER_NAME));
+
+    /**
+     * folder keeping the copies of archives.
+     */
+    private final File folder;
+
+    /**
+     * time of last use by this agent mapped to the names of archives.
+     */
+    private final Map<String, Long> lastUses = new HashMap<String, Long>();
+
+    /**
+     * Create a cache keeping archives in the given folder.
+     *
+     * @param folder
+     *            folder keeping the copies of archives.
+     */
+    ArchiveCache(final File folder) {
+        this.folder = folder;
+    }
+
+    /**
+     * @return the instance living in this JVM.
+     */
+    static ArchiveCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the copy of the given archive on this agent, copying the archive when it is not present yet.
+     *
+     * @param entry
+     *            archive on the node running the build.
+     * @return the copy of the archive on this agent.
+     * @throws IOException
+     *             when copying the archive failed.
+     * @throws InterruptedException
+     *             when copying was interrupted.
+     */
+    File getArchive(final RemoteComponent.ClassPathEntry entry) throws IOException, InterruptedException {
+        final File archive = use(entry.getKey() + '-' + entry.getName());
+
+        if (!archive.exists()) {
+            final File download = File.createTempFile(entry.getKey(), ".tmp", folder);
+            entry.getLocation().copyTo(new FilePath(download));
+
+            if (!download.renameTo(archive)) {
+                download.delete();
+            }
+        }
+
+        return archive;
+    }
+
+    /**
+     * Delete the archives and partial copies neither modified nor used within {@link #MAX_AGE} milliseconds before the given time.
+     *
+     * @param now
+     *            the current time.
+     * @return the number of files deleted.
+     */
+    synchronized int prune(final long now) {
+        final File[] files = folder.listFiles();
+        int deleted = 0;
+
+        if (files != null) {
+            for (final File file : files) {
+                final Long lastUse = lastUses.get(file.getName());
+                final long lastAccess = Math.max(file.lastModified(), lastUse == null ? 0 : lastUse.longValue());
+
+                if (now - lastAccess > MAX_AGE && file.delete()) {
+                    lastUses.remove(file.getName());
+                    deleted++;
+                }
+            }
+        }
+
+        return deleted;
+    }
+
+    /**
+     * Record the use of the archive with the given name (so it is not pruned while it is copied or checked against).
+     *
+     * @param name
+     *            name of archive.
+     * @return the copy of the archive on this agent (which may not exist yet).
+     */
+    private synchronized File use(final String name) {
+        folder.mkdirs();
+        lastUses.put(name, Long.valueOf(System.currentTimeMillis()));
+
+        return new File(folder, name);
+    }
+}
@@ -0,0 +1,191 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import java.io.File;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compares the violations of a build with a {@link ViolationBaseline} while they are aggregated.
+ *
+ * Only development components registered via {@link #addComponent(String)} (i.e. checked by the build) are compared with their
+ * section of the baseline. Violations not contained in the section are passed on to the given handler (e.g. the writer of the
+ * aggregated 'checkstyle-result.xml'). Violations of the section not matched by any violation of the build are reported as fixed.
+ * Sections of development components not checked by the build are left alone. Development components missing from the baseline
+ * (e.g. new ones) are added to it instead of reporting all their violations as new.
+ *
+ * @author Dirk Weigenand
+ */
+final class BaselineDiff implements ViolationHandler {
+    /**
+     * name of the file (in the root folder of a build) the violations fixed since the baseline are written to.
+     */
+    static final String FIXED_FILE_NAME = "checkstyle-fixed.xml";
+
+    /**
+     * digest used to compute fingerprints.
+     */
+    private final MessageDigest digest = DigestHelper.createDigest(DigestHelper.MD5);
+
+    /**
+     * the baseline to compare with.
+     */
+    private final ViolationBaseline baseline;
+
+    /**
+     * handler receiving the violations not contained in the baseline.
+     */
+    private final ViolationHandler newViolations;
+
+    /**
+     * indexes of the violations of the baseline belonging to development components checked by the build.
+     */
+    private final BitSet checked = new BitSet();
+
+    /**
+     * indexes of the violations of the baseline matched so far.
+     */
+    private final BitSet matched = new BitSet();
+
+    /**
+     * records the violations of the checked development components missing from the baseline.
+     */
+    private final ViolationBaseline.Recorder addedComponents = new ViolationBaseline.Recorder();
+
+    /**
+     * number of violations not contained in the baseline.
+     */
+    private int newCount;
+
+    /**
+     * Create a diff of the violations of a build against the given baseline.
+     *
+     * @param baseline
+     *            the baseline to compare with.
+     * @param newViolations
+     *            handler receiving the violations not contained in the baseline.
+     */
+    BaselineDiff(final ViolationBaseline baseline, final ViolationHandler newViolations) {
+        this.baseline = baseline;
+        this.newViolations = newViolations;
+    }
+
+    /**
+     * Register the given development component as checked by the build, i.e. compare its violations with its section of the
+     * baseline (or add it to the baseline when it is missing).
+     *
+     * @param component
+     *            name of development component.
+     */
+    void addComponent(final String component) {
+        if (baseline.contains(component)) {
+            baseline.select(component, checked);
+        }
+        else {
+            addedComponents.addComponent(component);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void handle(final String component, final String packageName, final String fileName, final List<Violation> violations)
+        throws IOException {
+        if (!baseline.contains(component)) {
+            addedComponents.handle(component, packageName, fileName, violations);
+
+            return;
+        }
+
+        final List<Violation> added = new ArrayList<Violation>();
+
+        for (final Violation violation : violations) {
+            if (baseline.match(component, ViolationBaseline.fingerprint(digest, packageName, fileName, violation), matched) < 0) {
+                added.add(violation);
+            }
+        }
+
+        if (!added.isEmpty()) {
+            newCount += added.size();
+            newViolations.handle(component, packageName, fileName, added);
+        }
+    }
+
+    /**
+     * @return the number of the build the baseline was recorded from.
+     */
+    int getBaselineBuild() {
+        return baseline.getBuildNumber();
+    }
+
+    /**
+     * @return the number of violations not contained in the baseline.
+     */
+    int getNewCount() {
+        return newCount;
+    }
+
+    /**
+     * @return the number of violations of the checked development components in the baseline not found any more.
+     */
+    int getFixedCount() {
+        return checked.cardinality() - matched.cardinality();
+    }
+
+    /**
+     * @return the names of the checked development components missing from the baseline.
+     */
+    Set<String> getAddedComponents() {
+        return addedComponents.getComponents();
+    }
+
+    /**
+     * Write the baseline extended by the checked development components missing from it into the given file. The number of the
+     * build the baseline was recorded from is kept.
+     *
+     * @param baselineFile
+     *            file to write the baseline to.
+     * @throws IOException
+     *             when reading the baseline or writing the file failed.
+     */
+    void writeBaseline(final File baselineFile) throws IOException {
+        baseline.copyTo(addedComponents, baseline.getComponents());
+        addedComponents.write(baselineFile, baseline.getBuildNumber());
+    }
+
+    /**
+     * Write the violations of the checked development components in the baseline not found any more into the given file (using
+     * the format of 'checkstyle-result.xml').
+     *
+     * @param fixedFile
+     *            the file to write.
+     * @throws IOException
+     *             when reading the baseline or writing the file failed.
+     */
+    void writeFixed(final File fixedFile) throws IOException {
+        final BitSet fixed = (BitSet)checked.clone();
+        fixed.andNot(matched);
+
+        final ResultXmlWriter writer = new ResultXmlWriter(fixedFile);
+
+        try {
+            writer.start();
+
+            for (final Map.Entry<String, List<Violation>> violations : baseline.readViolations(fixed).entrySet()) {
+                writer.write(violations.getKey(), violations.getValue());
+            }
+
+            writer.finish();
+        }
+        finally {
+            writer.close();
+        }
+    }
+}
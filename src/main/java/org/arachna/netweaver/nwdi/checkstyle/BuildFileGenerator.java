@@ -3,17 +3,27 @@
  */
 package org.arachna.netweaver.nwdi.checkstyle;
 
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.io.Reader;
+import java.io.StringWriter;
 import java.io.Writer;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import org.apache.tools.ant.DirectoryScanner;
 import org.apache.velocity.VelocityContext;
 import org.apache.velocity.app.VelocityEngine;
 import org.apache.velocity.context.Context;
@@ -33,11 +43,41 @@ class BuildFileGenerator {
      */
     protected static final String BUILD_XML_PATH_TEMPLATE = "%s/checkstyle-build.xml";
 
+    /**
+     * name of default target of a build file checking several development components.
+     */
+    protected static final String ALL_TARGET = "all";
+
+    /**
+     * template for build files of a single development component.
+     */
+    private static final String BUILD_TEMPLATE = "/org/arachna/netweaver/nwdi/checkstyle/checkstyle-build.vm";
+
+    /**
+     * template for build files checking several development components.
+     */
+    private static final String PROJECT_TEMPLATE = "/org/arachna/netweaver/nwdi/checkstyle/checkstyle-project.vm";
+
+    /**
+     * suffix of the file next to a generated build file containing the fingerprint of the inputs it was generated from.
+     */
+    static final String FINGERPRINT_SUFFIX = ".fingerprint";
+
+    /**
+     * prefix of the names of the velocimacros holding the parsed templates.
+     */
+    private static final String MACRO_PREFIX = "nwdiCheckstyle_";
+
     /**
      * Encoding to use for writing build files and reading their templates.
      */
     private static final String ENCODING = "UTF-8";
 
+    /**
+     * size of buffer used for reading templates.
+     */
+    private static final int BUFFER_SIZE = 4096;
+
     /**
      * Checkstyle configuration file.
      */
@@ -59,9 +99,14 @@ class BuildFileGenerator {
     private final Set<String> excludes = new HashSet<String>();
 
     /**
-     * Excludes 'by regexp over content' configured in project.
+     * filter for excluding sources by their content.
      */
-    private final Set<String> excludeContainsRegexps = new HashSet<String>();
+    private final ContentExcludeFilter contentExcludeFilter;
+
+    /**
+     * resolver for the archives on the class path of development components.
+     */
+    private final ClassPathResolver classPathResolver;
 
     /**
      * Template to use for generating build files.
@@ -85,35 +130,122 @@ class BuildFileGenerator {
      */
     BuildFileGenerator(final VelocityEngine engine, final AntHelper antHelper, final String pathToGlobalCheckstyleConfig,
         final Collection<String> excludes, final Collection<String> excludeContainsRegexps) {
+        this(engine, antHelper, pathToGlobalCheckstyleConfig, excludes, new ContentExcludeFilter(excludeContainsRegexps),
+            new ClassPathResolver(antHelper));
+    }
+
+    /**
+     * Create an instance of an {@link BuildFileGenerator} with the given workspace location, checkstyle configuration file and
+     * filter for excluding sources by their content.
+     * 
+     * @param engine
+     *            VelocityEngine for build file generation.
+     * @param antHelper
+     *            helper class for populating the checkstyle ant task's file sets, class path etc.
+     * @param pathToGlobalCheckstyleConfig
+     *            the path to the global checkstyle configuration file
+     * @param excludes
+     *            Ant exclude patterns.
+     * @param contentExcludeFilter
+     *            filter for excluding sources by their content.
+     * @param classPathResolver
+     *            resolver for the archives on the class path of development components.
+     */
+    BuildFileGenerator(final VelocityEngine engine, final AntHelper antHelper, final String pathToGlobalCheckstyleConfig,
+        final Collection<String> excludes, final ContentExcludeFilter contentExcludeFilter, final ClassPathResolver classPathResolver) {
         this.engine = engine;
         this.antHelper = antHelper;
         this.pathToGlobalCheckstyleConfig = pathToGlobalCheckstyleConfig;
         this.excludes.addAll(excludes);
-        this.excludeContainsRegexps.addAll(excludeContainsRegexps);
+        this.contentExcludeFilter = contentExcludeFilter;
+        this.classPathResolver = classPathResolver;
     }
 
     /**
-     * Generates the 'checkstyle-build.xml' for the given development component.
+     * Generates the 'checkstyle-build.xml' for the given development component. An existing build file is only generated again when
+     * the inputs it was generated from (sources, excludes, class path, checkstyle configuration path or template) changed.
      * 
      * @param component
      *            the development component to generate the 'checkstyle-build.xml' for.
      * @return path to generated build file.
      */
     BuildDescriptor execute(final DevelopmentComponent component) {
+        final Collection<String> sources = getSources(component);
+
+        if (!sources.isEmpty()) {
+            final String location = getBuildXmlLocation(component);
+            write(location, createContext(component, sources), BUILD_TEMPLATE);
+
+            return new BuildDescriptor(location, String.format("checkstyle-%s", component.getNormalizedName("~")));
+        }
+
+        return null;
+    }
+
+    /**
+     * Generates one build file checking all the given development components. Its default target depends on the checkstyle targets
+     * of every development component, so that all of them can be checked using a single Ant invocation.
+     * 
+     * @param components
+     *            the development components to generate the build file for.
+     * @param location
+     *            path of the build file to generate.
+     * @return descriptor of the generated build file or <code>null</code> when none of the components contains sources to check.
+     */
+    BuildDescriptor execute(final Collection<DevelopmentComponent> components, final String location) {
+        final Context context = createContext(components);
+
+        if (((Collection<?>)context.get("components")).isEmpty()) {
+            return null;
+        }
+
+        write(location, context, PROJECT_TEMPLATE);
+
+        return new BuildDescriptor(location, ALL_TARGET);
+    }
+
+    /**
+     * Determine the source folders of the given development component to check with checkstyle.
+     * 
+     * @param component
+     *            development component to determine the source folders for.
+     * @return source and test source folders of the given development component.
+     */
+    private Collection<String> getSources(final DevelopmentComponent component) {
+        final Collection<String> sources = antHelper.createSourceFileSets(component, new ExcludeDataDictionarySourceDirectoryFilter());
+        sources.addAll(component.getTestSourceFolders());
+
+        return sources;
+    }
+
+    /**
+     * Evaluate the given template using the given context and write the result into the given location.
+     * 
+     * @param location
+     *            path of build file to write.
+     * @param context
+     *            velocity context to be evaluated.
+     * @param template
+     *            class path resource of template to use.
+     */
+    private void write(final String location, final Context context, final String template) {
+        final String fingerprint = createFingerprint(context, template);
+        final File fingerprintFile = new File(location + FINGERPRINT_SUFFIX);
+
+        if (new File(location).exists() && fingerprint.equals(readFingerprint(fingerprintFile))) {
+            return;
+        }
+
         Writer buildFile = null;
 
         try {
-            final Collection<String> sources = antHelper.createSourceFileSets(component, new ExcludeDataDictionarySourceDirectoryFilter());
-            sources.addAll(component.getTestSourceFolders());
-
-            if (!sources.isEmpty()) {
-                final Context context = createContext(component, sources);
-                final String location = getBuildXmlLocation(component);
-                buildFile = new OutputStreamWriter(new FileOutputStream(location), Charset.forName(ENCODING));
-                evaluateContext(buildFile, context);
+            fingerprintFile.delete();
+            buildFile = new OutputStreamWriter(new FileOutputStream(location), Charset.forName(ENCODING));
+            evaluateContext(buildFile, context, template);
+            buildFile.close();
+            buildFile = null;
 
-                return new BuildDescriptor(location, String.format("checkstyle-%s", component.getNormalizedName("~")));
-            }
+            writeFingerprint(fingerprintFile, fingerprint);
         }
         catch (final IOException e) {
             throw new IllegalStateException(e);
@@ -128,8 +260,6 @@ class BuildFileGenerator {
                 }
             }
         }
-
-        return null;
     }
 
     /**
@@ -152,15 +282,243 @@ class BuildFileGenerator {
      *            velocity context to be evaluated.
      */
     void evaluateContext(final Writer buildFile, final Context context) {
-        engine.evaluate(context, buildFile, "checkstyle-build", getTemplate());
+        evaluateContext(buildFile, context, BUILD_TEMPLATE);
+    }
+
+    /**
+     * Evaluate the given context using the given template and write the transformation result into the given writer instance.
+     * 
+     * @param buildFile
+     *            writer to receive the transformation result.
+     * @param context
+     *            velocity context to be evaluated.
+     * @param template
+     *            class path resource of template to use.
+     */
+    void evaluateContext(final Writer buildFile, final Context context, final String template) {
+        getTemplateDigest(template);
+
+        if (!engine.invokeVelocimacro(getMacroName(template), template, new String[0], context, buildFile)) {
+            throw new IllegalStateException(String.format("Could not evaluate template %s.", template));
+        }
     }
 
     /**
-     * @return
+     * Returns the digest of the given template. The template is parsed and registered as a global velocimacro with the velocity
+     * engine on first use, so that it is read and parsed only once per engine.
+     * 
+     * @param template
+     *            class path resource of template.
+     * @return digest of the given template.
      */
-    private Reader getTemplate() {
-        return new InputStreamReader(getClass().getResourceAsStream("/org/arachna/netweaver/nwdi/checkstyle/checkstyle-build.vm"),
-            Charset.forName(ENCODING));
+    private String getTemplateDigest(final String template) {
+        synchronized (engine) {
+            String digest = (String)engine.getApplicationAttribute(getMacroName(template));
+
+            if (digest == null) {
+                final String content = readTemplate(template);
+                engine.evaluate(new VelocityContext(), new StringWriter(), template,
+                    String.format("#macro(%s)%s#end", getMacroName(template), content));
+                digest = DigestHelper.digest(content);
+                engine.setApplicationAttribute(getMacroName(template), digest);
+            }
+
+            return digest;
+        }
+    }
+
+    /**
+     * Determine the name of the velocimacro holding the given template.
+     * 
+     * @param template
+     *            class path resource of template.
+     * @return name of velocimacro holding the given template.
+     */
+    private String getMacroName(final String template) {
+        return MACRO_PREFIX + template.substring(template.lastIndexOf('/') + 1, template.lastIndexOf('.')).replace('-', '_');
+    }
+
+    /**
+     * Determine the sources to exclude from checking because of their content. Sources are examined by the configured
+     * {@link ContentExcludeFilter} (instead of Ant's 'containsregexp' selector) so that regular expressions are compiled only once
+     * and only the configured number of header lines is read.
+     * 
+     * @param sources
+     *            a collection of source paths to be checked with checkstyle.
+     * @param componentExcludes
+     *            Ant exclude patterns for the development component.
+     * @return paths (relative to their source folder) of sources to exclude mapped to their source folder.
+     */
+    private Map<String, Collection<String>> getExcludedByContent(final Collection<String> sources,
+        final Collection<String> componentExcludes) {
+        final Map<String, Collection<String>> excludedByContent = new HashMap<String, Collection<String>>();
+
+        for (final String source : sources) {
+            final Collection<String> excludedFiles = new HashSet<String>();
+            excludedByContent.put(source, excludedFiles);
+            final File sourceFolder = new File(source);
+
+            if (contentExcludeFilter.isEmpty() || !sourceFolder.isDirectory()) {
+                continue;
+            }
+
+            final DirectoryScanner scanner = new DirectoryScanner();
+            scanner.setBasedir(sourceFolder);
+            scanner.setIncludes(new String[] { "**/*.java" });
+            scanner.setExcludes(componentExcludes.toArray(new String[componentExcludes.size()]));
+            scanner.scan();
+
+            try {
+                for (final String fileName : scanner.getIncludedFiles()) {
+                    if (contentExcludeFilter.isExcluded(new File(sourceFolder, fileName))) {
+                        excludedFiles.add(fileName.replace(File.separatorChar, '/'));
+                    }
+                }
+            }
+            catch (final IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        return excludedByContent;
+    }
+
+    /**
+     * Read the given template.
+     * 
+     * @param template
+     *            class path resource of template to read.
+     * @return content of the given template.
+     */
+    private String readTemplate(final String template) {
+        final StringBuilder content = new StringBuilder();
+
+        try {
+            final Reader reader = new InputStreamReader(getClass().getResourceAsStream(template), Charset.forName(ENCODING));
+
+            try {
+                final char[] buffer = new char[BUFFER_SIZE];
+                int count;
+
+                while ((count = reader.read(buffer)) != -1) {
+                    content.append(buffer, 0, count);
+                }
+            }
+            finally {
+                reader.close();
+            }
+        }
+        catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+
+        return content.toString();
+    }
+
+    /**
+     * Calculate a fingerprint of the inputs a build file is generated from, i.e. the template and the content of the given
+     * context. Collections whose order is irrelevant for the generated build file are sorted.
+     * 
+     * @param context
+     *            velocity context to be evaluated.
+     * @param template
+     *            class path resource of template to use.
+     * @return fingerprint of template and context.
+     */
+    private String createFingerprint(final Context context, final String template) {
+        final Map<String, Object> values = new HashMap<String, Object>();
+
+        for (final Object key : context.getKeys()) {
+            values.put(String.valueOf(key), context.get(String.valueOf(key)));
+        }
+
+        return DigestHelper.digest(getTemplateDigest(template) + canonicalize(values));
+    }
+
+    /**
+     * Create a string representation of the given value that does not depend on the iteration order of maps and sets.
+     * 
+     * @param value
+     *            value to represent.
+     * @return string representation of the given value.
+     */
+    private String canonicalize(final Object value) {
+        if (value instanceof Map<?, ?>) {
+            final List<String> entries = new ArrayList<String>();
+
+            for (final Map.Entry<?, ?> entry : ((Map<?, ?>)value).entrySet()) {
+                entries.add(entry.getKey() + "=" + canonicalize(entry.getValue()));
+            }
+
+            Collections.sort(entries);
+
+            return entries.toString();
+        }
+
+        if (value instanceof Collection<?>) {
+            final List<String> elements = new ArrayList<String>();
+
+            for (final Object element : (Collection<?>)value) {
+                elements.add(canonicalize(element));
+            }
+
+            if (!(value instanceof List<?>)) {
+                Collections.sort(elements);
+            }
+
+            return elements.toString();
+        }
+
+        return String.valueOf(value);
+    }
+
+    /**
+     * Read the fingerprint from the given file.
+     * 
+     * @param fingerprintFile
+     *            file containing the fingerprint of a generated build file.
+     * @return the fingerprint read or <code>null</code> when the file does not exist or could not be read.
+     */
+    private String readFingerprint(final File fingerprintFile) {
+        if (fingerprintFile.exists()) {
+            try {
+                final BufferedReader reader =
+                    new BufferedReader(new InputStreamReader(new FileInputStream(fingerprintFile), Charset.forName(ENCODING)));
+
+                try {
+                    return reader.readLine();
+                }
+                finally {
+                    reader.close();
+                }
+            }
+            catch (final IOException e) {
+                // build file will be generated again.
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Write the given fingerprint into the given file.
+     * 
+     * @param fingerprintFile
+     *            file to receive the fingerprint of a generated build file.
+     * @param fingerprint
+     *            the fingerprint to write.
+     * @throws IOException
+     *             when writing the fingerprint failed.
+     */
+    private void writeFingerprint(final File fingerprintFile, final String fingerprint) throws IOException {
+        final Writer writer = new OutputStreamWriter(new FileOutputStream(fingerprintFile), Charset.forName(ENCODING));
+
+        try {
+            writer.write(fingerprint);
+        }
+        finally {
+            writer.close();
+        }
     }
 
     /**
@@ -173,17 +531,58 @@ class BuildFileGenerator {
      * @return the velocity context produced.
      */
     Context createContext(final DevelopmentComponent component, final Collection<String> sources) {
+        final Context context = new VelocityContext(createComponentModel(component, sources));
+        context.put("checkstyleconfig", pathToGlobalCheckstyleConfig);
+
+        return context;
+    }
+
+    /**
+     * Fill in the velocity context to be used to create a build file checking all the given development components.
+     * 
+     * @param components
+     *            development components the build file shall be created for.
+     * @return the velocity context produced. Development components without sources are omitted.
+     */
+    Context createContext(final Collection<DevelopmentComponent> components) {
+        final List<Map<String, Object>> models = new ArrayList<Map<String, Object>>();
+
+        for (final DevelopmentComponent component : components) {
+            final Collection<String> sources = getSources(component);
+
+            if (!sources.isEmpty()) {
+                models.add(createComponentModel(component, sources));
+            }
+        }
+
         final Context context = new VelocityContext();
-        context.put("sourcePaths", sources);
+        context.put("components", models);
         context.put("checkstyleconfig", pathToGlobalCheckstyleConfig);
-        context.put("excludes", excludesFactory.create(component, excludes));
-        context.put("excludeContainsRegexps", excludeContainsRegexps);
-        context.put("classpaths", antHelper.createClassPath(component));
-        context.put("classes", component.getOutputFolder());
-        context.put("vendor", component.getVendor());
-        context.put("component", component.getName().replaceAll("/", "~"));
-        context.put("componenBase", antHelper.getBaseLocation(component));
 
         return context;
     }
+
+    /**
+     * Collect the properties of the given development component used in build file templates.
+     * 
+     * @param component
+     *            development component to collect the properties of.
+     * @param sources
+     *            a collection of source paths to be checked with checkstyle.
+     * @return the properties of the given development component mapped to their names.
+     */
+    private Map<String, Object> createComponentModel(final DevelopmentComponent component, final Collection<String> sources) {
+        final Collection<String> componentExcludes = excludesFactory.create(component, excludes);
+        final Map<String, Object> model = new HashMap<String, Object>();
+        model.put("sourcePaths", sources);
+        model.put("excludes", componentExcludes);
+        model.put("excludedByContent", getExcludedByContent(sources, componentExcludes));
+        model.put("classpaths", classPathResolver.getArchivePaths(component));
+        model.put("classes", component.getOutputFolder());
+        model.put("vendor", component.getVendor());
+        model.put("component", component.getName().replaceAll("/", "~"));
+        model.put("componenBase", antHelper.getBaseLocation(component));
+
+        return model;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,147 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import hudson.scm.ChangeLogSet;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+
+/**
+ * Paths of the files changed by the activities integrated into a build.
+ *
+ * Affected paths of activities are repository paths. A source file of a development component is considered changed when an
+ * affected path ends with '&lt;vendor&gt;/&lt;component name&gt;/_comp/&lt;path relative to component base&gt;'.
+ *
+ * @author Dirk Weigenand
+ */
+final class ChangedFiles {
+    /**
+     * affected paths mapped to their file names.
+     */
+    private final Map<String, Collection<String>> pathsByFileName = new HashMap<String, Collection<String>>();
+
+    /**
+     * Create the changed files from the given change log.
+     *
+     * @param changeSet
+     *            change log of a build.
+     */
+    ChangedFiles(final ChangeLogSet<? extends ChangeLogSet.Entry> changeSet) {
+        if (changeSet != null) {
+            for (final ChangeLogSet.Entry entry : changeSet) {
+                for (final String path : entry.getAffectedPaths()) {
+                    add(path);
+                }
+            }
+        }
+    }
+
+    /**
+     * Create the changed files from the given affected paths.
+     *
+     * @param affectedPaths
+     *            paths affected by the activities integrated into a build.
+     */
+    ChangedFiles(final Collection<String> affectedPaths) {
+        for (final String path : affectedPaths) {
+            add(path);
+        }
+    }
+
+    /**
+     * Add the given affected path.
+     *
+     * @param path
+     *            path affected by an activity.
+     */
+    private void add(final String path) {
+        final String normalizedPath = normalize(path);
+        final String fileName = normalizedPath.substring(normalizedPath.lastIndexOf('/') + 1);
+        Collection<String> paths = pathsByFileName.get(fileName);
+
+        if (paths == null) {
+            paths = new ArrayList<String>();
+            pathsByFileName.put(fileName, paths);
+        }
+
+        paths.add(normalizedPath);
+    }
+
+    /**
+     * Returns whether the given source file of the given development component was changed.
+     *
+     * @param component
+     *            development component the source file belongs to.
+     * @param baseLocation
+     *            base location ('_comp' folder) of the development component.
+     * @param file
+     *            source file.
+     * @return <code>true</code> when an activity of the build affected the given file, <code>false</code> otherwise.
+     */
+    boolean contains(final DevelopmentComponent component, final String baseLocation, final File file) {
+        final Collection<String> paths = pathsByFileName.get(file.getName());
+
+        if (paths == null) {
+            return false;
+        }
+
+        final String base = normalize(baseLocation);
+        final String path = normalize(file.getAbsolutePath());
+
+        if (!path.startsWith(base)) {
+            return false;
+        }
+
+        final String suffix = String.format("%s/%s/_comp%s", component.getVendor(), component.getName(), path.substring(base.length()));
+
+        for (final String affectedPath : paths) {
+            if (affectedPath.endsWith(suffix)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns whether a source file of the given development component was changed.
+     *
+     * @param component
+     *            the development component.
+     * @return <code>true</code> when an activity of the build affected a file of the given development component,
+     *         <code>false</code> otherwise.
+     */
+    boolean affects(final DevelopmentComponent component) {
+        final String componentPath = String.format("/%s/%s/_comp/", component.getVendor(), component.getName());
+
+        for (final Collection<String> paths : pathsByFileName.values()) {
+            for (final String path : paths) {
+                if (path.contains(componentPath)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Normalize the given path to use '/' as separator and no trailing separator.
+     *
+     * @param path
+     *            path to normalize.
+     * @return the normalized path.
+     */
+    private static String normalize(final String path) {
+        final String normalizedPath = path.replace('\\', '/');
+
+        return normalizedPath.endsWith("/") ? normalizedPath.substring(0, normalizedPath.length() - 1) : normalizedPath;
+    }
+}
@@ -0,0 +1,117 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+
+/**
+ * Cumulative CPU time and number of invocations per checkstyle check across all development components of a build.
+ *
+ * Instances may be used concurrently. Profiled modules accumulate their measurements locally and add them when they are destroyed.
+ *
+ * @author Dirk Weigenand
+ */
+final class CheckProfile {
+    /**
+     * nanoseconds per millisecond.
+     */
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    /**
+     * bean for determining the CPU time of the current thread.
+     */
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    /**
+     * whether the CPU time of threads can be measured (wall clock time is measured otherwise).
+     */
+    private static final boolean CPU_TIME_SUPPORTED = THREADS.isCurrentThreadCpuTimeSupported() && THREADS.isThreadCpuTimeEnabled();
+
+    /**
+     * nanoseconds and invocations mapped to names of checks.
+     */
+    private final Map<String, long[]> checks = new HashMap<String, long[]>();
+
+    /**
+     * Add the given measurements of a check.
+     *
+     * @param check
+     *            name of check.
+     * @param nanos
+     *            CPU time in nanoseconds.
+     * @param invocations
+     *            number of invocations.
+     */
+    synchronized void add(final String check, final long nanos, final long invocations) {
+        long[] values = checks.get(check);
+
+        if (values == null) {
+            values = new long[2];
+            checks.put(check, values);
+        }
+
+        values[0] += nanos;
+        values[1] += invocations;
+    }
+
+    /**
+     * @return the timings of all checks (most expensive checks first).
+     */
+    synchronized List<CheckTiming> getTimings() {
+        final List<CheckTiming> timings = new ArrayList<CheckTiming>(checks.size());
+
+        for (final Map.Entry<String, long[]> check : checks.entrySet()) {
+            timings.add(new CheckTiming(check.getKey(), check.getValue()[0] / NANOS_PER_MILLI, check.getValue()[1]));
+        }
+
+        Collections.sort(timings, new Comparator<CheckTiming>() {
+            public int compare(final CheckTiming first, final CheckTiming second) {
+                final long difference = second.getMillis() - first.getMillis();
+
+                return difference == 0 ? first.getCheck().compareTo(second.getCheck()) : difference > 0 ? 1 : -1;
+            }
+        });
+
+        return timings;
+    }
+
+    /**
+     * @return the CPU time of the current thread in nanoseconds (wall clock time when CPU time is not supported).
+     */
+    static long currentTime() {
+        return CPU_TIME_SUPPORTED ? THREADS.getCurrentThreadCpuTime() : System.nanoTime();
+    }
+
+    /**
+     * Determine the name a module is reported with: its module name and its id (if configured).
+     *
+     * @param module
+     *            configuration of module.
+     * @return the name to report the given module with.
+     */
+    static String getName(final Configuration module) {
+        try {
+            for (final String attribute : module.getAttributeNames()) {
+                if ("id".equals(attribute)) {
+                    return String.format("%s[%s]", module.getName(), module.getAttribute(attribute));
+                }
+            }
+        }
+        catch (final CheckstyleException e) {
+            // fall through
+        }
+
+        return module.getName();
+    }
+}
@@ -0,0 +1,63 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+/**
+ * Cumulative execution time and number of invocations of a checkstyle check during a build.
+ *
+ * @author Dirk Weigenand
+ */
+public final class CheckTiming {
+    /**
+     * name of check (module name as given in the checkstyle configuration).
+     */
+    private final String check;
+
+    /**
+     * cumulative CPU time in milliseconds.
+     */
+    private final long millis;
+
+    /**
+     * number of invocations.
+     */
+    private final long invocations;
+
+    /**
+     * Create the timing of a check.
+     *
+     * @param check
+     *            name of check.
+     * @param millis
+     *            cumulative CPU time in milliseconds.
+     * @param invocations
+     *            number of invocations.
+     */
+    CheckTiming(final String check, final long millis, final long invocations) {
+        this.check = check;
+        this.millis = millis;
+        this.invocations = invocations;
+    }
+
+    /**
+     * @return the name of the check.
+     */
+    public String getCheck() {
+        return check;
+    }
+
+    /**
+     * @return the cumulative CPU time in milliseconds.
+     */
+    public long getMillis() {
+        return millis;
+    }
+
+    /**
+     * @return the number of invocations.
+     */
+    public long getInvocations() {
+        return invocations;
+    }
+}
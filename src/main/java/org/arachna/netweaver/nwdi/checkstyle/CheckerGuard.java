@@ -0,0 +1,157 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+import com.puppycrawl.tools.checkstyle.api.Utils;
+
+/**
+ * Makes configuring and running several {@link Checker}s concurrently in one JVM safe.
+ *
+ * Checkstyle caches the regular expressions of its modules in an unsynchronized static map ({@link Utils#getPattern(String, int)}).
+ * Modules (including custom checks) add to this map while being configured and while checking. Concurrent additions may corrupt
+ * the map or, on Java 6 and 7, let a thread spin forever while the map is resized.
+ *
+ * Therefore the map is replaced by a synchronized copy via reflection before the first checker is configured. When the field
+ * holding the map does not exist (i.e. the version of checkstyle is not supported), using this class fails. When the JVM does
+ * not permit replacing the map (the field is final, Java 12 and later refuse to write it), checkers are run one at a time in this
+ * JVM. Configuring checkers is always serialized, since modules of checkstyle register converters in static state while being
+ * configured.
+ *
+ * @author Dirk Weigenand
+ */
+final class CheckerGuard {
+    /**
+     * name of the field of {@link Utils} holding the cache of regular expressions.
+     */
+    static final String PATTERN_CACHE_FIELD = "CREATED_RES";
+
+    /**
+     * lock serializing the configuration of checkers and, when the pattern cache could not be synchronized, their runs.
+     */
+    private static final Lock LOCK = new ReentrantLock();
+
+    /**
+     * whether the pattern cache of checkstyle has been replaced by a synchronized map.
+     */
+    private static final boolean PATTERN_CACHE_SYNCHRONIZED = synchronizePatternCache();
+
+    /**
+     * Utility class.
+     */
+    private CheckerGuard() {
+    }
+
+    /**
+     * Configure the given checker with the given configuration.
+     *
+     * @param checker
+     *            the checker to configure.
+     * @param configuration
+     *            the checkstyle configuration.
+     * @throws CheckstyleException
+     *             when the checker could not be configured.
+     */
+    static void configure(final Checker checker, final Configuration configuration) throws CheckstyleException {
+        LOCK.lock();
+
+        try {
+            checker.configure(configuration);
+        }
+        finally {
+            LOCK.unlock();
+        }
+    }
+
+    /**
+     * Run the given checker (configured via {@link #configure(Checker, Configuration)}) on the given files.
+     *
+     * @param checker
+     *            the checker to run.
+     * @param files
+     *            the files to check.
+     * @return the number of errors found.
+     */
+    static int process(final Checker checker, final List<File> files) {
+        if (PATTERN_CACHE_SYNCHRONIZED) {
+            return checker.process(files);
+        }
+
+        LOCK.lock();
+
+        try {
+            return checker.process(files);
+        }
+        finally {
+            LOCK.unlock();
+        }
+    }
+
+    /**
+     * @return whether checkers may run concurrently in this JVM (i.e. the pattern cache of checkstyle has been synchronized).
+     */
+    static boolean isConcurrent() {
+        return PATTERN_CACHE_SYNCHRONIZED;
+    }
+
+    /**
+     * Replace the pattern cache of checkstyle by a synchronized copy.
+     *
+     * @return <code>true</code> when the pattern cache has been replaced, <code>false</code> when the JVM does not permit writing
+     *         the field holding it.
+     * @throws IllegalStateException
+     *             when {@link Utils} has no pattern cache (i.e. the version of checkstyle is not supported).
+     */
+    private static boolean synchronizePatternCache() {
+        final Field cache;
+
+        try {
+            cache = Utils.class.getDeclaredField(PATTERN_CACHE_FIELD);
+        }
+        catch (final NoSuchFieldException e) {
+            throw new IllegalStateException(String.format("%s.%s not found: checkers cannot be run concurrently with this "
+                + "version of checkstyle.", Utils.class.getName(), PATTERN_CACHE_FIELD), e);
+        }
+
+        if (!Map.class.equals(cache.getType()) || !Modifier.isStatic(cache.getModifiers())) {
+            throw new IllegalStateException(String.format("%s.%s is not a static map: checkers cannot be run concurrently with "
+                + "this version of checkstyle.", Utils.class.getName(), PATTERN_CACHE_FIELD));
+        }
+
+        try {
+            cache.setAccessible(true);
+
+            final Field modifiers = Field.class.getDeclaredField("modifiers");
+            modifiers.setAccessible(true);
+            modifiers.setInt(cache, cache.getModifiers() & ~Modifier.FINAL);
+
+            final Map<?, ?> patterns = (Map<?, ?>)cache.get(null);
+            cache.set(null, Collections.synchronizedMap(new HashMap<Object, Object>(patterns)));
+
+            return cache.get(null) != patterns;
+        }
+        catch (final NoSuchFieldException e) {
+            return false;
+        }
+        catch (final IllegalAccessException e) {
+            return false;
+        }
+        catch (final RuntimeException e) {
+            // the module system of Java 9 and later may refuse access
+            return false;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import hudson.model.AbstractBuild;
+import hudson.model.Action;
+import hudson.model.Item;
+
+import java.io.File;
+import java.io.IOException;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
+/**
+ * Presents the result of comparing the violations of a build with the baseline of its project: the number of new and fixed
+ * violations and downloads of both as 'checkstyle-result.xml'. Offers to record a new baseline with the next build.
+ *
+ * @author Dirk Weigenand
+ */
+public final class CheckstyleBaselineAction implements Action {
+    /**
+     * the build compared with the baseline.
+     */
+    private final AbstractBuild<?, ?> owner;
+
+    /**
+     * number of the build the baseline was recorded from.
+     */
+    private final int baselineBuild;
+
+    /**
+     * number of violations not contained in the baseline.
+     */
+    private final int newViolations;
+
+    /**
+     * number of violations of the baseline not found any more.
+     */
+    private final int fixedViolations;
+
+    /**
+     * Create an action presenting the result of comparing the given build with the baseline of its project.
+     *
+     * @param owner
+     *            the build compared with the baseline.
+     * @param baselineBuild
+     *            number of the build the baseline was recorded from (the number of the owner when it recorded the baseline).
+     * @param newViolations
+     *            number of violations not contained in the baseline.
+     * @param fixedViolations
+     *            number of violations of the baseline not found any more.
+     */
+    CheckstyleBaselineAction(final AbstractBuild<?, ?> owner, final int baselineBuild, final int newViolations,
+        final int fixedViolations) {
+        this.owner = owner;
+        this.baselineBuild = baselineBuild;
+        this.newViolations = newViolations;
+        this.fixedViolations = fixedViolations;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getIconFileName() {
+        return "graph.png";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getDisplayName() {
+        return Messages.checkstyle_baseline_displayname();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getUrlName() {
+        return "checkstyleBaseline";
+    }
+
+    /**
+     * @return the build compared with the baseline.
+     */
+    public AbstractBuild<?, ?> getOwner() {
+        return owner;
+    }
+
+    /**
+     * @return the number of the build the baseline was recorded from.
+     */
+    public int getBaselineBuild() {
+        return baselineBuild;
+    }
+
+    /**
+     * @return whether the owner recorded the baseline.
+     */
+    public boolean isRecorded() {
+        return baselineBuild == owner.getNumber();
+    }
+
+    /**
+     * @return the number of violations not contained in the baseline.
+     */
+    public int getNewViolations() {
+        return newViolations;
+    }
+
+    /**
+     * @return the number of violations of the baseline not found any more.
+     */
+    public int getFixedViolations() {
+        return fixedViolations;
+    }
+
+    /**
+     * Send the violations not contained in the baseline.
+     *
+     * @param request
+     *            the current request.
+     * @param response
+     *            response to write the violations to.
+     * @throws IOException
+     *             when writing the response failed.
+     */
+    public void doNew(final StaplerRequest request, final StaplerResponse response) throws IOException {
+        CheckstyleResultAction.sendXml(ResultFormat.findResultFile(owner.getRootDir()), "checkstyle-new.xml", response);
+    }
+
+    /**
+     * Send the violations of the baseline not found any more.
+     *
+     * @param request
+     *            the current request.
+     * @param response
+     *            response to write the violations to.
+     * @throws IOException
+     *             when writing the response failed.
+     */
+    public void doFixed(final StaplerRequest request, final StaplerResponse response) throws IOException {
+        CheckstyleResultAction.sendXml(new File(owner.getRootDir(), BaselineDiff.FIXED_FILE_NAME), BaselineDiff.FIXED_FILE_NAME,
+            response);
+    }
+
+    /**
+     * Request the next build of the project to record a new baseline.
+     *
+     * @param request
+     *            the current request.
+     * @param response
+     *            response redirecting to this action.
+     * @throws IOException
+     *             when the request could not be recorded.
+     */
+    public void doReset(final StaplerRequest request, final StaplerResponse response) throws IOException {
+        if (!"POST".equals(request.getMethod())) {
+            response.sendError(HttpServletResponse.SC_METHOD_NOT_ALLOWED);
+            return;
+        }
+
+        owner.getProject().checkPermission(Item.CONFIGURE);
+
+        final File resetFile = new File(owner.getProject().getRootDir(), ViolationBaseline.RESET_FILE_NAME);
+
+        if (!resetFile.exists() && !resetFile.createNewFile()) {
+            throw new IOException(String.format("Could not create %s.", resetFile));
+        }
+
+        response.sendRedirect(".");
+    }
+
+    /**
+     * @return whether the next build of the project will record a new baseline.
+     */
+    public boolean isResetRequested() {
+        return new File(owner.getProject().getRootDir(), ViolationBaseline.RESET_FILE_NAME).exists();
+    }
+}
@@ -6,7 +6,11 @@ import hudson.Launcher;
 import hudson.model.BuildListener;
 import hudson.model.AbstractBuild;
 import hudson.model.AbstractProject;
+import hudson.model.Computer;
 import hudson.model.Hudson;
+import hudson.model.Node;
+import hudson.model.Result;
+import hudson.remoting.VirtualChannel;
 import hudson.tasks.BuildStepDescriptor;
 import hudson.tasks.Builder;
 import hudson.util.FormValidation;
@@ -14,8 +18,16 @@ import hudson.util.FormValidation;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import javax.servlet.ServletException;
 
@@ -23,6 +35,8 @@ import net.sf.json.JSONArray;
 import net.sf.json.JSONObject;
 
 import org.apache.velocity.app.VelocityEngine;
+import org.arachna.ant.AntHelper;
+import org.arachna.ant.ExcludeDataDictionarySourceDirectoryFilter;
 import org.arachna.netweaver.dc.types.DevelopmentComponent;
 import org.arachna.netweaver.hudson.nwdi.AntTaskBuilder;
 import org.arachna.netweaver.hudson.nwdi.DCWithJavaSourceAcceptingFilter;
@@ -33,6 +47,9 @@ import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.StaplerRequest;
 
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+
 /**
  * Builder for executing checkstyle checks on SAP NetWeaver development
  * components.
@@ -51,6 +68,11 @@ public class CheckstyleBuilder extends AntTaskBuilder {
      */
     private static final String CHECKSTYLE_CONFIG_XML = "checkstyle-config.xml";
 
+    /**
+     * Name of build file in workspace checking all development components using a single Ant invocation.
+     */
+    private static final String CHECKSTYLE_PROJECT_BUILD_XML = "checkstyle-project-build.xml";
+
     /**
      * Data bound constructor. Used for populating a {@link CheckstyleBuilder}
      * instance from form fields in <code>config.jelly</code>.
@@ -72,34 +94,370 @@ public class CheckstyleBuilder extends AntTaskBuilder {
             final NWDIBuild nwdiBuild = (NWDIBuild)build;
             final FilePath workspace = nwdiBuild.getWorkspace();
             final FilePath checkstyleConfig = workspace.child(CHECKSTYLE_CONFIG_XML);
-            checkstyleConfig.write(getDescriptor().getConfiguration(), "UTF-8");
+            writeConfiguration(checkstyleConfig);
 
-            final VelocityEngine engine = getVelocityEngine();
-
-            final Collection<DevelopmentComponent> components =
+            final AnalysisBudget budget = getDescriptor().createAnalysisBudget(getAntHelper());
+            final ComponentScheduler scheduler = new ComponentScheduler(getAntHelper(), getPreviousTimings(nwdiBuild));
+            final Collection<DevelopmentComponent> affectedComponents =
                 nwdiBuild.getAffectedDevelopmentComponents(new DCWithJavaSourceAcceptingFilter());
-            final BuildFileGenerator generator = createBuildFileGenerator(engine, checkstyleConfig);
-
-            for (final DevelopmentComponent component : components) {
-                final BuildDescriptor descriptor = generator.execute(component);
+            final Collection<DevelopmentComponent> components =
+                budget.isLimited() ? scheduler.schedule(affectedComponents, new ChangedFiles(nwdiBuild.getChangeSet())) : scheduler
+                    .schedule(affectedComponents);
+            final ContentExcludeFilter contentExcludeFilter = getDescriptor().createContentExcludeFilter();
+            final ClassPathResolver classPathResolver = new ClassPathResolver(getAntHelper());
+            final SourceFileProvider sourceFileProvider = new SourceFileProvider();
+            final TimingRecorder timings = new TimingRecorder(getDescriptor().isProfileChecks());
 
-                if (descriptor != null) {
-                    result |= execute(nwdiBuild, launcher, listener, descriptor.getDefaultTarget(), descriptor.getBuildFile(), null);
+            if (ExecutionMode.ANT_SINGLE_BUILD.equals(getDescriptor().getExecutionMode())) {
+                if (budget.isLimited()) {
+                    logger.println("Violation limit and time budget are not supported when checking with a single build file.");
                 }
+
+                result =
+                    executeSingleBuildFile(nwdiBuild, launcher, listener, checkstyleConfig, contentExcludeFilter, classPathResolver,
+                        timings, components);
+            }
+            else if (ExecutionMode.DISTRIBUTED.equals(getDescriptor().getExecutionMode())) {
+                final DistributedComponentExecutor executor =
+                    new DistributedComponentExecutor(getAgentChannels(logger), getDescriptor().getMaxParallelism());
+                result =
+                    executor.execute(components, createInProcessCheckstyleRunner(contentExcludeFilter, null, classPathResolver,
+                        sourceFileProvider, timings), budget, getDescriptor().getEffectiveConfiguration(), listener);
+            }
+            else {
+                final ParallelComponentExecutor executor = new ParallelComponentExecutor(getDescriptor().getMaxParallelism());
+                result =
+                    executor.execute(components, budget.limit(createComponentCheck(nwdiBuild, launcher, checkstyleConfig,
+                        contentExcludeFilter, classPathResolver, sourceFileProvider, timings)), listener);
             }
 
+            logExcludedByContent(logger, contentExcludeFilter);
+            logSourceFileStatistics(logger, sourceFileProvider);
+            aggregateResults(nwdiBuild, components, timings, budget.getUncheckedComponents(), logger);
+            build.addAction(timings.createAction(build));
+            result &= reportBudget(nwdiBuild, budget, logger);
         }
         catch (final IOException e) {
             e.printStackTrace(logger);
             result = false;
         }
+        catch (final CheckstyleException e) {
+            e.printStackTrace(logger);
+            result = false;
+        }
         catch (final InterruptedException e) {
             // terminate build.
+            result = false;
         }
 
         return result;
     }
 
+    /**
+     * Determine the channels to the online agents configured for distributed checks.
+     * 
+     * @param logger
+     *            logger for reporting unavailable agents.
+     * @return channels to the online agents mapped to their names.
+     */
+    private Map<String, VirtualChannel> getAgentChannels(final PrintStream logger) {
+        final Map<String, VirtualChannel> channels = new LinkedHashMap<String, VirtualChannel>();
+        final Hudson hudson = Hudson.getInstance();
+
+        for (final String name : getDescriptor().getAgentNames()) {
+            final Node node = hudson.getNode(name);
+            final Computer computer = node == null ? null : node.toComputer();
+            final VirtualChannel channel = node == null ? null : node.getChannel();
+
+            if (computer == null || computer.isOffline() || channel == null) {
+                logger.println(String.format("Agent %s is not available for checkstyle.", name));
+            }
+            else {
+                channels.put(name, channel);
+            }
+        }
+
+        return channels;
+    }
+
+    /**
+     * Write the global checkstyle configuration (using the configured encoding of sources) into the given file unless the file
+     * already exists with the same content.
+     * 
+     * @param checkstyleConfig
+     *            the file to write the configuration to.
+     * @throws IOException
+     *             when the file could not be written.
+     * @throws InterruptedException
+     *             when the build was interrupted.
+     * @throws CheckstyleException
+     *             when the configuration could not be parsed.
+     */
+    private void writeConfiguration(final FilePath checkstyleConfig) throws IOException, InterruptedException,
+        CheckstyleException {
+        final String configuration = getDescriptor().getEffectiveConfiguration();
+
+        if (!checkstyleConfig.exists() || !DigestHelper.digest(configuration, DigestHelper.MD5).equals(checkstyleConfig.digest())) {
+            checkstyleConfig.write(configuration, "UTF-8");
+        }
+    }
+
+    /**
+     * Check all the given development components using one generated build file and a single Ant invocation. Starting the JVM,
+     * loading the checkstyle task definition and resolving its class path thus happen once per build instead of once per
+     * development component.
+     * 
+     * @param build
+     *            the current build.
+     * @param launcher
+     *            launcher for starting Ant.
+     * @param listener
+     *            listener for progress messages.
+     * @param checkstyleConfig
+     *            path to global checkstyle configuration.
+     * @param contentExcludeFilter
+     *            filter for excluding sources by their content.
+     * @param classPathResolver
+     *            resolver for the class paths of development components.
+     * @param timings
+     *            recorder for the execution times of generating and executing the build file.
+     * @param components
+     *            development components to check.
+     * @return <code>true</code> when Ant could be executed successfully (or there was nothing to check), <code>false</code>
+     *         otherwise.
+     */
+    private boolean executeSingleBuildFile(final NWDIBuild build, final Launcher launcher, final BuildListener listener,
+        final FilePath checkstyleConfig, final ContentExcludeFilter contentExcludeFilter, final ClassPathResolver classPathResolver,
+        final TimingRecorder timings, final Collection<DevelopmentComponent> components) {
+        final BuildFileGenerator generator =
+            createBuildFileGenerator(getVelocityEngine(), checkstyleConfig, contentExcludeFilter, classPathResolver);
+        long start = System.nanoTime();
+        final BuildDescriptor descriptor =
+            generator.execute(components, FilePathHelper.makeAbsolute(build.getWorkspace().child(CHECKSTYLE_PROJECT_BUILD_XML)));
+        timings.recordBuild(TimingPhase.BUILD_FILE_GENERATION, System.nanoTime() - start);
+
+        if (descriptor == null) {
+            return true;
+        }
+
+        start = System.nanoTime();
+
+        try {
+            return execute(build, launcher, listener, descriptor.getDefaultTarget(), descriptor.getBuildFile(), null);
+        }
+        finally {
+            timings.recordBuild(TimingPhase.ANT, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Returns the timings recorded by the previous build.
+     * 
+     * @param build
+     *            the current build.
+     * @return the timings recorded by the previous build (<code>null</code> when there are none).
+     */
+    private CheckstyleTimingAction getPreviousTimings(final NWDIBuild build) {
+        final NWDIBuild previousBuild = build.getPreviousBuild();
+
+        return previousBuild == null ? null : previousBuild.getAction(CheckstyleTimingAction.class);
+    }
+
+    /**
+     * Merge the result files of the given development components into one result file in the build directory and
+     * write an index of the number of violations per development component, package, severity and check next to it. The violations
+     * are also written into a {@link ViolationStore} for trend queries.
+     * 
+     * When comparing with a baseline is enabled, the aggregated result file contains only the violations not contained in the
+     * baseline of the project and the fixed violations are written next to it. The index and store keep counting all violations.
+     * Only the checked development components are compared with their sections of the baseline, development components missing
+     * from the baseline are added to it. The first build (or the first after a reset was requested) records its violations as
+     * baseline instead, keeping the sections of development components it did not check.
+     * 
+     * @param build
+     *            the current build.
+     * @param components
+     *            the checked development components.
+     * @param timings
+     *            recorder receiving the number of audited files, bytes and violations per development component and the time spent
+     *            aggregating.
+     * @param uncheckedComponents
+     *            names of the development components not checked because the analysis was limited.
+     * @param logger
+     *            logger for progress messages.
+     * @throws IOException
+     *             when reading a result file or writing the aggregated result failed.
+     */
+    private void aggregateResults(final NWDIBuild build, final Collection<DevelopmentComponent> components,
+        final TimingRecorder timings, final List<String> uncheckedComponents, final PrintStream logger) throws IOException {
+        final long start = System.nanoTime();
+        final File rootDir = build.getRootDir();
+        final ResultFormat resultFormat = getDescriptor().createResultFormat().withoutCaps();
+        final ResultWriter report = resultFormat.createWriter(resultFormat.getResultFile(rootDir));
+        final ViolationIndex index = new ViolationIndex();
+        final ViolationStore store = new ViolationStore(rootDir);
+        final List<ViolationHandler> handlers = new ArrayList<ViolationHandler>(Arrays.asList(index, store, timings));
+        final File baselineFile = new File(build.getProject().getRootDir(), ViolationBaseline.FILE_NAME);
+        final File resetFile = new File(build.getProject().getRootDir(), ViolationBaseline.RESET_FILE_NAME);
+        final ViolationBaseline baseline =
+            getDescriptor().isUseBaseline() && baselineFile.isFile() ? ViolationBaseline.read(baselineFile) : null;
+        ViolationBaseline.Recorder recorder = null;
+        BaselineDiff diff = null;
+
+        if (!getDescriptor().isUseBaseline()) {
+            handlers.add(report);
+        }
+        else if (baseline == null || resetFile.exists()) {
+            recorder = new ViolationBaseline.Recorder();
+            handlers.add(report);
+            handlers.add(recorder);
+        }
+        else {
+            diff = new BaselineDiff(baseline, report);
+            handlers.add(diff);
+        }
+
+        final ResultAggregator aggregator = new ResultAggregator(handlers);
+        final AntHelper antHelper = getAntHelper();
+
+        try {
+            report.start();
+
+            for (final DevelopmentComponent component : components) {
+                final Collection<String> sources =
+                    antHelper.createSourceFileSets(component, new ExcludeDataDictionarySourceDirectoryFilter());
+                sources.addAll(component.getTestSourceFolders());
+
+                final String name = component.getNormalizedName("~");
+
+                if (!uncheckedComponents.contains(name)) {
+                    if (recorder != null) {
+                        recorder.addComponent(name);
+                    }
+                    else if (diff != null) {
+                        diff.addComponent(name);
+                    }
+                }
+
+                aggregator.aggregate(name, ResultFormat.findResultFile(new File(String.format(
+                    InProcessCheckstyleRunner.RESULT_XML_PATH_TEMPLATE, antHelper.getBaseLocation(component))).getParentFile()),
+                    sources);
+            }
+
+            report.finish();
+            store.write(new File(rootDir, ViolationStore.FILE_NAME));
+        }
+        finally {
+            report.close();
+            store.close();
+        }
+
+        index.write(new File(rootDir, ResultAggregator.INDEX_FILE_NAME));
+
+        if (recorder != null) {
+            if (baseline != null) {
+                final Set<String> carriedOver = new HashSet<String>(baseline.getComponents());
+                carriedOver.removeAll(recorder.getComponents());
+                baseline.copyTo(recorder, carriedOver);
+            }
+
+            recorder.write(baselineFile, build.getNumber());
+            resetFile.delete();
+            build.addAction(new CheckstyleBaselineAction(build, build.getNumber(), 0, 0));
+            logger.println(String.format("Recorded %d checkstyle violations as baseline.", recorder.size()));
+        }
+        else if (diff != null) {
+            diff.writeFixed(new File(rootDir, BaselineDiff.FIXED_FILE_NAME));
+
+            if (!diff.getAddedComponents().isEmpty()) {
+                logger.println(String.format("Added %d development component(s) to the baseline.", diff.getAddedComponents()
+                    .size()));
+                diff.writeBaseline(baselineFile);
+            }
+
+            build.addAction(new CheckstyleBaselineAction(build, diff.getBaselineBuild(), diff.getNewCount(), diff
+                .getFixedCount()));
+        }
+
+        build.addAction(new CheckstyleResultAction(build, diff == null ? index.getViolationCount() : diff.getNewCount(),
+            aggregator.getOmittedViolations(), uncheckedComponents));
+        timings.recordBuild(TimingPhase.AGGREGATION, System.nanoTime() - start);
+        logger.println(String.format("Found %d checkstyle violations in %d development components.", index.getViolationCount(),
+            index.getComponents().size()));
+
+        if (aggregator.getOmittedViolations() > 0) {
+            logger.println(String.format("%d checkstyle violations were not stored because they exceeded the configured limits.",
+                aggregator.getOmittedViolations()));
+        }
+
+        if (diff != null) {
+            logger.println(String.format("%d new and %d fixed checkstyle violations compared to the baseline of build #%d.", diff
+                .getNewCount(), diff.getFixedCount(), diff.getBaselineBuild()));
+        }
+    }
+
+    /**
+     * Log the number of sources excluded by each of the 'exclude by content' regular expressions.
+     * 
+     * @param logger
+     *            logger to write to.
+     * @param contentExcludeFilter
+     *            filter used for excluding sources by their content.
+     */
+    private void logExcludedByContent(final PrintStream logger, final ContentExcludeFilter contentExcludeFilter) {
+        for (final Map.Entry<String, Integer> count : contentExcludeFilter.getExcludedCounts().entrySet()) {
+            logger.println(String.format("%d source file(s) excluded by content matching '%s'.", count.getValue(), count.getKey()));
+        }
+    }
+
+    /**
+     * Report the development components not checked because the analysis was limited. Reaching the configured number of
+     * violations fails the build, spending the time budget before all development components were checked makes it unstable.
+     *
+     * @param build
+     *            the current build.
+     * @param budget
+     *            budget limiting the analysis.
+     * @param logger
+     *            logger to write to.
+     * @return <code>false</code> when the configured number of violations has been reached, <code>true</code> otherwise.
+     */
+    private boolean reportBudget(final AbstractBuild<?, ?> build, final AnalysisBudget budget, final PrintStream logger) {
+        final List<String> uncheckedComponents = budget.getUncheckedComponents();
+
+        if (!uncheckedComponents.isEmpty()) {
+            logger.println(String.format("%d development component(s) not checked: %s", uncheckedComponents.size(),
+                uncheckedComponents));
+        }
+
+        if (budget.isErrorLimitReached()) {
+            logger.println(String.format("Stopped checking after reaching %d errors.", getDescriptor().getMaxErrors()));
+
+            return false;
+        }
+
+        if (!uncheckedComponents.isEmpty()) {
+            build.setResult(Result.UNSTABLE);
+        }
+
+        return true;
+    }
+
+    /**
+     * Log how often the content of source files was read and served from the cache.
+     *
+     * @param logger
+     *            logger to write to.
+     * @param sourceFileProvider
+     *            provider of the content of source files.
+     */
+    private void logSourceFileStatistics(final PrintStream logger, final SourceFileProvider sourceFileProvider) {
+        if (sourceFileProvider.getMisses() > 0) {
+            logger.println(String.format("Source files read: %d (%d KB), served from cache: %d.", sourceFileProvider.getMisses(),
+                sourceFileProvider.getBytesRead() / 1024, sourceFileProvider.getHits()));
+        }
+    }
+
     /**
      * Get the properties to use calling ant.
      * 
@@ -117,13 +475,102 @@ public class CheckstyleBuilder extends AntTaskBuilder {
      *            velocity engine to use for creating build files.
      * @param checkstyleConfig
      *            path to global checkstyle configuration.
+     * @param contentExcludeFilter
+     *            filter for excluding sources by their content.
+     * @param classPathResolver
+     *            resolver for the class paths of development components.
      * @return the checkstyle build file generator.
      */
-    protected BuildFileGenerator createBuildFileGenerator(final VelocityEngine engine, final FilePath checkstyleConfig) {
+    protected BuildFileGenerator createBuildFileGenerator(final VelocityEngine engine, final FilePath checkstyleConfig,
+        final ContentExcludeFilter contentExcludeFilter, final ClassPathResolver classPathResolver) {
+        return new BuildFileGenerator(engine, getAntHelper(), FilePathHelper.makeAbsolute(checkstyleConfig), getDescriptor()
+            .getExcludes(), contentExcludeFilter, classPathResolver);
+    }
+
+    /**
+     * Create the check to execute on each development component according to the configured {@link ExecutionMode}.
+     * 
+     * @param build
+     *            the current build.
+     * @param launcher
+     *            launcher for starting Ant.
+     * @param checkstyleConfig
+     *            path to global checkstyle configuration.
+     * @param contentExcludeFilter
+     *            filter for excluding sources by their content.
+     * @param classPathResolver
+     *            resolver for the class paths of development components.
+     * @param sourceFileProvider
+     *            provider of the content of source files.
+     * @param timings
+     *            recorder for the execution times of checking development components.
+     * @return the check to execute on each development component.
+     * @throws CheckstyleException
+     *             when the global checkstyle configuration could not be parsed.
+     */
+    protected ComponentCheck createComponentCheck(final NWDIBuild build, final Launcher launcher, final FilePath checkstyleConfig,
+        final ContentExcludeFilter contentExcludeFilter, final ClassPathResolver classPathResolver,
+        final SourceFileProvider sourceFileProvider, final TimingRecorder timings) throws CheckstyleException {
+        if (ExecutionMode.IN_PROCESS.equals(getDescriptor().getExecutionMode())) {
+            return createInProcessCheckstyleRunner(contentExcludeFilter,
+                getDescriptor().isChangedFilesOnly() ? new ChangedFiles(build.getChangeSet()) : null, classPathResolver,
+                sourceFileProvider, timings);
+        }
+
+        final BuildFileGenerator generator =
+            createBuildFileGenerator(getVelocityEngine(), checkstyleConfig, contentExcludeFilter, classPathResolver);
+
+        return new ComponentCheck() {
+            public boolean execute(final DevelopmentComponent component, final BuildListener listener) {
+                final String componentName = component.getNormalizedName("~");
+                long start = System.nanoTime();
+                final BuildDescriptor descriptor = generator.execute(component);
+                timings.record(componentName, TimingPhase.BUILD_FILE_GENERATION, System.nanoTime() - start);
+
+                if (descriptor == null) {
+                    return true;
+                }
+
+                start = System.nanoTime();
+
+                try {
+                    return CheckstyleBuilder.this.execute(build, launcher, listener, descriptor.getDefaultTarget(),
+                        descriptor.getBuildFile(), null);
+                }
+                finally {
+                    timings.record(componentName, TimingPhase.ANT, System.nanoTime() - start);
+                }
+            }
+        };
+    }
+
+    /**
+     * Create an {@link InProcessCheckstyleRunner} using the global checkstyle configuration. The configuration parsed by the
+     * descriptor is shared by all development components and builds.
+     *
+     * @param contentExcludeFilter
+     *            filter for excluding sources by their content.
+     * @param changedFiles
+     *            files changed by the activities integrated into the current build (<code>null</code> when all sources shall be
+     *            checked).
+     * @param classPathResolver
+     *            resolver for the class paths of development components.
+     * @param sourceFileProvider
+     *            provider of the content of source files.
+     * @param timings
+     *            recorder for the execution times of checking development components.
+     * @return the in process checkstyle runner.
+     * @throws CheckstyleException
+     *             when the global checkstyle configuration could not be parsed.
+     */
+    protected InProcessCheckstyleRunner createInProcessCheckstyleRunner(final ContentExcludeFilter contentExcludeFilter,
+        final ChangedFiles changedFiles, final ClassPathResolver classPathResolver, final SourceFileProvider sourceFileProvider,
+        final TimingRecorder timings) throws CheckstyleException {
         final DescriptorImpl descriptor = getDescriptor();
 
-        return new BuildFileGenerator(engine, getAntHelper(), FilePathHelper.makeAbsolute(checkstyleConfig), descriptor.getExcludes(),
-            descriptor.getExcludeContainsRegexps());
+        return new InProcessCheckstyleRunner(descriptor.getParsedConfiguration(), descriptor.getConfigurationHash(), getAntHelper(),
+            descriptor.getExcludes(), contentExcludeFilter, descriptor.isIncrementalAnalysis(), changedFiles, classPathResolver,
+            sourceFileProvider, timings, descriptor.getFileParallelism(), descriptor.createResultFormat(), SourceFileConsumer.all());
     }
 
     /**
@@ -138,6 +585,11 @@ public class CheckstyleBuilder extends AntTaskBuilder {
      * Descriptor for {@link CheckstyleBuilder}.
      */
     public static final class DescriptorImpl extends BuildStepDescriptor<Builder> {
+        /**
+         * encoding of sources unless configured otherwise.
+         */
+        static final String DEFAULT_SOURCE_ENCODING = "UTF-8";
+
         /**
          * Persistent checkstyle configuration.
          * 
@@ -146,6 +598,28 @@ public class CheckstyleBuilder extends AntTaskBuilder {
          */
         private String configuration;
 
+        /**
+         * the parsed checkstyle configuration (parsed on first use or when
+         * the configuration is saved).
+         */
+        private transient Configuration parsedConfiguration;
+
+        /**
+         * hash of the checkstyle configuration.
+         */
+        private transient String configurationHash;
+
+        /**
+         * the checkstyle configuration using the configured encoding of
+         * sources (derived on first use or when the configuration is saved).
+         */
+        private transient String effectiveConfiguration;
+
+        /**
+         * encoding of the sources of all development components.
+         */
+        private String sourceEncoding = DEFAULT_SOURCE_ENCODING;
+
         /**
          * set of filename patterns to exclude from checkstyle checks.
          */
@@ -157,6 +631,95 @@ public class CheckstyleBuilder extends AntTaskBuilder {
          */
         private final Collection<String> excludeRegexps = new HashSet<String>();
 
+        /**
+         * number of lines at the beginning of a source file to examine with
+         * the 'exclude by content' regular expressions (<code>0</code> means
+         * the whole file is examined).
+         */
+        private int excludeContainsRegexpsHeaderLines;
+
+        /**
+         * decisions of the 'exclude by content' regular expressions mapped to
+         * content hashes of source files.
+         */
+        private transient ContentExcludeFilter.DecisionCache contentExcludeDecisions;
+
+        /**
+         * mode of executing checkstyle on development components.
+         */
+        private ExecutionMode executionMode = ExecutionMode.ANT;
+
+        /**
+         * maximum number of development components to check concurrently.
+         */
+        private int maxParallelism = 1;
+
+        /**
+         * maximum number of threads checking the sources of a single
+         * development component when running in process.
+         */
+        private int fileParallelism = 1;
+
+        /**
+         * names of agents to distribute checks to (separated by white space
+         * or commas).
+         */
+        private String agents;
+
+        /**
+         * whether only sources changed since the last build shall be checked
+         * when running in process.
+         */
+        private boolean incrementalAnalysis;
+
+        /**
+         * whether only sources changed by the activities integrated into a
+         * build shall be checked when running in process.
+         */
+        private boolean changedFilesOnly;
+
+        /**
+         * whether the CPU time spent in each check shall be profiled when
+         * running in process.
+         */
+        private boolean profileChecks;
+
+        /**
+         * whether only violations not contained in the baseline of a project
+         * shall be reported.
+         */
+        private boolean useBaseline;
+
+        /**
+         * whether compressed chunked result files shall be written instead of
+         * 'checkstyle-result.xml' files when running in process.
+         */
+        private boolean compressResults;
+
+        /**
+         * maximum number of violations stored per file in compressed result
+         * files (0 for no limit).
+         */
+        private int maxViolationsPerFile;
+
+        /**
+         * maximum number of violations stored per check and development
+         * component in compressed result files (0 for no limit).
+         */
+        private int maxViolationsPerCheck;
+
+        /**
+         * number of violations with severity 'error' after which no further
+         * development components are checked (0 for no limit).
+         */
+        private int maxErrors;
+
+        /**
+         * time budget in minutes after which no further development
+         * components are checked (0 for no limit).
+         */
+        private int timeBudget;
+
         /**
          * Create descriptor for NWDI-CheckStyle-Builder and load global
          * configuration data.
@@ -166,7 +729,10 @@ public class CheckstyleBuilder extends AntTaskBuilder {
         }
 
         /**
-         * Performs on-the-fly validation of the form field 'name'.
+         * Performs on-the-fly validation of the form field 'configuration'.
+         * The configuration is parsed and all of its modules are instantiated
+         * and configured, so that unknown modules and invalid properties are
+         * reported.
          * 
          * @param value
          *            This parameter receives the value that the user has typed.
@@ -174,9 +740,18 @@ public class CheckstyleBuilder extends AntTaskBuilder {
          *         browser.
          */
         public FormValidation doCheckConfiguration(@QueryParameter final String value) throws IOException, ServletException {
-            return value.isEmpty() ? FormValidation.error(Messages.checkstyle_builder_checkconfiguration()) : FormValidation.ok();
+            if (value == null || value.trim().isEmpty()) {
+                return FormValidation.error(Messages.checkstyle_builder_checkconfiguration());
+            }
+
+            try {
+                ConfigurationHelper.validate(ConfigurationHelper.parse(value));
+            }
+            catch (final CheckstyleException e) {
+                return FormValidation.error(Messages.checkstyle_builder_invalidconfiguration(e.getMessage()));
+            }
 
-            // FIXME: Add further configuration validation!
+            return FormValidation.ok();
         }
 
         /**
@@ -203,7 +778,43 @@ public class CheckstyleBuilder extends AntTaskBuilder {
          */
         @Override
         public boolean configure(final StaplerRequest req, final JSONObject formData) throws FormException {
-            configuration = formData.getString("configuration");
+            final String newConfiguration = formData.getString("configuration");
+            final String newSourceEncoding = formData.optString("sourceEncoding", DEFAULT_SOURCE_ENCODING).trim();
+
+            if (!isSupportedEncoding(newSourceEncoding)) {
+                throw new FormException(Messages.checkstyle_builder_checksourceencoding(), "sourceEncoding");
+            }
+
+            try {
+                final String effective = ConfigurationHelper.setCharset(newConfiguration, newSourceEncoding);
+                final Configuration parsed = ConfigurationHelper.parse(effective);
+                ConfigurationHelper.validate(parsed);
+
+                synchronized (this) {
+                    configuration = newConfiguration;
+                    sourceEncoding = newSourceEncoding;
+                    effectiveConfiguration = effective;
+                    parsedConfiguration = parsed;
+                    configurationHash = null;
+                }
+            }
+            catch (final CheckstyleException e) {
+                throw new FormException(Messages.checkstyle_builder_invalidconfiguration(e.getMessage()), e, "configuration");
+            }
+
+            executionMode = ExecutionMode.fromString(formData.optString("executionMode", ExecutionMode.ANT.name()));
+            maxParallelism = Math.max(1, formData.optInt("maxParallelism", 1));
+            fileParallelism = Math.max(1, formData.optInt("fileParallelism", 1));
+            agents = formData.optString("agents", "");
+            incrementalAnalysis = formData.optBoolean("incrementalAnalysis");
+            changedFilesOnly = formData.optBoolean("changedFilesOnly");
+            profileChecks = formData.optBoolean("profileChecks");
+            useBaseline = formData.optBoolean("useBaseline");
+            compressResults = formData.optBoolean("compressResults");
+            maxViolationsPerFile = Math.max(0, formData.optInt("maxViolationsPerFile", 0));
+            maxViolationsPerCheck = Math.max(0, formData.optInt("maxViolationsPerCheck", 0));
+            maxErrors = Math.max(0, formData.optInt("maxErrors", 0));
+            timeBudget = Math.max(0, formData.optInt("timeBudget", 0));
 
             final JSONObject advancedConfig = (JSONObject)formData.get("advancedConfiguration");
 
@@ -213,6 +824,7 @@ public class CheckstyleBuilder extends AntTaskBuilder {
 
                 excludeRegexps.clear();
                 excludeRegexps.addAll(getExcludeItemDescriptions(advancedConfig, "excludeContainsRegexps", "regexp"));
+                excludeContainsRegexpsHeaderLines = Math.max(0, advancedConfig.optInt("excludeContainsRegexpsHeaderLines", 0));
             }
 
             save();
@@ -272,8 +884,487 @@ public class CheckstyleBuilder extends AntTaskBuilder {
          * @param configuration
          *            the configuration to set
          */
-        public void setConfiguration(final String configuration) {
+        public synchronized void setConfiguration(final String configuration) {
             this.configuration = configuration;
+            effectiveConfiguration = null;
+            parsedConfiguration = null;
+            configurationHash = null;
+        }
+
+        /**
+         * Returns the checkstyle configuration using the configured encoding
+         * of sources. This configuration is used by all execution modes, so
+         * that Ant, in process and distributed checks decode sources alike.
+         * 
+         * @return the checkstyle configuration (as XML) using the configured
+         *         encoding of sources.
+         * @throws CheckstyleException
+         *             when the configuration could not be parsed.
+         */
+        synchronized String getEffectiveConfiguration() throws CheckstyleException {
+            if (effectiveConfiguration == null) {
+                effectiveConfiguration = ConfigurationHelper.setCharset(configuration, getSourceEncoding());
+            }
+
+            return effectiveConfiguration;
+        }
+
+        /**
+         * Returns the parsed checkstyle configuration (using the configured
+         * encoding of sources). The configuration is parsed only once and
+         * shared by all builds.
+         * 
+         * @return the parsed checkstyle configuration.
+         * @throws CheckstyleException
+         *             when the configuration could not be parsed.
+         */
+        synchronized Configuration getParsedConfiguration() throws CheckstyleException {
+            if (parsedConfiguration == null) {
+                parsedConfiguration = ConfigurationHelper.parse(getEffectiveConfiguration());
+            }
+
+            return parsedConfiguration;
+        }
+
+        /**
+         * Returns the hash of the checkstyle configuration and the encoding
+         * of sources.
+         * 
+         * @return the hash of the checkstyle configuration and the encoding
+         *         of sources.
+         */
+        synchronized String getConfigurationHash() {
+            if (configurationHash == null) {
+                configurationHash =
+                    DigestHelper.digest((configuration == null ? "" : configuration) + '|' + getSourceEncoding());
+            }
+
+            return configurationHash;
+        }
+
+        /**
+         * Returns the encoding of the sources of all development components.
+         * 
+         * @return the name of the encoding of sources.
+         */
+        public String getSourceEncoding() {
+            return sourceEncoding == null || sourceEncoding.length() == 0 ? DEFAULT_SOURCE_ENCODING : sourceEncoding;
+        }
+
+        /**
+         * Sets the encoding of the sources of all development components.
+         * 
+         * @param sourceEncoding
+         *            the name of the encoding of sources.
+         */
+        public synchronized void setSourceEncoding(final String sourceEncoding) {
+            this.sourceEncoding = sourceEncoding;
+            effectiveConfiguration = null;
+            parsedConfiguration = null;
+            configurationHash = null;
+        }
+
+        /**
+         * Performs on-the-fly validation of the form field 'sourceEncoding'.
+         * 
+         * @param value
+         *            This parameter receives the value that the user has typed.
+         * @return Indicates the outcome of the validation. This is sent to the
+         *         browser.
+         */
+        public FormValidation doCheckSourceEncoding(@QueryParameter final String value) {
+            return isSupportedEncoding(value == null ? "" : value.trim()) ? FormValidation.ok() : FormValidation
+                .error(Messages.checkstyle_builder_checksourceencoding());
+        }
+
+        /**
+         * Determine whether the given encoding is supported by this JVM.
+         * 
+         * @param encoding
+         *            name of an encoding.
+         * @return <code>true</code> when the encoding is supported,
+         *         <code>false</code> otherwise.
+         */
+        private static boolean isSupportedEncoding(final String encoding) {
+            try {
+                return Charset.isSupported(encoding);
+            }
+            catch (final IllegalArgumentException e) {
+                return false;
+            }
+        }
+
+        /**
+         * Returns the mode of executing checkstyle on development components.
+         * 
+         * @return the execution mode.
+         */
+        public ExecutionMode getExecutionMode() {
+            return executionMode == null ? ExecutionMode.ANT : executionMode;
+        }
+
+        /**
+         * Sets the mode of executing checkstyle on development components.
+         * 
+         * @param executionMode
+         *            the execution mode to set
+         */
+        public void setExecutionMode(final ExecutionMode executionMode) {
+            this.executionMode = executionMode;
+        }
+
+        /**
+         * Returns the maximum number of development components to check
+         * concurrently.
+         * 
+         * @return the maximum number of development components to check
+         *         concurrently.
+         */
+        public int getMaxParallelism() {
+            return Math.max(1, maxParallelism);
+        }
+
+        /**
+         * Sets the maximum number of development components to check
+         * concurrently.
+         * 
+         * @param maxParallelism
+         *            the maximum number of development components to check
+         *            concurrently.
+         */
+        public void setMaxParallelism(final int maxParallelism) {
+            this.maxParallelism = maxParallelism;
+        }
+
+        /**
+         * Performs on-the-fly validation of the form field 'maxParallelism'.
+         * 
+         * @param value
+         *            This parameter receives the value that the user has typed.
+         * @return Indicates the outcome of the validation. This is sent to the
+         *         browser.
+         */
+        public FormValidation doCheckMaxParallelism(@QueryParameter final String value) {
+            try {
+                if (Integer.parseInt(value.trim()) > 0) {
+                    return FormValidation.ok();
+                }
+            }
+            catch (final NumberFormatException e) {
+                // fall through
+            }
+
+            return FormValidation.error(Messages.checkstyle_builder_checkmaxparallelism());
+        }
+
+        /**
+         * Returns the maximum number of threads checking the sources of a
+         * single development component when running in process.
+         * 
+         * @return the maximum number of threads checking the sources of a
+         *         single development component.
+         */
+        public int getFileParallelism() {
+            return Math.max(1, fileParallelism);
+        }
+
+        /**
+         * Sets the maximum number of threads checking the sources of a single
+         * development component when running in process.
+         * 
+         * @param fileParallelism
+         *            the maximum number of threads checking the sources of a
+         *            single development component.
+         */
+        public void setFileParallelism(final int fileParallelism) {
+            this.fileParallelism = fileParallelism;
+        }
+
+        /**
+         * Performs on-the-fly validation of the form field 'fileParallelism'.
+         * 
+         * @param value
+         *            This parameter receives the value that the user has typed.
+         * @return Indicates the outcome of the validation. This is sent to the
+         *         browser.
+         */
+        public FormValidation doCheckFileParallelism(@QueryParameter final String value) {
+            return doCheckMaxParallelism(value);
+        }
+
+        /**
+         * Returns the names of agents to distribute checks to.
+         * 
+         * @return the names of agents to distribute checks to (separated by
+         *         white space or commas).
+         */
+        public String getAgents() {
+            return agents;
+        }
+
+        /**
+         * Sets the names of agents to distribute checks to.
+         * 
+         * @param agents
+         *            the names of agents to distribute checks to (separated
+         *            by white space or commas).
+         */
+        public void setAgents(final String agents) {
+            this.agents = agents;
+        }
+
+        /**
+         * Returns the names of agents to distribute checks to as list.
+         * 
+         * @return the names of agents to distribute checks to.
+         */
+        List<String> getAgentNames() {
+            final List<String> names = new ArrayList<String>();
+
+            if (agents != null) {
+                for (final String name : agents.split("[\\s,]+")) {
+                    if (name.length() > 0) {
+                        names.add(name);
+                    }
+                }
+            }
+
+            return names;
+        }
+
+        /**
+         * Returns whether only sources changed since the last build shall be
+         * checked when running in process.
+         * 
+         * @return <code>true</code> when unchanged sources shall be skipped,
+         *         <code>false</code> otherwise.
+         */
+        public boolean isIncrementalAnalysis() {
+            return incrementalAnalysis;
+        }
+
+        /**
+         * Sets whether only sources changed since the last build shall be
+         * checked when running in process.
+         * 
+         * @param incrementalAnalysis
+         *            <code>true</code> when unchanged sources shall be
+         *            skipped, <code>false</code> otherwise.
+         */
+        public void setIncrementalAnalysis(final boolean incrementalAnalysis) {
+            this.incrementalAnalysis = incrementalAnalysis;
+        }
+
+        /**
+         * Returns whether only sources changed by the activities integrated
+         * into a build shall be checked when running in process.
+         * 
+         * @return <code>true</code> when only changed sources shall be
+         *         checked, <code>false</code> otherwise.
+         */
+        public boolean isChangedFilesOnly() {
+            return changedFilesOnly;
+        }
+
+        /**
+         * Sets whether only sources changed by the activities integrated into
+         * a build shall be checked when running in process.
+         * 
+         * @param changedFilesOnly
+         *            <code>true</code> when only changed sources shall be
+         *            checked, <code>false</code> otherwise.
+         */
+        public void setChangedFilesOnly(final boolean changedFilesOnly) {
+            this.changedFilesOnly = changedFilesOnly;
+        }
+
+        /**
+         * Returns whether the CPU time spent in each check shall be profiled
+         * when running in process.
+         * 
+         * @return <code>true</code> when checks shall be profiled,
+         *         <code>false</code> otherwise.
+         */
+        public boolean isProfileChecks() {
+            return profileChecks;
+        }
+
+        /**
+         * Sets whether the CPU time spent in each check shall be profiled
+         * when running in process.
+         * 
+         * @param profileChecks
+         *            <code>true</code> when checks shall be profiled,
+         *            <code>false</code> otherwise.
+         */
+        public void setProfileChecks(final boolean profileChecks) {
+            this.profileChecks = profileChecks;
+        }
+
+        /**
+         * Returns whether only violations not contained in the baseline of a
+         * project shall be reported.
+         * 
+         * @return <code>true</code> when builds shall be compared with the
+         *         baseline of their project, <code>false</code> otherwise.
+         */
+        public boolean isUseBaseline() {
+            return useBaseline;
+        }
+
+        /**
+         * Sets whether only violations not contained in the baseline of a
+         * project shall be reported.
+         * 
+         * @param useBaseline
+         *            <code>true</code> when builds shall be compared with the
+         *            baseline of their project, <code>false</code> otherwise.
+         */
+        public void setUseBaseline(final boolean useBaseline) {
+            this.useBaseline = useBaseline;
+        }
+
+        /**
+         * Returns whether compressed chunked result files shall be written
+         * instead of 'checkstyle-result.xml' files when running in process.
+         * 
+         * @return <code>true</code> when compressed result files shall be
+         *         written, <code>false</code> otherwise.
+         */
+        public boolean isCompressResults() {
+            return compressResults;
+        }
+
+        /**
+         * Sets whether compressed chunked result files shall be written
+         * instead of 'checkstyle-result.xml' files when running in process.
+         * 
+         * @param compressResults
+         *            <code>true</code> when compressed result files shall be
+         *            written, <code>false</code> otherwise.
+         */
+        public void setCompressResults(final boolean compressResults) {
+            this.compressResults = compressResults;
+        }
+
+        /**
+         * Returns the maximum number of violations stored per file in
+         * compressed result files.
+         * 
+         * @return the maximum number of violations stored per file (0 for no
+         *         limit).
+         */
+        public int getMaxViolationsPerFile() {
+            return maxViolationsPerFile;
+        }
+
+        /**
+         * Sets the maximum number of violations stored per file in compressed
+         * result files.
+         * 
+         * @param maxViolationsPerFile
+         *            the maximum number of violations stored per file (0 for
+         *            no limit).
+         */
+        public void setMaxViolationsPerFile(final int maxViolationsPerFile) {
+            this.maxViolationsPerFile = maxViolationsPerFile;
+        }
+
+        /**
+         * Returns the maximum number of violations stored per check and
+         * development component in compressed result files.
+         * 
+         * @return the maximum number of violations stored per check (0 for no
+         *         limit).
+         */
+        public int getMaxViolationsPerCheck() {
+            return maxViolationsPerCheck;
+        }
+
+        /**
+         * Sets the maximum number of violations stored per check and
+         * development component in compressed result files.
+         * 
+         * @param maxViolationsPerCheck
+         *            the maximum number of violations stored per check (0 for
+         *            no limit).
+         */
+        public void setMaxViolationsPerCheck(final int maxViolationsPerCheck) {
+            this.maxViolationsPerCheck = maxViolationsPerCheck;
+        }
+
+        /**
+         * Returns the number of violations with severity 'error' after which
+         * no further development components are checked.
+         * 
+         * @return the number of errors after which no further development
+         *         components are checked (0 for no limit).
+         */
+        public int getMaxErrors() {
+            return maxErrors;
+        }
+
+        /**
+         * Sets the number of violations with severity 'error' after which no
+         * further development components are checked.
+         * 
+         * @param maxErrors
+         *            the number of errors after which no further development
+         *            components are checked (0 for no limit).
+         */
+        public void setMaxErrors(final int maxErrors) {
+            this.maxErrors = maxErrors;
+        }
+
+        /**
+         * Returns the time budget after which no further development
+         * components are checked.
+         * 
+         * @return the time budget in minutes (0 for no limit).
+         */
+        public int getTimeBudget() {
+            return timeBudget;
+        }
+
+        /**
+         * Sets the time budget after which no further development components
+         * are checked.
+         * 
+         * @param timeBudget
+         *            the time budget in minutes (0 for no limit).
+         */
+        public void setTimeBudget(final int timeBudget) {
+            this.timeBudget = timeBudget;
+        }
+
+        /**
+         * Create the budget limiting the analysis of a build starting now.
+         * 
+         * @param antHelper
+         *            helper for determining the base locations of development
+         *            components.
+         * @return the budget limiting the analysis of a build.
+         */
+        AnalysisBudget createAnalysisBudget(final AntHelper antHelper) {
+            return new AnalysisBudget(antHelper, maxErrors, timeBudget);
+        }
+
+        /**
+         * Create the format of result files written when running in process.
+         * 
+         * @return the format of result files written when running in process.
+         */
+        ResultFormat createResultFormat() {
+            return new ResultFormat(compressResults, maxViolationsPerFile, maxViolationsPerCheck);
+        }
+
+        /**
+         * Returns the available modes of executing checkstyle.
+         * 
+         * @return the available execution modes.
+         */
+        public ExecutionMode[] getExecutionModes() {
+            return ExecutionMode.values();
         }
 
         /**
@@ -303,6 +1394,54 @@ public class CheckstyleBuilder extends AntTaskBuilder {
             }
         }
 
+        /**
+         * Returns the number of lines at the beginning of a source file to
+         * examine with the 'exclude by content' regular expressions.
+         * 
+         * @return the number of lines to examine (<code>0</code> means the
+         *         whole file is examined).
+         */
+        public int getExcludeContainsRegexpsHeaderLines() {
+            return excludeContainsRegexpsHeaderLines;
+        }
+
+        /**
+         * Sets the number of lines at the beginning of a source file to
+         * examine with the 'exclude by content' regular expressions.
+         * 
+         * @param excludeContainsRegexpsHeaderLines
+         *            the number of lines to examine (<code>0</code> means the
+         *            whole file is examined).
+         */
+        public void setExcludeContainsRegexpsHeaderLines(final int excludeContainsRegexpsHeaderLines) {
+            this.excludeContainsRegexpsHeaderLines = excludeContainsRegexpsHeaderLines;
+        }
+
+        /**
+         * Create a filter for excluding sources by their content using the
+         * configured regular expressions and encoding of sources. Decisions
+         * are cached per content hash of source files as long as the regular
+         * expressions, number of header lines to examine and encoding do not
+         * change.
+         * 
+         * @return a new filter for excluding sources by their content.
+         */
+        ContentExcludeFilter createContentExcludeFilter() {
+            final List<String> regexps = new ArrayList<String>(excludeRegexps);
+            Collections.sort(regexps);
+            final int headerLines = getExcludeContainsRegexpsHeaderLines();
+
+            synchronized (this) {
+                final Charset charset = Charset.forName(getSourceEncoding());
+
+                if (contentExcludeDecisions == null || !contentExcludeDecisions.isValidFor(regexps, headerLines, charset)) {
+                    contentExcludeDecisions = new ContentExcludeFilter.DecisionCache(regexps, headerLines, charset);
+                }
+
+                return new ContentExcludeFilter(regexps, headerLines, charset, contentExcludeDecisions);
+            }
+        }
+
         /**
          * @return the excludeContainsRegexps
          */
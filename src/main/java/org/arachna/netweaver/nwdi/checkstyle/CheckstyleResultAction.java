@@ -0,0 +1,312 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import hudson.model.AbstractBuild;
+import hudson.model.Action;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
+/**
+ * Presents the aggregated result of a build and exports it as 'checkstyle-result.xml' on demand via
+ * '&lt;build&gt;/checkstyleResult/xml'. Compressed chunked results are converted while sending them, one chunk at a time.
+ *
+ * Only summary counts are persisted with the build. The number of violations per development component and check are read from
+ * the beginning of the {@link ViolationStore} of the build when presenting the result. The violations per development component,
+ * file and check can be browsed page by page via '&lt;build&gt;/checkstyleResult/browse', each page is read from the store on
+ * request.
+ *
+ * @author Dirk Weigenand
+ */
+public final class CheckstyleResultAction implements Action {
+    /**
+     * the build the result belongs to.
+     */
+    private final AbstractBuild<?, ?> owner;
+
+    /**
+     * number of violations in the aggregated result.
+     */
+    private final int violations;
+
+    /**
+     * number of violations not stored because they exceeded the configured limits.
+     */
+    private final int omittedViolations;
+
+    /**
+     * names of the development components not checked because the analysis was limited.
+     */
+    private final List<String> uncheckedComponents;
+
+    /**
+     * Create an action presenting the aggregated result of the given build.
+     *
+     * @param owner
+     *            the build the result belongs to.
+     * @param violations
+     *            number of violations in the aggregated result.
+     * @param omittedViolations
+     *            number of violations not stored because they exceeded the configured limits.
+     * @param uncheckedComponents
+     *            names of the development components not checked because the analysis was limited.
+     */
+    CheckstyleResultAction(final AbstractBuild<?, ?> owner, final int violations, final int omittedViolations,
+        final List<String> uncheckedComponents) {
+        this.owner = owner;
+        this.violations = violations;
+        this.omittedViolations = omittedViolations;
+        this.uncheckedComponents = new ArrayList<String>(uncheckedComponents);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getIconFileName() {
+        return "document.png";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getDisplayName() {
+        return Messages.checkstyle_result_displayname();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getUrlName() {
+        return "checkstyleResult";
+    }
+
+    /**
+     * @return the build the result belongs to.
+     */
+    public AbstractBuild<?, ?> getOwner() {
+        return owner;
+    }
+
+    /**
+     * @return the number of violations in the aggregated result.
+     */
+    public int getViolations() {
+        return violations;
+    }
+
+    /**
+     * @return the number of violations not stored because they exceeded the configured limits.
+     */
+    public int getOmittedViolations() {
+        return omittedViolations;
+    }
+
+    /**
+     * @return the names of the development components not checked because the analysis was limited.
+     */
+    public List<String> getUncheckedComponents() {
+        return uncheckedComponents == null ? Collections.<String>emptyList() : Collections.unmodifiableList(uncheckedComponents);
+    }
+
+    /**
+     * @return the size of the aggregated result file in kilobytes.
+     */
+    public long getSize() {
+        return ResultFormat.findResultFile(owner.getRootDir()).length() / 1024;
+    }
+
+    /**
+     * @return whether the aggregated result is stored compressed.
+     */
+    public boolean isChunked() {
+        return ChunkedResultFile.FILE_NAME.equals(ResultFormat.findResultFile(owner.getRootDir()).getName());
+    }
+
+    /**
+     * @return the number of violations per development component (empty when the build has no violation store).
+     */
+    public Map<String, Integer> getComponentCounts() {
+        final ViolationStore.Counts counts = readCounts();
+
+        return counts == null ? Collections.<String, Integer>emptyMap() : new TreeMap<String, Integer>(counts.getComponents());
+    }
+
+    /**
+     * @return the number of violations per check (empty when the build has no violation store).
+     */
+    public Map<String, Integer> getCheckCounts() {
+        final ViolationStore.Counts counts = readCounts();
+
+        return counts == null ? Collections.<String, Integer>emptyMap() : new TreeMap<String, Integer>(counts.getChecks());
+    }
+
+    /**
+     * @return whether the violations of the build can be browsed.
+     */
+    public boolean isBrowsable() {
+        return getStoreFile().isFile();
+    }
+
+    /**
+     * Returns a link to the violations of the given development component.
+     *
+     * @param component
+     *            name of development component.
+     * @return a link to the violations of the given development component.
+     */
+    public String getComponentLink(final String component) {
+        return ViolationPage.createLink(component, null, null, 1);
+    }
+
+    /**
+     * Returns a link to the violations of the given check.
+     *
+     * @param check
+     *            name of check.
+     * @return a link to the violations of the given check.
+     */
+    public String getCheckLink(final String check) {
+        return ViolationPage.createLink(null, null, check, 1);
+    }
+
+    /**
+     * Present a page of violations via '&lt;build&gt;/checkstyleResult/browse'. The request parameters 'component', 'file' and
+     * 'check' filter the violations, 'page' selects the page.
+     *
+     * @param token
+     *            the requested URL token.
+     * @param request
+     *            the current request.
+     * @param response
+     *            the current response.
+     * @return the requested page of violations or <code>null</code> when the token is unknown or the build has no violation
+     *         store.
+     * @throws IOException
+     *             when the violation store could not be read.
+     */
+    public ViolationPage getDynamic(final String token, final StaplerRequest request, final StaplerResponse response)
+        throws IOException {
+        final File storeFile = getStoreFile();
+
+        if (!"browse".equals(token) || !storeFile.isFile()) {
+            return null;
+        }
+
+        final ViolationStoreReader reader = ViolationStoreReader.open(storeFile);
+
+        try {
+            return reader.getPage(owner, getParameter(request, "component"), getParameter(request, "file"),
+                getParameter(request, "check"), getPageNumber(request));
+        }
+        finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Send the aggregated result as 'checkstyle-result.xml'.
+     *
+     * @param request
+     *            the current request.
+     * @param response
+     *            response to write the result to.
+     * @throws IOException
+     *             when reading the result or writing the response failed.
+     */
+    public void doXml(final StaplerRequest request, final StaplerResponse response) throws IOException {
+        sendXml(ResultFormat.findResultFile(owner.getRootDir()), ResultAggregator.AGGREGATED_RESULT_FILE_NAME, response);
+    }
+
+    /**
+     * Send the given result file as 'checkstyle-result.xml'.
+     *
+     * @param resultFile
+     *            result file to send.
+     * @param name
+     *            file name suggested to the browser.
+     * @param response
+     *            response to write the file to.
+     * @throws IOException
+     *             when reading the file or writing the response failed.
+     */
+    static void sendXml(final File resultFile, final String name, final StaplerResponse response) throws IOException {
+        if (!resultFile.isFile()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        response.setContentType("application/xml;charset=UTF-8");
+        response.setHeader("Content-Disposition", "attachment; filename=" + name);
+        ResultFormat.exportXml(resultFile, response.getOutputStream());
+    }
+
+    /**
+     * @return the violation store of the build.
+     */
+    private File getStoreFile() {
+        return new File(owner.getRootDir(), ViolationStore.FILE_NAME);
+    }
+
+    /**
+     * Read the number of violations per development component and check from the violation store of the build.
+     *
+     * @return the counts read or <code>null</code> when the build has no readable violation store.
+     */
+    private ViolationStore.Counts readCounts() {
+        final File storeFile = getStoreFile();
+
+        if (storeFile.isFile()) {
+            try {
+                return ViolationStore.readCounts(storeFile);
+            }
+            catch (final IOException e) {
+                // present no counts for an unreadable store.
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the value of the given request parameter.
+     *
+     * @param request
+     *            the current request.
+     * @param name
+     *            name of parameter.
+     * @return the value of the given request parameter or <code>null</code> when it is missing or empty.
+     */
+    private static String getParameter(final StaplerRequest request, final String name) {
+        final String value = request.getParameter(name);
+
+        return value == null || value.length() == 0 ? null : value;
+    }
+
+    /**
+     * Returns the requested page number.
+     *
+     * @param request
+     *            the current request.
+     * @return the requested page number (1 when missing or invalid).
+     */
+    private static int getPageNumber(final StaplerRequest request) {
+        try {
+            return Math.max(1, Integer.parseInt(request.getParameter("page")));
+        }
+        catch (final NumberFormatException e) {
+            return 1;
+        }
+    }
+}
@@ -0,0 +1,350 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+
+/**
+ * Keeps the state that is expensive to set up for checking sources warm in the long lived JVM of a node (the Jenkins master or an
+ * agent) across builds and jobs: parsed checkstyle configurations (keyed by a hash of the configuration) and class loaders over
+ * the archives of class paths (keyed by the paths of the archives). Checkstyle classes, the ANTLR grammar and the code compiled by
+ * the JIT stay loaded in this JVM anyway.
+ *
+ * Both caches evict their least recently used entries when they are full. A class loader is replaced when one of its archives
+ * changed in size or modification time. Class loaders handed out by {@link #getClassLoader(List)} must be returned via
+ * {@link #release(ClassLoader)}; evicted or replaced class loaders are closed (releasing the handles of their archives) as soon as
+ * they are no longer used. Instances may be used concurrently.
+ *
+ * @author Dirk Weigenand
+ */
+final class CheckstyleSetupCache {
+    /**
+     * maximum number of parsed configurations kept.
+     */
+    static final int MAX_CONFIGURATIONS = 8;
+
+    /**
+     * maximum number of class loaders kept.
+     */
+    static final int MAX_CLASS_LOADERS = 64;
+
+    /**
+     * the instance living in this JVM.
+     */
+    private static final CheckstyleSetupCache INSTANCE = new CheckstyleSetupCache();
+
+    /**
+     * parsed configurations mapped to the hash of the configuration.
+     */
+    private final Map<String, Configuration> configurations = new LruMap<String, Configuration>(MAX_CONFIGURATIONS);
+
+    /**
+     * class loaders mapped to the paths of the archives they load classes from.
+     */
+    private final Map<String, CachedClassLoader> classLoaders = new LruMap<String, CachedClassLoader>(MAX_CLASS_LOADERS) {
+        /**
+         * version of serialized form.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        void evicted(final CachedClassLoader classLoader) {
+            retire(classLoader);
+        }
+    };
+
+    /**
+     * class loaders handed out and not yet closed (cached or evicted but still in use).
+     */
+    private final Map<ClassLoader, CachedClassLoader> openClassLoaders = new IdentityHashMap<ClassLoader, CachedClassLoader>();
+
+    /**
+     * number of requests served from the caches.
+     */
+    private int hits;
+
+    /**
+     * number of requests that had to set up a configuration or class loader.
+     */
+    private int misses;
+
+    /**
+     * Create the cache.
+     */
+    private CheckstyleSetupCache() {
+    }
+
+    /**
+     * @return the instance living in this JVM.
+     */
+    static CheckstyleSetupCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the parsed form of the given checkstyle configuration. The configuration is parsed only when it has not been
+     * requested recently.
+     *
+     * @param configuration
+     *            the checkstyle configuration (XML).
+     * @return the parsed checkstyle configuration.
+     * @throws CheckstyleException
+     *             when the configuration could not be parsed.
+     */
+    Configuration getConfiguration(final String configuration) throws CheckstyleException {
+        final String key = DigestHelper.digest(configuration);
+
+        synchronized (this) {
+            final Configuration parsed = configurations.get(key);
+
+            if (parsed != null) {
+                hits++;
+                return parsed;
+            }
+
+            misses++;
+        }
+
+        final Configuration parsed = ConfigurationHelper.parse(configuration);
+
+        synchronized (this) {
+            configurations.put(key, parsed);
+        }
+
+        return parsed;
+    }
+
+    /**
+     * Returns a class loader for the given archives. Class loaders are shared for identical lists of archives as long as none of
+     * the archives changed. The class loader must be returned via {@link #release(ClassLoader)} when it is no longer used.
+     *
+     * @param archives
+     *            archives to load classes from.
+     * @return a class loader for the given archives.
+     */
+    ClassLoader getClassLoader(final List<File> archives) {
+        final StringBuilder key = new StringBuilder();
+        final StringBuilder stamp = new StringBuilder();
+
+        for (final File archive : archives) {
+            key.append(archive.getAbsolutePath()).append(File.pathSeparatorChar);
+            stamp.append(archive.length()).append(':').append(archive.lastModified()).append(File.pathSeparatorChar);
+        }
+
+        synchronized (this) {
+            CachedClassLoader classLoader = classLoaders.get(key.toString());
+
+            if (classLoader != null && !classLoader.stamp.equals(stamp.toString())) {
+                classLoaders.remove(key.toString());
+                retire(classLoader);
+                classLoader = null;
+            }
+
+            if (classLoader == null) {
+                misses++;
+                final List<URL> urls = ClassPathResolver.toURLs(archives);
+                classLoader =
+                    new CachedClassLoader(stamp.toString(), new URLClassLoader(urls.toArray(new URL[urls.size()]),
+                        Checker.class.getClassLoader()));
+                openClassLoaders.put(classLoader.classLoader, classLoader);
+                classLoaders.put(key.toString(), classLoader);
+            }
+            else {
+                hits++;
+            }
+
+            classLoader.users++;
+
+            return classLoader.classLoader;
+        }
+    }
+
+    /**
+     * Return a class loader obtained via {@link #getClassLoader(List)}. The class loader is closed when it has been evicted or
+     * replaced and is not used anymore.
+     *
+     * @param classLoader
+     *            class loader no longer used by the caller.
+     */
+    synchronized void release(final ClassLoader classLoader) {
+        final CachedClassLoader cached = openClassLoaders.get(classLoader);
+
+        if (cached != null) {
+            cached.users--;
+            closeIfUnused(cached);
+        }
+    }
+
+    /**
+     * @return the number of class loaders handed out that have not been closed yet.
+     */
+    synchronized int getOpenClassLoaders() {
+        return openClassLoaders.size();
+    }
+
+    /**
+     * @return the number of requests served from the caches.
+     */
+    synchronized int getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of requests that had to set up a configuration or class loader.
+     */
+    synchronized int getMisses() {
+        return misses;
+    }
+
+    /**
+     * Close the given class loader (on Java 7 and later, where class loaders over URLs can be closed). Failures are ignored.
+     *
+     * @param classLoader
+     *            class loader to close.
+     */
+    static void close(final ClassLoader classLoader) {
+        if (classLoader instanceof Closeable) {
+            try {
+                ((Closeable)classLoader).close();
+            }
+            catch (final IOException e) {
+                // the handles of the archives are released when the class loader is garbage collected.
+            }
+        }
+    }
+
+    /**
+     * Mark the given class loader (removed from the cache) as retired and close it unless it is still in use.
+     *
+     * @param classLoader
+     *            class loader removed from the cache.
+     */
+    private void retire(final CachedClassLoader classLoader) {
+        classLoader.retired = true;
+        closeIfUnused(classLoader);
+    }
+
+    /**
+     * Close the given class loader when it has been retired and is not used anymore.
+     *
+     * @param classLoader
+     *            class loader to close when unused.
+     */
+    private void closeIfUnused(final CachedClassLoader classLoader) {
+        if (classLoader.retired && classLoader.users <= 0) {
+            openClassLoaders.remove(classLoader.classLoader);
+            close(classLoader.classLoader);
+        }
+    }
+
+    /**
+     * A cached class loader and the number of its users.
+     *
+     * @author Dirk Weigenand
+     */
+    private static final class CachedClassLoader {
+        /**
+         * sizes and modification times of the archives the class loader was created for.
+         */
+        private final String stamp;
+
+        /**
+         * the class loader.
+         */
+        private final URLClassLoader classLoader;
+
+        /**
+         * number of callers using the class loader.
+         */
+        private int users;
+
+        /**
+         * whether the class loader has been evicted or replaced.
+         */
+        private boolean retired;
+
+        /**
+         * Create a cached class loader.
+         *
+         * @param stamp
+         *            sizes and modification times of the archives the class loader was created for.
+         * @param classLoader
+         *            the class loader.
+         */
+        CachedClassLoader(final String stamp, final URLClassLoader classLoader) {
+            this.stamp = stamp;
+            this.classLoader = classLoader;
+        }
+    }
+
+    /**
+     * {@link LinkedHashMap} evicting the least recently used entry when it grows beyond its capacity.
+     *
+     * @param <K>
+     *            type of keys.
+     * @param <V>
+     *            type of values.
+     * @author Dirk Weigenand
+     */
+    private static class LruMap<K, V> extends LinkedHashMap<K, V> {
+        /**
+         * version of serialized form.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * maximum number of entries.
+         */
+        private final int capacity;
+
+        /**
+         * Create a map holding at most the given number of entries.
+         *
+         * @param capacity
+         *            maximum number of entries.
+         */
+        LruMap(final int capacity) {
+            super(capacity * 2, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<K, V> eldest) {
+            if (size() > capacity) {
+                evicted(eldest.getValue());
+
+                return true;
+            }
+
+            return false;
+        }
+
+        /**
+         * Called for the value of an entry evicted from this map.
+         *
+         * @param value
+         *            value of evicted entry.
+         */
+        void evicted(final V value) {
+        }
+    }
+}
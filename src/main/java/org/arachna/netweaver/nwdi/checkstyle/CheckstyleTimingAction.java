@@ -0,0 +1,184 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import hudson.model.AbstractBuild;
+import hudson.model.Action;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
+/**
+ * Presents the execution times of checking the development components of a build, slowest development components first. The
+ * timings are also available as JSON via '&lt;build&gt;/checkstyleTimings/json'. When checks were profiled, the CPU time spent in
+ * each check is presented too (most expensive checks first).
+ *
+ * @author Dirk Weigenand
+ */
+public final class CheckstyleTimingAction implements Action {
+    /**
+     * the build the timings were recorded for.
+     */
+    private final AbstractBuild<?, ?> owner;
+
+    /**
+     * timings of development components (slowest first).
+     */
+    private final List<ComponentTimings> components;
+
+    /**
+     * timings of phases executed for all development components at once.
+     */
+    private final ComponentTimings build;
+
+    /**
+     * CPU time spent in each check (most expensive checks first, empty when checks were not profiled).
+     */
+    private final List<CheckTiming> checks;
+
+    /**
+     * Create an action presenting the given timings.
+     *
+     * @param owner
+     *            the build the timings were recorded for.
+     * @param components
+     *            timings of development components.
+     * @param build
+     *            timings of phases executed for all development components at once.
+     * @param checks
+     *            CPU time spent in each check (most expensive checks first, empty when checks were not profiled).
+     */
+    CheckstyleTimingAction(final AbstractBuild<?, ?> owner, final Collection<ComponentTimings> components,
+        final ComponentTimings build, final List<CheckTiming> checks) {
+        this.owner = owner;
+        this.components = new ArrayList<ComponentTimings>(components);
+        this.build = build;
+        this.checks = new ArrayList<CheckTiming>(checks);
+
+        Collections.sort(this.components, new Comparator<ComponentTimings>() {
+            public int compare(final ComponentTimings first, final ComponentTimings second) {
+                final long difference = second.getTotalMillis() - first.getTotalMillis();
+
+                return difference == 0 ? first.getComponent().compareTo(second.getComponent()) : difference > 0 ? 1 : -1;
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getIconFileName() {
+        return "clock.png";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getDisplayName() {
+        return Messages.checkstyle_timings_displayname();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getUrlName() {
+        return "checkstyleTimings";
+    }
+
+    /**
+     * @return the build the timings were recorded for.
+     */
+    public AbstractBuild<?, ?> getOwner() {
+        return owner;
+    }
+
+    /**
+     * @return the timings of the development components (slowest first).
+     */
+    public List<ComponentTimings> getComponents() {
+        return Collections.unmodifiableList(components);
+    }
+
+    /**
+     * @return the timings of phases executed for all development components at once.
+     */
+    public ComponentTimings getBuild() {
+        return build;
+    }
+
+    /**
+     * @return the CPU time spent in each check (most expensive checks first, empty when checks were not profiled).
+     */
+    public List<CheckTiming> getChecks() {
+        return Collections.unmodifiableList(checks);
+    }
+
+    /**
+     * @return the recorded phases.
+     */
+    public TimingPhase[] getPhases() {
+        return TimingPhase.values();
+    }
+
+    /**
+     * Write the timings as JSON.
+     *
+     * @param request
+     *            the current request.
+     * @param response
+     *            response to write the timings to.
+     * @throws IOException
+     *             when writing the response failed.
+     */
+    public void doJson(final StaplerRequest request, final StaplerResponse response) throws IOException {
+        response.setContentType("application/json;charset=UTF-8");
+        response.getWriter().write(toJSON().toString(2));
+    }
+
+    /**
+     * Convert the timings into JSON.
+     *
+     * @return the timings as JSON object.
+     */
+    JSONObject toJSON() {
+        final JSONArray componentTimings = new JSONArray();
+
+        for (final ComponentTimings timings : components) {
+            componentTimings.element(toJSON(timings).element("component", timings.getComponent()));
+        }
+
+        final JSONArray checkTimings = new JSONArray();
+
+        for (final CheckTiming timing : checks) {
+            checkTimings.element(new JSONObject().element("check", timing.getCheck()).element("cpuMillis", timing.getMillis())
+                .element("invocations", timing.getInvocations()));
+        }
+
+        return new JSONObject().element("build", toJSON(build)).element("components", componentTimings).element("checks",
+            checkTimings);
+    }
+
+    /**
+     * Convert the given timings into JSON.
+     *
+     * @param timings
+     *            the timings to convert.
+     * @return the given timings as JSON object.
+     */
+    private static JSONObject toJSON(final ComponentTimings timings) {
+        return new JSONObject().element("totalMillis", timings.getTotalMillis()).element("phaseMillis",
+            timings.getMillisPerPhase()).element("files", timings.getFiles()).element("bytes", timings.getBytes()).element(
+            "violations", timings.getViolations());
+    }
+}
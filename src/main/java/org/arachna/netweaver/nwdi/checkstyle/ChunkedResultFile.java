@@ -0,0 +1,609 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import com.puppycrawl.tools.checkstyle.api.SeverityLevel;
+
+/**
+ * Compressed result file of a development component or build, an alternative to 'checkstyle-result.xml' for huge results.
+ *
+ * Violations are written file by file into chunks of about {@link #CHUNK_SIZE} bytes which are compressed individually. A table
+ * of the chunks and the totals follow the chunks, so readers can read single chunks without reading (or keeping) the whole
+ * result. Writers need to keep only the current chunk in memory.
+ *
+ * Writers may cap the number of violations stored per file and per check. Violations exceeding a cap are counted only. The number
+ * of violations with severity 'error' (stored or not) is recorded as well.
+ *
+ * @author Dirk Weigenand
+ */
+final class ChunkedResultFile {
+    /**
+     * name of a result file in this format.
+     */
+    static final String FILE_NAME = "checkstyle-result.chunks";
+
+    /**
+     * uncompressed size of a chunk in bytes after which a new chunk is started.
+     */
+    static final int CHUNK_SIZE = 256 * 1024;
+
+    /**
+     * identifies chunked result files ('NWCR').
+     */
+    private static final int MAGIC = 0x4e574352;
+
+    /**
+     * version of the file format.
+     */
+    private static final int VERSION = 2;
+
+    /**
+     * size of the trailing offset of the chunk table in bytes.
+     */
+    private static final int TRAILER_SIZE = 8;
+
+    /**
+     * size of the header (magic, version) in bytes.
+     */
+    private static final int HEADER_SIZE = 8;
+
+    /**
+     * size of the chunk table without its entries (number of chunks, omitted violations, errors) in bytes.
+     */
+    private static final int TABLE_SIZE = 12;
+
+    /**
+     * size of an entry of the chunk table (offset, number of files, number of violations) in bytes.
+     */
+    private static final int TABLE_ENTRY_SIZE = 16;
+
+    /**
+     * encoding of strings.
+     */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * the result file.
+     */
+    private final File file;
+
+    /**
+     * offsets of the chunks in the result file.
+     */
+    private final long[] offsets;
+
+    /**
+     * number of files per chunk.
+     */
+    private final int[] files;
+
+    /**
+     * number of violations per chunk.
+     */
+    private final int[] violations;
+
+    /**
+     * number of violations not stored because they exceeded a cap.
+     */
+    private final int omittedViolations;
+
+    /**
+     * number of violations with severity 'error' (including those not stored).
+     */
+    private final int errorCount;
+
+    /**
+     * Create a reader for the given result file using the given table of chunks.
+     *
+     * @param file
+     *            the result file.
+     * @param offsets
+     *            offsets of the chunks in the result file (followed by the offset of the chunk table).
+     * @param files
+     *            number of files per chunk.
+     * @param violations
+     *            number of violations per chunk.
+     * @param omittedViolations
+     *            number of violations not stored because they exceeded a cap.
+     * @param errorCount
+     *            number of violations with severity 'error' (including those not stored).
+     */
+    private ChunkedResultFile(final File file, final long[] offsets, final int[] files, final int[] violations,
+        final int omittedViolations, final int errorCount) {
+        this.file = file;
+        this.offsets = offsets;
+        this.files = files;
+        this.violations = violations;
+        this.omittedViolations = omittedViolations;
+        this.errorCount = errorCount;
+    }
+
+    /**
+     * Read the table of chunks of the given result file.
+     *
+     * @param resultFile
+     *            the result file to open.
+     * @return a reader for the given result file.
+     * @throws IOException
+     *             when the file could not be read or is not a chunked result file.
+     */
+    static ChunkedResultFile open(final File resultFile) throws IOException {
+        final RandomAccessFile input = new RandomAccessFile(resultFile, "r");
+
+        try {
+            if (input.length() < TRAILER_SIZE || input.readInt() != MAGIC || input.readInt() != VERSION) {
+                throw new IOException(String.format("%s is not a chunked result file.", resultFile));
+            }
+
+            input.seek(input.length() - TRAILER_SIZE);
+            final long tableOffset = input.readLong();
+
+            if (tableOffset < HEADER_SIZE || tableOffset > input.length() - TRAILER_SIZE) {
+                throw new EOFException();
+            }
+
+            input.seek(tableOffset);
+            final int chunkCount = input.readInt();
+
+            if (chunkCount < 0 || tableOffset + TABLE_SIZE + (long)chunkCount * TABLE_ENTRY_SIZE + TRAILER_SIZE != input.length()) {
+                throw new EOFException();
+            }
+
+            final long[] offsets = new long[chunkCount + 1];
+            final int[] files = new int[chunkCount];
+            final int[] violations = new int[chunkCount];
+
+            for (int i = 0; i < chunkCount; i++) {
+                offsets[i] = input.readLong();
+                files[i] = input.readInt();
+                violations[i] = input.readInt();
+            }
+
+            offsets[chunkCount] = tableOffset;
+
+            return new ChunkedResultFile(resultFile, offsets, files, violations, input.readInt(), input.readInt());
+        }
+        catch (final EOFException e) {
+            throw new IOException(String.format("%s is truncated.", resultFile), e);
+        }
+        finally {
+            input.close();
+        }
+    }
+
+    /**
+     * @return the number of chunks.
+     */
+    int getChunkCount() {
+        return files.length;
+    }
+
+    /**
+     * Returns the number of files in the given chunk.
+     *
+     * @param chunk
+     *            index of chunk.
+     * @return the number of files in the given chunk.
+     */
+    int getFileCount(final int chunk) {
+        return files[chunk];
+    }
+
+    /**
+     * Returns the number of violations in the given chunk.
+     *
+     * @param chunk
+     *            index of chunk.
+     * @return the number of violations in the given chunk.
+     */
+    int getViolationCount(final int chunk) {
+        return violations[chunk];
+    }
+
+    /**
+     * @return the number of stored violations.
+     */
+    int getViolationCount() {
+        int count = 0;
+
+        for (final int chunkViolations : violations) {
+            count += chunkViolations;
+        }
+
+        return count;
+    }
+
+    /**
+     * @return the number of violations not stored because they exceeded a cap.
+     */
+    int getOmittedViolations() {
+        return omittedViolations;
+    }
+
+    /**
+     * @return the number of violations with severity 'error' (including those not stored because they exceeded a cap).
+     */
+    int getErrorCount() {
+        return errorCount;
+    }
+
+    /**
+     * Read the violations of the given chunk.
+     *
+     * @param chunk
+     *            index of chunk.
+     * @return the violations of the given chunk mapped to the names of the files they were reported for (in the order they were
+     *         written).
+     * @throws IOException
+     *             when reading the chunk failed.
+     */
+    Map<String, List<Violation>> readChunk(final int chunk) throws IOException {
+        final byte[] compressed = new byte[(int)(offsets[chunk + 1] - offsets[chunk])];
+        final RandomAccessFile input = new RandomAccessFile(file, "r");
+
+        try {
+            input.seek(offsets[chunk]);
+            input.readFully(compressed);
+        }
+        finally {
+            input.close();
+        }
+
+        final Map<String, List<Violation>> chunkViolations = new LinkedHashMap<String, List<Violation>>();
+        final DataInputStream data = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(compressed)));
+
+        try {
+            for (int i = 0; i < files[chunk]; i++) {
+                final String fileName = readString(data);
+                List<Violation> fileViolations = chunkViolations.get(fileName);
+
+                if (fileViolations == null) {
+                    fileViolations = new ArrayList<Violation>();
+                    chunkViolations.put(fileName, fileViolations);
+                }
+
+                for (int count = data.readInt(); count > 0; count--) {
+                    fileViolations.add(new Violation(data.readInt(), data.readInt(), readString(data), readString(data),
+                        readString(data)));
+                }
+            }
+        }
+        catch (final EOFException e) {
+            throw new IOException(String.format("Chunk %d of %s is truncated.", chunk, file), e);
+        }
+        finally {
+            data.close();
+        }
+
+        return chunkViolations;
+    }
+
+    /**
+     * Write all violations using the given writer (e.g. to export them as 'checkstyle-result.xml'). Only one chunk is kept in
+     * memory at a time.
+     *
+     * @param writer
+     *            writer receiving the violations.
+     * @throws IOException
+     *             when reading a chunk or writing failed.
+     */
+    void copyTo(final ResultWriter writer) throws IOException {
+        for (int i = 0; i < getChunkCount(); i++) {
+            for (final Map.Entry<String, List<Violation>> fileViolations : readChunk(i).entrySet()) {
+                writer.write(fileViolations.getKey(), fileViolations.getValue());
+            }
+        }
+    }
+
+    /**
+     * Read a string written by {@link #writeString(DataOutputStream, String)}.
+     *
+     * @param input
+     *            stream to read from.
+     * @return the string read (may be <code>null</code>).
+     * @throws IOException
+     *             when reading failed.
+     */
+    private static String readString(final DataInputStream input) throws IOException {
+        final int length = input.readInt();
+
+        if (length < 0) {
+            return null;
+        }
+
+        final byte[] bytes = new byte[length];
+        input.readFully(bytes);
+
+        return new String(bytes, UTF8);
+    }
+
+    /**
+     * Write the given string as UTF-8 encoded bytes preceded by their number.
+     *
+     * @param output
+     *            stream to write to.
+     * @param value
+     *            string to write (may be <code>null</code>).
+     * @throws IOException
+     *             when writing failed.
+     */
+    private static void writeString(final DataOutputStream output, final String value) throws IOException {
+        if (value == null) {
+            output.writeInt(-1);
+        }
+        else {
+            final byte[] bytes = value.getBytes(UTF8);
+            output.writeInt(bytes.length);
+            output.write(bytes);
+        }
+    }
+
+    /**
+     * Writes violations into a chunked result file.
+     *
+     * @author Dirk Weigenand
+     */
+    static final class Writer implements ResultWriter {
+        /**
+         * stream receiving the result file.
+         */
+        private final DataOutputStream output;
+
+        /**
+         * maximum number of violations stored per file (0 for no limit).
+         */
+        private final int maxViolationsPerFile;
+
+        /**
+         * maximum number of violations stored per check (0 for no limit).
+         */
+        private final int maxViolationsPerCheck;
+
+        /**
+         * number of violations stored per check.
+         */
+        private final Map<String, Integer> violationsPerCheck = new HashMap<String, Integer>();
+
+        /**
+         * uncompressed content of the current chunk.
+         */
+        private final ByteArrayOutputStream chunk = new ByteArrayOutputStream(CHUNK_SIZE + CHUNK_SIZE / 4);
+
+        /**
+         * stream writing the current chunk.
+         */
+        private final DataOutputStream chunkOutput = new DataOutputStream(chunk);
+
+        /**
+         * compressor of chunks.
+         */
+        private final Deflater deflater = new Deflater();
+
+        /**
+         * table of the written chunks (offset, number of files, number of violations).
+         */
+        private final ByteArrayOutputStream table = new ByteArrayOutputStream();
+
+        /**
+         * stream writing the table of chunks.
+         */
+        private final DataOutputStream tableOutput = new DataOutputStream(table);
+
+        /**
+         * number of written chunks.
+         */
+        private int chunkCount;
+
+        /**
+         * number of files in the current chunk.
+         */
+        private int chunkFiles;
+
+        /**
+         * number of violations in the current chunk.
+         */
+        private int chunkViolations;
+
+        /**
+         * number of violations not stored because they exceeded a cap.
+         */
+        private int omittedViolations;
+
+        /**
+         * number of violations with severity 'error' (including those not stored).
+         */
+        private int errorCount;
+
+        /**
+         * Create a writer for the given result file.
+         *
+         * @param resultFile
+         *            the file to write.
+         * @param maxViolationsPerFile
+         *            maximum number of violations stored per file (0 for no limit).
+         * @param maxViolationsPerCheck
+         *            maximum number of violations stored per check (0 for no limit).
+         * @throws IOException
+         *             when the file could not be created.
+         */
+        Writer(final File resultFile, final int maxViolationsPerFile, final int maxViolationsPerCheck) throws IOException {
+            this(new BufferedOutputStream(new FileOutputStream(resultFile)), maxViolationsPerFile, maxViolationsPerCheck);
+        }
+
+        /**
+         * Create a writer writing the result to the given stream.
+         *
+         * @param output
+         *            stream receiving the result file.
+         * @param maxViolationsPerFile
+         *            maximum number of violations stored per file (0 for no limit).
+         * @param maxViolationsPerCheck
+         *            maximum number of violations stored per check (0 for no limit).
+         */
+        Writer(final OutputStream output, final int maxViolationsPerFile, final int maxViolationsPerCheck) {
+            this.output = new DataOutputStream(output);
+            this.maxViolationsPerFile = maxViolationsPerFile;
+            this.maxViolationsPerCheck = maxViolationsPerCheck;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void start() throws IOException {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void write(final String fileName, final List<Violation> violations) throws IOException {
+            final List<Violation> stored = new ArrayList<Violation>(violations.size());
+
+            for (final Violation violation : violations) {
+                if (SeverityLevel.ERROR.getName().equals(violation.getSeverity())) {
+                    errorCount++;
+                }
+
+                if (isStored(violation, stored.size())) {
+                    stored.add(violation);
+                }
+                else {
+                    omittedViolations++;
+                }
+            }
+
+            writeString(chunkOutput, fileName);
+            chunkOutput.writeInt(stored.size());
+
+            for (final Violation violation : stored) {
+                chunkOutput.writeInt(violation.getLine());
+                chunkOutput.writeInt(violation.getColumn());
+                writeString(chunkOutput, violation.getSeverity());
+                writeString(chunkOutput, violation.getMessage());
+                writeString(chunkOutput, violation.getSource());
+            }
+
+            chunkFiles++;
+            chunkViolations += stored.size();
+
+            if (chunk.size() >= CHUNK_SIZE) {
+                flushChunk();
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void handle(final String component, final String packageName, final String fileName,
+            final List<Violation> violations) throws IOException {
+            write(fileName, violations);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void finish() throws IOException {
+            flushChunk();
+
+            final long tableOffset = output.size();
+            output.writeInt(chunkCount);
+            table.writeTo(output);
+            output.writeInt(omittedViolations);
+            output.writeInt(errorCount);
+            output.writeLong(tableOffset);
+            output.flush();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void close() throws IOException {
+            deflater.end();
+            output.close();
+        }
+
+        /**
+         * @return the number of violations not stored because they exceeded a cap.
+         */
+        int getOmittedViolations() {
+            return omittedViolations;
+        }
+
+        /**
+         * Determine whether the given violation shall be stored and count it for its check.
+         *
+         * @param violation
+         *            violation to store.
+         * @param storedInFile
+         *            number of violations stored for the current file so far.
+         * @return <code>true</code> when no cap is exceeded by storing the given violation, <code>false</code> otherwise.
+         */
+        private boolean isStored(final Violation violation, final int storedInFile) {
+            if (maxViolationsPerFile > 0 && storedInFile >= maxViolationsPerFile) {
+                return false;
+            }
+
+            if (maxViolationsPerCheck > 0) {
+                final Integer count = violationsPerCheck.get(violation.getSource());
+                final int storedForCheck = count == null ? 0 : count;
+
+                if (storedForCheck >= maxViolationsPerCheck) {
+                    return false;
+                }
+
+                violationsPerCheck.put(violation.getSource(), storedForCheck + 1);
+            }
+
+            return true;
+        }
+
+        /**
+         * Compress and write the current chunk (if it contains any files) and record it in the table of chunks.
+         *
+         * @throws IOException
+         *             when writing failed.
+         */
+        private void flushChunk() throws IOException {
+            if (chunkFiles == 0) {
+                return;
+            }
+
+            tableOutput.writeLong(output.size());
+            tableOutput.writeInt(chunkFiles);
+            tableOutput.writeInt(chunkViolations);
+
+            deflater.reset();
+            final DeflaterOutputStream compressor = new DeflaterOutputStream(output, deflater);
+            chunk.writeTo(compressor);
+            compressor.finish();
+
+            chunk.reset();
+            chunkCount++;
+            chunkFiles = 0;
+            chunkViolations = 0;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.tools.ant.DirectoryScanner;
+import org.arachna.ant.AntHelper;
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+
+/**
+ * Resolves the class path of development components into the archives it consists of.
+ *
+ * Each class path folder (e.g. the public part folder of a used development component) is scanned only once. Class loaders over the
+ * resolved archives are shared between development components (and builds) with identical class paths. Instances of this class
+ * are meant to be used for one build and may be used concurrently.
+ *
+ * @author Dirk Weigenand
+ */
+final class ClassPathResolver {
+    /**
+     * patterns of archives on the class path.
+     */
+    private static final String[] ARCHIVE_PATTERNS = new String[] { "**/*.jar", "**/*.ear" };
+
+    /**
+     * helper for determining the class path folders of development components.
+     */
+    private final AntHelper antHelper;
+
+    /**
+     * archives mapped to the class path folder containing them.
+     */
+    private final ConcurrentMap<String, List<File>> archivesByFolder = new ConcurrentHashMap<String, List<File>>();
+
+    /**
+     * Create a class path resolver.
+     *
+     * @param antHelper
+     *            helper for determining the class path folders of development components.
+     */
+    ClassPathResolver(final AntHelper antHelper) {
+        this.antHelper = antHelper;
+    }
+
+    /**
+     * Returns the archives on the class path of the given development component. The class path folders are resolved in the order
+     * they are declared in, so classes present in several folders are loaded from the same archive as in the build of the
+     * development component.
+     *
+     * @param component
+     *            development component to resolve the class path for.
+     * @return the archives on the class path of the given development component.
+     */
+    List<File> getArchives(final DevelopmentComponent component) {
+        final Set<File> archives = new LinkedHashSet<File>();
+
+        for (final String folder : antHelper.createClassPath(component)) {
+            archives.addAll(getArchives(folder));
+        }
+
+        return new ArrayList<File>(archives);
+    }
+
+    /**
+     * Returns the paths of the archives on the class path of the given development component.
+     *
+     * @param component
+     *            development component to resolve the class path for.
+     * @return the absolute paths of the archives on the class path of the given development component.
+     */
+    List<String> getArchivePaths(final DevelopmentComponent component) {
+        final List<String> paths = new ArrayList<String>();
+
+        for (final File archive : getArchives(component)) {
+            paths.add(archive.getAbsolutePath());
+        }
+
+        return paths;
+    }
+
+    /**
+     * Returns a class loader for the given archives. Class loaders are shared for identical lists of archives across builds (see
+     * {@link CheckstyleSetupCache}) and must be returned via {@link #releaseClassLoader(ClassLoader)}.
+     *
+     * @param archives
+     *            archives to load classes from.
+     * @return a class loader for the given archives.
+     */
+    ClassLoader getClassLoader(final List<File> archives) {
+        return CheckstyleSetupCache.getInstance().getClassLoader(archives);
+    }
+
+    /**
+     * Return a class loader obtained via {@link #getClassLoader(List)}.
+     *
+     * @param classLoader
+     *            class loader no longer used.
+     */
+    void releaseClassLoader(final ClassLoader classLoader) {
+        CheckstyleSetupCache.getInstance().release(classLoader);
+    }
+
+    /**
+     * Convert the given files to URLs.
+     *
+     * @param files
+     *            files to convert.
+     * @return URLs of the given files.
+     */
+    static List<URL> toURLs(final List<File> files) {
+        final List<URL> urls = new ArrayList<URL>(files.size());
+
+        try {
+            for (final File file : files) {
+                urls.add(file.toURI().toURL());
+            }
+        }
+        catch (final MalformedURLException e) {
+            throw new IllegalStateException(e);
+        }
+
+        return urls;
+    }
+
+    /**
+     * Returns the archives in the given class path folder, scanning the folder on first access.
+     *
+     * @param folder
+     *            class path folder.
+     * @return archives in the given class path folder.
+     */
+    private List<File> getArchives(final String folder) {
+        List<File> archives = archivesByFolder.get(folder);
+
+        if (archives == null) {
+            archives = scan(new File(folder));
+            final List<File> existing = archivesByFolder.putIfAbsent(folder, archives);
+
+            if (existing != null) {
+                archives = existing;
+            }
+        }
+
+        return archives;
+    }
+
+    /**
+     * Scan the given folder for archives.
+     *
+     * @param folder
+     *            folder to scan.
+     * @return archives in the given folder (sorted by path).
+     */
+    private List<File> scan(final File folder) {
+        if (!folder.isDirectory()) {
+            return Collections.emptyList();
+        }
+
+        final DirectoryScanner scanner = new DirectoryScanner();
+        scanner.setBasedir(folder);
+        scanner.setIncludes(ARCHIVE_PATTERNS);
+        scanner.scan();
+
+        final String[] names = scanner.getIncludedFiles();
+        Arrays.sort(names);
+        final List<File> archives = new ArrayList<File>(names.length);
+
+        for (final String name : names) {
+            archives.add(new File(folder, name));
+        }
+
+        return Collections.unmodifiableList(archives);
+    }
+}
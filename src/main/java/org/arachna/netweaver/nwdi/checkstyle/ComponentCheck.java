@@ -0,0 +1,32 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import hudson.model.BuildListener;
+
+import java.io.IOException;
+
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+
+/**
+ * Checkstyle check of a single development component.
+ *
+ * @author Dirk Weigenand
+ */
+interface ComponentCheck {
+    /**
+     * Run checkstyle on the given development component.
+     *
+     * @param component
+     *            development component to check.
+     * @param listener
+     *            listener receiving the output of the check.
+     * @return <code>true</code> when the check could be executed successfully, <code>false</code> otherwise.
+     * @throws IOException
+     *             when executing the check failed.
+     * @throws InterruptedException
+     *             when the build was cancelled.
+     */
+    boolean execute(DevelopmentComponent component, BuildListener listener) throws IOException, InterruptedException;
+}
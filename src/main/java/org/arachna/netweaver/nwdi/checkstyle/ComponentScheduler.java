@@ -0,0 +1,249 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.arachna.ant.AntHelper;
+import org.arachna.ant.ExcludeDataDictionarySourceDirectoryFilter;
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+
+/**
+ * Orders development components by the estimated cost of checking them, most expensive first, so the executors (which take
+ * development components in the given order) do not start a huge development component last and prolong the build.
+ *
+ * The cost of a development component is the execution time recorded by the previous build. Development components without
+ * recorded timings are estimated by the size of their sources using the time per byte observed in the previous build. Without
+ * any timings (e.g. on the first build) development components are ordered by the size of their sources.
+ *
+ * @author Dirk Weigenand
+ */
+final class ComponentScheduler {
+    /**
+     * helper for determining the source folders of development components.
+     */
+    private final AntHelper antHelper;
+
+    /**
+     * timings of the previous build mapped to the names of development components.
+     */
+    private final Map<String, ComponentTimings> history = new HashMap<String, ComponentTimings>();
+
+    /**
+     * average execution time per byte of source observed in the previous build (0 when unknown).
+     */
+    private final double millisPerByte;
+
+    /**
+     * Create a scheduler using the timings of the previous build.
+     *
+     * @param antHelper
+     *            helper for determining the source folders of development components.
+     * @param previousTimings
+     *            timings recorded by the previous build (<code>null</code> when there are none).
+     */
+    ComponentScheduler(final AntHelper antHelper, final CheckstyleTimingAction previousTimings) {
+        this.antHelper = antHelper;
+        long millis = 0;
+        long bytes = 0;
+
+        if (previousTimings != null) {
+            for (final ComponentTimings timings : previousTimings.getComponents()) {
+                if (timings.getTotalMillis() > 0) {
+                    history.put(timings.getComponent(), timings);
+
+                    if (timings.getBytes() > 0) {
+                        millis += timings.getTotalMillis();
+                        bytes += timings.getBytes();
+                    }
+                }
+            }
+        }
+
+        millisPerByte = bytes > 0 ? (double)millis / bytes : 0;
+    }
+
+    /**
+     * Order the given development components by the estimated cost of checking them, most expensive first.
+     *
+     * @param components
+     *            development components to check.
+     * @return the given development components, most expensive first.
+     */
+    List<DevelopmentComponent> schedule(final Collection<DevelopmentComponent> components) {
+        final List<Estimate> estimates = new ArrayList<Estimate>(components.size());
+
+        for (final DevelopmentComponent component : components) {
+            estimates.add(estimate(component));
+        }
+
+        Collections.sort(estimates);
+
+        final List<DevelopmentComponent> scheduled = new ArrayList<DevelopmentComponent>(estimates.size());
+
+        for (final Estimate estimate : estimates) {
+            scheduled.add(estimate.component);
+        }
+
+        return scheduled;
+    }
+
+    /**
+     * Order the given development components by the estimated cost of checking them, most expensive first. Development components
+     * with changed sources are checked before all others (e.g. when the analysis is limited by an {@link AnalysisBudget}).
+     *
+     * @param components
+     *            development components to check.
+     * @param changedFiles
+     *            files changed by the activities integrated into the current build.
+     * @return the given development components, changed development components first, most expensive first.
+     */
+    List<DevelopmentComponent> schedule(final Collection<DevelopmentComponent> components, final ChangedFiles changedFiles) {
+        final List<DevelopmentComponent> scheduled = new ArrayList<DevelopmentComponent>(components.size());
+        final List<DevelopmentComponent> unchanged = new ArrayList<DevelopmentComponent>();
+
+        for (final DevelopmentComponent component : schedule(components)) {
+            if (changedFiles.affects(component)) {
+                scheduled.add(component);
+            }
+            else {
+                unchanged.add(component);
+            }
+        }
+
+        scheduled.addAll(unchanged);
+
+        return scheduled;
+    }
+
+    /**
+     * Estimate the cost of checking the given development component.
+     *
+     * @param component
+     *            development component to check.
+     * @return the estimated cost of checking the given development component.
+     */
+    private Estimate estimate(final DevelopmentComponent component) {
+        final String name = component.getNormalizedName("~");
+        final ComponentTimings timings = history.get(name);
+
+        if (timings != null) {
+            return new Estimate(component, name, timings.getTotalMillis(), 0);
+        }
+
+        final long bytes = getSourceBytes(component);
+
+        return new Estimate(component, name, millisPerByte > 0 ? Math.round(bytes * millisPerByte) : -1, bytes);
+    }
+
+    /**
+     * Determine the size of the java sources of the given development component (including test sources).
+     *
+     * @param component
+     *            development component to determine the size of the sources of.
+     * @return the size of the java sources of the given development component in bytes.
+     */
+    private long getSourceBytes(final DevelopmentComponent component) {
+        final Collection<String> sources = antHelper.createSourceFileSets(component, new ExcludeDataDictionarySourceDirectoryFilter());
+        sources.addAll(component.getTestSourceFolders());
+        long bytes = 0;
+
+        for (final String source : sources) {
+            bytes += getSourceBytes(new File(source));
+        }
+
+        return bytes;
+    }
+
+    /**
+     * Determine the size of the java sources in the given folder and its sub folders.
+     *
+     * @param folder
+     *            folder to determine the size of the sources in.
+     * @return the size of the java sources in the given folder in bytes.
+     */
+    private static long getSourceBytes(final File folder) {
+        final File[] children = folder.listFiles();
+        long bytes = 0;
+
+        if (children != null) {
+            for (final File child : children) {
+                if (child.isDirectory()) {
+                    bytes += getSourceBytes(child);
+                }
+                else if (child.getName().endsWith(".java")) {
+                    bytes += child.length();
+                }
+            }
+        }
+
+        return bytes;
+    }
+
+    /**
+     * Estimated cost of checking a development component. Estimates sort most expensive first. Estimates in bytes only (when no
+     * timings are known at all) sort before estimates in milliseconds, since the development component might be huge.
+     *
+     * @author Dirk Weigenand
+     */
+    private static final class Estimate implements Comparable<Estimate> {
+        /**
+         * the development component.
+         */
+        private final DevelopmentComponent component;
+
+        /**
+         * name of the development component.
+         */
+        private final String name;
+
+        /**
+         * estimated execution time in milliseconds (<code>-1</code> when unknown).
+         */
+        private final long millis;
+
+        /**
+         * size of the sources in bytes (used when the execution time is unknown).
+         */
+        private final long bytes;
+
+        /**
+         * Create an estimate for the given development component.
+         *
+         * @param component
+         *            the development component.
+         * @param name
+         *            name of the development component.
+         * @param millis
+         *            estimated execution time in milliseconds (<code>-1</code> when unknown).
+         * @param bytes
+         *            size of the sources in bytes (used when the execution time is unknown).
+         */
+        Estimate(final DevelopmentComponent component, final String name, final long millis, final long bytes) {
+            this.component = component;
+            this.name = name;
+            this.millis = millis;
+            this.bytes = bytes;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public int compareTo(final Estimate other) {
+            if (millis < 0 != other.millis < 0) {
+                return millis < 0 ? -1 : 1;
+            }
+
+            final long difference = millis < 0 ? other.bytes - bytes : other.millis - millis;
+
+            return difference == 0 ? name.compareTo(other.name) : difference > 0 ? 1 : -1;
+        }
+    }
+}
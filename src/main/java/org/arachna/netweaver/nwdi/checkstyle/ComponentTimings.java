@@ -0,0 +1,148 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Execution times per {@link TimingPhase} together with the number of audited files, bytes and violations of a development
+ * component (or of the build as a whole).
+ *
+ * @author Dirk Weigenand
+ */
+public final class ComponentTimings {
+    /**
+     * nanoseconds per millisecond.
+     */
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    /**
+     * name of development component.
+     */
+    private final String component;
+
+    /**
+     * nanoseconds spent per phase (indexed by ordinal of phase).
+     */
+    private final long[] nanos = new long[TimingPhase.values().length];
+
+    /**
+     * number of audited files.
+     */
+    private int files;
+
+    /**
+     * size of audited files in bytes.
+     */
+    private long bytes;
+
+    /**
+     * number of violations found.
+     */
+    private int violations;
+
+    /**
+     * Create the timings of the given development component.
+     *
+     * @param component
+     *            name of development component.
+     */
+    ComponentTimings(final String component) {
+        this.component = component;
+    }
+
+    /**
+     * Add the given time to the given phase.
+     *
+     * @param phase
+     *            the phase executed.
+     * @param duration
+     *            execution time in nanoseconds.
+     */
+    synchronized void add(final TimingPhase phase, final long duration) {
+        nanos[phase.ordinal()] += duration;
+    }
+
+    /**
+     * Add an audited file.
+     *
+     * @param size
+     *            size of the audited file in bytes.
+     * @param violationCount
+     *            number of violations found in the audited file.
+     */
+    synchronized void addFile(final long size, final int violationCount) {
+        files++;
+        bytes += size;
+        violations += violationCount;
+    }
+
+    /**
+     * @return the name of the development component.
+     */
+    public String getComponent() {
+        return component;
+    }
+
+    /**
+     * Returns the time spent in the given phase.
+     *
+     * @param phase
+     *            the phase to get the execution time for.
+     * @return the time spent in the given phase in milliseconds.
+     */
+    public synchronized long getMillis(final TimingPhase phase) {
+        return nanos[phase.ordinal()] / NANOS_PER_MILLI;
+    }
+
+    /**
+     * @return the time spent in all phases in milliseconds.
+     */
+    public synchronized long getTotalMillis() {
+        long total = 0;
+
+        for (final long duration : nanos) {
+            total += duration;
+        }
+
+        return total / NANOS_PER_MILLI;
+    }
+
+    /**
+     * @return the time spent per phase in milliseconds (phases without recorded time are omitted).
+     */
+    public synchronized Map<String, Long> getMillisPerPhase() {
+        final Map<String, Long> millis = new LinkedHashMap<String, Long>();
+
+        for (final TimingPhase phase : TimingPhase.values()) {
+            if (nanos[phase.ordinal()] > 0) {
+                millis.put(phase.name(), Long.valueOf(getMillis(phase)));
+            }
+        }
+
+        return millis;
+    }
+
+    /**
+     * @return the number of audited files.
+     */
+    public synchronized int getFiles() {
+        return files;
+    }
+
+    /**
+     * @return the size of the audited files in bytes.
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return the number of violations found.
+     */
+    public synchronized int getViolations() {
+        return violations;
+    }
+}
@@ -0,0 +1,237 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.DocumentType;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.ConfigurationLoader;
+import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
+import com.puppycrawl.tools.checkstyle.PropertiesExpander;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+
+/**
+ * Helper for deriving checkstyle configurations from the global configuration.
+ *
+ * @author Dirk Weigenand
+ */
+final class ConfigurationHelper {
+    /**
+     * names of modules whose results for a file depend on the content of all other files checked.
+     */
+    private static final Collection<String> CROSS_FILE_MODULES = new HashSet<String>(Arrays.asList("StrictDuplicateCode",
+        "StrictDuplicateCodeCheck", "com.puppycrawl.tools.checkstyle.checks.duplicates.StrictDuplicateCodeCheck"));
+
+    /**
+     * name of the property of the 'Checker' module holding the encoding of the files checked.
+     */
+    static final String CHARSET_PROPERTY = "charset";
+
+    /**
+     * Utility class.
+     */
+    private ConfigurationHelper() {
+    }
+
+    /**
+     * Parse the given checkstyle configuration.
+     *
+     * @param configuration
+     *            the checkstyle configuration as XML.
+     * @return the parsed configuration.
+     * @throws CheckstyleException
+     *             when the configuration could not be parsed.
+     */
+    static Configuration parse(final String configuration) throws CheckstyleException {
+        if (configuration == null || configuration.trim().length() == 0) {
+            throw new CheckstyleException("empty configuration");
+        }
+
+        return ConfigurationLoader.loadConfiguration(new InputSource(new StringReader(configuration)), new PropertiesExpander(
+            System.getProperties()), false);
+    }
+
+    /**
+     * Set the encoding of the files checked in the given checkstyle configuration, replacing an encoding configured there. The
+     * 'Checker' module passes the encoding on to its modules while being configured, so the encoding is set in the configuration
+     * (and not via {@link Checker#setCharset(String)} afterwards). The DTD referenced by the configuration is not fetched.
+     *
+     * @param configuration
+     *            the checkstyle configuration as XML.
+     * @param charset
+     *            name of the encoding of the files checked.
+     * @return the checkstyle configuration (as XML) using the given encoding.
+     * @throws CheckstyleException
+     *             when the configuration could not be parsed or written.
+     */
+    static String setCharset(final String configuration, final String charset) throws CheckstyleException {
+        try {
+            final DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+            builder.setEntityResolver(new EntityResolver() {
+                /**
+                 * {@inheritDoc}
+                 */
+                public InputSource resolveEntity(final String publicId, final String systemId) {
+                    return new InputSource(new StringReader(""));
+                }
+            });
+
+            final Document document = builder.parse(new InputSource(new StringReader(configuration)));
+            final Element checker = document.getDocumentElement();
+            Node child = checker.getFirstChild();
+
+            while (child != null) {
+                final Node next = child.getNextSibling();
+
+                if (child instanceof Element && "property".equals(child.getNodeName())
+                    && CHARSET_PROPERTY.equals(((Element)child).getAttribute("name"))) {
+                    checker.removeChild(child);
+                }
+
+                child = next;
+            }
+
+            final Element property = document.createElement("property");
+            property.setAttribute("name", CHARSET_PROPERTY);
+            property.setAttribute("value", charset);
+            checker.insertBefore(property, checker.getFirstChild());
+
+            final Transformer transformer = TransformerFactory.newInstance().newTransformer();
+            final DocumentType doctype = document.getDoctype();
+
+            if (doctype != null && doctype.getPublicId() != null) {
+                transformer.setOutputProperty(OutputKeys.DOCTYPE_PUBLIC, doctype.getPublicId());
+            }
+
+            if (doctype != null && doctype.getSystemId() != null) {
+                transformer.setOutputProperty(OutputKeys.DOCTYPE_SYSTEM, doctype.getSystemId());
+            }
+
+            final StringWriter result = new StringWriter();
+            transformer.transform(new DOMSource(document), new StreamResult(result));
+
+            return result.toString();
+        }
+        catch (final ParserConfigurationException e) {
+            throw new CheckstyleException(e.getMessage(), e);
+        }
+        catch (final SAXException e) {
+            throw new CheckstyleException(e.getMessage(), e);
+        }
+        catch (final IOException e) {
+            throw new CheckstyleException(e.getMessage(), e);
+        }
+        catch (final TransformerException e) {
+            throw new CheckstyleException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Validate the given checkstyle configuration by instantiating and configuring all of its modules. Unknown modules and
+     * properties or invalid property values are reported.
+     *
+     * @param configuration
+     *            the parsed checkstyle configuration.
+     * @throws CheckstyleException
+     *             when the configuration is invalid.
+     */
+    static void validate(final Configuration configuration) throws CheckstyleException {
+        final Checker checker = new Checker();
+
+        try {
+            checker.setModuleClassLoader(Checker.class.getClassLoader());
+            checker.setClassloader(Checker.class.getClassLoader());
+
+            CheckerGuard.configure(checker, configuration);
+        }
+        finally {
+            checker.destroy();
+        }
+    }
+
+    /**
+     * Determine whether the given module configuration describes a module whose results for a file depend on the content of all
+     * other files checked.
+     *
+     * @param module
+     *            module configuration to examine.
+     * @return <code>true</code> when the module checks across files, <code>false</code> otherwise.
+     */
+    static boolean isCrossFileModule(final Configuration module) {
+        return CROSS_FILE_MODULES.contains(module.getName());
+    }
+
+    /**
+     * Create a copy of the given root configuration containing either only the modules checking across files or only the other
+     * modules.
+     *
+     * @param root
+     *            the root ('Checker') configuration.
+     * @param crossFileModules
+     *            <code>true</code> to select the modules checking across files, <code>false</code> to select the other modules.
+     * @return a copy of the given configuration containing the selected modules or <code>null</code> when there are none.
+     */
+    static Configuration select(final Configuration root, final boolean crossFileModules) {
+        final DefaultConfiguration selection = copyAttributes(root);
+
+        for (final Configuration child : root.getChildren()) {
+            if (isCrossFileModule(child) == crossFileModules) {
+                selection.addChild(child);
+            }
+        }
+
+        return selection.getChildren().length > 0 ? selection : null;
+    }
+
+    /**
+     * Create a configuration with the name, attributes and messages of the given configuration but without its children.
+     *
+     * @param configuration
+     *            configuration to copy.
+     * @return the copied configuration.
+     */
+    static DefaultConfiguration copyAttributes(final Configuration configuration) {
+        final DefaultConfiguration copy = new DefaultConfiguration(configuration.getName());
+
+        try {
+            for (final String name : configuration.getAttributeNames()) {
+                copy.addAttribute(name, configuration.getAttribute(name));
+            }
+        }
+        catch (final CheckstyleException e) {
+            throw new IllegalStateException(e);
+        }
+
+        for (final Map.Entry<String, String> message : configuration.getMessages().entrySet()) {
+            copy.addMessage(message.getKey(), message.getValue());
+        }
+
+        return copy;
+    }
+}
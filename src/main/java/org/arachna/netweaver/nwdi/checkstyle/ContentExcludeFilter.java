@@ -0,0 +1,336 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Excludes source files from checkstyle checks whose content matches one of the configured regular expressions.
+ *
+ * The regular expressions are compiled once. Only the first lines of a file are examined when a header line limit is configured
+ * (e.g. for skipping generated sources marked with an '@generated' comment near the top). Decisions can be cached per content hash
+ * of a file. The number of files excluded by each expression is counted. Sources are decoded using the encoding checkstyle is
+ * configured with.
+ *
+ * Instances of this class may be used concurrently.
+ *
+ * @author Dirk Weigenand
+ */
+final class ContentExcludeFilter {
+    /**
+     * decision for files not matching any of the regular expressions.
+     */
+    private static final int NOT_EXCLUDED = -1;
+
+    /**
+     * The configured regular expressions.
+     */
+    private final List<String> regexps = new ArrayList<String>();
+
+    /**
+     * Compiled regular expressions.
+     */
+    private final List<Pattern> patterns = new ArrayList<Pattern>();
+
+    /**
+     * number of files excluded per regular expression.
+     */
+    private final List<AtomicInteger> excludedCounts = new ArrayList<AtomicInteger>();
+
+    /**
+     * maximum number of lines to examine per file (<code>0</code> means the whole file is examined).
+     */
+    private final int headerLines;
+
+    /**
+     * encoding of sources.
+     */
+    private final Charset charset;
+
+    /**
+     * cache of decisions mapped to content hashes (may be <code>null</code>).
+     */
+    private final DecisionCache decisionCache;
+
+    /**
+     * Create a filter using the given regular expressions.
+     *
+     * @param regexps
+     *            regular expressions to be used to exclude sources that match the given expressions with their content.
+     * @param headerLines
+     *            maximum number of lines to examine per file (<code>0</code> means the whole file is examined).
+     * @param charset
+     *            encoding of sources.
+     * @param decisionCache
+     *            cache of decisions mapped to content hashes (may be <code>null</code>).
+     */
+    ContentExcludeFilter(final Collection<String> regexps, final int headerLines, final Charset charset,
+        final DecisionCache decisionCache) {
+        this.headerLines = Math.max(0, headerLines);
+        this.charset = charset;
+        this.decisionCache = decisionCache;
+
+        for (final String regexp : regexps) {
+            this.regexps.add(regexp);
+            patterns.add(Pattern.compile(regexp));
+            excludedCounts.add(new AtomicInteger());
+        }
+    }
+
+    /**
+     * Create a filter using the given regular expressions examining whole files (encoded using the default encoding of sources)
+     * and not caching decisions.
+     *
+     * @param regexps
+     *            regular expressions to be used to exclude sources that match the given expressions with their content.
+     */
+    ContentExcludeFilter(final Collection<String> regexps) {
+        this(regexps, 0, Charset.forName(CheckstyleBuilder.DescriptorImpl.DEFAULT_SOURCE_ENCODING), null);
+    }
+
+    /**
+     * Returns whether there are any regular expressions to evaluate.
+     *
+     * @return <code>true</code> when no regular expressions are configured, <code>false</code> otherwise.
+     */
+    boolean isEmpty() {
+        return patterns.isEmpty();
+    }
+
+    /**
+     * Determine whether the given file shall be excluded from checkstyle checks.
+     *
+     * @param file
+     *            source file to examine.
+     * @return <code>true</code> when the file shall be excluded from checking, <code>false</code> otherwise.
+     * @throws IOException
+     *             when reading the file failed.
+     */
+    boolean isExcluded(final File file) throws IOException {
+        return isExcluded(file, null);
+    }
+
+    /**
+     * Determine whether the given file shall be excluded from checkstyle checks using a cached decision for the given content hash
+     * if available.
+     *
+     * @param file
+     *            source file to examine.
+     * @param contentHash
+     *            hash of the content of the file (may be <code>null</code> if unknown).
+     * @return <code>true</code> when the file shall be excluded from checking, <code>false</code> otherwise.
+     * @throws IOException
+     *             when reading the file failed.
+     */
+    boolean isExcluded(final File file, final String contentHash) throws IOException {
+        return isExcluded(file, contentHash, null);
+    }
+
+    /**
+     * Determine whether the given file shall be excluded from checkstyle checks using a cached decision for the given content hash
+     * if available. The content of the file is obtained from the given provider.
+     *
+     * @param file
+     *            source file to examine.
+     * @param contentHash
+     *            hash of the content of the file (may be <code>null</code> if unknown).
+     * @param sourceFileProvider
+     *            provider of the content of source files (<code>null</code> to read the file directly).
+     * @return <code>true</code> when the file shall be excluded from checking, <code>false</code> otherwise.
+     * @throws IOException
+     *             when reading the file failed.
+     */
+    boolean isExcluded(final File file, final String contentHash, final SourceFileProvider sourceFileProvider) throws IOException {
+        if (patterns.isEmpty()) {
+            return false;
+        }
+
+        Integer decision = null;
+
+        if (decisionCache != null && contentHash != null) {
+            decision = decisionCache.get(contentHash);
+        }
+
+        if (decision == null) {
+            decision = Integer.valueOf(findMatchingPattern(file, sourceFileProvider));
+
+            if (decisionCache != null && contentHash != null) {
+                decisionCache.put(contentHash, decision);
+            }
+        }
+
+        if (decision.intValue() == NOT_EXCLUDED) {
+            return false;
+        }
+
+        excludedCounts.get(decision.intValue()).incrementAndGet();
+
+        return true;
+    }
+
+    /**
+     * Returns the number of files excluded so far mapped to the regular expression that excluded them.
+     *
+     * @return number of excluded files per regular expression (only expressions that excluded at least one file are contained).
+     */
+    Map<String, Integer> getExcludedCounts() {
+        final Map<String, Integer> counts = new LinkedHashMap<String, Integer>();
+
+        for (int i = 0; i < regexps.size(); i++) {
+            final int count = excludedCounts.get(i).get();
+
+            if (count > 0) {
+                counts.put(regexps.get(i), Integer.valueOf(count));
+            }
+        }
+
+        return counts;
+    }
+
+    /**
+     * Find the first regular expression matching a line of the given file.
+     *
+     * @param file
+     *            source file to examine.
+     * @param sourceFileProvider
+     *            provider of the content of source files (<code>null</code> to read the file directly).
+     * @return index of the matching regular expression or {@link #NOT_EXCLUDED} if none matched.
+     * @throws IOException
+     *             when reading the file failed.
+     */
+    private int findMatchingPattern(final File file, final SourceFileProvider sourceFileProvider) throws IOException {
+        final InputStream input = sourceFileProvider == null ? new FileInputStream(file) : sourceFileProvider.open(file);
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(input, charset));
+
+        try {
+            String line;
+            int lineCount = 0;
+
+            while ((headerLines == 0 || lineCount++ < headerLines) && (line = reader.readLine()) != null) {
+                for (int i = 0; i < patterns.size(); i++) {
+                    if (patterns.get(i).matcher(line).find()) {
+                        return i;
+                    }
+                }
+            }
+        }
+        finally {
+            reader.close();
+        }
+
+        return NOT_EXCLUDED;
+    }
+
+    /**
+     * Bounded cache of content exclusion decisions mapped to content hashes of files. A cache is only valid for the regular
+     * expressions, header line limit and encoding it was created for.
+     *
+     * @author Dirk Weigenand
+     */
+    static final class DecisionCache {
+        /**
+         * maximum number of cached decisions.
+         */
+        private static final int MAX_ENTRIES = 50000;
+
+        /**
+         * key identifying regular expressions, header line limit and encoding.
+         */
+        private final String key;
+
+        /**
+         * cached decisions (index of matching regular expression or {@link ContentExcludeFilter#NOT_EXCLUDED}).
+         */
+        private final Map<String, Integer> decisions = Collections.synchronizedMap(new LinkedHashMap<String, Integer>(16, 0.75f,
+            true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Integer> eldest) {
+                return size() > MAX_ENTRIES;
+            }
+        });
+
+        /**
+         * Create a cache for the given regular expressions, header line limit and encoding.
+         *
+         * @param regexps
+         *            regular expressions to be used to exclude sources.
+         * @param headerLines
+         *            maximum number of lines to examine per file.
+         * @param charset
+         *            encoding of sources.
+         */
+        DecisionCache(final Collection<String> regexps, final int headerLines, final Charset charset) {
+            key = createKey(regexps, headerLines, charset);
+        }
+
+        /**
+         * Returns whether this cache is valid for the given regular expressions, header line limit and encoding.
+         *
+         * @param regexps
+         *            regular expressions to be used to exclude sources.
+         * @param headerLines
+         *            maximum number of lines to examine per file.
+         * @param charset
+         *            encoding of sources.
+         * @return <code>true</code> when this cache can be used with the given settings, <code>false</code> otherwise.
+         */
+        boolean isValidFor(final Collection<String> regexps, final int headerLines, final Charset charset) {
+            return key.equals(createKey(regexps, headerLines, charset));
+        }
+
+        /**
+         * Returns the cached decision for the given content hash.
+         *
+         * @param contentHash
+         *            hash of the content of a file.
+         * @return the cached decision or <code>null</code> when there is none.
+         */
+        Integer get(final String contentHash) {
+            return decisions.get(contentHash);
+        }
+
+        /**
+         * Cache the given decision for the given content hash.
+         *
+         * @param contentHash
+         *            hash of the content of a file.
+         * @param decision
+         *            the decision to cache.
+         */
+        void put(final String contentHash, final Integer decision) {
+            decisions.put(contentHash, decision);
+        }
+
+        /**
+         * Create a key identifying the given regular expressions (in order), header line limit and encoding.
+         *
+         * @param regexps
+         *            regular expressions to be used to exclude sources.
+         * @param headerLines
+         *            maximum number of lines to examine per file.
+         * @param charset
+         *            encoding of sources.
+         * @return key identifying the given settings.
+         */
+        private static String createKey(final Collection<String> regexps, final int headerLines, final Charset charset) {
+            return headerLines + "|" + charset.name() + "|" + regexps;
+        }
+    }
+}
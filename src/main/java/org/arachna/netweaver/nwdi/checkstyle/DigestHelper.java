@@ -0,0 +1,155 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Helper for calculating content hashes of files and strings.
+ *
+ * @author Dirk Weigenand
+ */
+final class DigestHelper {
+    /**
+     * algorithm used for calculating hashes.
+     */
+    private static final String ALGORITHM = "SHA-1";
+
+    /**
+     * algorithm used by {@link hudson.FilePath#digest()}.
+     */
+    static final String MD5 = "MD5";
+
+    /**
+     * hex digits for formatting hashes.
+     */
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * size of buffer used for reading files.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Utility class.
+     */
+    private DigestHelper() {
+    }
+
+    /**
+     * Create a new message digest.
+     *
+     * @return a new message digest.
+     */
+    static MessageDigest createDigest() {
+        return createDigest(ALGORITHM);
+    }
+
+    /**
+     * Create a new message digest using the given algorithm.
+     *
+     * @param algorithm
+     *            name of digest algorithm.
+     * @return a new message digest.
+     */
+    static MessageDigest createDigest(final String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        }
+        catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Calculate the hash of the given string (encoded as UTF-8).
+     *
+     * @param value
+     *            the string to calculate the hash for.
+     * @return the hash of the given string as hex string.
+     */
+    static String digest(final String value) {
+        return digest(value, ALGORITHM);
+    }
+
+    /**
+     * Calculate the hash of the given string (encoded as UTF-8) using the given algorithm.
+     *
+     * @param value
+     *            the string to calculate the hash for.
+     * @param algorithm
+     *            name of digest algorithm.
+     * @return the hash of the given string as hex string.
+     */
+    static String digest(final String value, final String algorithm) {
+        return toHex(createDigest(algorithm).digest(value.getBytes(Charset.forName("UTF-8"))));
+    }
+
+    /**
+     * Calculate the hash of the content of the given file.
+     *
+     * @param file
+     *            the file to calculate the hash for.
+     * @return the hash of the content of the given file as hex string.
+     * @throws IOException
+     *             when the file could not be read.
+     */
+    static String digest(final File file) throws IOException {
+        final MessageDigest digest = createDigest();
+        final InputStream input = new FileInputStream(file);
+
+        try {
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            int count;
+
+            while ((count = input.read(buffer)) != -1) {
+                digest.update(buffer, 0, count);
+            }
+        }
+        finally {
+            input.close();
+        }
+
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Calculate the hash of the given content.
+     *
+     * @param content
+     *            the content to calculate the hash for (consumed).
+     * @return the hash of the given content as hex string.
+     */
+    static String digest(final ByteBuffer content) {
+        final MessageDigest digest = createDigest();
+        digest.update(content);
+
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Format the given bytes as hex string.
+     *
+     * @param bytes
+     *            the bytes to format.
+     * @return the hex string representation of the given bytes.
+     */
+    static String toHex(final byte[] bytes) {
+        final char[] hex = new char[bytes.length * 2];
+
+        for (int i = 0; i < bytes.length; i++) {
+            hex[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+            hex[2 * i + 1] = HEX_DIGITS[bytes[i] & 0xf];
+        }
+
+        return new String(hex);
+    }
+}
@@ -0,0 +1,387 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import hudson.model.BuildListener;
+import hudson.remoting.VirtualChannel;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+
+/**
+ * Checks development components in process on the node running the build and on other agents concurrently.
+ *
+ * All workers take development components from a shared queue. Workers for agents take batches of development components, ship
+ * their sources, class path and the checkstyle configuration to the agent (see {@link RemoteCheckstyleBatch}) and write the
+ * returned result files. When an agent fails, the batch is checked locally and the agent is not used any more. Local workers (like
+ * batches on an agent) configure and run their checkers via {@link CheckerGuard}.
+ *
+ * @author Dirk Weigenand
+ */
+class DistributedComponentExecutor {
+    /**
+     * number of development components shipped to an agent at once.
+     */
+    static final int COMPONENTS_PER_BATCH = 5;
+
+    /**
+     * channels to agents mapped to their names.
+     */
+    private final Map<String, VirtualChannel> agents;
+
+    /**
+     * number of development components to check concurrently on the node running the build.
+     */
+    private final int localParallelism;
+
+    /**
+     * Create an executor distributing the check of development components across the given agents.
+     *
+     * @param agents
+     *            channels to agents mapped to their names.
+     * @param localParallelism
+     *            number of development components to check concurrently on the node running the build.
+     */
+    DistributedComponentExecutor(final Map<String, VirtualChannel> agents, final int localParallelism) {
+        this.agents = new LinkedHashMap<String, VirtualChannel>(agents);
+        this.localParallelism = Math.max(1, localParallelism);
+    }
+
+    /**
+     * Check the given development components.
+     *
+     * @param components
+     *            development components to check.
+     * @param runner
+     *            runner for checking development components locally and preparing them for checking on agents.
+     * @param budget
+     *            budget limiting the analysis.
+     * @param configuration
+     *            the checkstyle configuration (XML).
+     * @param listener
+     *            listener for logging progress messages.
+     * @return <code>true</code> when the checks of all development components were successful, <code>false</code> otherwise.
+     * @throws IOException
+     *             when preparing a development component or writing its results failed.
+     * @throws InterruptedException
+     *             when the build was cancelled. All running checks are cancelled too.
+     */
+    boolean execute(final Collection<DevelopmentComponent> components, final InProcessCheckstyleRunner runner,
+        final AnalysisBudget budget, final String configuration, final BuildListener listener) throws IOException,
+        InterruptedException {
+        final Queue<DevelopmentComponent> queue = new ConcurrentLinkedQueue<DevelopmentComponent>(components);
+        final List<Callable<Boolean>> workers = new ArrayList<Callable<Boolean>>();
+
+        for (final Map.Entry<String, VirtualChannel> agent : agents.entrySet()) {
+            workers.add(new AgentWorker(agent.getKey(), agent.getValue(), queue, runner, budget, configuration, listener));
+        }
+
+        for (int i = 0; i < localParallelism; i++) {
+            workers.add(new LocalWorker(queue, budget.limit(runner), listener));
+        }
+
+        final ExecutorService pool = Executors.newFixedThreadPool(workers.size(), new ParallelComponentExecutor.WorkerThreadFactory());
+        boolean result = true;
+
+        try {
+            final List<Future<Boolean>> results = new ArrayList<Future<Boolean>>(workers.size());
+
+            for (final Callable<Boolean> worker : workers) {
+                results.add(pool.submit(worker));
+            }
+
+            for (final Future<Boolean> workerResult : results) {
+                result &= workerResult.get();
+            }
+        }
+        catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+
+            if (cause instanceof IOException) {
+                throw (IOException)cause;
+            }
+
+            if (cause instanceof InterruptedException) {
+                throw (InterruptedException)cause;
+            }
+
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            }
+
+            throw new IllegalStateException(cause);
+        }
+        finally {
+            pool.shutdownNow();
+        }
+
+        return result;
+    }
+
+    /**
+     * Checks development components taken from a shared queue on the node running the build.
+     *
+     * @author Dirk Weigenand
+     */
+    private static final class LocalWorker implements Callable<Boolean> {
+        /**
+         * development components to check.
+         */
+        private final Queue<DevelopmentComponent> queue;
+
+        /**
+         * check to execute on development components.
+         */
+        private final ComponentCheck check;
+
+        /**
+         * listener for logging progress messages.
+         */
+        private final BuildListener listener;
+
+        /**
+         * Create a worker checking development components taken from the given queue.
+         *
+         * @param queue
+         *            development components to check.
+         * @param check
+         *            check to execute on development components.
+         * @param listener
+         *            listener for logging progress messages.
+         */
+        LocalWorker(final Queue<DevelopmentComponent> queue, final ComponentCheck check, final BuildListener listener) {
+            this.queue = queue;
+            this.check = check;
+            this.listener = listener;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public Boolean call() throws IOException, InterruptedException {
+            boolean result = true;
+
+            for (DevelopmentComponent component = queue.poll(); component != null; component = queue.poll()) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+
+                result &= check.execute(component, listener);
+            }
+
+            return result;
+        }
+    }
+
+    /**
+     * Checks batches of development components taken from a shared queue on an agent.
+     *
+     * @author Dirk Weigenand
+     */
+    private static final class AgentWorker implements Callable<Boolean> {
+        /**
+         * name of agent.
+         */
+        private final String agent;
+
+        /**
+         * channel to agent.
+         */
+        private final VirtualChannel channel;
+
+        /**
+         * development components to check.
+         */
+        private final Queue<DevelopmentComponent> queue;
+
+        /**
+         * runner for preparing development components and writing their results.
+         */
+        private final InProcessCheckstyleRunner runner;
+
+        /**
+         * budget limiting the analysis.
+         */
+        private final AnalysisBudget budget;
+
+        /**
+         * the checkstyle configuration (XML).
+         */
+        private final String configuration;
+
+        /**
+         * listener for logging progress messages.
+         */
+        private final BuildListener listener;
+
+        /**
+         * Create a worker checking development components taken from the given queue on an agent.
+         *
+         * @param agent
+         *            name of agent.
+         * @param channel
+         *            channel to agent.
+         * @param queue
+         *            development components to check.
+         * @param runner
+         *            runner for preparing development components and writing their results.
+         * @param budget
+         *            budget limiting the analysis.
+         * @param configuration
+         *            the checkstyle configuration (XML).
+         * @param listener
+         *            listener for logging progress messages.
+         */
+        AgentWorker(final String agent, final VirtualChannel channel, final Queue<DevelopmentComponent> queue,
+            final InProcessCheckstyleRunner runner, final AnalysisBudget budget, final String configuration,
+            final BuildListener listener) {
+            this.agent = agent;
+            this.channel = channel;
+            this.queue = queue;
+            this.runner = runner;
+            this.budget = budget;
+            this.configuration = configuration;
+            this.listener = listener;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public Boolean call() throws IOException, InterruptedException {
+            final PrintStream logger = listener.getLogger();
+
+            for (List<DevelopmentComponent> batch = nextBatch(); !batch.isEmpty(); batch = nextBatch()) {
+                final Map<String, DevelopmentComponent> components = new LinkedHashMap<String, DevelopmentComponent>();
+                final List<RemoteComponent> remoteComponents = new ArrayList<RemoteComponent>();
+
+                for (final DevelopmentComponent component : batch) {
+                    final RemoteComponent remoteComponent = runner.createRemoteComponent(component);
+
+                    if (remoteComponent != null) {
+                        components.put(remoteComponent.getName(), component);
+                        remoteComponents.add(remoteComponent);
+                    }
+                }
+
+                if (remoteComponents.isEmpty()) {
+                    continue;
+                }
+
+                logger.println(String.format("Running checkstyle on %s on agent %s.", components.keySet(), agent));
+                final List<RemoteCheckResult> results;
+
+                try {
+                    results = channel.call(new RemoteCheckstyleBatch(configuration, remoteComponents, runner.getResultFormat()));
+                }
+                catch (final IOException e) {
+                    return checkLocally(components, e);
+                }
+                catch (final RuntimeException e) {
+                    return checkLocally(components, e);
+                }
+                catch (final Error e) {
+                    return checkLocally(components, e);
+                }
+
+                for (final RemoteCheckResult result : results) {
+                    logger.println(String.format("Checked %s on agent %s (%d files, %d violations).", result.getComponent(), agent,
+                        result.getFiles(), result.getViolations()));
+                    runner.writeRemoteResult(components.get(result.getComponent()), result);
+                    budget.addErrors(result.getErrors());
+                }
+            }
+
+            return true;
+        }
+
+        /**
+         * Take the next batch of development components from the queue. Development components taken while the budget is
+         * exhausted are skipped.
+         *
+         * @return the next batch of development components (empty when all development components have been taken).
+         * @throws InterruptedException
+         *             when the build was cancelled.
+         */
+        private List<DevelopmentComponent> nextBatch() throws InterruptedException {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+
+            final List<DevelopmentComponent> batch = new ArrayList<DevelopmentComponent>(COMPONENTS_PER_BATCH);
+
+            for (DevelopmentComponent component = queue.poll(); component != null; component = queue.poll()) {
+                if (budget.isExhausted()) {
+                    budget.skip(component, listener.getLogger());
+                    continue;
+                }
+
+                batch.add(component);
+
+                if (batch.size() == COMPONENTS_PER_BATCH) {
+                    break;
+                }
+            }
+
+            return batch;
+        }
+
+        /**
+         * Check the given development components on the node running the build after checking them on the agent failed (e.g. the
+         * agent went offline, ran out of memory or could not load a class).
+         *
+         * @param components
+         *            development components to check mapped to their names.
+         * @param cause
+         *            why checking on the agent failed.
+         * @return <code>true</code> when the checks of all development components were successful, <code>false</code> otherwise.
+         * @throws IOException
+         *             when reading the results of a development component failed.
+         * @throws InterruptedException
+         *             when the build was cancelled.
+         */
+        private boolean checkLocally(final Map<String, DevelopmentComponent> components, final Throwable cause)
+            throws IOException, InterruptedException {
+            listener.getLogger().println(
+                String.format("Could not run checkstyle on agent %s (%s), checking %s locally.", agent, cause, components.keySet()));
+
+            return checkLocally(components.values());
+        }
+
+        /**
+         * Check the given development components on the node running the build.
+         *
+         * @param components
+         *            development components to check.
+         * @return <code>true</code> when the checks of all development components were successful, <code>false</code> otherwise.
+         * @throws IOException
+         *             when reading the results of a development component failed.
+         * @throws InterruptedException
+         *             when the build was cancelled.
+         */
+        private boolean checkLocally(final Collection<DevelopmentComponent> components) throws IOException, InterruptedException {
+            final ComponentCheck check = budget.limit(runner);
+            boolean result = true;
+
+            for (final DevelopmentComponent component : components) {
+                result &= check.execute(component, listener);
+            }
+
+            return result;
+        }
+    }
+}
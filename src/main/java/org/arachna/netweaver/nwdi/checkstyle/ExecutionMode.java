@@ -0,0 +1,73 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+/**
+ * Modes of executing checkstyle on development components.
+ *
+ * @author Dirk Weigenand
+ */
+public enum ExecutionMode {
+    /**
+     * Generate a build file per development component and execute it with Ant.
+     */
+    ANT {
+        @Override
+        public String getDisplayName() {
+            return Messages.checkstyle_builder_executionmode_ant();
+        }
+    },
+
+    /**
+     * Generate one build file for all development components and check them using a single Ant invocation.
+     */
+    ANT_SINGLE_BUILD {
+        @Override
+        public String getDisplayName() {
+            return Messages.checkstyle_builder_executionmode_antsinglebuild();
+        }
+    },
+
+    /**
+     * Run checkstyle inside the build using a configuration that is parsed once per build.
+     */
+    IN_PROCESS {
+        @Override
+        public String getDisplayName() {
+            return Messages.checkstyle_builder_executionmode_inprocess();
+        }
+    },
+
+    /**
+     * Run checkstyle in process on the node running the build and on other agents concurrently.
+     */
+    DISTRIBUTED {
+        @Override
+        public String getDisplayName() {
+            return Messages.checkstyle_builder_executionmode_distributed();
+        }
+    };
+
+    /**
+     * @return the human readable name of this execution mode.
+     */
+    public abstract String getDisplayName();
+
+    /**
+     * Determine the execution mode from the given name. Falls back to {@link #ANT} when the name is empty or unknown.
+     *
+     * @param name
+     *            name of execution mode.
+     * @return the execution mode matching the given name or {@link #ANT}.
+     */
+    public static ExecutionMode fromString(final String name) {
+        for (final ExecutionMode mode : values()) {
+            if (mode.name().equals(name)) {
+                return mode;
+            }
+        }
+
+        return ANT;
+    }
+}
@@ -0,0 +1,1140 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import hudson.model.BuildListener;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.tools.ant.DirectoryScanner;
+import org.arachna.ant.AntHelper;
+import org.arachna.ant.ExcludeDataDictionarySourceDirectoryFilter;
+import org.arachna.ant.ExcludesFactory;
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.api.AuditListener;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+
+/**
+ * Runs checkstyle on development components inside the current JVM instead of forking an Ant build per development component.
+ *
+ * The checkstyle configuration is parsed once and reused for every development component checked by an instance of this class.
+ *
+ * The sources of large development components may be checked by several threads concurrently. The source files are split into
+ * one partition of about the same size per thread and each thread checks its partition with its own {@link Checker} using the
+ * modules checking each file on its own. Modules checking across all files (e.g. 'StrictDuplicateCode') are run on all files by
+ * the calling thread meanwhile. The violations are merged and written in the order the files would have been checked by a single
+ * checker.
+ *
+ * @author Dirk Weigenand
+ */
+class InProcessCheckstyleRunner implements ComponentCheck {
+    /**
+     * path template for the 'checkstyle-result.xml' of a development component.
+     */
+    static final String RESULT_XML_PATH_TEMPLATE = "%s/gen/default/logs/checkstyle-result.xml";
+
+    /**
+     * name of the file caching violations of unchanged sources (next to the 'checkstyle-result.xml').
+     */
+    private static final String CACHE_FILE_NAME = "checkstyle-cache.bin.gz";
+
+    /**
+     * minimum number of files to check per thread when checking the sources of a development component concurrently.
+     */
+    static final int MIN_FILES_PER_THREAD = 100;
+
+    /**
+     * the parsed checkstyle configuration.
+     */
+    private final Configuration configuration;
+
+    /**
+     * configuration containing only the modules whose results for a file do not depend on other files (<code>null</code> if
+     * there are none).
+     */
+    private final Configuration perFileConfiguration;
+
+    /**
+     * configuration containing only the modules whose results for a file depend on all other files checked (<code>null</code>
+     * if there are none).
+     */
+    private final Configuration crossFileConfiguration;
+
+    /**
+     * hash of the checkstyle configuration.
+     */
+    private final String configurationHash;
+
+    /**
+     * helper for determining source folders and class path of development components.
+     */
+    private final AntHelper antHelper;
+
+    /**
+     * Factory for exclude patterns depending on DC type.
+     */
+    private final ExcludesFactory excludesFactory = new ExcludesFactory();
+
+    /**
+     * Excludes configured in project.
+     */
+    private final Set<String> excludes = new HashSet<String>();
+
+    /**
+     * filter for excluding sources by their content.
+     */
+    private final ContentExcludeFilter contentExcludeFilter;
+
+    /**
+     * whether only sources changed since the last check shall be checked.
+     */
+    private final boolean incremental;
+
+    /**
+     * files changed by the activities integrated into the current build (<code>null</code> when all sources shall be checked).
+     */
+    private final ChangedFiles changedFiles;
+
+    /**
+     * resolver for class paths of development components.
+     */
+    private final ClassPathResolver classPathResolver;
+
+    /**
+     * provider of the content of source files.
+     */
+    private final SourceFileProvider sourceFileProvider;
+
+    /**
+     * recorder for the execution times of checking development components.
+     */
+    private final TimingRecorder timings;
+
+    /**
+     * maximum number of threads checking the sources of a single development component.
+     */
+    private final int fileParallelism;
+
+    /**
+     * format of the result files to write.
+     */
+    private final ResultFormat resultFormat;
+
+    /**
+     * consumers the parsed sources are passed to.
+     */
+    private final List<SourceFileConsumer> consumers;
+
+    /**
+     * module factory measuring the CPU time spent in each check and passing parsed sources to the consumers (created on first use
+     * when checks are profiled or consumers are registered).
+     */
+    private ProfilingModuleFactory profilingModuleFactory;
+
+    /**
+     * Create a runner using the given checkstyle configuration.
+     *
+     * @param configuration
+     *            the parsed checkstyle configuration.
+     * @param configurationHash
+     *            hash of the checkstyle configuration.
+     * @param antHelper
+     *            helper class for determining source folders, class path etc.
+     * @param excludes
+     *            Ant exclude patterns.
+     * @param contentExcludeFilter
+     *            filter for excluding sources by their content.
+     * @param incremental
+     *            whether only sources changed since the last check shall be checked (reusing cached violations for the other
+     *            sources).
+     * @param changedFiles
+     *            files changed by the activities integrated into the current build. When given, only those files are checked and
+     *            the cached violations of the other sources are carried forward (<code>null</code> to check all sources).
+     * @param classPathResolver
+     *            resolver for class paths of development components (shared by all development components of a build).
+     * @param sourceFileProvider
+     *            provider of the content of source files (shared by all development components of a build).
+     * @param timings
+     *            recorder for the execution times of checking development components (and optionally the CPU time spent in each
+     *            check).
+     * @param fileParallelism
+     *            maximum number of threads checking the sources of a single development component (at least
+     *            {@link #MIN_FILES_PER_THREAD} files are checked per thread).
+     * @param resultFormat
+     *            format of the result files to write.
+     * @param consumers
+     *            consumers the parsed sources shall be passed to.
+     */
+    InProcessCheckstyleRunner(final Configuration configuration, final String configurationHash, final AntHelper antHelper,
+        final Collection<String> excludes, final ContentExcludeFilter contentExcludeFilter, final boolean incremental,
+        final ChangedFiles changedFiles, final ClassPathResolver classPathResolver, final SourceFileProvider sourceFileProvider,
+        final TimingRecorder timings, final int fileParallelism, final ResultFormat resultFormat,
+        final List<SourceFileConsumer> consumers) {
+        this.configuration = configuration;
+        perFileConfiguration = ConfigurationHelper.select(configuration, false);
+        crossFileConfiguration = ConfigurationHelper.select(configuration, true);
+        this.configurationHash = configurationHash;
+        this.incremental = incremental;
+        this.changedFiles = changedFiles;
+        this.classPathResolver = classPathResolver;
+        this.sourceFileProvider = sourceFileProvider;
+        this.timings = timings;
+        this.fileParallelism = Math.max(1, fileParallelism);
+        this.resultFormat = resultFormat;
+        this.consumers = consumers;
+        this.antHelper = antHelper;
+        this.excludes.addAll(excludes);
+        this.contentExcludeFilter = contentExcludeFilter;
+    }
+
+    /**
+     * Run checkstyle on the given development component and write the results into its result file.
+     *
+     * @param component
+     *            development component to check.
+     * @param listener
+     *            listener for progress messages.
+     * @return <code>true</code> when checkstyle could be executed successfully (or there was nothing to check), <code>false</code>
+     *         otherwise.
+     * @throws InterruptedException
+     *             when the build was cancelled while checking the sources concurrently.
+     */
+    public boolean execute(final DevelopmentComponent component, final BuildListener listener) throws InterruptedException {
+        final PrintStream logger = listener.getLogger();
+        final Collection<String> sources = getSourceFolders(component);
+
+        if (sources.isEmpty()) {
+            return true;
+        }
+
+        final String componentName = component.getNormalizedName("~");
+
+        try {
+            final boolean hashContent = incremental && changedFiles == null;
+            final Map<String, String> contentHashes = hashContent ? new LinkedHashMap<String, String>() : null;
+            final List<File> files = getSourceFiles(component, sources, contentHashes);
+            final long start = System.nanoTime();
+            final ComponentClassPath classPath = getClassPath(component);
+
+            try {
+                final File resultFile = getResultFile(component);
+                resultFile.getParentFile().mkdirs();
+
+                if (changedFiles != null) {
+                    checkChangedFiles(component, files, classPath, resultFile, logger);
+                }
+                else if (incremental) {
+                    checkIncrementally(componentName, files, contentHashes, classPath, resultFile, logger);
+                }
+                else if (getThreadCount(files.size()) > 1) {
+                    logger.println(String.format("Running checkstyle on %s (%d files, %d threads).", componentName, files.size(),
+                        getThreadCount(files.size())));
+                    checkConcurrently(files, classPath, resultFile);
+                }
+                else {
+                    logger.println(String.format("Running checkstyle on %s (%d files).", componentName, files.size()));
+                    final ResultWriterListener resultListener = new ResultWriterListener(resultFormat.createWriter(resultFile));
+                    check(configuration, files, classPath, resultListener);
+                    resultListener.checkError();
+                }
+            }
+            finally {
+                release(classPath);
+            }
+
+            timings.record(componentName, TimingPhase.CHECK, System.nanoTime() - start);
+
+            return true;
+        }
+        catch (final CheckstyleException e) {
+            logger.println(String.format("Could not run checkstyle on %s: %s", componentName, e.getMessage()));
+        }
+        catch (final IOException e) {
+            e.printStackTrace(logger);
+        }
+
+        return false;
+    }
+
+    /**
+     * Collect the sources and the class path of the given development component for checking it on an agent.
+     *
+     * @param component
+     *            development component to check on an agent.
+     * @return sources and class path of the given development component (<code>null</code> when there is nothing to check).
+     * @throws IOException
+     *             when reading a source file failed.
+     */
+    RemoteComponent createRemoteComponent(final DevelopmentComponent component) throws IOException {
+        final Collection<String> sources = getSourceFolders(component);
+
+        if (sources.isEmpty()) {
+            return null;
+        }
+
+        final RemoteComponent remoteComponent = new RemoteComponent(component.getNormalizedName("~"));
+
+        for (final File file : getSourceFiles(component, sources, null)) {
+            remoteComponent.addSource(file, sourceFileProvider.getBytes(file));
+        }
+
+        if (component.getOutputFolder() != null && new File(component.getOutputFolder()).isDirectory()) {
+            remoteComponent.addClassPathEntry(new File(component.getOutputFolder()));
+        }
+
+        for (final File archive : classPathResolver.getArchives(component)) {
+            remoteComponent.addClassPathEntry(archive);
+        }
+
+        return remoteComponent;
+    }
+
+    /**
+     * Write the result file of a development component checked on an agent and record the execution time of the
+     * check.
+     *
+     * @param component
+     *            development component checked on an agent.
+     * @param result
+     *            result of the check on the agent.
+     * @throws IOException
+     *             when writing the result file failed.
+     */
+    void writeRemoteResult(final DevelopmentComponent component, final RemoteCheckResult result) throws IOException {
+        final File resultFile = getResultFile(component);
+        resultFile.getParentFile().mkdirs();
+        resultFormat.deleteOtherFormat(resultFile);
+        result.writeTo(resultFile);
+        timings.record(result.getComponent(), TimingPhase.CHECK, result.getDuration());
+    }
+
+    /**
+     * @return the format of the result files to write.
+     */
+    ResultFormat getResultFormat() {
+        return resultFormat;
+    }
+
+    /**
+     * Returns the result file of the given development component.
+     *
+     * @param component
+     *            development component to determine the result file of.
+     * @return the result file of the given development component (in the configured format).
+     */
+    private File getResultFile(final DevelopmentComponent component) {
+        return resultFormat.getResultFile(new File(String.format(RESULT_XML_PATH_TEMPLATE, antHelper.getBaseLocation(component)))
+            .getParentFile());
+    }
+
+    /**
+     * Determine the source folders of the given development component (including test sources).
+     *
+     * @param component
+     *            development component to determine the source folders of.
+     * @return the source folders of the given development component.
+     */
+    private Collection<String> getSourceFolders(final DevelopmentComponent component) {
+        final Collection<String> sources = antHelper.createSourceFileSets(component, new ExcludeDataDictionarySourceDirectoryFilter());
+        sources.addAll(component.getTestSourceFolders());
+
+        return sources;
+    }
+
+    /**
+     * Run checkstyle only on those files whose content changed since the last check and reuse the cached violations of the other
+     * files.
+     *
+     * @param componentName
+     *            name of development component to check.
+     * @param files
+     *            source files of development component.
+     * @param contentHashes
+     *            content hashes of the source files mapped to their absolute paths.
+     * @param classPath
+     *            class path of development component.
+     * @param resultFile
+     *            the result file to write.
+     * @param logger
+     *            logger for progress messages.
+     * @throws IOException
+     *             when reading sources or writing results failed.
+     * @throws CheckstyleException
+     *             when the checker could not be configured.
+     * @throws InterruptedException
+     *             when the build was cancelled while checking the sources concurrently.
+     */
+    private void checkIncrementally(final String componentName, final List<File> files, final Map<String, String> contentHashes,
+        final ComponentClassPath classPath, final File resultFile, final PrintStream logger) throws IOException, CheckstyleException, InterruptedException {
+        final File cacheFile = new File(resultFile.getParentFile(), CACHE_FILE_NAME);
+        final ResultCache cache = ResultCache.load(cacheFile, createCacheKey(classPath.getUrls()));
+        final Set<File> changedFolders = new HashSet<File>();
+
+        for (final File file : files) {
+            final String fileName = file.getAbsolutePath();
+            final String contentHash = contentHashes.get(fileName);
+            final ResultCache.Entry entry = cache.get(fileName);
+
+            if (entry == null || !contentHash.equals(entry.getContentHash())) {
+                changedFolders.add(file.getAbsoluteFile().getParentFile());
+            }
+        }
+
+        checkChangedFolders(componentName, files, contentHashes, changedFolders, cache, cacheFile, classPath, resultFile, logger);
+    }
+
+    /**
+     * Run checkstyle only on those files changed by the activities integrated into the current build and carry forward the cached
+     * violations of the other files. Sources without cached violations (e.g. on the first build or after the checkstyle
+     * configuration changed) are checked as well.
+     *
+     * @param component
+     *            development component to check.
+     * @param files
+     *            source files of development component.
+     * @param classPath
+     *            class path of development component.
+     * @param resultFile
+     *            the result file to write.
+     * @param logger
+     *            logger for progress messages.
+     * @throws IOException
+     *             when reading sources or writing results failed.
+     * @throws CheckstyleException
+     *             when the checker could not be configured.
+     * @throws InterruptedException
+     *             when the build was cancelled while checking the sources concurrently.
+     */
+    private void checkChangedFiles(final DevelopmentComponent component, final List<File> files, final ComponentClassPath classPath,
+        final File resultFile, final PrintStream logger) throws IOException, CheckstyleException, InterruptedException {
+        final File cacheFile = new File(resultFile.getParentFile(), CACHE_FILE_NAME);
+        final ResultCache cache = ResultCache.load(cacheFile, createCacheKey(classPath.getUrls()));
+        final String baseLocation = antHelper.getBaseLocation(component);
+        final Map<String, String> contentHashes = new LinkedHashMap<String, String>();
+        final Set<File> changedFolders = new HashSet<File>();
+
+        for (final File file : files) {
+            final String fileName = file.getAbsolutePath();
+            final ResultCache.Entry entry = cache.get(fileName);
+
+            if (entry == null || changedFiles.contains(component, baseLocation, file)) {
+                changedFolders.add(file.getAbsoluteFile().getParentFile());
+                contentHashes.put(fileName, null);
+            }
+            else {
+                contentHashes.put(fileName, entry.getContentHash());
+            }
+        }
+
+        checkChangedFolders(component.getNormalizedName("~"), files, contentHashes, changedFolders, cache, cacheFile, classPath,
+            resultFile, logger);
+    }
+
+    /**
+     * Run checkstyle on the files in the given changed folders and reuse the cached violations of the other files. Folders of
+     * files removed since the last check are considered changed too.
+     *
+     * A change of a file leads to checking all files in the same folder again, since some checks (e.g. for a missing
+     * 'package-info.java') report violations depending on the other files of a folder. Modules checking across all files (e.g.
+     * 'StrictDuplicateCode') are always run on all files and their violations are not cached.
+     *
+     * @param componentName
+     *            name of development component to check.
+     * @param files
+     *            source files of development component.
+     * @param contentHashes
+     *            content hashes of the source files mapped to their absolute paths (<code>null</code> values for unknown hashes).
+     * @param changedFolders
+     *            folders containing changed files.
+     * @param cache
+     *            the cached violations of the last check.
+     * @param cacheFile
+     *            file to save the updated cache to.
+     * @param classPath
+     *            class path of development component.
+     * @param resultFile
+     *            the result file to write.
+     * @param logger
+     *            logger for progress messages.
+     * @throws IOException
+     *             when reading sources or writing results failed.
+     * @throws CheckstyleException
+     *             when the checker could not be configured.
+     * @throws InterruptedException
+     *             when the build was cancelled while checking the sources concurrently.
+     */
+    private void checkChangedFolders(final String componentName, final List<File> files, final Map<String, String> contentHashes,
+        final Set<File> changedFolders, final ResultCache cache, final File cacheFile, final ComponentClassPath classPath,
+        final File resultFile, final PrintStream logger) throws IOException, CheckstyleException, InterruptedException {
+        for (final String fileName : cache.getFileNames()) {
+            if (!contentHashes.containsKey(fileName)) {
+                changedFolders.add(new File(fileName).getParentFile());
+            }
+        }
+
+        final List<File> filesToCheck = new ArrayList<File>();
+
+        for (final File file : files) {
+            if (changedFolders.contains(file.getAbsoluteFile().getParentFile())) {
+                filesToCheck.add(file);
+            }
+        }
+
+        logger.println(String.format("Running checkstyle on %s (checking %d of %d files).", componentName, filesToCheck.size(),
+            files.size()));
+
+        final ViolationCollector collector = new ViolationCollector();
+        final ViolationCollector crossFileCollector = new ViolationCollector();
+        check(filesToCheck, files, classPath, collector, crossFileCollector);
+
+        final Map<String, ResultCache.Entry> entries = new HashMap<String, ResultCache.Entry>();
+        final ResultWriter writer = resultFormat.createWriter(resultFile);
+
+        try {
+            writer.start();
+
+            for (final Map.Entry<String, String> contentHash : contentHashes.entrySet()) {
+                final String fileName = contentHash.getKey();
+                List<Violation> violations = collector.getViolations(fileName);
+
+                if (violations == null) {
+                    final ResultCache.Entry entry = cache.get(fileName);
+                    violations = entry == null ? new ArrayList<Violation>() : entry.getViolations();
+                }
+
+                entries.put(fileName, new ResultCache.Entry(contentHash.getValue(), violations));
+
+                final List<Violation> crossFileViolations = crossFileCollector.getViolations(fileName);
+
+                if (crossFileViolations != null && !crossFileViolations.isEmpty()) {
+                    violations = new ArrayList<Violation>(violations);
+                    violations.addAll(crossFileViolations);
+                }
+
+                writer.write(fileName, violations);
+            }
+
+            writer.finish();
+        }
+        finally {
+            writer.close();
+        }
+
+        cache.update(entries);
+        cache.save(cacheFile);
+    }
+
+    /**
+     * Run checkstyle on the given files using several threads and write the merged violations in the order of the given files.
+     *
+     * @param files
+     *            source files to check.
+     * @param classPath
+     *            class path for resolving types referenced from the sources.
+     * @param resultFile
+     *            the result file to write.
+     * @throws IOException
+     *             when writing the results failed.
+     * @throws CheckstyleException
+     *             when a checker could not be configured.
+     * @throws InterruptedException
+     *             when the build was cancelled.
+     */
+    private void checkConcurrently(final List<File> files, final ComponentClassPath classPath, final File resultFile)
+        throws IOException, CheckstyleException, InterruptedException {
+        final ViolationCollector collector = new ViolationCollector();
+        final ViolationCollector crossFileCollector = new ViolationCollector();
+        check(files, files, classPath, collector, crossFileCollector);
+
+        final ResultWriter writer = resultFormat.createWriter(resultFile);
+
+        try {
+            writer.start();
+
+            for (final File file : files) {
+                final String fileName = file.getAbsolutePath();
+                List<Violation> violations = collector.getViolations(fileName);
+                final List<Violation> crossFileViolations = crossFileCollector.getViolations(fileName);
+
+                if (violations == null) {
+                    violations = new ArrayList<Violation>();
+                }
+
+                if (crossFileViolations != null) {
+                    violations.addAll(crossFileViolations);
+                }
+
+                writer.write(fileName, violations);
+            }
+
+            writer.finish();
+        }
+        finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Run the modules checking each file on its own on the given files to check and the modules checking across all files on
+     * all given files. When there are enough files to check, they are checked by several threads while the calling thread runs
+     * the modules checking across all files.
+     *
+     * @param filesToCheck
+     *            source files to run the modules checking each file on its own on.
+     * @param files
+     *            all source files of development component (to run the modules checking across all files on).
+     * @param classPath
+     *            class path for resolving types referenced from the sources.
+     * @param collector
+     *            collector receiving the violations of the modules checking each file on its own.
+     * @param crossFileCollector
+     *            collector receiving the violations of the modules checking across all files.
+     * @throws CheckstyleException
+     *             when a checker could not be configured.
+     * @throws InterruptedException
+     *             when the build was cancelled.
+     */
+    private void check(final List<File> filesToCheck, final List<File> files, final ComponentClassPath classPath,
+        final ViolationCollector collector, final ViolationCollector crossFileCollector) throws CheckstyleException,
+        InterruptedException {
+        final int threads = perFileConfiguration == null ? 1 : getThreadCount(filesToCheck.size());
+
+        if (threads < 2) {
+            if (perFileConfiguration != null && !filesToCheck.isEmpty()) {
+                check(perFileConfiguration, filesToCheck, classPath, collector);
+            }
+
+            if (crossFileConfiguration != null && !files.isEmpty()) {
+                check(crossFileConfiguration, files, classPath, crossFileCollector);
+            }
+
+            return;
+        }
+
+        final ExecutorService pool = Executors.newFixedThreadPool(threads, new ParallelComponentExecutor.WorkerThreadFactory());
+
+        try {
+            final List<Future<ViolationCollector>> results = new ArrayList<Future<ViolationCollector>>(threads);
+
+            for (final List<File> partition : partition(filesToCheck, threads)) {
+                results.add(pool.submit(new PartitionCheck(partition, classPath)));
+            }
+
+            if (crossFileConfiguration != null && !files.isEmpty()) {
+                check(crossFileConfiguration, files, classPath, crossFileCollector);
+            }
+
+            for (final Future<ViolationCollector> result : results) {
+                collector.addAll(result.get());
+            }
+        }
+        catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+
+            if (cause instanceof CheckstyleException) {
+                throw (CheckstyleException)cause;
+            }
+
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            }
+
+            if (cause instanceof Error) {
+                throw (Error)cause;
+            }
+
+            throw new IllegalStateException(cause);
+        }
+        finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Determine the number of threads to check the given number of files with.
+     *
+     * @param fileCount
+     *            number of files to check.
+     * @return the number of threads to check the given number of files with (at least one, when checkers cannot run concurrently in
+     *         this JVM exactly one).
+     */
+    private int getThreadCount(final int fileCount) {
+        if (!CheckerGuard.isConcurrent()) {
+            return 1;
+        }
+
+        return Math.max(1, Math.min(fileParallelism, fileCount / MIN_FILES_PER_THREAD));
+    }
+
+    /**
+     * Split the given files into the given number of partitions of about the same size (in bytes). The files of a folder are always
+     * put into the same partition, since some checks (e.g. for a missing 'package-info.java') report violations only once per
+     * folder. Folders are assigned largest first to the smallest partition. The files of a folder keep their order.
+     *
+     * @param files
+     *            files to split.
+     * @param count
+     *            number of partitions to create.
+     * @return the partitions (empty partitions are omitted).
+     */
+    static List<List<File>> partition(final List<File> files, final int count) {
+        final Map<File, Folder> folders = new LinkedHashMap<File, Folder>();
+
+        for (final File file : files) {
+            final File parent = file.getAbsoluteFile().getParentFile();
+            Folder folder = folders.get(parent);
+
+            if (folder == null) {
+                folder = new Folder();
+                folders.put(parent, folder);
+            }
+
+            folder.add(file);
+        }
+
+        final List<Folder> largestFirst = new ArrayList<Folder>(folders.values());
+        Collections.sort(largestFirst);
+
+        final List<List<File>> partitions = new ArrayList<List<File>>(count);
+        final long[] sizes = new long[count];
+
+        for (int i = 0; i < count; i++) {
+            partitions.add(new ArrayList<File>());
+        }
+
+        for (final Folder folder : largestFirst) {
+            int smallest = 0;
+
+            for (int i = 1; i < count; i++) {
+                if (sizes[i] < sizes[smallest]) {
+                    smallest = i;
+                }
+            }
+
+            partitions.get(smallest).addAll(folder.files);
+            sizes[smallest] += folder.size;
+        }
+
+        for (final Iterator<List<File>> iterator = partitions.iterator(); iterator.hasNext();) {
+            if (iterator.next().isEmpty()) {
+                iterator.remove();
+            }
+        }
+
+        return partitions;
+    }
+
+    /**
+     * Run checkstyle on the given files reporting to the given listener.
+     *
+     * @param checkerConfiguration
+     *            checkstyle configuration to use.
+     * @param files
+     *            source files to check.
+     * @param classPath
+     *            class path for resolving types referenced from the sources.
+     * @param auditListener
+     *            listener receiving the violations.
+     * @throws CheckstyleException
+     *             when the checker could not be configured.
+     */
+    private void check(final Configuration checkerConfiguration, final List<File> files, final ComponentClassPath classPath,
+        final AuditListener auditListener) throws CheckstyleException {
+        final Checker checker = createChecker(checkerConfiguration, classPath);
+
+        try {
+            checker.addListener(auditListener);
+            CheckerGuard.process(checker, files);
+        }
+        finally {
+            checker.destroy();
+        }
+    }
+
+    /**
+     * Create a {@link Checker} configured with the given checkstyle configuration and the class loader of the given class path.
+     * When checks are profiled or consumers are registered, the modules are created by the {@link ProfilingModuleFactory}, which
+     * keeps checkstyle's own TreeWalker (and thus its 'cacheFile') and only wraps or adds checks.
+     *
+     * @param checkerConfiguration
+     *            checkstyle configuration to use.
+     * @param classPath
+     *            class path for resolving types referenced from the sources.
+     * @return the configured checker.
+     * @throws CheckstyleException
+     *             when the checker could not be configured.
+     */
+    private Checker createChecker(final Configuration checkerConfiguration, final ComponentClassPath classPath)
+        throws CheckstyleException {
+        final Checker checker = new Checker();
+        checker.setModuleClassLoader(Checker.class.getClassLoader());
+        checker.setClassloader(classPath.getClassLoader());
+
+        if (timings.getCheckProfile() == null && consumers.isEmpty()) {
+            CheckerGuard.configure(checker, checkerConfiguration);
+        }
+        else {
+            final ProfilingModuleFactory moduleFactory = getProfilingModuleFactory();
+            checker.setModuleFactory(moduleFactory);
+            CheckerGuard.configure(checker, moduleFactory.profile(checkerConfiguration));
+        }
+
+        return checker;
+    }
+
+    /**
+     * Returns the module factory measuring the CPU time spent in each check and passing parsed sources to the consumers (created on
+     * first use).
+     *
+     * @return the module factory measuring the CPU time spent in each check and passing parsed sources to the consumers.
+     * @throws CheckstyleException
+     *             when the checkstyle packages could not be determined.
+     */
+    private synchronized ProfilingModuleFactory getProfilingModuleFactory() throws CheckstyleException {
+        if (profilingModuleFactory == null) {
+            profilingModuleFactory =
+                new ProfilingModuleFactory(Checker.class.getClassLoader(), timings.getCheckProfile(), consumers);
+        }
+
+        return profilingModuleFactory;
+    }
+
+    /**
+     * Create the key identifying checkstyle configuration and class path of a check. Archives on the class path are identified by
+     * their location, size and modification time, folders (i.e. the output folder of the development component) by the paths,
+     * sizes and modification times of the class files they contain. Thus cached results of checks resolving types (e.g.
+     * RedundantThrows or JavadocMethod) are discarded when the compiled classes changed.
+     *
+     * @param classPath
+     *            class path of development component.
+     * @return key identifying checkstyle configuration and class path.
+     */
+    private String createCacheKey(final List<URL> classPath) {
+        final StringBuilder key = new StringBuilder(configurationHash);
+
+        for (final URL url : classPath) {
+            final File file = new File(url.getPath());
+            key.append('|').append(url);
+
+            if (file.isFile()) {
+                key.append(':').append(file.length()).append(':').append(file.lastModified());
+            }
+            else if (file.isDirectory()) {
+                appendClassFiles(key, file, "");
+            }
+        }
+
+        return DigestHelper.digest(key.toString());
+    }
+
+    /**
+     * Append path, size and modification time of the class files in the given folder and its sub folders (in a stable order) to
+     * the given key.
+     *
+     * @param key
+     *            the key to append to.
+     * @param folder
+     *            folder to scan for class files.
+     * @param prefix
+     *            path of the given folder relative to the folder on the class path.
+     */
+    private void appendClassFiles(final StringBuilder key, final File folder, final String prefix) {
+        final String[] names = folder.list();
+
+        if (names == null) {
+            return;
+        }
+
+        Arrays.sort(names);
+
+        for (final String name : names) {
+            final File file = new File(folder, name);
+
+            if (file.isDirectory()) {
+                appendClassFiles(key, file, prefix + name + '/');
+            }
+            else if (name.endsWith(".class")) {
+                key.append(':').append(prefix).append(name).append(':').append(file.length()).append(':')
+                    .append(file.lastModified());
+            }
+        }
+    }
+
+    /**
+     * Determine the class path for resolving types referenced from the sources of the given development component.
+     *
+     * @param component
+     *            development component to determine the class path for.
+     * @return output folder and archives on the class path of the given development component.
+     */
+    private ComponentClassPath getClassPath(final DevelopmentComponent component) {
+        final List<File> archiveFiles = classPathResolver.getArchives(component);
+        final List<URL> archives = ClassPathResolver.toURLs(archiveFiles);
+        final List<URL> urls = new ArrayList<URL>();
+        final ClassLoader archiveClassLoader = classPathResolver.getClassLoader(archiveFiles);
+        ClassLoader classLoader = archiveClassLoader;
+
+        if (component.getOutputFolder() != null) {
+            final List<URL> outputFolder = ClassPathResolver.toURLs(Collections.singletonList(new File(component.getOutputFolder())));
+            urls.addAll(outputFolder);
+            classLoader = new URLClassLoader(outputFolder.toArray(new URL[1]), archiveClassLoader);
+        }
+
+        urls.addAll(archives);
+
+        return new ComponentClassPath(urls, classLoader, archiveClassLoader);
+    }
+
+    /**
+     * Release the class loaders of the given class path: the class loader over the output folder is closed, the shared class
+     * loader over the archives is returned to the {@link ClassPathResolver}.
+     *
+     * @param classPath
+     *            class path no longer used.
+     */
+    private void release(final ComponentClassPath classPath) {
+        if (classPath.getClassLoader() != classPath.getArchiveClassLoader()) {
+            CheckstyleSetupCache.close(classPath.getClassLoader());
+        }
+
+        classPathResolver.releaseClassLoader(classPath.getArchiveClassLoader());
+    }
+
+    /**
+     * Determine the java source files to check in the given source folders honoring configured excludes. The time spent scanning
+     * and evaluating content based excludes is recorded separately.
+     *
+     * @param component
+     *            development component the source folders belong to.
+     * @param sources
+     *            source folders of development component.
+     * @param contentHashes
+     *            map to receive the content hashes of the source files to check mapped to their absolute paths (
+     *            <code>null</code> when content hashes are not needed).
+     * @return list of source files to check.
+     * @throws IOException
+     *             when reading a source file for evaluating content based excludes failed.
+     */
+    private List<File> getSourceFiles(final DevelopmentComponent component, final Collection<String> sources,
+        final Map<String, String> contentHashes) throws IOException {
+        final Collection<String> componentExcludes = excludesFactory.create(component, excludes);
+        final String[] excludePatterns = componentExcludes.toArray(new String[componentExcludes.size()]);
+        final List<File> files = new ArrayList<File>();
+        final long start = System.nanoTime();
+        long excludeDuration = 0;
+
+        for (final String source : sources) {
+            final File sourceFolder = new File(source);
+
+            for (final String fileName : scan(sourceFolder, new String[] { "**/*.java" }, excludePatterns)) {
+                final File file = new File(sourceFolder, fileName);
+                final String contentHash = contentHashes == null ? null : sourceFileProvider.digest(file);
+                final long excludeStart = System.nanoTime();
+                final boolean excluded = contentExcludeFilter.isExcluded(file, contentHash, sourceFileProvider);
+                excludeDuration += System.nanoTime() - excludeStart;
+
+                if (!excluded) {
+                    files.add(file);
+
+                    if (contentHashes != null) {
+                        contentHashes.put(file.getAbsolutePath(), contentHash);
+                    }
+                }
+            }
+        }
+
+        final String componentName = component.getNormalizedName("~");
+        timings.record(componentName, TimingPhase.SOURCE_SCAN, System.nanoTime() - start - excludeDuration);
+        timings.record(componentName, TimingPhase.CONTENT_EXCLUDES, excludeDuration);
+
+        return files;
+    }
+
+    /**
+     * Scan the given directory for files matching the given include patterns and not matching the exclude patterns.
+     *
+     * @param baseDir
+     *            directory to scan.
+     * @param includes
+     *            Ant include patterns.
+     * @param excludes
+     *            Ant exclude patterns.
+     * @return paths relative to the given directory of matching files.
+     */
+    private String[] scan(final File baseDir, final String[] includes, final String[] excludes) {
+        if (!baseDir.isDirectory()) {
+            return new String[0];
+        }
+
+        final DirectoryScanner scanner = new DirectoryScanner();
+        scanner.setBasedir(baseDir);
+        scanner.setIncludes(includes);
+        scanner.setExcludes(excludes);
+        scanner.scan();
+
+        return scanner.getIncludedFiles();
+    }
+
+    /**
+     * Checks a partition of source files with the modules checking each file on its own.
+     *
+     * @author Dirk Weigenand
+     */
+    private final class PartitionCheck implements Callable<ViolationCollector> {
+        /**
+         * partition of source files to check.
+         */
+        private final List<File> partition;
+
+        /**
+         * class path for resolving types referenced from the sources.
+         */
+        private final ComponentClassPath classPath;
+
+        /**
+         * Create a check of the given partition of source files.
+         *
+         * @param partition
+         *            partition of source files to check.
+         * @param classPath
+         *            class path for resolving types referenced from the sources.
+         */
+        PartitionCheck(final List<File> partition, final ComponentClassPath classPath) {
+            this.partition = partition;
+            this.classPath = classPath;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public ViolationCollector call() throws CheckstyleException {
+            final ViolationCollector collector = new ViolationCollector();
+            check(perFileConfiguration, partition, classPath, collector);
+
+            return collector;
+        }
+    }
+
+    /**
+     * Source files of a folder.
+     *
+     * @author Dirk Weigenand
+     */
+    private static final class Folder implements Comparable<Folder> {
+        /**
+         * source files of folder.
+         */
+        private final List<File> files = new ArrayList<File>();
+
+        /**
+         * size of the source files in bytes.
+         */
+        private long size;
+
+        /**
+         * Add the given source file.
+         *
+         * @param file
+         *            source file to add.
+         */
+        void add(final File file) {
+            files.add(file);
+            size += file.length();
+        }
+
+        /**
+         * Orders larger folders first.
+         *
+         * @param other
+         *            folder to compare to.
+         * @return a negative number when this folder is larger than the given one, a positive number when it is smaller.
+         */
+        public int compareTo(final Folder other) {
+            return size == other.size ? 0 : size > other.size ? -1 : 1;
+        }
+    }
+
+    /**
+     * Class path of a development component.
+     *
+     * @author Dirk Weigenand
+     */
+    private static final class ComponentClassPath {
+        /**
+         * output folder and archives on the class path.
+         */
+        private final List<URL> urls;
+
+        /**
+         * class loader for resolving types referenced from the sources.
+         */
+        private final ClassLoader classLoader;
+
+        /**
+         * shared class loader over the archives on the class path (the parent of {@link #classLoader} or the class loader itself
+         * when there is no output folder).
+         */
+        private final ClassLoader archiveClassLoader;
+
+        /**
+         * Create the class path of a development component.
+         *
+         * @param urls
+         *            output folder and archives on the class path.
+         * @param classLoader
+         *            class loader for resolving types referenced from the sources.
+         * @param archiveClassLoader
+         *            shared class loader over the archives on the class path.
+         */
+        ComponentClassPath(final List<URL> urls, final ClassLoader classLoader, final ClassLoader archiveClassLoader) {
+            this.urls = urls;
+            this.classLoader = classLoader;
+            this.archiveClassLoader = archiveClassLoader;
+        }
+
+        /**
+         * @return the output folder and archives on the class path.
+         */
+        List<URL> getUrls() {
+            return urls;
+        }
+
+        /**
+         * @return the class loader for resolving types referenced from the sources.
+         */
+        ClassLoader getClassLoader() {
+            return classLoader;
+        }
+
+        /**
+         * @return the shared class loader over the archives on the class path.
+         */
+        ClassLoader getArchiveClassLoader() {
+            return archiveClassLoader;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import hudson.model.BuildListener;
+import hudson.util.StreamBuildListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+
+/**
+ * Executes a {@link ComponentCheck} on a collection of development components using a pool of worker threads.
+ *
+ * The output of each check is buffered and written to the build log as one block when the check of the respective development
+ * component finished. Thus the output of development components checked concurrently does not interleave.
+ *
+ * Checks running in process configure and run their checkers via {@link CheckerGuard}, since checkstyle is not safe for
+ * concurrent use otherwise (where the JVM does not permit making it safe, the checkers of concurrent checks run one at a time).
+ *
+ * @author Dirk Weigenand
+ */
+class ParallelComponentExecutor {
+    /**
+     * Encoding used for buffering the output of checks.
+     */
+    private static final String ENCODING = "UTF-8";
+
+    /**
+     * maximum number of development components to check concurrently.
+     */
+    private final int parallelism;
+
+    /**
+     * Create an executor checking at most the given number of development components concurrently.
+     *
+     * @param parallelism
+     *            maximum number of development components to check concurrently.
+     */
+    ParallelComponentExecutor(final int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Execute the given check on all given development components.
+     *
+     * @param components
+     *            development components to check.
+     * @param check
+     *            check to execute.
+     * @param listener
+     *            listener for logging the output of checks.
+     * @return <code>true</code> when the checks of all development components were successful, <code>false</code> otherwise.
+     * @throws IOException
+     *             when executing a check failed.
+     * @throws InterruptedException
+     *             when the build was cancelled. All running checks are cancelled too.
+     */
+    boolean execute(final Collection<DevelopmentComponent> components, final ComponentCheck check, final BuildListener listener)
+        throws IOException, InterruptedException {
+        if (parallelism == 1 || components.size() < 2) {
+            return executeSequentially(components, check, listener);
+        }
+
+        final ExecutorService pool = Executors.newFixedThreadPool(Math.min(parallelism, components.size()), new WorkerThreadFactory());
+        final CompletionService<ComponentResult> completionService = new ExecutorCompletionService<ComponentResult>(pool);
+        boolean result = true;
+
+        try {
+            for (final DevelopmentComponent component : components) {
+                completionService.submit(new ComponentCheckCallable(component, check));
+            }
+
+            final PrintStream logger = listener.getLogger();
+
+            for (int i = 0; i < components.size(); i++) {
+                final ComponentResult componentResult = completionService.take().get();
+                componentResult.output.writeTo(logger);
+                result &= componentResult.success;
+            }
+        }
+        catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+
+            if (cause instanceof IOException) {
+                throw (IOException)cause;
+            }
+
+            if (cause instanceof InterruptedException) {
+                throw (InterruptedException)cause;
+            }
+
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            }
+
+            throw new IllegalStateException(cause);
+        }
+        finally {
+            pool.shutdownNow();
+        }
+
+        return result;
+    }
+
+    /**
+     * Execute the given check on all given development components one after another.
+     *
+     * @param components
+     *            development components to check.
+     * @param check
+     *            check to execute.
+     * @param listener
+     *            listener for logging the output of checks.
+     * @return <code>true</code> when the checks of all development components were successful, <code>false</code> otherwise.
+     * @throws IOException
+     *             when executing a check failed.
+     * @throws InterruptedException
+     *             when the build was cancelled.
+     */
+    private boolean executeSequentially(final Collection<DevelopmentComponent> components, final ComponentCheck check,
+        final BuildListener listener) throws IOException, InterruptedException {
+        boolean result = true;
+
+        for (final DevelopmentComponent component : components) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+
+            result &= check.execute(component, listener);
+        }
+
+        return result;
+    }
+
+    /**
+     * Outcome and buffered output of the check of a development component.
+     *
+     * @author Dirk Weigenand
+     */
+    private static final class ComponentResult {
+        /**
+         * whether the check was successful.
+         */
+        private final boolean success;
+
+        /**
+         * buffered output of the check.
+         */
+        private final ByteArrayOutputStream output;
+
+        /**
+         * Create a result of a check of a development component.
+         *
+         * @param success
+         *            whether the check was successful.
+         * @param output
+         *            buffered output of the check.
+         */
+        ComponentResult(final boolean success, final ByteArrayOutputStream output) {
+            this.success = success;
+            this.output = output;
+        }
+    }
+
+    /**
+     * Runs a check of a single development component and buffers its output.
+     *
+     * @author Dirk Weigenand
+     */
+    private static final class ComponentCheckCallable implements Callable<ComponentResult> {
+        /**
+         * development component to check.
+         */
+        private final DevelopmentComponent component;
+
+        /**
+         * check to execute.
+         */
+        private final ComponentCheck check;
+
+        /**
+         * Create a callable executing the given check on the given development component.
+         *
+         * @param component
+         *            development component to check.
+         * @param check
+         *            check to execute.
+         */
+        ComponentCheckCallable(final DevelopmentComponent component, final ComponentCheck check) {
+            this.component = component;
+            this.check = check;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public ComponentResult call() throws IOException, InterruptedException {
+            final ByteArrayOutputStream output = new ByteArrayOutputStream();
+            final BuildListener listener = new StreamBuildListener(output, Charset.forName(ENCODING));
+            boolean success = false;
+
+            try {
+                success = check.execute(component, listener);
+            }
+            catch (final IOException e) {
+                e.printStackTrace(listener.getLogger());
+            }
+
+            listener.getLogger().flush();
+
+            return new ComponentResult(success, output);
+        }
+    }
+
+    /**
+     * Factory for daemon worker threads named after the checkstyle builder.
+     *
+     * @author Dirk Weigenand
+     */
+    static final class WorkerThreadFactory implements ThreadFactory {
+        /**
+         * number of threads created so far.
+         */
+        private final AtomicInteger count = new AtomicInteger();
+
+        /**
+         * {@inheritDoc}
+         */
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread(runnable, String.format("NWDI-Checkstyle-Worker-%d", count.incrementAndGet()));
+            thread.setDaemon(true);
+
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,695 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
+import com.puppycrawl.tools.checkstyle.DefaultContext;
+import com.puppycrawl.tools.checkstyle.ModuleFactory;
+import com.puppycrawl.tools.checkstyle.PackageNamesLoader;
+import com.puppycrawl.tools.checkstyle.TreeWalker;
+import com.puppycrawl.tools.checkstyle.api.AutomaticBean;
+import com.puppycrawl.tools.checkstyle.api.Check;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.FileSetCheck;
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessage;
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessages;
+import com.puppycrawl.tools.checkstyle.api.MessageDispatcher;
+
+/**
+ * Module factory creating modules that measure the CPU time spent in each check and/or pass parsed sources to
+ * {@link SourceFileConsumer}s.
+ *
+ * Checkstyle's own {@link TreeWalker} is used (including its 'cacheFile'). Checkstyle configures modules using bean introspection,
+ * so a wrapper can not be configured with the properties of the module it wraps. Therefore the configuration is rewritten (see
+ * {@link #profile(Configuration)}): when profiling, file set checks (including the {@link TreeWalker}) are wrapped into
+ * {@link #PROFILED_FILE_SET_CHECK} modules and the checks of a {@link TreeWalker} into {@link #PROFILED_CHECK} modules. When
+ * consumers are registered, a {@link #SOURCE_FILE_CONSUMERS} check is added as last check to each {@link TreeWalker}.
+ *
+ * Module names are resolved the same way checkstyle's own (package private) <code>PackageObjectFactory</code> does: as fully
+ * qualified class name, relative to the checkstyle packages and each of these with the suffix 'Check'.
+ *
+ * @author Dirk Weigenand
+ */
+final class ProfilingModuleFactory implements ModuleFactory {
+    /**
+     * name of the module wrapping a file set check.
+     */
+    static final String PROFILED_FILE_SET_CHECK = "NWDIProfiledFileSetCheck";
+
+    /**
+     * name of the module wrapping a check of a {@link TreeWalker}.
+     */
+    static final String PROFILED_CHECK = "NWDIProfiledCheck";
+
+    /**
+     * name of the check passing parsed sources to the consumers.
+     */
+    static final String SOURCE_FILE_CONSUMERS = "NWDISourceFileConsumers";
+
+    /**
+     * name the CPU time spent in a {@link TreeWalker} outside of its checks (mostly parsing sources) is reported with.
+     */
+    static final String PARSER = "TreeWalker (parser)";
+
+    /**
+     * CPU time in nanoseconds spent in the checks of {@link TreeWalker}s on the current thread (to subtract from the time spent
+     * in the {@link TreeWalker}s).
+     */
+    private static final ThreadLocal<long[]> NESTED_TIME = new ThreadLocal<long[]>() {
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected long[] initialValue() {
+            return new long[1];
+        }
+    };
+
+    /**
+     * names of packages to resolve module names in (ending with a '.').
+     */
+    private final Set<String> packages;
+
+    /**
+     * class loader to load modules with.
+     */
+    private final ClassLoader classLoader;
+
+    /**
+     * profile receiving the measurements (<code>null</code> when not profiling).
+     */
+    private final CheckProfile profile;
+
+    /**
+     * consumers of parsed sources.
+     */
+    private final List<SourceFileConsumer> consumers;
+
+    /**
+     * Create a module factory measuring the CPU time spent in each check and passing parsed sources to the given consumers.
+     *
+     * @param classLoader
+     *            class loader to load modules with.
+     * @param profile
+     *            profile receiving the measurements (<code>null</code> when not profiling).
+     * @param consumers
+     *            consumers of parsed sources.
+     * @throws CheckstyleException
+     *             when the checkstyle packages could not be determined.
+     */
+    ProfilingModuleFactory(final ClassLoader classLoader, final CheckProfile profile, final List<SourceFileConsumer> consumers)
+        throws CheckstyleException {
+        packages = PackageNamesLoader.getPackageNames(classLoader);
+        this.classLoader = classLoader;
+        this.profile = profile;
+        this.consumers = consumers;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Object createModule(final String name) throws CheckstyleException {
+        if (PROFILED_FILE_SET_CHECK.equals(name)) {
+            return new ProfiledFileSetCheck(profile);
+        }
+
+        if (PROFILED_CHECK.equals(name)) {
+            return new ProfiledCheck(profile, this);
+        }
+
+        if (SOURCE_FILE_CONSUMERS.equals(name)) {
+            return new SourceFileConsumers(consumers);
+        }
+
+        return createOriginalModule(name);
+    }
+
+    /**
+     * Create the original module with the given name.
+     *
+     * @param name
+     *            module name (a fully qualified class name or a class name relative to the checkstyle packages, optionally without
+     *            the suffix 'Check').
+     * @return the module created.
+     * @throws CheckstyleException
+     *             when no module could be created for the given name.
+     */
+    private Object createOriginalModule(final String name) throws CheckstyleException {
+        Object module = createObject(name);
+
+        if (module == null) {
+            module = createObject(name + "Check");
+        }
+
+        if (module == null) {
+            throw new CheckstyleException("Unable to instantiate " + name);
+        }
+
+        return module;
+    }
+
+    /**
+     * Create an object of the class with the given name (as is or relative to one of the checkstyle packages).
+     *
+     * @param name
+     *            class name.
+     * @return the object created or <code>null</code> when no class of that name exists.
+     * @throws CheckstyleException
+     *             when the class could not be instantiated.
+     */
+    private Object createObject(final String name) throws CheckstyleException {
+        Class<?> moduleClass = loadClass(name);
+
+        for (final Iterator<String> names = packages.iterator(); moduleClass == null && names.hasNext();) {
+            moduleClass = loadClass(names.next() + name);
+        }
+
+        if (moduleClass == null) {
+            return null;
+        }
+
+        try {
+            return moduleClass.newInstance();
+        }
+        catch (final InstantiationException e) {
+            throw new CheckstyleException("Unable to instantiate " + moduleClass.getName(), e);
+        }
+        catch (final IllegalAccessException e) {
+            throw new CheckstyleException("Unable to instantiate " + moduleClass.getName(), e);
+        }
+    }
+
+    /**
+     * Load the class with the given name.
+     *
+     * @param name
+     *            fully qualified class name.
+     * @return the class loaded or <code>null</code> when no class of that name exists.
+     */
+    private Class<?> loadClass(final String name) {
+        try {
+            return Class.forName(name, true, classLoader);
+        }
+        catch (final ClassNotFoundException e) {
+            return null;
+        }
+        catch (final LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Create a copy of the given root configuration whose file set checks are wrapped into {@link #PROFILED_FILE_SET_CHECK}
+     * modules and whose checks of {@link TreeWalker}s are wrapped into {@link #PROFILED_CHECK} modules (when profiling) and whose
+     * {@link TreeWalker}s end with a {@link #SOURCE_FILE_CONSUMERS} check (when consumers are registered).
+     *
+     * @param root
+     *            the root ('Checker') configuration.
+     * @return the configuration to use with this factory.
+     * @throws CheckstyleException
+     *             when a module could not be created.
+     */
+    Configuration profile(final Configuration root) throws CheckstyleException {
+        final DefaultConfiguration profiled = ConfigurationHelper.copyAttributes(root);
+
+        for (final Configuration child : root.getChildren()) {
+            final Object module = createOriginalModule(child.getName());
+            Configuration configuration = module instanceof TreeWalker ? profileTreeWalker(child) : child;
+
+            if (profile != null && module instanceof FileSetCheck) {
+                final DefaultConfiguration wrapper = new DefaultConfiguration(PROFILED_FILE_SET_CHECK);
+                wrapper.addChild(configuration);
+                configuration = wrapper;
+            }
+
+            profiled.addChild(configuration);
+        }
+
+        return profiled;
+    }
+
+    /**
+     * Create a copy of the given {@link TreeWalker} configuration whose checks are wrapped into {@link #PROFILED_CHECK} modules
+     * (when profiling) and which ends with a {@link #SOURCE_FILE_CONSUMERS} check (when consumers are registered). The tokens
+     * configured for a check are copied to its wrapper, the {@link TreeWalker} registers the wrapper for them.
+     *
+     * @param treeWalker
+     *            configuration of a {@link TreeWalker}.
+     * @return the configuration to use with this factory.
+     * @throws CheckstyleException
+     *             when an attribute of a check could not be read.
+     */
+    private Configuration profileTreeWalker(final Configuration treeWalker) throws CheckstyleException {
+        final DefaultConfiguration profiled = ConfigurationHelper.copyAttributes(treeWalker);
+
+        for (final Configuration child : treeWalker.getChildren()) {
+            if (profile == null) {
+                profiled.addChild(child);
+                continue;
+            }
+
+            final DefaultConfiguration wrapper = new DefaultConfiguration(PROFILED_CHECK);
+
+            for (final String attribute : child.getAttributeNames()) {
+                if ("tokens".equals(attribute)) {
+                    wrapper.addAttribute(attribute, child.getAttribute(attribute));
+                }
+            }
+
+            wrapper.addChild(child);
+            profiled.addChild(wrapper);
+        }
+
+        if (!consumers.isEmpty()) {
+            profiled.addChild(new DefaultConfiguration(SOURCE_FILE_CONSUMERS));
+        }
+
+        return profiled;
+    }
+
+    /**
+     * File set check measuring the CPU time spent in the file set check configured as its only child.
+     *
+     * @author Dirk Weigenand
+     */
+    public static final class ProfiledFileSetCheck extends AutomaticBean implements FileSetCheck {
+        /**
+         * profile receiving the measurements.
+         */
+        private final CheckProfile profile;
+
+        /**
+         * context of the wrapped check (as provided by the checker).
+         */
+        private final DefaultContext childContext = new DefaultContext();
+
+        /**
+         * the wrapped check.
+         */
+        private FileSetCheck check;
+
+        /**
+         * name of the wrapped check.
+         */
+        private String name;
+
+        /**
+         * whether the wrapped check is a {@link TreeWalker} (whose checks report their time themselves).
+         */
+        private boolean treeWalker;
+
+        /**
+         * CPU time spent in the wrapped check in nanoseconds.
+         */
+        private long time;
+
+        /**
+         * number of invocations.
+         */
+        private long invocations;
+
+        /**
+         * Create a wrapper reporting its measurements to the given profile.
+         *
+         * @param profile
+         *            profile receiving the measurements.
+         */
+        ProfiledFileSetCheck(final CheckProfile profile) {
+            this.profile = profile;
+        }
+
+        /**
+         * @param charset
+         *            name of charset of files checked.
+         */
+        public void setCharset(final String charset) {
+            childContext.add("charset", charset);
+        }
+
+        /**
+         * @param classLoader
+         *            class loader to resolve classes with.
+         */
+        public void setClassLoader(final ClassLoader classLoader) {
+            childContext.add("classLoader", classLoader);
+        }
+
+        /**
+         * @param moduleFactory
+         *            factory for creating the wrapped check.
+         */
+        public void setModuleFactory(final ModuleFactory moduleFactory) {
+            childContext.add("moduleFactory", moduleFactory);
+        }
+
+        /**
+         * @param severity
+         *            default severity.
+         */
+        public void setSeverity(final String severity) {
+            childContext.add("severity", severity);
+        }
+
+        /**
+         * @param basedir
+         *            base directory of checked files.
+         */
+        public void setBasedir(final String basedir) {
+            childContext.add("basedir", basedir);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected void setupChild(final Configuration childConfiguration) throws CheckstyleException {
+            final ModuleFactory moduleFactory = (ModuleFactory)childContext.get("moduleFactory");
+            final Object module = moduleFactory.createModule(childConfiguration.getName());
+
+            if (!(module instanceof FileSetCheck) || check != null) {
+                throw new CheckstyleException(String.format("%s can only wrap one file set check.", PROFILED_FILE_SET_CHECK));
+            }
+
+            if (module instanceof AutomaticBean) {
+                ((AutomaticBean)module).contextualize(childContext);
+                ((AutomaticBean)module).configure(childConfiguration);
+            }
+
+            check = (FileSetCheck)module;
+            treeWalker = module instanceof TreeWalker;
+            name = treeWalker ? PARSER : CheckProfile.getName(childConfiguration);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void setMessageDispatcher(final MessageDispatcher dispatcher) {
+            check.setMessageDispatcher(dispatcher);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void init() {
+            check.init();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void destroy() {
+            check.destroy();
+            profile.add(name, time, invocations);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void beginProcessing(final String charset) {
+            final long start = CheckProfile.currentTime();
+            check.beginProcessing(charset);
+            time += CheckProfile.currentTime() - start;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public TreeSet<LocalizedMessage> process(final File file, final List<String> lines) {
+            final long[] nestedTime = NESTED_TIME.get();
+            final long nestedStart = nestedTime[0];
+            final long start = CheckProfile.currentTime();
+
+            try {
+                return check.process(file, lines);
+            }
+            finally {
+                time += CheckProfile.currentTime() - start;
+                invocations++;
+
+                if (treeWalker) {
+                    time -= nestedTime[0] - nestedStart;
+                }
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void finishProcessing() {
+            final long start = CheckProfile.currentTime();
+            check.finishProcessing();
+            time += CheckProfile.currentTime() - start;
+        }
+    }
+
+    /**
+     * Check measuring the CPU time spent in the check of a {@link TreeWalker} configured as its only child. The wrapper is
+     * registered with the {@link TreeWalker} for the tokens of the wrapped check and passes all notifications on.
+     *
+     * @author Dirk Weigenand
+     */
+    public static final class ProfiledCheck extends Check {
+        /**
+         * profile receiving the measurements.
+         */
+        private final CheckProfile profile;
+
+        /**
+         * factory for creating the wrapped check.
+         */
+        private final ModuleFactory moduleFactory;
+
+        /**
+         * the wrapped check.
+         */
+        private Check check;
+
+        /**
+         * name of the wrapped check.
+         */
+        private String name;
+
+        /**
+         * CPU time spent in checks of tree walkers on the current thread (set when beginning to walk a syntax tree).
+         */
+        private long[] nestedTime = new long[1];
+
+        /**
+         * CPU time spent in the wrapped check in nanoseconds.
+         */
+        private long time;
+
+        /**
+         * number of invocations.
+         */
+        private long invocations;
+
+        /**
+         * Create a wrapper reporting its measurements to the given profile.
+         *
+         * @param profile
+         *            profile receiving the measurements.
+         * @param moduleFactory
+         *            factory for creating the wrapped check.
+         */
+        ProfiledCheck(final CheckProfile profile, final ModuleFactory moduleFactory) {
+            this.profile = profile;
+            this.moduleFactory = moduleFactory;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected void setupChild(final Configuration childConfiguration) throws CheckstyleException {
+            final Object module = moduleFactory.createModule(childConfiguration.getName());
+
+            if (!(module instanceof Check) || check != null) {
+                throw new CheckstyleException(String.format("%s can only wrap one check.", PROFILED_CHECK));
+            }
+
+            final DefaultContext childContext = new DefaultContext();
+            childContext.add("classLoader", getClassLoader());
+            childContext.add("messages", getMessages());
+            childContext.add("severity", getSeverity());
+            childContext.add("tabWidth", String.valueOf(getTabWidth()));
+
+            check = (Check)module;
+            check.contextualize(childContext);
+            check.configure(childConfiguration);
+            name = CheckProfile.getName(childConfiguration);
+        }
+
+        /**
+         * Returns the messages of the {@link TreeWalker} this wrapper was contextualized with. {@link Check} offers no accessor, so
+         * the field is read via reflection.
+         *
+         * @return the messages of the {@link TreeWalker}.
+         * @throws CheckstyleException
+         *             when the field could not be read.
+         */
+        private LocalizedMessages getMessages() throws CheckstyleException {
+            try {
+                final Field messages = Check.class.getDeclaredField("mMessages");
+                messages.setAccessible(true);
+
+                return (LocalizedMessages)messages.get(this);
+            }
+            catch (final NoSuchFieldException e) {
+                throw new CheckstyleException(String.format("%s does not support this version of checkstyle.", PROFILED_CHECK), e);
+            }
+            catch (final IllegalAccessException e) {
+                throw new CheckstyleException(String.format("%s does not support this version of checkstyle.", PROFILED_CHECK), e);
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int[] getDefaultTokens() {
+            return check.getDefaultTokens();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int[] getAcceptableTokens() {
+            return check.getAcceptableTokens();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int[] getRequiredTokens() {
+            return check.getRequiredTokens();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void init() {
+            check.init();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void destroy() {
+            check.destroy();
+            profile.add(name, time, invocations);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void beginTree(final DetailAST root) {
+            nestedTime = NESTED_TIME.get();
+            final long start = CheckProfile.currentTime();
+            check.setFileContents(getFileContents());
+            check.beginTree(root);
+            record(start);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void visitToken(final DetailAST node) {
+            final long start = CheckProfile.currentTime();
+            check.visitToken(node);
+            record(start);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void leaveToken(final DetailAST node) {
+            final long start = CheckProfile.currentTime();
+            check.leaveToken(node);
+            record(start);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void finishTree(final DetailAST root) {
+            final long start = CheckProfile.currentTime();
+            check.finishTree(root);
+            record(start);
+        }
+
+        /**
+         * Record an invocation started at the given time.
+         *
+         * @param start
+         *            CPU time at start of invocation.
+         */
+        private void record(final long start) {
+            final long duration = CheckProfile.currentTime() - start;
+            time += duration;
+            nestedTime[0] += duration;
+            invocations++;
+        }
+    }
+
+    /**
+     * Check registered for no tokens passing the contents and syntax tree of each source walked by its {@link TreeWalker} to the
+     * consumers (after the other checks of the {@link TreeWalker} were notified).
+     *
+     * @author Dirk Weigenand
+     */
+    public static final class SourceFileConsumers extends Check {
+        /**
+         * consumers of parsed sources.
+         */
+        private final List<SourceFileConsumer> consumers;
+
+        /**
+         * Create a check passing parsed sources to the given consumers.
+         *
+         * @param consumers
+         *            consumers of parsed sources.
+         */
+        SourceFileConsumers(final List<SourceFileConsumer> consumers) {
+            this.consumers = consumers;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int[] getDefaultTokens() {
+            return new int[0];
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void finishTree(final DetailAST root) {
+            final File file = new File(getFileContents().getFilename());
+
+            for (final SourceFileConsumer consumer : consumers) {
+                consumer.consume(file, getFileContents(), root);
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Summary and compressed result file (a GZIP compressed 'checkstyle-result.xml' or a {@link ChunkedResultFile}) of a development
+ * component checked on an agent.
+ *
+ * @author Dirk Weigenand
+ */
+final class RemoteCheckResult implements Serializable {
+    /**
+     * version of serialized form.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * size of buffer used when writing the result file.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * name of development component.
+     */
+    private final String component;
+
+    /**
+     * GZIP compressed 'checkstyle-result.xml' or chunked result file.
+     */
+    private final byte[] result;
+
+    /**
+     * whether the result is a chunked result file.
+     */
+    private final boolean chunked;
+
+    /**
+     * number of files checked.
+     */
+    private final int files;
+
+    /**
+     * number of violations found.
+     */
+    private final int violations;
+
+    /**
+     * number of violations with severity 'error' found.
+     */
+    private final int errors;
+
+    /**
+     * execution time of the check on the agent in nanoseconds.
+     */
+    private final long duration;
+
+    /**
+     * Create the result of checking a development component on an agent.
+     *
+     * @param component
+     *            name of development component.
+     * @param result
+     *            GZIP compressed 'checkstyle-result.xml' or chunked result file.
+     * @param chunked
+     *            whether the result is a chunked result file.
+     * @param files
+     *            number of files checked.
+     * @param violations
+     *            number of violations found.
+     * @param errors
+     *            number of violations with severity 'error' found.
+     * @param duration
+     *            execution time of the check on the agent in nanoseconds.
+     */
+    RemoteCheckResult(final String component, final byte[] result, final boolean chunked, final int files, final int violations,
+        final int errors, final long duration) {
+        this.component = component;
+        this.result = result;
+        this.chunked = chunked;
+        this.files = files;
+        this.violations = violations;
+        this.errors = errors;
+        this.duration = duration;
+    }
+
+    /**
+     * @return the name of the development component.
+     */
+    String getComponent() {
+        return component;
+    }
+
+    /**
+     * @return the number of files checked.
+     */
+    int getFiles() {
+        return files;
+    }
+
+    /**
+     * @return the number of violations found.
+     */
+    int getViolations() {
+        return violations;
+    }
+
+    /**
+     * @return the number of violations with severity 'error' found.
+     */
+    int getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return the execution time of the check on the agent in nanoseconds.
+     */
+    long getDuration() {
+        return duration;
+    }
+
+    /**
+     * Write the result file (uncompressing a 'checkstyle-result.xml') into the given file.
+     *
+     * @param resultFile
+     *            the file to write.
+     * @throws IOException
+     *             when writing the file failed.
+     */
+    void writeTo(final File resultFile) throws IOException {
+        final InputStream input = chunked ? new ByteArrayInputStream(result) : new GZIPInputStream(new ByteArrayInputStream(result));
+        final OutputStream output = new FileOutputStream(resultFile);
+
+        try {
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            int count = input.read(buffer);
+
+            while (count > -1) {
+                output.write(buffer, 0, count);
+                count = input.read(buffer);
+            }
+        }
+        finally {
+            output.close();
+            input.close();
+        }
+    }
+}
@@ -0,0 +1,325 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import hudson.FilePath;
+import hudson.remoting.Callable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+import com.puppycrawl.tools.checkstyle.api.SeverityLevel;
+
+/**
+ * Checks a batch of development components on an agent.
+ *
+ * The sources are written into a temporary folder on the agent, keeping their original folder structure (checks like
+ * 'PackageDeclaration' compare packages and folders), and checked with the shipped checkstyle configuration. Archives on the
+ * class path are copied from the node running the build once and kept in the {@link ArchiveCache} of the agent for later builds.
+ * Violations are reported using the original paths of the source files.
+ *
+ * @author Dirk Weigenand
+ */
+final class RemoteCheckstyleBatch implements Callable<ArrayList<RemoteCheckResult>, IOException> {
+    /**
+     * version of serialized form.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * the checkstyle configuration (XML).
+     */
+    private final String configuration;
+
+    /**
+     * development components to check.
+     */
+    private final List<RemoteComponent> components;
+
+    /**
+     * format of the result files to return.
+     */
+    private final ResultFormat resultFormat;
+
+    /**
+     * Create a batch of development components to check on an agent.
+     *
+     * @param configuration
+     *            the checkstyle configuration (XML).
+     * @param components
+     *            development components to check.
+     * @param resultFormat
+     *            format of the result files to return.
+     */
+    RemoteCheckstyleBatch(final String configuration, final List<RemoteComponent> components, final ResultFormat resultFormat) {
+        this.configuration = configuration;
+        this.components = new ArrayList<RemoteComponent>(components);
+        this.resultFormat = resultFormat;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public ArrayList<RemoteCheckResult> call() throws IOException {
+        final Configuration checkerConfiguration;
+
+        try {
+            checkerConfiguration = CheckstyleSetupCache.getInstance().getConfiguration(configuration);
+        }
+        catch (final CheckstyleException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+
+        ArchiveCache.getInstance().prune(System.currentTimeMillis());
+
+        final File workDir = File.createTempFile("nwdi-checkstyle-batch", "");
+        workDir.delete();
+        workDir.mkdirs();
+
+        final ArrayList<RemoteCheckResult> results = new ArrayList<RemoteCheckResult>(components.size());
+
+        try {
+            for (int i = 0; i < components.size(); i++) {
+                results.add(check(checkerConfiguration, components.get(i), new File(workDir, Integer.toString(i))));
+            }
+        }
+        catch (final CheckstyleException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        catch (final InterruptedException e) {
+            throw new IOException("Copying the class path was interrupted.", e);
+        }
+        finally {
+            delete(workDir);
+        }
+
+        return results;
+    }
+
+    /**
+     * Check the given development component.
+     *
+     * @param checkerConfiguration
+     *            the parsed checkstyle configuration.
+     * @param component
+     *            development component to check.
+     * @param componentDir
+     *            folder to write the sources and output folders of the development component to.
+     * @return result of the check.
+     * @throws IOException
+     *             when writing the sources or copying the class path failed.
+     * @throws CheckstyleException
+     *             when the checker could not be configured.
+     * @throws InterruptedException
+     *             when copying the class path was interrupted.
+     */
+    private RemoteCheckResult check(final Configuration checkerConfiguration, final RemoteComponent component,
+        final File componentDir) throws IOException, CheckstyleException, InterruptedException {
+        final long start = System.nanoTime();
+        final Map<String, String> originalNames = writeSources(component, new File(componentDir, "src"));
+        final List<File> files = new ArrayList<File>(originalNames.size());
+
+        for (final String fileName : originalNames.keySet()) {
+            files.add(new File(fileName));
+        }
+
+        final List<File> folders = new ArrayList<File>();
+        final ClassLoader archiveClassLoader = getClassLoader(component, new File(componentDir, "classes"), folders);
+        final ViolationCollector collector = new ViolationCollector();
+        ClassLoader classLoader = archiveClassLoader;
+
+        try {
+            if (!folders.isEmpty()) {
+                final List<URL> urls = ClassPathResolver.toURLs(folders);
+                classLoader = new URLClassLoader(urls.toArray(new URL[urls.size()]), archiveClassLoader);
+            }
+
+            final Checker checker = new Checker();
+            checker.setModuleClassLoader(Checker.class.getClassLoader());
+            checker.setClassloader(classLoader);
+            CheckerGuard.configure(checker, checkerConfiguration);
+
+            try {
+                checker.addListener(collector);
+                CheckerGuard.process(checker, files);
+            }
+            finally {
+                checker.destroy();
+            }
+        }
+        finally {
+            if (classLoader != archiveClassLoader) {
+                // the class loader over the copied output folders is used for this development component only.
+                CheckstyleSetupCache.close(classLoader);
+            }
+
+            CheckstyleSetupCache.getInstance().release(archiveClassLoader);
+        }
+
+        final ByteArrayOutputStream result = new ByteArrayOutputStream();
+        final ResultWriter writer = resultFormat.createWriter(resultFormat.isChunked() ? result : new GZIPOutputStream(result));
+        final String sourcePath = new File(componentDir, "src").getAbsolutePath();
+        int violationCount = 0;
+        int errorCount = 0;
+
+        try {
+            writer.start();
+
+            for (final Map.Entry<String, String> fileName : originalNames.entrySet()) {
+                final List<Violation> violations = new ArrayList<Violation>();
+                final List<Violation> reported = collector.getViolations(fileName.getKey());
+
+                if (reported != null) {
+                    for (final Violation violation : reported) {
+                        violations.add(restoreFileNames(violation, sourcePath, originalNames));
+
+                        if (SeverityLevel.ERROR.getName().equals(violation.getSeverity())) {
+                            errorCount++;
+                        }
+                    }
+                }
+
+                violationCount += violations.size();
+                writer.write(fileName.getValue(), violations);
+            }
+
+            writer.finish();
+        }
+        finally {
+            writer.close();
+        }
+
+        return new RemoteCheckResult(component.getName(), result.toByteArray(), resultFormat.isChunked(), files.size(),
+            violationCount, errorCount, System.nanoTime() - start);
+    }
+
+    /**
+     * Write the sources of the given development component into the given folder. Each file is written to its original absolute
+     * path relative to the given folder.
+     *
+     * @param component
+     *            development component whose sources shall be written.
+     * @param sourceDir
+     *            folder to write the sources to.
+     * @return the absolute paths of the written files mapped to the original absolute paths of the source files.
+     * @throws IOException
+     *             when writing a file failed.
+     */
+    private Map<String, String> writeSources(final RemoteComponent component, final File sourceDir) throws IOException {
+        final Map<String, String> originalNames = new LinkedHashMap<String, String>();
+        final List<String> fileNames = component.getFileNames();
+
+        for (int i = 0; i < fileNames.size(); i++) {
+            final File file = new File(sourceDir, fileNames.get(i).replace(":", ""));
+            file.getParentFile().mkdirs();
+
+            final OutputStream output = new FileOutputStream(file);
+
+            try {
+                output.write(component.getContent(i));
+            }
+            finally {
+                output.close();
+            }
+
+            originalNames.put(file.getAbsolutePath(), fileNames.get(i));
+        }
+
+        return originalNames;
+    }
+
+    /**
+     * Copy the class path of the given development component to this agent. Archives are copied into the {@link ArchiveCache}
+     * unless they are present already. Folders are copied into the given folder. Class loaders over the archives are kept warm by the
+     * {@link CheckstyleSetupCache} of this agent and must be returned to it, only the folders get a class loader of their own.
+     *
+     * @param component
+     *            development component whose class path shall be copied.
+     * @param classesDir
+     *            folder to copy output folders to.
+     * @param folders
+     *            list to receive the copied folders.
+     * @return the shared class loader for the archives on the class path on this agent.
+     * @throws IOException
+     *             when copying the class path failed.
+     * @throws InterruptedException
+     *             when copying was interrupted.
+     */
+    private ClassLoader getClassLoader(final RemoteComponent component, final File classesDir, final List<File> folders)
+        throws IOException, InterruptedException {
+        final List<File> archives = new ArrayList<File>();
+
+        for (final RemoteComponent.ClassPathEntry entry : component.getClassPath()) {
+            if (entry.isFolder()) {
+                final File folder = new File(classesDir, Integer.toString(folders.size()));
+                folder.mkdirs();
+                entry.getLocation().copyRecursiveTo("**/*", null, new FilePath(folder));
+                folders.add(folder);
+            }
+            else {
+                archives.add(ArchiveCache.getInstance().getArchive(entry));
+            }
+        }
+
+        return CheckstyleSetupCache.getInstance().getClassLoader(archives);
+    }
+
+    /**
+     * Replace the paths of the written source files in the message of the given violation (e.g. of 'StrictDuplicateCode') with
+     * their original paths.
+     *
+     * @param violation
+     *            violation reported for a written source file.
+     * @param sourcePath
+     *            absolute path of the folder the sources were written to.
+     * @param originalNames
+     *            the absolute paths of the written files mapped to the original absolute paths of the source files.
+     * @return a violation referring to the original source files.
+     */
+    private static Violation restoreFileNames(final Violation violation, final String sourcePath,
+        final Map<String, String> originalNames) {
+        String message = violation.getMessage();
+
+        if (message == null || !message.contains(sourcePath)) {
+            return violation;
+        }
+
+        for (final Map.Entry<String, String> fileName : originalNames.entrySet()) {
+            message = message.replace(fileName.getKey(), fileName.getValue());
+        }
+
+        return new Violation(violation.getLine(), violation.getColumn(), violation.getSeverity(), message, violation.getSource());
+    }
+
+    /**
+     * Delete the given file or folder including its content.
+     *
+     * @param file
+     *            file or folder to delete.
+     */
+    private static void delete(final File file) {
+        final File[] children = file.listFiles();
+
+        if (children != null) {
+            for (final File child : children) {
+                delete(child);
+            }
+        }
+
+        file.delete();
+    }
+}
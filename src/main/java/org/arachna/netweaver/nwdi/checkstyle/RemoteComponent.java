@@ -0,0 +1,184 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import hudson.FilePath;
+
+import java.io.File;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Sources and class path of a development component shipped to an agent for checking.
+ *
+ * The contents of the source files are shipped along with their original absolute paths. The class path is shipped as references
+ * to the archives and output folder on the node running the build. Agents copy them on demand (see {@link ClassPathEntry}).
+ *
+ * @author Dirk Weigenand
+ */
+final class RemoteComponent implements Serializable {
+    /**
+     * version of serialized form.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * name of development component.
+     */
+    private final String name;
+
+    /**
+     * original absolute paths of source files.
+     */
+    private final List<String> fileNames = new ArrayList<String>();
+
+    /**
+     * contents of source files.
+     */
+    private final List<byte[]> contents = new ArrayList<byte[]>();
+
+    /**
+     * class path of development component.
+     */
+    private final List<ClassPathEntry> classPath = new ArrayList<ClassPathEntry>();
+
+    /**
+     * Create a development component to ship to an agent.
+     *
+     * @param name
+     *            name of development component.
+     */
+    RemoteComponent(final String name) {
+        this.name = name;
+    }
+
+    /**
+     * Add the given source file.
+     *
+     * @param file
+     *            source file to add.
+     * @param content
+     *            content of the source file.
+     */
+    void addSource(final File file, final byte[] content) {
+        fileNames.add(file.getAbsolutePath());
+        contents.add(content);
+    }
+
+    /**
+     * Add an archive or folder to the class path.
+     *
+     * @param entry
+     *            archive or output folder on the node running the build.
+     */
+    void addClassPathEntry(final File entry) {
+        classPath.add(new ClassPathEntry(entry));
+    }
+
+    /**
+     * @return the name of the development component.
+     */
+    String getName() {
+        return name;
+    }
+
+    /**
+     * @return the original absolute paths of the source files.
+     */
+    List<String> getFileNames() {
+        return Collections.unmodifiableList(fileNames);
+    }
+
+    /**
+     * Returns the content of the source file at the given index.
+     *
+     * @param index
+     *            index of source file.
+     * @return the content of the source file at the given index.
+     */
+    byte[] getContent(final int index) {
+        return contents.get(index);
+    }
+
+    /**
+     * @return the class path of the development component.
+     */
+    List<ClassPathEntry> getClassPath() {
+        return Collections.unmodifiableList(classPath);
+    }
+
+    /**
+     * Archive or output folder on the class path of a development component.
+     *
+     * Archives are identified by their location, size and modification time, so agents can keep copies of them across builds.
+     * Output folders change with every build and are copied for every check.
+     *
+     * @author Dirk Weigenand
+     */
+    static final class ClassPathEntry implements Serializable {
+        /**
+         * version of serialized form.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * the archive or folder on the node running the build.
+         */
+        private final FilePath location;
+
+        /**
+         * name of archive or folder.
+         */
+        private final String name;
+
+        /**
+         * key identifying the archive (<code>null</code> for folders).
+         */
+        private final String key;
+
+        /**
+         * Create a class path entry for the given archive or folder.
+         *
+         * @param entry
+         *            archive or folder on the node running the build.
+         */
+        ClassPathEntry(final File entry) {
+            location = new FilePath(entry);
+            name = entry.getName();
+            key =
+                entry.isDirectory() ? null : DigestHelper.digest(String.format("%s:%d:%d", entry.getAbsolutePath(), entry.length(),
+                    entry.lastModified()));
+        }
+
+        /**
+         * @return the archive or folder on the node running the build.
+         */
+        FilePath getLocation() {
+            return location;
+        }
+
+        /**
+         * @return the name of the archive or folder.
+         */
+        String getName() {
+            return name;
+        }
+
+        /**
+         * @return the key identifying the archive (<code>null</code> for folders).
+         */
+        String getKey() {
+            return key;
+        }
+
+        /**
+         * @return whether this entry is a folder.
+         */
+        boolean isFolder() {
+            return key == null;
+        }
+    }
+}
@@ -0,0 +1,246 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Merges the 'checkstyle-result.xml' files of development components by stream parsing them and passing the violations of each
+ * audited file to the registered {@link ViolationHandler}s. At most the violations of one file are held in memory.
+ * {@link ChunkedResultFile}s are read one chunk at a time.
+ *
+ * @author Dirk Weigenand
+ */
+final class ResultAggregator {
+    /**
+     * name of the aggregated result file in the build directory.
+     */
+    static final String AGGREGATED_RESULT_FILE_NAME = "checkstyle-result.xml";
+
+    /**
+     * name of the index of the aggregated result in the build directory.
+     */
+    static final String INDEX_FILE_NAME = "checkstyle-index.xml";
+
+    /**
+     * package name used for files outside of known source folders.
+     */
+    static final String DEFAULT_PACKAGE = "(default)";
+
+    /**
+     * factory for stream readers.
+     */
+    private final XMLInputFactory factory = XMLInputFactory.newInstance();
+
+    /**
+     * handlers receiving the violations of audited files.
+     */
+    private final Collection<ViolationHandler> handlers = new ArrayList<ViolationHandler>();
+
+    /**
+     * number of violations omitted from the aggregated chunked result files because they exceeded a cap.
+     */
+    private int omittedViolations;
+
+    /**
+     * Create an aggregator passing violations to the given handlers.
+     *
+     * @param handlers
+     *            handlers receiving the violations of audited files.
+     */
+    ResultAggregator(final Collection<? extends ViolationHandler> handlers) {
+        this.handlers.addAll(handlers);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+    }
+
+    /**
+     * Read the given result file of a development component and pass the violations of each audited file to the registered
+     * handlers.
+     *
+     * @param component
+     *            name of development component.
+     * @param resultFile
+     *            'checkstyle-result.xml' or chunked result file of development component.
+     * @param sourceFolders
+     *            source folders of development component (used to determine the package of audited files).
+     * @throws IOException
+     *             when the result file could not be read or a handler failed.
+     */
+    void aggregate(final String component, final File resultFile, final Collection<String> sourceFolders) throws IOException {
+        if (!resultFile.isFile()) {
+            return;
+        }
+
+        if (ChunkedResultFile.FILE_NAME.equals(resultFile.getName())) {
+            aggregate(component, ChunkedResultFile.open(resultFile), sourceFolders);
+
+            return;
+        }
+
+        final InputStream input = new BufferedInputStream(new FileInputStream(resultFile));
+
+        try {
+            final XMLStreamReader reader = factory.createXMLStreamReader(input);
+
+            try {
+                read(component, reader, sourceFolders);
+            }
+            finally {
+                reader.close();
+            }
+        }
+        catch (final XMLStreamException e) {
+            throw new IOException(String.format("Could not read %s: %s", resultFile, e.getMessage()), e);
+        }
+        finally {
+            input.close();
+        }
+    }
+
+    /**
+     * @return the number of violations omitted from the aggregated chunked result files because they exceeded a cap.
+     */
+    int getOmittedViolations() {
+        return omittedViolations;
+    }
+
+    /**
+     * Read the given chunked result file of a development component one chunk at a time and pass the violations of each audited
+     * file to the registered handlers.
+     *
+     * @param component
+     *            name of development component.
+     * @param resultFile
+     *            chunked result file of development component.
+     * @param sourceFolders
+     *            source folders of development component.
+     * @throws IOException
+     *             when a chunk could not be read or a handler failed.
+     */
+    private void aggregate(final String component, final ChunkedResultFile resultFile, final Collection<String> sourceFolders)
+        throws IOException {
+        for (int i = 0; i < resultFile.getChunkCount(); i++) {
+            for (final Map.Entry<String, List<Violation>> violations : resultFile.readChunk(i).entrySet()) {
+                final String packageName = getPackageName(violations.getKey(), sourceFolders);
+
+                for (final ViolationHandler handler : handlers) {
+                    handler.handle(component, packageName, violations.getKey(), violations.getValue());
+                }
+            }
+        }
+
+        omittedViolations += resultFile.getOmittedViolations();
+    }
+
+    /**
+     * Read the 'file' elements from the given reader.
+     *
+     * @param component
+     *            name of development component.
+     * @param reader
+     *            reader positioned at the start of a 'checkstyle-result.xml'.
+     * @param sourceFolders
+     *            source folders of development component.
+     * @throws XMLStreamException
+     *             when the result could not be parsed.
+     * @throws IOException
+     *             when a handler failed.
+     */
+    private void read(final String component, final XMLStreamReader reader, final Collection<String> sourceFolders)
+        throws XMLStreamException, IOException {
+        String fileName = null;
+        List<Violation> violations = null;
+
+        while (reader.hasNext()) {
+            final int event = reader.next();
+
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                final String name = reader.getLocalName();
+
+                if ("file".equals(name)) {
+                    fileName = reader.getAttributeValue(null, "name");
+                    violations = new ArrayList<Violation>();
+                }
+                else if ("error".equals(name) && violations != null) {
+                    violations.add(new Violation(parseInt(reader.getAttributeValue(null, "line")), parseInt(reader.getAttributeValue(
+                        null, "column")), reader.getAttributeValue(null, "severity"), reader.getAttributeValue(null, "message"),
+                        reader.getAttributeValue(null, "source")));
+                }
+            }
+            else if (event == XMLStreamConstants.END_ELEMENT && "file".equals(reader.getLocalName()) && fileName != null) {
+                final String packageName = getPackageName(fileName, sourceFolders);
+
+                for (final ViolationHandler handler : handlers) {
+                    handler.handle(component, packageName, fileName, violations);
+                }
+
+                fileName = null;
+                violations = null;
+            }
+        }
+    }
+
+    /**
+     * Determine the java package of the given source file from its location relative to the given source folders.
+     *
+     * @param fileName
+     *            absolute path of source file.
+     * @param sourceFolders
+     *            source folders of development component.
+     * @return package name of the given source file.
+     */
+    static String getPackageName(final String fileName, final Collection<String> sourceFolders) {
+        final String path = fileName.replace('\\', '/');
+
+        for (final String sourceFolder : sourceFolders) {
+            String folder = sourceFolder.replace('\\', '/');
+
+            if (!folder.endsWith("/")) {
+                folder += "/";
+            }
+
+            if (path.startsWith(folder)) {
+                final int lastSeparator = path.lastIndexOf('/');
+
+                return lastSeparator < folder.length() ? DEFAULT_PACKAGE : path.substring(folder.length(), lastSeparator).replace(
+                    '/', '.');
+            }
+        }
+
+        return DEFAULT_PACKAGE;
+    }
+
+    /**
+     * Parse the given attribute value as integer.
+     *
+     * @param value
+     *            attribute value (may be <code>null</code>).
+     * @return the parsed value or <code>0</code> when the attribute is missing or not a number.
+     */
+    private static int parseInt(final String value) {
+        if (value != null) {
+            try {
+                return Integer.parseInt(value);
+            }
+            catch (final NumberFormatException e) {
+                // fall through
+            }
+        }
+
+        return 0;
+    }
+}
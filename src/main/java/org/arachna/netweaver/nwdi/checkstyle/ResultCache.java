@@ -0,0 +1,320 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Persistent cache of the violations reported for the sources of a development component.
+ *
+ * Entries are keyed by the absolute path of a source file and remember the content hash of the file at the time it was checked. The
+ * cache as a whole is only valid for the combination of checkstyle configuration and class path it was created with.
+ *
+ * The cache is stored as a compressed sequence of explicit fields (key, then per file its path, content hash and violations), so
+ * reading a cache file from the workspace never instantiates classes named in the file.
+ *
+ * @author Dirk Weigenand
+ */
+final class ResultCache {
+    /**
+     * identifies cache files ('NWCC').
+     */
+    private static final int MAGIC = 0x4e574343;
+
+    /**
+     * version of the file format.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * maximum length of a string in a cache file (protects against allocating huge arrays when reading a corrupt file).
+     */
+    private static final int MAX_STRING_LENGTH = 1 << 20;
+
+    /**
+     * encoding of strings.
+     */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * key identifying checkstyle configuration and class path this cache is valid for.
+     */
+    private final String key;
+
+    /**
+     * cache entries mapped to absolute paths of source files.
+     */
+    private final Map<String, Entry> entries;
+
+    /**
+     * Create a cache for the given key with the given entries.
+     *
+     * @param key
+     *            key identifying checkstyle configuration and class path this cache is valid for.
+     * @param entries
+     *            cache entries mapped to absolute paths of source files.
+     */
+    private ResultCache(final String key, final Map<String, Entry> entries) {
+        this.key = key;
+        this.entries = entries;
+    }
+
+    /**
+     * Load the cache from the given file. An empty cache is returned when the file does not exist, can't be read or was created for
+     * a different key.
+     *
+     * @param cacheFile
+     *            file to read the cache from.
+     * @param key
+     *            key identifying checkstyle configuration and class path of current check.
+     * @return the cache read from the given file or an empty cache.
+     */
+    static ResultCache load(final File cacheFile, final String key) {
+        if (cacheFile.exists()) {
+            try {
+                final DataInputStream input =
+                    new DataInputStream(new GZIPInputStream(new BufferedInputStream(new FileInputStream(cacheFile))));
+
+                try {
+                    if (input.readInt() == MAGIC && input.readInt() == VERSION && key.equals(readString(input))) {
+                        return new ResultCache(key, readEntries(input));
+                    }
+                }
+                finally {
+                    input.close();
+                }
+            }
+            catch (final IOException e) {
+                // ignore corrupt cache, sources will be checked again.
+            }
+        }
+
+        return new ResultCache(key, new HashMap<String, Entry>());
+    }
+
+    /**
+     * Write the cache to the given file.
+     *
+     * @param cacheFile
+     *            file to write the cache to.
+     * @throws IOException
+     *             when writing the cache failed.
+     */
+    void save(final File cacheFile) throws IOException {
+        final DataOutputStream output =
+            new DataOutputStream(new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(cacheFile))));
+
+        try {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            writeString(output, key);
+            output.writeInt(entries.size());
+
+            for (final Map.Entry<String, Entry> entry : entries.entrySet()) {
+                writeString(output, entry.getKey());
+                writeString(output, entry.getValue().getContentHash());
+
+                final List<Violation> violations = entry.getValue().getViolations();
+                output.writeInt(violations.size());
+
+                for (final Violation violation : violations) {
+                    output.writeInt(violation.getLine());
+                    output.writeInt(violation.getColumn());
+                    writeString(output, violation.getSeverity());
+                    writeString(output, violation.getMessage());
+                    writeString(output, violation.getSource());
+                }
+            }
+        }
+        finally {
+            output.close();
+        }
+    }
+
+    /**
+     * Read the cache entries following the key of a cache file.
+     *
+     * @param input
+     *            stream to read from.
+     * @return cache entries mapped to absolute paths of source files.
+     * @throws IOException
+     *             when reading failed or the file is corrupt.
+     */
+    private static Map<String, Entry> readEntries(final DataInputStream input) throws IOException {
+        final int count = readCount(input);
+        final Map<String, Entry> entries = new HashMap<String, Entry>();
+
+        for (int i = 0; i < count; i++) {
+            final String fileName = readString(input);
+            final String contentHash = readString(input);
+            final int violationCount = readCount(input);
+            final List<Violation> violations = new ArrayList<Violation>();
+
+            for (int j = 0; j < violationCount; j++) {
+                violations.add(new Violation(input.readInt(), input.readInt(), readString(input), readString(input),
+                    readString(input)));
+            }
+
+            entries.put(fileName, new Entry(contentHash, violations));
+        }
+
+        return entries;
+    }
+
+    /**
+     * Read a number of elements.
+     *
+     * @param input
+     *            stream to read from.
+     * @return the number read.
+     * @throws IOException
+     *             when reading failed or the number is negative.
+     */
+    private static int readCount(final DataInputStream input) throws IOException {
+        final int count = input.readInt();
+
+        if (count < 0) {
+            throw new IOException("Corrupt cache file.");
+        }
+
+        return count;
+    }
+
+    /**
+     * Read a string written by {@link #writeString(DataOutputStream, String)}.
+     *
+     * @param input
+     *            stream to read from.
+     * @return the string read (may be <code>null</code>).
+     * @throws IOException
+     *             when reading failed or the file is corrupt.
+     */
+    private static String readString(final DataInputStream input) throws IOException {
+        final int length = input.readInt();
+
+        if (length == -1) {
+            return null;
+        }
+
+        if (length < -1 || length > MAX_STRING_LENGTH) {
+            throw new IOException("Corrupt cache file.");
+        }
+
+        final byte[] bytes = new byte[length];
+        input.readFully(bytes);
+
+        return new String(bytes, UTF8);
+    }
+
+    /**
+     * Write the given string as its length in bytes followed by its UTF-8 encoding (a length of -1 denotes <code>null</code>).
+     *
+     * @param output
+     *            stream to write to.
+     * @param value
+     *            string to write (may be <code>null</code>).
+     * @throws IOException
+     *             when writing failed.
+     */
+    private static void writeString(final DataOutputStream output, final String value) throws IOException {
+        if (value == null) {
+            output.writeInt(-1);
+        }
+        else {
+            final byte[] bytes = value.getBytes(UTF8);
+            output.writeInt(bytes.length);
+            output.write(bytes);
+        }
+    }
+
+    /**
+     * Returns the cache entry for the given file.
+     *
+     * @param fileName
+     *            absolute path of source file.
+     * @return the cache entry for the given file or <code>null</code> when there is none.
+     */
+    Entry get(final String fileName) {
+        return entries.get(fileName);
+    }
+
+    /**
+     * Returns the absolute paths of all cached source files.
+     *
+     * @return the absolute paths of all cached source files.
+     */
+    Collection<String> getFileNames() {
+        return entries.keySet();
+    }
+
+    /**
+     * Replace the content of this cache with the given entries.
+     *
+     * @param newEntries
+     *            cache entries mapped to absolute paths of source files.
+     */
+    void update(final Map<String, Entry> newEntries) {
+        entries.clear();
+        entries.putAll(newEntries);
+    }
+
+    /**
+     * Cached violations of a source file.
+     *
+     * @author Dirk Weigenand
+     */
+    static final class Entry {
+        /**
+         * hash of the content of the source file.
+         */
+        private final String contentHash;
+
+        /**
+         * violations reported for the source file.
+         */
+        private final List<Violation> violations;
+
+        /**
+         * Create a cache entry.
+         *
+         * @param contentHash
+         *            hash of the content of the source file.
+         * @param violations
+         *            violations reported for the source file.
+         */
+        Entry(final String contentHash, final List<Violation> violations) {
+            this.contentHash = contentHash;
+            this.violations = violations;
+        }
+
+        /**
+         * @return the contentHash
+         */
+        String getContentHash() {
+            return contentHash;
+        }
+
+        /**
+         * @return the violations
+         */
+        List<Violation> getViolations() {
+            return violations;
+        }
+    }
+}
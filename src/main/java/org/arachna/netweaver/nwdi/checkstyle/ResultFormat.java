@@ -0,0 +1,200 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Serializable;
+import java.nio.charset.Charset;
+
+/**
+ * Format of the result files written by the in process execution modes: either 'checkstyle-result.xml' or a compressed
+ * {@link ChunkedResultFile} (optionally capping the number of violations stored per file and per check).
+ *
+ * Result files of both formats may be present in a folder (e.g. after changing the execution mode), the most recent one is
+ * used. A chunked result file can be exported as 'checkstyle-result.xml' on demand.
+ *
+ * @author Dirk Weigenand
+ */
+final class ResultFormat implements Serializable {
+    /**
+     * writes 'checkstyle-result.xml' files.
+     */
+    static final ResultFormat XML = new ResultFormat(false, 0, 0);
+
+    /**
+     * version of serialized form.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Encoding of exported result files.
+     */
+    private static final String ENCODING = "UTF-8";
+
+    /**
+     * size of buffer used when copying result files.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * whether chunked result files shall be written.
+     */
+    private final boolean chunked;
+
+    /**
+     * maximum number of violations stored per file (0 for no limit, chunked result files only).
+     */
+    private final int maxViolationsPerFile;
+
+    /**
+     * maximum number of violations stored per check (0 for no limit, chunked result files only).
+     */
+    private final int maxViolationsPerCheck;
+
+    /**
+     * Create a result format.
+     *
+     * @param chunked
+     *            whether chunked result files shall be written.
+     * @param maxViolationsPerFile
+     *            maximum number of violations stored per file (0 for no limit, chunked result files only).
+     * @param maxViolationsPerCheck
+     *            maximum number of violations stored per check (0 for no limit, chunked result files only).
+     */
+    ResultFormat(final boolean chunked, final int maxViolationsPerFile, final int maxViolationsPerCheck) {
+        this.chunked = chunked;
+        this.maxViolationsPerFile = Math.max(0, maxViolationsPerFile);
+        this.maxViolationsPerCheck = Math.max(0, maxViolationsPerCheck);
+    }
+
+    /**
+     * @return whether chunked result files are written.
+     */
+    boolean isChunked() {
+        return chunked;
+    }
+
+    /**
+     * @return this format without caps (e.g. for the aggregated result of a build, the caps are applied per development
+     *         component).
+     */
+    ResultFormat withoutCaps() {
+        return new ResultFormat(chunked, 0, 0);
+    }
+
+    /**
+     * Returns the result file in the given folder.
+     *
+     * @param folder
+     *            folder containing the result file.
+     * @return the result file in the given folder.
+     */
+    File getResultFile(final File folder) {
+        return new File(folder, chunked ? ChunkedResultFile.FILE_NAME : ResultAggregator.AGGREGATED_RESULT_FILE_NAME);
+    }
+
+    /**
+     * Create a writer for the given result file. A result file of the other format in the same folder is removed.
+     *
+     * @param resultFile
+     *            the result file to write.
+     * @return a writer for the given result file.
+     * @throws IOException
+     *             when the file could not be created.
+     */
+    ResultWriter createWriter(final File resultFile) throws IOException {
+        deleteOtherFormat(resultFile);
+
+        if (chunked) {
+            return new ChunkedResultFile.Writer(resultFile, maxViolationsPerFile, maxViolationsPerCheck);
+        }
+
+        return new ResultXmlWriter(resultFile);
+    }
+
+    /**
+     * Remove the result file of the other format next to the given result file.
+     *
+     * @param resultFile
+     *            result file about to be written.
+     */
+    void deleteOtherFormat(final File resultFile) {
+        new File(resultFile.getParentFile(), chunked ? ResultAggregator.AGGREGATED_RESULT_FILE_NAME : ChunkedResultFile.FILE_NAME)
+            .delete();
+    }
+
+    /**
+     * Create a writer writing a result file to the given stream.
+     *
+     * @param output
+     *            stream receiving the result file.
+     * @return a writer writing to the given stream.
+     */
+    ResultWriter createWriter(final OutputStream output) {
+        if (chunked) {
+            return new ChunkedResultFile.Writer(output, maxViolationsPerFile, maxViolationsPerCheck);
+        }
+
+        return new ResultXmlWriter(new BufferedWriter(new OutputStreamWriter(output, Charset.forName(ENCODING))));
+    }
+
+    /**
+     * Determine the most recent result file in the given folder.
+     *
+     * @param folder
+     *            folder containing result files.
+     * @return the most recent result file in the given folder (the 'checkstyle-result.xml' when there is none).
+     */
+    static File findResultFile(final File folder) {
+        final File xmlFile = new File(folder, ResultAggregator.AGGREGATED_RESULT_FILE_NAME);
+        final File chunkedFile = new File(folder, ChunkedResultFile.FILE_NAME);
+
+        return chunkedFile.isFile() && chunkedFile.lastModified() >= xmlFile.lastModified() ? chunkedFile : xmlFile;
+    }
+
+    /**
+     * Write the given result file as 'checkstyle-result.xml' to the given stream. Chunked result files are converted one chunk at
+     * a time.
+     *
+     * @param resultFile
+     *            result file to export.
+     * @param output
+     *            stream receiving the XML.
+     * @throws IOException
+     *             when reading the result file or writing failed.
+     */
+    static void exportXml(final File resultFile, final OutputStream output) throws IOException {
+        if (ChunkedResultFile.FILE_NAME.equals(resultFile.getName())) {
+            final ResultXmlWriter writer =
+                new ResultXmlWriter(new BufferedWriter(new OutputStreamWriter(output, Charset.forName(ENCODING))));
+            writer.start();
+            ChunkedResultFile.open(resultFile).copyTo(writer);
+            writer.finish();
+            writer.flush();
+
+            return;
+        }
+
+        final InputStream input = new FileInputStream(resultFile);
+
+        try {
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            int count = input.read(buffer);
+
+            while (count > -1) {
+                output.write(buffer, 0, count);
+                count = input.read(buffer);
+            }
+        }
+        finally {
+            input.close();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writes the violations of a development component or build into a result file one audited file at a time.
+ *
+ * @author Dirk Weigenand
+ */
+interface ResultWriter extends ViolationHandler {
+    /**
+     * Write the start of the result file.
+     *
+     * @throws IOException
+     *             when writing failed.
+     */
+    void start() throws IOException;
+
+    /**
+     * Write the given violations of the given file.
+     *
+     * @param fileName
+     *            name of audited file.
+     * @param violations
+     *            violations reported for the file.
+     * @throws IOException
+     *             when writing failed.
+     */
+    void write(String fileName, List<Violation> violations) throws IOException;
+
+    /**
+     * Write the end of the result file.
+     *
+     * @throws IOException
+     *             when writing failed.
+     */
+    void finish() throws IOException;
+
+    /**
+     * Close the result file.
+     *
+     * @throws IOException
+     *             when closing failed.
+     */
+    void close() throws IOException;
+}
@@ -0,0 +1,148 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import java.io.IOException;
+
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.AuditListener;
+import com.puppycrawl.tools.checkstyle.api.SeverityLevel;
+
+/**
+ * {@link AuditListener} passing the violations reported by a {@link Checker} to a {@link ResultWriter} as soon as a file has been
+ * audited. Only the violations of the current file are kept in memory (in a {@link ViolationBuffer} reused for all files, messages
+ * are formatted by the writer). The writer is closed when the audit finishes.
+ *
+ * Since listener methods may not throw checked exceptions, the first failure writing the results is kept and rethrown by
+ * {@link #checkError()}.
+ *
+ * @author Dirk Weigenand
+ */
+final class ResultWriterListener implements AuditListener {
+    /**
+     * writer receiving the violations.
+     */
+    private final ResultWriter writer;
+
+    /**
+     * violations of the file currently audited.
+     */
+    private final ViolationBuffer violations = new ViolationBuffer();
+
+    /**
+     * name of the file currently audited.
+     */
+    private String fileName;
+
+    /**
+     * first failure writing the results.
+     */
+    private IOException error;
+
+    /**
+     * Create a listener passing violations to the given writer.
+     *
+     * @param writer
+     *            writer receiving the violations.
+     */
+    ResultWriterListener(final ResultWriter writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Rethrow the first failure writing the results.
+     *
+     * @throws IOException
+     *             when writing the results failed.
+     */
+    void checkError() throws IOException {
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void auditStarted(final AuditEvent event) {
+        try {
+            writer.start();
+        }
+        catch (final IOException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void auditFinished(final AuditEvent event) {
+        try {
+            writer.finish();
+        }
+        catch (final IOException e) {
+            fail(e);
+        }
+        finally {
+            try {
+                writer.close();
+            }
+            catch (final IOException e) {
+                fail(e);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void fileStarted(final AuditEvent event) {
+        violations.clear();
+        fileName = event.getFileName();
+        violations.addFile(fileName);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void fileFinished(final AuditEvent event) {
+        try {
+            writer.write(event.getFileName(), violations.getViolations(fileName));
+        }
+        catch (final IOException e) {
+            fail(e);
+        }
+
+        violations.clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void addError(final AuditEvent event) {
+        if (!SeverityLevel.IGNORE.equals(event.getSeverityLevel())) {
+            violations.add(event);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void addException(final AuditEvent event, final Throwable throwable) {
+        violations.addException(fileName, throwable, Checker.class.getName());
+    }
+
+    /**
+     * Keep the given failure unless a failure occurred already.
+     *
+     * @param e
+     *            failure writing the results.
+     */
+    private void fail(final IOException e) {
+        if (error == null) {
+            error = e;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.List;
+
+/**
+ * Writes violations in the XML format of checkstyle's <code>XMLLogger</code> (i.e. a 'checkstyle-result.xml').
+ *
+ * @author Dirk Weigenand
+ */
+final class ResultXmlWriter implements ResultWriter {
+    /**
+     * Encoding of result files.
+     */
+    private static final String ENCODING = "UTF-8";
+
+    /**
+     * checkstyle version to write into result files.
+     */
+    private static final String CHECKSTYLE_VERSION = "5.6";
+
+    /**
+     * writer receiving the XML.
+     */
+    private final Writer writer;
+
+    /**
+     * Create a writer for the given result file.
+     *
+     * @param resultFile
+     *            the file to write the results to.
+     * @throws IOException
+     *             when the file could not be created.
+     */
+    ResultXmlWriter(final File resultFile) throws IOException {
+        this(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(resultFile), Charset.forName(ENCODING))));
+    }
+
+    /**
+     * Create a writer writing the results to the given writer.
+     *
+     * @param writer
+     *            writer receiving the XML.
+     */
+    ResultXmlWriter(final Writer writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void start() throws IOException {
+        writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        writer.write(String.format("<checkstyle version=\"%s\">\n", CHECKSTYLE_VERSION));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void write(final String fileName, final List<Violation> violations) throws IOException {
+        writer.write(String.format("<file name=\"%s\">\n", encode(fileName)));
+
+        for (final Violation violation : violations) {
+            writer.write("<error line=\"");
+            writer.write(Integer.toString(violation.getLine()));
+            writer.write('"');
+
+            if (violation.getColumn() > 0) {
+                writer.write(" column=\"");
+                writer.write(Integer.toString(violation.getColumn()));
+                writer.write('"');
+            }
+
+            writer.write(String.format(" severity=\"%s\" message=\"%s\" source=\"%s\"/>\n", violation.getSeverity(),
+                encode(violation.getMessage()), encode(violation.getSource())));
+        }
+
+        writer.write("</file>\n");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void handle(final String component, final String packageName, final String fileName, final List<Violation> violations)
+        throws IOException {
+        write(fileName, violations);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void finish() throws IOException {
+        writer.write("</checkstyle>\n");
+    }
+
+    /**
+     * Flush the underlying writer without closing it.
+     *
+     * @throws IOException
+     *             when flushing the writer failed.
+     */
+    void flush() throws IOException {
+        writer.flush();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    /**
+     * Escape the given value for use in an XML attribute.
+     *
+     * @param value
+     *            value to escape.
+     * @return the escaped value.
+     */
+    static String encode(final String value) {
+        final StringBuilder encoded = new StringBuilder(value.length());
+
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+
+            switch (c) {
+                case '<':
+                    encoded.append("&lt;");
+                    break;
+                case '>':
+                    encoded.append("&gt;");
+                    break;
+                case '\'':
+                    encoded.append("&apos;");
+                    break;
+                case '"':
+                    encoded.append("&quot;");
+                    break;
+                case '&':
+                    encoded.append("&amp;");
+                    break;
+                default:
+                    encoded.append(c);
+            }
+        }
+
+        return encoded.toString();
+    }
+}
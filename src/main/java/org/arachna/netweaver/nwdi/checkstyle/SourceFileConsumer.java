@@ -0,0 +1,46 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import hudson.ExtensionList;
+import hudson.ExtensionPoint;
+import hudson.model.Hudson;
+
+import java.io.File;
+
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.FileContents;
+
+/**
+ * Extension point for analyzers that want to process the java sources of development components without reading and parsing them
+ * again. Each source file checked in process is read and decoded once and parsed once; the contents and the syntax tree are passed
+ * to the checks and then to every registered consumer.
+ *
+ * Consumers are called concurrently for different files and must therefore be thread safe. They must not modify the syntax tree
+ * and should not throw exceptions (an exception is reported as a checkstyle error for the file). Sources are only passed to
+ * consumers when they are actually checked, i.e. not when they are served from the result cache or skipped by the 'cacheFile'
+ * of the TreeWalker, not when checked by Ant and not when checked on other agents.
+ *
+ * @author Dirk Weigenand
+ */
+public abstract class SourceFileConsumer implements ExtensionPoint {
+    /**
+     * Process the given source file.
+     *
+     * @param file
+     *            the source file.
+     * @param contents
+     *            contents of the source file.
+     * @param root
+     *            root of the syntax tree of the source file.
+     */
+    public abstract void consume(File file, FileContents contents, DetailAST root);
+
+    /**
+     * @return all registered consumers.
+     */
+    public static ExtensionList<SourceFileConsumer> all() {
+        return Hudson.getInstance().getExtensionList(SourceFileConsumer.class);
+    }
+}
@@ -0,0 +1,354 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Provides the content of source files read once via NIO and kept in a cache bounded by the total size of the cached contents, so
+ * that computing content hashes, evaluating content based excludes and shipping sources to agents do not read a file repeatedly
+ * (which is expensive on network file systems). Large files are mapped into memory instead of being copied onto the heap (except
+ * on Windows, where mapped files can not be deleted until the mapping is garbage collected).
+ *
+ * Cached contents are invalidated when size or modification time of a file change. The number of cache hits and misses and the
+ * number of bytes read are counted. Instances of this class are meant to be used for one build and may be used concurrently.
+ *
+ * @author Dirk Weigenand
+ */
+final class SourceFileProvider {
+    /**
+     * default maximum total size of cached contents in bytes.
+     */
+    static final long DEFAULT_CAPACITY = 64L * 1024 * 1024;
+
+    /**
+     * minimum size of files to map into memory.
+     */
+    static final long MAP_THRESHOLD = 256 * 1024;
+
+    /**
+     * whether files may be mapped into memory on this platform (not on Windows, where mapped files can not be deleted until the
+     * mapping is garbage collected).
+     */
+    static final boolean MAPPING_SUPPORTED = File.separatorChar == '/';
+
+    /**
+     * maximum total size of cached contents in bytes.
+     */
+    private final long capacity;
+
+    /**
+     * cached contents mapped to the absolute paths of the files (in access order).
+     */
+    private final Map<String, Content> contents = new LinkedHashMap<String, Content>(16, 0.75f, true);
+
+    /**
+     * total size of cached contents in bytes.
+     */
+    private long size;
+
+    /**
+     * number of requests served from the cache.
+     */
+    private final AtomicLong hits = new AtomicLong();
+
+    /**
+     * number of requests that had to read the file.
+     */
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * number of bytes read.
+     */
+    private final AtomicLong bytesRead = new AtomicLong();
+
+    /**
+     * Create a provider caching at most {@link #DEFAULT_CAPACITY} bytes.
+     */
+    SourceFileProvider() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create a provider caching at most the given number of bytes.
+     *
+     * @param capacity
+     *            maximum total size of cached contents in bytes.
+     */
+    SourceFileProvider(final long capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Returns the content of the given file.
+     *
+     * @param file
+     *            the file to read.
+     * @return a read only buffer containing the content of the given file (positioned at its start).
+     * @throws IOException
+     *             when the file could not be read.
+     */
+    ByteBuffer getContent(final File file) throws IOException {
+        final String path = file.getAbsolutePath();
+        final long length = file.length();
+        final long lastModified = file.lastModified();
+
+        synchronized (this) {
+            final Content content = contents.get(path);
+
+            if (content != null && content.length == length && content.lastModified == lastModified) {
+                hits.incrementAndGet();
+
+                return content.buffer.duplicate();
+            }
+        }
+
+        misses.incrementAndGet();
+        final ByteBuffer buffer = read(file, length);
+        bytesRead.addAndGet(buffer.remaining());
+        cache(path, new Content(buffer, length, lastModified));
+
+        return buffer.duplicate();
+    }
+
+    /**
+     * Returns the content of the given file as byte array.
+     *
+     * @param file
+     *            the file to read.
+     * @return the content of the given file.
+     * @throws IOException
+     *             when the file could not be read.
+     */
+    byte[] getBytes(final File file) throws IOException {
+        final ByteBuffer content = getContent(file);
+        final byte[] bytes = new byte[content.remaining()];
+        content.get(bytes);
+
+        return bytes;
+    }
+
+    /**
+     * Open a stream on the content of the given file.
+     *
+     * @param file
+     *            the file to read.
+     * @return a stream on the content of the given file.
+     * @throws IOException
+     *             when the file could not be read.
+     */
+    InputStream open(final File file) throws IOException {
+        return new ByteBufferInputStream(getContent(file));
+    }
+
+    /**
+     * Calculate the hash of the content of the given file.
+     *
+     * @param file
+     *            the file to calculate the hash for.
+     * @return the hash of the content of the given file as hex string.
+     * @throws IOException
+     *             when the file could not be read.
+     */
+    String digest(final File file) throws IOException {
+        return DigestHelper.digest(getContent(file));
+    }
+
+    /**
+     * @return the number of requests served from the cache.
+     */
+    long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of requests that had to read the file.
+     */
+    long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return the number of bytes read.
+     */
+    long getBytesRead() {
+        return bytesRead.get();
+    }
+
+    /**
+     * Read the content of the given file. Files grown since their length was determined are read completely.
+     *
+     * @param file
+     *            the file to read.
+     * @param length
+     *            expected length of the file.
+     * @return a read only buffer containing the content of the given file.
+     * @throws IOException
+     *             when the file could not be read.
+     */
+    static ByteBuffer read(final File file, final long length) throws IOException {
+        final FileInputStream input = new FileInputStream(file);
+
+        try {
+            final FileChannel channel = input.getChannel();
+
+            if (MAPPING_SUPPORTED && length >= MAP_THRESHOLD) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).asReadOnlyBuffer();
+            }
+
+            // one byte more than expected to detect files grown since determining their length.
+            ByteBuffer buffer = ByteBuffer.allocate((int)Math.max(length, 0) + 1);
+
+            while (channel.read(buffer) > -1) {
+                if (!buffer.hasRemaining()) {
+                    final ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2 + 1);
+                    buffer.flip();
+                    larger.put(buffer);
+                    buffer = larger;
+                }
+            }
+
+            buffer.flip();
+
+            return buffer.asReadOnlyBuffer();
+        }
+        finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Put the given content into the cache evicting the least recently used contents when the capacity is exceeded. Contents
+     * larger than the capacity are not cached.
+     *
+     * @param path
+     *            absolute path of the file.
+     * @param content
+     *            content of the file.
+     */
+    private synchronized void cache(final String path, final Content content) {
+        final int contentSize = content.buffer.remaining();
+
+        if (contentSize > capacity) {
+            return;
+        }
+
+        final Content previous = contents.put(path, content);
+
+        if (previous != null) {
+            size -= previous.buffer.remaining();
+        }
+
+        size += contentSize;
+
+        for (final Iterator<Content> eldest = contents.values().iterator(); size > capacity && eldest.hasNext();) {
+            size -= eldest.next().buffer.remaining();
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Cached content of a file together with size and modification time of the file when it was read.
+     *
+     * @author Dirk Weigenand
+     */
+    private static final class Content {
+        /**
+         * the content.
+         */
+        private final ByteBuffer buffer;
+
+        /**
+         * size of the file when it was read.
+         */
+        private final long length;
+
+        /**
+         * modification time of the file when it was read.
+         */
+        private final long lastModified;
+
+        /**
+         * Create cached content.
+         *
+         * @param buffer
+         *            the content.
+         * @param length
+         *            size of the file when it was read.
+         * @param lastModified
+         *            modification time of the file when it was read.
+         */
+        Content(final ByteBuffer buffer, final long length, final long lastModified) {
+            this.buffer = buffer;
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+    }
+
+    /**
+     * {@link InputStream} reading from a {@link ByteBuffer}.
+     *
+     * @author Dirk Weigenand
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+        /**
+         * the buffer to read from.
+         */
+        private final ByteBuffer buffer;
+
+        /**
+         * Create a stream reading from the given buffer.
+         *
+         * @param buffer
+         *            the buffer to read from.
+         */
+        ByteBufferInputStream(final ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int read(final byte[] bytes, final int offset, final int length) {
+            if (length == 0) {
+                return 0;
+            }
+
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+
+            final int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+
+            return count;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+/**
+ * Phases of checking development components whose execution time is recorded.
+ *
+ * @author Dirk Weigenand
+ */
+public enum TimingPhase {
+    /**
+     * Generating Ant build files.
+     */
+    BUILD_FILE_GENERATION {
+        @Override
+        public String getDisplayName() {
+            return Messages.checkstyle_timings_phase_buildfilegeneration();
+        }
+    },
+
+    /**
+     * Executing generated build files with Ant (including starting the JVM).
+     */
+    ANT {
+        @Override
+        public String getDisplayName() {
+            return Messages.checkstyle_timings_phase_ant();
+        }
+    },
+
+    /**
+     * Scanning source folders (and hashing sources for incremental analysis).
+     */
+    SOURCE_SCAN {
+        @Override
+        public String getDisplayName() {
+            return Messages.checkstyle_timings_phase_sourcescan();
+        }
+    },
+
+    /**
+     * Evaluating the 'exclude by content' regular expressions.
+     */
+    CONTENT_EXCLUDES {
+        @Override
+        public String getDisplayName() {
+            return Messages.checkstyle_timings_phase_contentexcludes();
+        }
+    },
+
+    /**
+     * Parsing and checking sources in process and writing their results.
+     */
+    CHECK {
+        @Override
+        public String getDisplayName() {
+            return Messages.checkstyle_timings_phase_check();
+        }
+    },
+
+    /**
+     * Merging the results of development components into the build level report.
+     */
+    AGGREGATION {
+        @Override
+        public String getDisplayName() {
+            return Messages.checkstyle_timings_phase_aggregation();
+        }
+    };
+
+    /**
+     * @return the human readable name of this phase.
+     */
+    public abstract String getDisplayName();
+}
@@ -0,0 +1,122 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import hudson.model.AbstractBuild;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Records the execution time of the phases of checking development components during a build. The number of audited files,
+ * bytes and violations per development component are collected while aggregating the results (as {@link ViolationHandler}).
+ * Optionally the CPU time spent in each checkstyle check is profiled (in process execution only).
+ *
+ * Instances may be used concurrently by the checks of several development components.
+ *
+ * @author Dirk Weigenand
+ */
+final class TimingRecorder implements ViolationHandler {
+    /**
+     * timings mapped to the names of development components.
+     */
+    private final ConcurrentMap<String, ComponentTimings> components = new ConcurrentHashMap<String, ComponentTimings>();
+
+    /**
+     * timings of phases executed for all development components at once.
+     */
+    private final ComponentTimings build = new ComponentTimings("");
+
+    /**
+     * profile of the CPU time spent in each check (<code>null</code> when checks are not profiled).
+     */
+    private final CheckProfile checkProfile;
+
+    /**
+     * Create a recorder for the execution times of checking development components.
+     *
+     * @param profileChecks
+     *            whether the CPU time spent in each checkstyle check shall be profiled.
+     */
+    TimingRecorder(final boolean profileChecks) {
+        checkProfile = profileChecks ? new CheckProfile() : null;
+    }
+
+    /**
+     * @return the profile of the CPU time spent in each check (<code>null</code> when checks are not profiled).
+     */
+    CheckProfile getCheckProfile() {
+        return checkProfile;
+    }
+
+    /**
+     * Record the execution time of a phase for the given development component.
+     *
+     * @param component
+     *            name of development component.
+     * @param phase
+     *            the phase executed.
+     * @param duration
+     *            execution time in nanoseconds.
+     */
+    void record(final String component, final TimingPhase phase, final long duration) {
+        getOrCreate(component).add(phase, duration);
+    }
+
+    /**
+     * Record the execution time of a phase executed for all development components at once.
+     *
+     * @param phase
+     *            the phase executed.
+     * @param duration
+     *            execution time in nanoseconds.
+     */
+    void recordBuild(final TimingPhase phase, final long duration) {
+        build.add(phase, duration);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void handle(final String component, final String packageName, final String fileName, final List<Violation> violations) {
+        getOrCreate(component).addFile(new File(fileName).length(), violations.size());
+    }
+
+    /**
+     * Create the action presenting the recorded timings on the given build.
+     *
+     * @param owner
+     *            the build the timings were recorded for.
+     * @return action presenting the recorded timings.
+     */
+    CheckstyleTimingAction createAction(final AbstractBuild<?, ?> owner) {
+        return new CheckstyleTimingAction(owner, new ArrayList<ComponentTimings>(components.values()), build,
+            checkProfile == null ? new ArrayList<CheckTiming>() : checkProfile.getTimings());
+    }
+
+    /**
+     * Returns the timings of the given development component, creating them on first access.
+     *
+     * @param component
+     *            name of development component.
+     * @return the timings of the given development component.
+     */
+    private ComponentTimings getOrCreate(final String component) {
+        ComponentTimings timings = components.get(component);
+
+        if (timings == null) {
+            timings = new ComponentTimings(component);
+            final ComponentTimings existing = components.putIfAbsent(component, timings);
+
+            if (existing != null) {
+                timings = existing;
+            }
+        }
+
+        return timings;
+    }
+}
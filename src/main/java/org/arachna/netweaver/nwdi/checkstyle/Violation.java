@@ -0,0 +1,133 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessage;
+
+/**
+ * A violation of a checkstyle rule reported for a source file.
+ *
+ * The message of violations reported by checkstyle is formatted lazily, i.e. only when it is needed for rendering a report
+ * (violations dropped because they exceed a cap are never formatted).
+ *
+ * @author Dirk Weigenand
+ */
+final class Violation {
+    /**
+     * line the violation was reported for.
+     */
+    private final int line;
+
+    /**
+     * column the violation was reported for (or 0 when not applicable).
+     */
+    private final int column;
+
+    /**
+     * severity of violation.
+     */
+    private final String severity;
+
+    /**
+     * message describing the violation (<code>null</code> until the localized message has been formatted).
+     */
+    private String message;
+
+    /**
+     * localized message describing the violation (<code>null</code> after it has been formatted).
+     */
+    private LocalizedMessage localizedMessage;
+
+    /**
+     * name of the check reporting the violation.
+     */
+    private final String source;
+
+    /**
+     * Create a new violation.
+     *
+     * @param line
+     *            line the violation was reported for.
+     * @param column
+     *            column the violation was reported for (or 0 when not applicable).
+     * @param severity
+     *            severity of violation.
+     * @param message
+     *            message describing the violation.
+     * @param source
+     *            name of the check reporting the violation.
+     */
+    Violation(final int line, final int column, final String severity, final String message, final String source) {
+        this.line = line;
+        this.column = column;
+        this.severity = severity;
+        this.message = message;
+        this.source = source;
+    }
+
+    /**
+     * Create a new violation whose message is formatted when it is needed first.
+     *
+     * @param line
+     *            line the violation was reported for.
+     * @param column
+     *            column the violation was reported for (or 0 when not applicable).
+     * @param severity
+     *            severity of violation.
+     * @param localizedMessage
+     *            localized message describing the violation.
+     * @param source
+     *            name of the check reporting the violation.
+     */
+    Violation(final int line, final int column, final String severity, final LocalizedMessage localizedMessage,
+        final String source) {
+        this.line = line;
+        this.column = column;
+        this.severity = severity;
+        this.localizedMessage = localizedMessage;
+        this.source = source;
+    }
+
+    /**
+     * @return the line
+     */
+    int getLine() {
+        return line;
+    }
+
+    /**
+     * @return the column
+     */
+    int getColumn() {
+        return column;
+    }
+
+    /**
+     * @return the severity
+     */
+    String getSeverity() {
+        return severity;
+    }
+
+    /**
+     * @return the message
+     */
+    String getMessage() {
+        final LocalizedMessage pending = localizedMessage;
+
+        if (pending != null) {
+            message = pending.getMessage();
+            localizedMessage = null;
+        }
+
+        return message;
+    }
+
+    /**
+     * @return the source
+     */
+    String getSource() {
+        return source;
+    }
+}
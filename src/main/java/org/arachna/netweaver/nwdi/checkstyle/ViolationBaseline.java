@@ -0,0 +1,738 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Fingerprints of the violations found by reference builds of a project, kept per development component.
+ *
+ * A fingerprint is a 64 bit hash of the package and name of the file, the check and the message of a violation. Line and column
+ * are not part of the fingerprint, so violations are still recognized when code above them was added or removed. Violations with
+ * equal fingerprints are counted, i.e. adding a second identical violation to a file is reported as a new violation.
+ *
+ * Fingerprints are kept in one section per development component, so a development component is compared only with its own
+ * section and development components not checked by a build neither lose their section nor report its violations as fixed. The
+ * baseline is stored in the root folder of the project. The file contains the names of the development components and the sizes
+ * of their sections, the sorted fingerprints of each section followed by the violations (in the same order). Diffing a build only
+ * needs the fingerprints; the violations are read in a single sequential pass to report the fixed ones.
+ *
+ * @author Dirk Weigenand
+ */
+final class ViolationBaseline {
+    /**
+     * name of the file the baseline of a project is stored in.
+     */
+    static final String FILE_NAME = "checkstyle-baseline.bin";
+
+    /**
+     * name of the file requesting the next build of a project to record a new baseline.
+     */
+    static final String RESET_FILE_NAME = "checkstyle-baseline.reset";
+
+    /**
+     * identifies baseline files ('NWCB').
+     */
+    private static final int MAGIC = 0x4e574342;
+
+    /**
+     * version of the file format.
+     */
+    private static final int VERSION = 2;
+
+    /**
+     * size of the header (magic, version, build number, number of development components) in bytes.
+     */
+    private static final int HEADER_SIZE = 16;
+
+    /**
+     * number of bytes of a digest used for a fingerprint.
+     */
+    private static final int FINGERPRINT_SIZE = 8;
+
+    /**
+     * encoding of strings.
+     */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * the baseline file.
+     */
+    private final File file;
+
+    /**
+     * number of the build the baseline was recorded from.
+     */
+    private final int buildNumber;
+
+    /**
+     * sections of the baseline mapped to the names of their development components (sorted by name, i.e. in the order of the
+     * file).
+     */
+    private final Map<String, Section> sections;
+
+    /**
+     * offset of the violations in the baseline file.
+     */
+    private final long violationsOffset;
+
+    /**
+     * number of violations in the baseline.
+     */
+    private final int size;
+
+    /**
+     * Create a baseline using the given sections.
+     *
+     * @param file
+     *            the baseline file.
+     * @param buildNumber
+     *            number of the build the baseline was recorded from.
+     * @param sections
+     *            sections of the baseline mapped to the names of their development components.
+     * @param violationsOffset
+     *            offset of the violations in the baseline file.
+     * @param size
+     *            number of violations in the baseline.
+     */
+    private ViolationBaseline(final File file, final int buildNumber, final Map<String, Section> sections,
+        final long violationsOffset, final int size) {
+        this.file = file;
+        this.buildNumber = buildNumber;
+        this.sections = sections;
+        this.violationsOffset = violationsOffset;
+        this.size = size;
+    }
+
+    /**
+     * Read the fingerprints of the given baseline file.
+     *
+     * @param baselineFile
+     *            the baseline file to read.
+     * @return the baseline read from the given file or <code>null</code> when it was written in an older format (a new baseline
+     *         has to be recorded then).
+     * @throws IOException
+     *             when the file could not be read or is not a baseline.
+     */
+    static ViolationBaseline read(final File baselineFile) throws IOException {
+        final DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(baselineFile)));
+
+        try {
+            if (input.readInt() != MAGIC) {
+                throw new IOException(String.format("%s is not a violation baseline.", baselineFile));
+            }
+
+            if (input.readInt() != VERSION) {
+                return null;
+            }
+
+            final int buildNumber = input.readInt();
+            final int componentCount = input.readInt();
+
+            if (componentCount < 0) {
+                throw new IOException(String.format("%s is corrupt.", baselineFile));
+            }
+
+            final String[] components = new String[componentCount];
+            final int[] counts = new int[componentCount];
+            long violationsOffset = HEADER_SIZE;
+            int size = 0;
+
+            for (int i = 0; i < componentCount; i++) {
+                components[i] = readString(input);
+                counts[i] = input.readInt();
+
+                if (components[i] == null || counts[i] < 0) {
+                    throw new IOException(String.format("%s is corrupt.", baselineFile));
+                }
+
+                violationsOffset += 2 * 4 + components[i].getBytes(UTF8).length + (long)counts[i] * FINGERPRINT_SIZE;
+                size += counts[i];
+            }
+
+            final Map<String, Section> sections = new TreeMap<String, Section>();
+            int offset = 0;
+
+            for (int i = 0; i < componentCount; i++) {
+                final long[] fingerprints = new long[counts[i]];
+
+                for (int j = 0; j < fingerprints.length; j++) {
+                    fingerprints[j] = input.readLong();
+                }
+
+                sections.put(components[i], new Section(offset, fingerprints));
+                offset += fingerprints.length;
+            }
+
+            return new ViolationBaseline(baselineFile, buildNumber, sections, violationsOffset, size);
+        }
+        catch (final EOFException e) {
+            throw new IOException(String.format("%s is truncated.", baselineFile), e);
+        }
+        finally {
+            input.close();
+        }
+    }
+
+    /**
+     * @return the number of the build the baseline was recorded from.
+     */
+    int getBuildNumber() {
+        return buildNumber;
+    }
+
+    /**
+     * @return the number of violations in the baseline.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the names of the development components contained in the baseline.
+     */
+    Set<String> getComponents() {
+        return Collections.unmodifiableSet(sections.keySet());
+    }
+
+    /**
+     * Returns whether the baseline contains a section for the given development component.
+     *
+     * @param component
+     *            name of development component.
+     * @return whether the baseline contains a section for the given development component.
+     */
+    boolean contains(final String component) {
+        return sections.containsKey(component);
+    }
+
+    /**
+     * Select the indexes of the violations of the given development component.
+     *
+     * @param component
+     *            name of development component.
+     * @param indexes
+     *            indexes to add the indexes of the violations of the development component to.
+     */
+    void select(final String component, final BitSet indexes) {
+        final Section section = sections.get(component);
+
+        if (section != null) {
+            indexes.set(section.offset, section.offset + section.fingerprints.length);
+        }
+    }
+
+    /**
+     * Returns the index of the first violation of the given development component with the given fingerprint that is not marked
+     * as matched yet and marks it as matched.
+     *
+     * @param component
+     *            name of development component.
+     * @param fingerprint
+     *            fingerprint of a violation.
+     * @param matched
+     *            indexes of the violations of the baseline matched so far.
+     * @return the index of the matched violation of the baseline or <code>-1</code> when the section of the development component
+     *         contains no more violations with the given fingerprint.
+     */
+    int match(final String component, final long fingerprint, final BitSet matched) {
+        final Section section = sections.get(component);
+
+        if (section == null) {
+            return -1;
+        }
+
+        final long[] fingerprints = section.fingerprints;
+        int index = Arrays.binarySearch(fingerprints, fingerprint);
+
+        if (index < 0) {
+            return -1;
+        }
+
+        while (index > 0 && fingerprints[index - 1] == fingerprint) {
+            index--;
+        }
+
+        for (; index < fingerprints.length && fingerprints[index] == fingerprint; index++) {
+            if (!matched.get(section.offset + index)) {
+                matched.set(section.offset + index);
+
+                return section.offset + index;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Read the violations at the given indexes from the baseline file.
+     *
+     * @param indexes
+     *            indexes of the violations to read.
+     * @return the selected violations mapped to the names of the files they were reported for (sorted by file name).
+     * @throws IOException
+     *             when reading the baseline file failed.
+     */
+    Map<String, List<Violation>> readViolations(final BitSet indexes) throws IOException {
+        final Map<String, List<Violation>> violations = new TreeMap<String, List<Violation>>();
+        final int last = indexes.length();
+
+        if (last == 0) {
+            return violations;
+        }
+
+        final DataInputStream input = open();
+
+        try {
+            for (int i = 0; i < last; i++) {
+                final String fileName = readString(input);
+                final Violation violation = readViolation(input);
+
+                if (indexes.get(i)) {
+                    List<Violation> fileViolations = violations.get(fileName);
+
+                    if (fileViolations == null) {
+                        fileViolations = new ArrayList<Violation>();
+                        violations.put(fileName, fileViolations);
+                    }
+
+                    fileViolations.add(violation);
+                }
+            }
+        }
+        catch (final EOFException e) {
+            throw new IOException(String.format("%s is truncated.", file), e);
+        }
+        finally {
+            input.close();
+        }
+
+        for (final List<Violation> fileViolations : violations.values()) {
+            Collections.sort(fileViolations, new Comparator<Violation>() {
+                public int compare(final Violation first, final Violation second) {
+                    return first.getLine() == second.getLine() ? first.getColumn() - second.getColumn() : first.getLine()
+                        - second.getLine();
+                }
+            });
+        }
+
+        return violations;
+    }
+
+    /**
+     * Copy the sections of the given development components (including their fingerprints and violations) into the given
+     * recorder.
+     *
+     * @param recorder
+     *            recorder to copy the sections to.
+     * @param components
+     *            names of the development components whose sections shall be copied.
+     * @throws IOException
+     *             when reading the baseline file failed.
+     */
+    void copyTo(final Recorder recorder, final Collection<String> components) throws IOException {
+        final DataInputStream input = open();
+
+        try {
+            for (final Map.Entry<String, Section> section : sections.entrySet()) {
+                final boolean copy = components.contains(section.getKey());
+
+                if (copy) {
+                    recorder.addComponent(section.getKey());
+                }
+
+                for (final long fingerprint : section.getValue().fingerprints) {
+                    final String fileName = readString(input);
+                    final Violation violation = readViolation(input);
+
+                    if (copy) {
+                        recorder.add(section.getKey(), fingerprint, fileName, violation);
+                    }
+                }
+            }
+        }
+        catch (final EOFException e) {
+            throw new IOException(String.format("%s is truncated.", file), e);
+        }
+        finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Open the baseline file positioned at the first violation.
+     *
+     * @return stream positioned at the first violation.
+     * @throws IOException
+     *             when opening the baseline file failed.
+     */
+    private DataInputStream open() throws IOException {
+        final DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+
+        try {
+            skip(input, violationsOffset);
+        }
+        catch (final IOException e) {
+            input.close();
+            throw new IOException(String.format("%s is truncated.", file), e);
+        }
+
+        return input;
+    }
+
+    /**
+     * Read a violation written by {@link Recorder#write(File, int)}.
+     *
+     * @param input
+     *            stream to read from.
+     * @return the violation read.
+     * @throws IOException
+     *             when reading failed.
+     */
+    private static Violation readViolation(final DataInputStream input) throws IOException {
+        return new Violation(input.readInt(), input.readInt(), readString(input), readString(input), readString(input));
+    }
+
+    /**
+     * Compute the fingerprint of the given violation.
+     *
+     * @param digest
+     *            message digest to use (MD5).
+     * @param packageName
+     *            name of the java package of the file.
+     * @param fileName
+     *            path of the file the violation was reported for.
+     * @param violation
+     *            the violation.
+     * @return the fingerprint of the given violation.
+     */
+    static long fingerprint(final MessageDigest digest, final String packageName, final String fileName,
+        final Violation violation) {
+        digest.reset();
+        update(digest, packageName);
+        update(digest, fileName.substring(Math.max(fileName.lastIndexOf('/'), fileName.lastIndexOf('\\')) + 1));
+        update(digest, violation.getSource());
+        update(digest, violation.getMessage());
+
+        final byte[] hash = digest.digest();
+        long fingerprint = 0;
+
+        for (int i = 0; i < FINGERPRINT_SIZE; i++) {
+            fingerprint = fingerprint << Byte.SIZE | hash[i] & 0xff;
+        }
+
+        return fingerprint;
+    }
+
+    /**
+     * Add the given value followed by a separator to the given digest.
+     *
+     * @param digest
+     *            message digest to update.
+     * @param value
+     *            value to add (may be <code>null</code>).
+     */
+    private static void update(final MessageDigest digest, final String value) {
+        if (value != null) {
+            digest.update(value.getBytes(UTF8));
+        }
+
+        digest.update((byte)0);
+    }
+
+    /**
+     * Skip the given number of bytes of the given stream.
+     *
+     * @param input
+     *            stream to skip bytes of.
+     * @param count
+     *            number of bytes to skip.
+     * @throws IOException
+     *             when the stream ended prematurely.
+     */
+    private static void skip(final DataInputStream input, final long count) throws IOException {
+        long remaining = count;
+
+        while (remaining > 0) {
+            final long skipped = input.skip(remaining);
+
+            if (skipped <= 0) {
+                throw new EOFException();
+            }
+
+            remaining -= skipped;
+        }
+    }
+
+    /**
+     * Read a string written by {@link #writeString(DataOutputStream, String)}.
+     *
+     * @param input
+     *            stream to read from.
+     * @return the string read (may be <code>null</code>).
+     * @throws IOException
+     *             when reading failed.
+     */
+    private static String readString(final DataInputStream input) throws IOException {
+        final int length = input.readInt();
+
+        if (length < 0) {
+            return null;
+        }
+
+        final byte[] bytes = new byte[length];
+        input.readFully(bytes);
+
+        return new String(bytes, UTF8);
+    }
+
+    /**
+     * Write the given string as UTF-8 encoded bytes preceded by their number.
+     *
+     * @param output
+     *            stream to write to.
+     * @param value
+     *            string to write (may be <code>null</code>).
+     * @throws IOException
+     *             when writing failed.
+     */
+    private static void writeString(final DataOutputStream output, final String value) throws IOException {
+        if (value == null) {
+            output.writeInt(-1);
+        }
+        else {
+            final byte[] bytes = value.getBytes(UTF8);
+            output.writeInt(bytes.length);
+            output.write(bytes);
+        }
+    }
+
+    /**
+     * A section of the baseline: the violations of one development component.
+     *
+     * @author Dirk Weigenand
+     */
+    private static final class Section {
+        /**
+         * index of the first violation of the section in the baseline.
+         */
+        private final int offset;
+
+        /**
+         * the sorted fingerprints of the violations of the section.
+         */
+        private final long[] fingerprints;
+
+        /**
+         * Create a section.
+         *
+         * @param offset
+         *            index of the first violation of the section in the baseline.
+         * @param fingerprints
+         *            the sorted fingerprints of the violations of the section.
+         */
+        Section(final int offset, final long[] fingerprints) {
+            this.offset = offset;
+            this.fingerprints = fingerprints;
+        }
+    }
+
+    /**
+     * Records the violations of the development components checked by a build (and the sections of a previous baseline carried
+     * over) as new baseline. Violations are recorded only for development components registered via {@link #addComponent(String)}.
+     *
+     * @author Dirk Weigenand
+     */
+    static final class Recorder implements ViolationHandler {
+        /**
+         * digest used to compute fingerprints.
+         */
+        private final MessageDigest digest = DigestHelper.createDigest(DigestHelper.MD5);
+
+        /**
+         * names of the recorded development components.
+         */
+        private final Set<String> components = new TreeSet<String>();
+
+        /**
+         * fingerprints of the recorded violations.
+         */
+        private long[] fingerprints = new long[1024];
+
+        /**
+         * development components of the recorded violations.
+         */
+        private final List<String> violationComponents = new ArrayList<String>();
+
+        /**
+         * names of the files of the recorded violations.
+         */
+        private final List<String> fileNames = new ArrayList<String>();
+
+        /**
+         * the recorded violations.
+         */
+        private final List<Violation> violations = new ArrayList<Violation>();
+
+        /**
+         * Register the given development component, i.e. record its violations (a development component without violations is
+         * recorded with an empty section).
+         *
+         * @param component
+         *            name of development component.
+         */
+        void addComponent(final String component) {
+            components.add(component);
+        }
+
+        /**
+         * @return the names of the recorded development components.
+         */
+        Set<String> getComponents() {
+            return Collections.unmodifiableSet(components);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void handle(final String component, final String packageName, final String fileName,
+            final List<Violation> fileViolations) {
+            if (components.contains(component)) {
+                for (final Violation violation : fileViolations) {
+                    add(component, fingerprint(digest, packageName, fileName, violation), fileName, violation);
+                }
+            }
+        }
+
+        /**
+         * Record the given violation.
+         *
+         * @param component
+         *            name of development component the violation was reported for.
+         * @param fingerprint
+         *            fingerprint of the violation.
+         * @param fileName
+         *            path of the file the violation was reported for.
+         * @param violation
+         *            the violation.
+         */
+        void add(final String component, final long fingerprint, final String fileName, final Violation violation) {
+            final int index = violations.size();
+
+            if (index == fingerprints.length) {
+                fingerprints = Arrays.copyOf(fingerprints, index * 2);
+            }
+
+            fingerprints[index] = fingerprint;
+            violationComponents.add(component);
+            fileNames.add(fileName);
+            violations.add(violation);
+        }
+
+        /**
+         * @return the number of recorded violations.
+         */
+        int size() {
+            return violations.size();
+        }
+
+        /**
+         * Write the recorded violations as baseline into the given file.
+         *
+         * @param baselineFile
+         *            file to write the baseline to.
+         * @param buildNumber
+         *            number of the build the violations were recorded from.
+         * @throws IOException
+         *             when writing the file failed.
+         */
+        void write(final File baselineFile, final int buildNumber) throws IOException {
+            final Integer[] order = new Integer[violations.size()];
+            final Map<String, Integer> counts = new TreeMap<String, Integer>();
+
+            for (final String component : components) {
+                counts.put(component, Integer.valueOf(0));
+            }
+
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+                counts.put(violationComponents.get(i), Integer.valueOf(counts.get(violationComponents.get(i)).intValue() + 1));
+            }
+
+            Arrays.sort(order, new Comparator<Integer>() {
+                public int compare(final Integer first, final Integer second) {
+                    final int components = violationComponents.get(first).compareTo(violationComponents.get(second));
+
+                    if (components != 0) {
+                        return components;
+                    }
+
+                    if (fingerprints[first] == fingerprints[second]) {
+                        return first - second;
+                    }
+
+                    return fingerprints[first] < fingerprints[second] ? -1 : 1;
+                }
+            });
+
+            final File temporaryFile = new File(baselineFile.getParentFile(), baselineFile.getName() + ".tmp");
+            final DataOutputStream output =
+                new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)));
+
+            try {
+                output.writeInt(MAGIC);
+                output.writeInt(VERSION);
+                output.writeInt(buildNumber);
+                output.writeInt(counts.size());
+
+                for (final Map.Entry<String, Integer> count : counts.entrySet()) {
+                    writeString(output, count.getKey());
+                    output.writeInt(count.getValue().intValue());
+                }
+
+                for (final Integer index : order) {
+                    output.writeLong(fingerprints[index]);
+                }
+
+                for (final Integer index : order) {
+                    final Violation violation = violations.get(index);
+                    writeString(output, fileNames.get(index));
+                    output.writeInt(violation.getLine());
+                    output.writeInt(violation.getColumn());
+                    writeString(output, violation.getSeverity());
+                    writeString(output, violation.getMessage());
+                    writeString(output, violation.getSource());
+                }
+            }
+            finally {
+                output.close();
+            }
+
+            if (!temporaryFile.renameTo(baselineFile) && !(baselineFile.delete() && temporaryFile.renameTo(baselineFile))) {
+                throw new IOException(String.format("Could not write %s.", baselineFile));
+            }
+        }
+    }
+}
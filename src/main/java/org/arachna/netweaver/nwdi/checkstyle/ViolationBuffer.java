@@ -0,0 +1,345 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessage;
+import com.puppycrawl.tools.checkstyle.api.SeverityLevel;
+
+/**
+ * Buffer for the violations reported by checkstyle while auditing files. Violations are stored in primitive arrays instead of one
+ * object per violation: file names and check names are dictionary encoded, severities are stored as ordinals and messages are
+ * kept as reported by checkstyle, so they are formatted only when the violations are rendered. {@link Violation} objects are
+ * created only when the violations of a file are requested.
+ *
+ * The arrays grow as needed and are kept when the buffer is cleared, so a buffer reused for several files or components does not
+ * allocate anything per violation once it has grown large enough. Instances of this class are not thread safe.
+ *
+ * @author Dirk Weigenand
+ */
+final class ViolationBuffer {
+    /**
+     * initial number of violations that can be stored without growing the arrays.
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * severity levels indexed by their ordinal.
+     */
+    private static final SeverityLevel[] SEVERITIES = SeverityLevel.values();
+
+    /**
+     * names of audited files.
+     */
+    private final Dictionary files = new Dictionary();
+
+    /**
+     * names of checks reporting violations.
+     */
+    private final Dictionary sources = new Dictionary();
+
+    /**
+     * index of first violation per audited file (-1 when no violation was reported for a file).
+     */
+    private int[] firstViolations = new int[INITIAL_CAPACITY];
+
+    /**
+     * index of last violation per audited file (-1 when no violation was reported for a file).
+     */
+    private int[] lastViolations = new int[INITIAL_CAPACITY];
+
+    /**
+     * index of next violation reported for the same file (-1 for the last violation of a file).
+     */
+    private int[] nextViolations = new int[INITIAL_CAPACITY];
+
+    /**
+     * lines violations were reported for.
+     */
+    private int[] lines = new int[INITIAL_CAPACITY];
+
+    /**
+     * columns violations were reported for.
+     */
+    private int[] columns = new int[INITIAL_CAPACITY];
+
+    /**
+     * ordinals of the severities of violations.
+     */
+    private byte[] severities = new byte[INITIAL_CAPACITY];
+
+    /**
+     * dictionary indexes of the checks reporting violations.
+     */
+    private int[] checks = new int[INITIAL_CAPACITY];
+
+    /**
+     * messages of violations ({@link LocalizedMessage} as reported by checkstyle or formatted {@link String}).
+     */
+    private Object[] messages = new Object[INITIAL_CAPACITY];
+
+    /**
+     * number of violations stored.
+     */
+    private int size;
+
+    /**
+     * Register the given file as audited.
+     *
+     * @param fileName
+     *            name of audited file.
+     * @return index of the file.
+     */
+    int addFile(final String fileName) {
+        final int count = files.size();
+        final int file = files.intern(fileName);
+
+        if (file == count) {
+            if (file == firstViolations.length) {
+                firstViolations = Arrays.copyOf(firstViolations, file * 2);
+                lastViolations = Arrays.copyOf(lastViolations, file * 2);
+            }
+
+            firstViolations[file] = -1;
+            lastViolations[file] = -1;
+        }
+
+        return file;
+    }
+
+    /**
+     * Add the violation described by the given event.
+     *
+     * @param event
+     *            event describing the violation.
+     */
+    void add(final AuditEvent event) {
+        add(addFile(event.getFileName()), event.getLine(), event.getColumn(), event.getSeverityLevel(), event
+            .getLocalizedMessage(), event.getSourceName());
+    }
+
+    /**
+     * Add a violation reporting the given exception.
+     *
+     * @param fileName
+     *            name of audited file.
+     * @param throwable
+     *            exception thrown while auditing the file.
+     * @param source
+     *            name of the module reporting the exception.
+     */
+    void addException(final String fileName, final Throwable throwable, final String source) {
+        add(addFile(fileName), 0, 0, SeverityLevel.ERROR, String.valueOf(throwable), source);
+    }
+
+    /**
+     * Add the files and violations of the given buffer.
+     *
+     * @param buffer
+     *            buffer whose files and violations shall be added.
+     */
+    void addAll(final ViolationBuffer buffer) {
+        for (int file = 0; file < buffer.files.size(); file++) {
+            final int target = addFile(buffer.files.get(file));
+
+            for (int i = buffer.firstViolations[file]; i != -1; i = buffer.nextViolations[i]) {
+                add(target, buffer.lines[i], buffer.columns[i], SEVERITIES[buffer.severities[i]], buffer.messages[i],
+                    buffer.sources.get(buffer.checks[i]));
+            }
+        }
+    }
+
+    /**
+     * Returns whether the given file has been audited.
+     *
+     * @param fileName
+     *            name of file.
+     * @return whether the given file has been audited.
+     */
+    boolean contains(final String fileName) {
+        return files.indexOf(fileName) != -1;
+    }
+
+    /**
+     * Returns the violations reported for the given file.
+     *
+     * @param fileName
+     *            name of audited file.
+     * @return the violations reported for the given file or <code>null</code> when the file was not audited.
+     */
+    List<Violation> getViolations(final String fileName) {
+        final int file = files.indexOf(fileName);
+
+        if (file == -1) {
+            return null;
+        }
+
+        final List<Violation> violations = new ArrayList<Violation>();
+
+        for (int i = firstViolations[file]; i != -1; i = nextViolations[i]) {
+            final String severity = SEVERITIES[severities[i]].getName();
+            final String source = sources.get(checks[i]);
+
+            if (messages[i] instanceof LocalizedMessage) {
+                violations.add(new Violation(lines[i], columns[i], severity, (LocalizedMessage)messages[i], source));
+            }
+            else {
+                violations.add(new Violation(lines[i], columns[i], severity, (String)messages[i], source));
+            }
+        }
+
+        return violations;
+    }
+
+    /**
+     * @return the number of violations stored.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Remove all files and violations keeping the allocated arrays and the names of checks for reuse.
+     */
+    void clear() {
+        Arrays.fill(messages, 0, size, null);
+        files.clear();
+        size = 0;
+    }
+
+    /**
+     * Store a violation.
+     *
+     * @param file
+     *            index of audited file.
+     * @param line
+     *            line the violation was reported for.
+     * @param column
+     *            column the violation was reported for.
+     * @param severity
+     *            severity of violation.
+     * @param message
+     *            message of violation ({@link LocalizedMessage} or {@link String}).
+     * @param source
+     *            name of the check reporting the violation.
+     */
+    private void add(final int file, final int line, final int column, final SeverityLevel severity, final Object message,
+        final String source) {
+        if (size == lines.length) {
+            grow();
+        }
+
+        lines[size] = line;
+        columns[size] = column;
+        severities[size] = (byte)severity.ordinal();
+        checks[size] = sources.intern(source);
+        messages[size] = message;
+        nextViolations[size] = -1;
+
+        if (firstViolations[file] == -1) {
+            firstViolations[file] = size;
+        }
+        else {
+            nextViolations[lastViolations[file]] = size;
+        }
+
+        lastViolations[file] = size;
+        size++;
+    }
+
+    /**
+     * Double the capacity of the arrays storing violations.
+     */
+    private void grow() {
+        final int capacity = lines.length * 2;
+        nextViolations = Arrays.copyOf(nextViolations, capacity);
+        lines = Arrays.copyOf(lines, capacity);
+        columns = Arrays.copyOf(columns, capacity);
+        severities = Arrays.copyOf(severities, capacity);
+        checks = Arrays.copyOf(checks, capacity);
+        messages = Arrays.copyOf(messages, capacity);
+    }
+
+    /**
+     * Dictionary assigning consecutive indexes to strings.
+     *
+     * @author Dirk Weigenand
+     */
+    private static final class Dictionary {
+        /**
+         * indexes mapped to strings.
+         */
+        private final Map<String, Integer> indexes = new HashMap<String, Integer>();
+
+        /**
+         * strings in order of their indexes.
+         */
+        private final List<String> values = new ArrayList<String>();
+
+        /**
+         * Returns the index of the given string adding it when necessary.
+         *
+         * @param value
+         *            string to look up.
+         * @return the index of the given string.
+         */
+        int intern(final String value) {
+            final Integer index = indexes.get(value);
+
+            if (index != null) {
+                return index;
+            }
+
+            indexes.put(value, values.size());
+            values.add(value);
+
+            return values.size() - 1;
+        }
+
+        /**
+         * Returns the index of the given string.
+         *
+         * @param value
+         *            string to look up.
+         * @return the index of the given string or -1 when it has not been added.
+         */
+        int indexOf(final String value) {
+            final Integer index = indexes.get(value);
+
+            return index == null ? -1 : index;
+        }
+
+        /**
+         * Returns the string with the given index.
+         *
+         * @param index
+         *            index of string.
+         * @return the string with the given index.
+         */
+        String get(final int index) {
+            return values.get(index);
+        }
+
+        /**
+         * @return the number of strings added.
+         */
+        int size() {
+            return values.size();
+        }
+
+        /**
+         * Remove all strings.
+         */
+        void clear() {
+            indexes.clear();
+            values.clear();
+        }
+    }
+}
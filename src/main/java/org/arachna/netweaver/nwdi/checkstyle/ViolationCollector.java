@@ -0,0 +1,87 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import java.util.List;
+
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.AuditListener;
+import com.puppycrawl.tools.checkstyle.api.SeverityLevel;
+
+/**
+ * {@link AuditListener} collecting the violations reported by a {@link Checker} per audited file. The violations are kept in a
+ * {@link ViolationBuffer}, their messages are formatted when the violations are written.
+ *
+ * @author Dirk Weigenand
+ */
+final class ViolationCollector implements AuditListener {
+    /**
+     * violations per audited file.
+     */
+    private final ViolationBuffer violations = new ViolationBuffer();
+
+    /**
+     * Returns the violations reported for the given file.
+     *
+     * @param fileName
+     *            absolute path of audited file.
+     * @return the violations reported for the given file or <code>null</code> when the file was not audited.
+     */
+    List<Violation> getViolations(final String fileName) {
+        return violations.getViolations(fileName);
+    }
+
+    /**
+     * Add the violations collected by the given collector (for files not audited by this collector).
+     *
+     * @param collector
+     *            collector whose violations shall be added.
+     */
+    void addAll(final ViolationCollector collector) {
+        violations.addAll(collector.violations);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void auditStarted(final AuditEvent event) {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void auditFinished(final AuditEvent event) {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void fileStarted(final AuditEvent event) {
+        // checks across all files (e.g. StrictDuplicateCode) start a file again after all files have been processed
+        violations.addFile(event.getFileName());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void fileFinished(final AuditEvent event) {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void addError(final AuditEvent event) {
+        if (!SeverityLevel.IGNORE.equals(event.getSeverityLevel())) {
+            violations.add(event);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void addException(final AuditEvent event, final Throwable throwable) {
+        violations.addException(event.getFileName(), throwable, Checker.class.getName());
+    }
+}
@@ -0,0 +1,30 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Receives the violations of the files audited during a build one file at a time.
+ *
+ * @author Dirk Weigenand
+ */
+interface ViolationHandler {
+    /**
+     * Handle the violations reported for the given file.
+     *
+     * @param component
+     *            name of development component the file belongs to.
+     * @param packageName
+     *            name of the java package of the file.
+     * @param fileName
+     *            absolute path of audited file.
+     * @param violations
+     *            violations reported for the file (may be empty).
+     * @throws IOException
+     *             when handling the violations failed.
+     */
+    void handle(String component, String packageName, String fileName, List<Violation> violations) throws IOException;
+}
@@ -0,0 +1,164 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Counts violations per development component, package, severity and check.
+ *
+ * @author Dirk Weigenand
+ */
+final class ViolationIndex implements ViolationHandler {
+    /**
+     * Encoding of index files.
+     */
+    private static final String ENCODING = "UTF-8";
+
+    /**
+     * number of violations per development component.
+     */
+    private final Map<String, Integer> components = new TreeMap<String, Integer>();
+
+    /**
+     * number of violations per package.
+     */
+    private final Map<String, Integer> packages = new TreeMap<String, Integer>();
+
+    /**
+     * number of violations per severity.
+     */
+    private final Map<String, Integer> severities = new TreeMap<String, Integer>();
+
+    /**
+     * number of violations per check.
+     */
+    private final Map<String, Integer> checks = new TreeMap<String, Integer>();
+
+    /**
+     * total number of violations.
+     */
+    private int violationCount;
+
+    /**
+     * {@inheritDoc}
+     */
+    public void handle(final String component, final String packageName, final String fileName, final List<Violation> violations) {
+        for (final Violation violation : violations) {
+            violationCount++;
+            increment(components, component);
+            increment(packages, packageName);
+            increment(severities, violation.getSeverity());
+            increment(checks, violation.getSource());
+        }
+    }
+
+    /**
+     * @return the total number of violations.
+     */
+    int getViolationCount() {
+        return violationCount;
+    }
+
+    /**
+     * @return the number of violations per development component.
+     */
+    Map<String, Integer> getComponents() {
+        return components;
+    }
+
+    /**
+     * @return the number of violations per package.
+     */
+    Map<String, Integer> getPackages() {
+        return packages;
+    }
+
+    /**
+     * @return the number of violations per severity.
+     */
+    Map<String, Integer> getSeverities() {
+        return severities;
+    }
+
+    /**
+     * @return the number of violations per check.
+     */
+    Map<String, Integer> getChecks() {
+        return checks;
+    }
+
+    /**
+     * Write this index as XML into the given file.
+     *
+     * @param indexFile
+     *            file to write the index to.
+     * @throws IOException
+     *             when writing the index failed.
+     */
+    void write(final File indexFile) throws IOException {
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(indexFile), Charset.forName(ENCODING)));
+
+        try {
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            writer.write(String.format("<index violations=\"%d\">\n", violationCount));
+            write(writer, "components", "component", components);
+            write(writer, "packages", "package", packages);
+            write(writer, "severities", "severity", severities);
+            write(writer, "checks", "check", checks);
+            writer.write("</index>\n");
+        }
+        finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Write the given counts as XML.
+     *
+     * @param writer
+     *            writer receiving the XML.
+     * @param groupName
+     *            name of element enclosing the counts.
+     * @param elementName
+     *            name of element representing a count.
+     * @param counts
+     *            counts to write.
+     * @throws IOException
+     *             when writing failed.
+     */
+    private void write(final Writer writer, final String groupName, final String elementName, final Map<String, Integer> counts)
+        throws IOException {
+        writer.write(String.format("  <%s>\n", groupName));
+
+        for (final Map.Entry<String, Integer> count : counts.entrySet()) {
+            writer.write(String.format("    <%s name=\"%s\" count=\"%d\"/>\n", elementName, ResultXmlWriter.encode(count.getKey()),
+                count.getValue()));
+        }
+
+        writer.write(String.format("  </%s>\n", groupName));
+    }
+
+    /**
+     * Increment the count of the given key.
+     *
+     * @param counts
+     *            counts to update.
+     * @param key
+     *            key whose count shall be incremented.
+     */
+    private static void increment(final Map<String, Integer> counts, final String key) {
+        final Integer count = counts.get(key);
+        counts.put(key, Integer.valueOf(count == null ? 1 : count.intValue() + 1));
+    }
+}
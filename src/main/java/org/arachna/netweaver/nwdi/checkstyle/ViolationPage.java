@@ -0,0 +1,343 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import hudson.model.AbstractBuild;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A page of the violations of a build filtered by development component, file and check, presented via
+ * '&lt;build&gt;/checkstyleResult/browse'. Pages are read from the {@link ViolationStore} of the build on each request and are not
+ * kept in memory.
+ *
+ * @author Dirk Weigenand
+ */
+public final class ViolationPage {
+    /**
+     * the build the violations belong to.
+     */
+    private final AbstractBuild<?, ?> owner;
+
+    /**
+     * development component violations are shown of (<code>null</code> for all development components).
+     */
+    private final String component;
+
+    /**
+     * file violations are shown of (<code>null</code> for all files).
+     */
+    private final String file;
+
+    /**
+     * check violations are shown of (<code>null</code> for all checks).
+     */
+    private final String check;
+
+    /**
+     * number of this page (starting with 1).
+     */
+    private final int page;
+
+    /**
+     * number of violations matching the filters.
+     */
+    private final int matches;
+
+    /**
+     * the violations on this page.
+     */
+    private final List<Row> rows;
+
+    /**
+     * number of violations per file of the development component (empty unless filtered by development component only).
+     */
+    private final Map<String, Integer> files;
+
+    /**
+     * Create a page of violations.
+     *
+     * @param owner
+     *            the build the violations belong to.
+     * @param component
+     *            development component violations are shown of (<code>null</code> for all development components).
+     * @param file
+     *            file violations are shown of (<code>null</code> for all files).
+     * @param check
+     *            check violations are shown of (<code>null</code> for all checks).
+     * @param page
+     *            number of this page (starting with 1).
+     * @param matches
+     *            number of violations matching the filters.
+     * @param rows
+     *            the violations on this page.
+     * @param files
+     *            number of violations per file of the development component.
+     */
+    ViolationPage(final AbstractBuild<?, ?> owner, final String component, final String file, final String check, final int page,
+        final int matches, final List<Row> rows, final Map<String, Integer> files) {
+        this.owner = owner;
+        this.component = component;
+        this.file = file;
+        this.check = check;
+        this.page = page;
+        this.matches = matches;
+        this.rows = rows;
+        this.files = files;
+    }
+
+    /**
+     * @return the display name of this page.
+     */
+    public String getDisplayName() {
+        return Messages.checkstyle_result_displayname();
+    }
+
+    /**
+     * @return the build the violations belong to.
+     */
+    public AbstractBuild<?, ?> getOwner() {
+        return owner;
+    }
+
+    /**
+     * @return the development component violations are shown of (<code>null</code> for all development components).
+     */
+    public String getComponent() {
+        return component;
+    }
+
+    /**
+     * @return the file violations are shown of (<code>null</code> for all files).
+     */
+    public String getFile() {
+        return file;
+    }
+
+    /**
+     * @return the check violations are shown of (<code>null</code> for all checks).
+     */
+    public String getCheck() {
+        return check;
+    }
+
+    /**
+     * @return the number of this page (starting with 1).
+     */
+    public int getPage() {
+        return page;
+    }
+
+    /**
+     * @return the number of pages.
+     */
+    public int getPageCount() {
+        return Math.max(1, (matches + ViolationStoreReader.PAGE_SIZE - 1) / ViolationStoreReader.PAGE_SIZE);
+    }
+
+    /**
+     * @return the number of violations matching the filters.
+     */
+    public int getMatches() {
+        return matches;
+    }
+
+    /**
+     * @return the violations on this page.
+     */
+    public List<Row> getRows() {
+        return rows;
+    }
+
+    /**
+     * @return the number of violations per file of the development component (empty unless filtered by development component
+     *         only).
+     */
+    public Map<String, Integer> getFiles() {
+        return files;
+    }
+
+    /**
+     * Returns a link to the given page with the filters of this page.
+     *
+     * @param number
+     *            number of page.
+     * @return a link to the given page.
+     */
+    public String getPageLink(final int number) {
+        return createLink(component, file, check, number);
+    }
+
+    /**
+     * Returns a link to the violations of the given file.
+     *
+     * @param fileName
+     *            path of file.
+     * @return a link to the violations of the given file.
+     */
+    public String getFileLink(final String fileName) {
+        return createLink(component, fileName, check, 1);
+    }
+
+    /**
+     * Returns a link to the violations of the given check narrowing the filters of this page.
+     *
+     * @param checkName
+     *            name of check.
+     * @return a link to the violations of the given check.
+     */
+    public String getCheckLink(final String checkName) {
+        return createLink(component, file, checkName, 1);
+    }
+
+    /**
+     * Create a link to a page of violations relative to '&lt;build&gt;/checkstyleResult'.
+     *
+     * @param component
+     *            development component to show violations of (<code>null</code> for all development components).
+     * @param file
+     *            file to show violations of (<code>null</code> for all files).
+     * @param check
+     *            check to show violations of (<code>null</code> for all checks).
+     * @param page
+     *            number of page (starting with 1).
+     * @return the link.
+     */
+    static String createLink(final String component, final String file, final String check, final int page) {
+        final StringBuilder link = new StringBuilder("browse?page=").append(page);
+        appendParameter(link, "component", component);
+        appendParameter(link, "file", file);
+        appendParameter(link, "check", check);
+
+        return link.toString();
+    }
+
+    /**
+     * Append the given request parameter unless its value is <code>null</code>.
+     *
+     * @param link
+     *            link to append the parameter to.
+     * @param name
+     *            name of parameter.
+     * @param value
+     *            value of parameter.
+     */
+    private static void appendParameter(final StringBuilder link, final String name, final String value) {
+        if (value != null) {
+            try {
+                link.append('&').append(name).append('=').append(URLEncoder.encode(value, "UTF-8"));
+            }
+            catch (final UnsupportedEncodingException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * A violation shown on a page.
+     *
+     * @author Dirk Weigenand
+     */
+    public static final class Row {
+        /**
+         * path of the file the violation was reported for.
+         */
+        private final String file;
+
+        /**
+         * line the violation was reported for.
+         */
+        private final int line;
+
+        /**
+         * column the violation was reported for (or 0 when not applicable).
+         */
+        private final int column;
+
+        /**
+         * severity of violation.
+         */
+        private final String severity;
+
+        /**
+         * name of the check reporting the violation.
+         */
+        private final String check;
+
+        /**
+         * message describing the violation.
+         */
+        private final String message;
+
+        /**
+         * Create a row.
+         *
+         * @param file
+         *            path of the file the violation was reported for.
+         * @param line
+         *            line the violation was reported for.
+         * @param column
+         *            column the violation was reported for (or 0 when not applicable).
+         * @param severity
+         *            severity of violation.
+         * @param check
+         *            name of the check reporting the violation.
+         * @param message
+         *            message describing the violation.
+         */
+        Row(final String file, final int line, final int column, final String severity, final String check, final String message) {
+            this.file = file;
+            this.line = line;
+            this.column = column;
+            this.severity = severity;
+            this.check = check;
+            this.message = message;
+        }
+
+        /**
+         * @return the path of the file the violation was reported for.
+         */
+        public String getFile() {
+            return file;
+        }
+
+        /**
+         * @return the line the violation was reported for.
+         */
+        public int getLine() {
+            return line;
+        }
+
+        /**
+         * @return the column the violation was reported for (or 0 when not applicable).
+         */
+        public int getColumn() {
+            return column;
+        }
+
+        /**
+         * @return the severity of the violation.
+         */
+        public String getSeverity() {
+            return severity;
+        }
+
+        /**
+         * @return the name of the check reporting the violation.
+         */
+        public String getCheck() {
+            return check;
+        }
+
+        /**
+         * @return the message describing the violation.
+         */
+        public String getMessage() {
+            return message;
+        }
+    }
+}
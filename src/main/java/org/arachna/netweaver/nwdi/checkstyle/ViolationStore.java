@@ -0,0 +1,1044 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compact binary store of the violations found during a build.
+ *
+ * Check names, development components, file paths, messages and severities are dictionary encoded. Violations are stored column
+ * wise as primitive arrays. The dictionaries of checks and development components together with the number of violations per
+ * check and development component are written first, so that trend queries only need to read the beginning of a store. A table of
+ * contents and indexes follow, so that {@link ViolationStoreReader} reads only the violations of the requested page:
+ *
+ * <pre>
+ * int magic, int version, int violation count
+ * checks:          int n, n strings, n ints (violations per check)
+ * components:      int n, n strings, n ints (violations per component)
+ * severities:      int n, n strings
+ * contents:        long position of each of the following sections (file offsets to violations) and of the end,
+ *                  int files, int messages, int segments, int segment files, int ranges
+ * file offsets:    long[] position of each file path relative to the file paths
+ * file paths:      strings
+ * message offsets: long[] position of each message relative to the messages
+ * messages:        strings
+ * segments:        per segment: int component, int first violation, int violations, int first segment file, int segment files
+ * segment files:   per file of a segment (sorted by path): int file, int first range, int ranges
+ * ranges:          per range: int first violation, int violations
+ * check postings:  int[] violations of each check (in order of checks, ascending per check)
+ * violations:      int[] file, int[] check, int[] message, byte[] severity, int[] line, int[] column
+ * </pre>
+ *
+ * Strings are written as length prefixed UTF-8 byte sequences. A segment is a run of consecutive violations of one development
+ * component (usually a development component has exactly one segment). The violations of a file are one or more ranges of
+ * consecutive violations. Thus the violations of a development component or file are found via their ranges and the violations of
+ * a check within these ranges via a binary search in the postings of the check.
+ *
+ * Only the small dictionaries of checks, development components and severities and the files of the current segment are kept on
+ * the heap while violations are collected. File paths, messages, indexes and the violation columns are streamed into temporary
+ * files next to the store and concatenated by {@link #write(File)}, so memory does not grow with the number of violations. Messages
+ * are looked up via a cache of the most recently used ones; a message missing from the cache is added to the dictionary again.
+ *
+ * @author Dirk Weigenand
+ */
+final class ViolationStore implements ViolationHandler {
+    /**
+     * name of the violation store in the build directory.
+     */
+    static final String FILE_NAME = "checkstyle-violations.bin";
+
+    /**
+     * magic number identifying violation stores.
+     */
+    static final int MAGIC = 0x4e574353;
+
+    /**
+     * version of the store format.
+     */
+    static final int VERSION = 2;
+
+    /**
+     * oldest version of the store format whose counts can be read (the beginning of the store is the same in all versions).
+     */
+    static final int MIN_COUNTS_VERSION = 1;
+
+    /**
+     * maximum number of messages whose index is kept for reuse.
+     */
+    static final int MESSAGE_CACHE_SIZE = 4096;
+
+    /**
+     * number of positions of sections in the table of contents.
+     */
+    static final int SECTIONS = 10;
+
+    /**
+     * size of a segment in bytes.
+     */
+    static final int SEGMENT_SIZE = 20;
+
+    /**
+     * size of an entry of a file of a segment in bytes.
+     */
+    static final int SEGMENT_FILE_SIZE = 12;
+
+    /**
+     * size of a range in bytes.
+     */
+    static final int RANGE_SIZE = 8;
+
+    /**
+     * size of a violation in the violation columns in bytes.
+     */
+    static final int VIOLATION_SIZE = 21;
+
+    /**
+     * number of violations distributed to the postings of their checks at once when writing a store.
+     */
+    private static final int POSTINGS_CHUNK = 1 << 18;
+
+    /**
+     * Encoding of strings.
+     */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * dictionary of check names.
+     */
+    private final Dictionary checks = new Dictionary();
+
+    /**
+     * dictionary of development components.
+     */
+    private final Dictionary components = new Dictionary();
+
+    /**
+     * dictionary of severities.
+     */
+    private final Dictionary severities = new Dictionary();
+
+    /**
+     * files of the current segment mapped to their paths.
+     */
+    private final Map<String, SegmentFile> segmentFiles = new HashMap<String, SegmentFile>();
+
+    /**
+     * the segments written so far (excluding the current one).
+     */
+    private final List<int[]> segments = new ArrayList<int[]>();
+
+    /**
+     * index of the development component of the current segment (<code>-1</code> before the first violation).
+     */
+    private int segmentComponent = -1;
+
+    /**
+     * index of the first violation of the current segment.
+     */
+    private int segmentStart;
+
+    /**
+     * number of files.
+     */
+    private int fileCount;
+
+    /**
+     * number of bytes of the file paths written so far.
+     */
+    private long fileNamesLength;
+
+    /**
+     * number of files of segments written so far.
+     */
+    private int segmentFileCount;
+
+    /**
+     * number of ranges written so far.
+     */
+    private int rangeCount;
+
+    /**
+     * indexes of the most recently used messages mapped to their texts.
+     */
+    private final Map<String, Integer> recentMessages = new LinkedHashMap<String, Integer>(MESSAGE_CACHE_SIZE * 2, 0.75f, true) {
+        /**
+         * version of serialized form.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, Integer> eldest) {
+            return size() > MESSAGE_CACHE_SIZE;
+        }
+    };
+
+    /**
+     * number of messages.
+     */
+    private int messageCount;
+
+    /**
+     * number of bytes of the messages written so far.
+     */
+    private long messagesLength;
+
+    /**
+     * position of each file path.
+     */
+    private final SpillFile fileOffsets;
+
+    /**
+     * path of each file.
+     */
+    private final SpillFile fileNames;
+
+    /**
+     * position of each message.
+     */
+    private final SpillFile messageOffsets;
+
+    /**
+     * text of each message.
+     */
+    private final SpillFile messages;
+
+    /**
+     * files of each segment.
+     */
+    private final SpillFile segmentFileEntries;
+
+    /**
+     * ranges of violations of each file of a segment.
+     */
+    private final SpillFile ranges;
+
+    /**
+     * file of each violation.
+     */
+    private final SpillFile violationFiles;
+
+    /**
+     * check of each violation.
+     */
+    private final SpillFile violationChecks;
+
+    /**
+     * message of each violation.
+     */
+    private final SpillFile violationMessages;
+
+    /**
+     * severity of each violation.
+     */
+    private final SpillFile violationSeverities;
+
+    /**
+     * line of each violation.
+     */
+    private final SpillFile lines;
+
+    /**
+     * column of each violation.
+     */
+    private final SpillFile columns;
+
+    /**
+     * folder for temporary files.
+     */
+    private final File folder;
+
+    /**
+     * number of violations.
+     */
+    private int size;
+
+    /**
+     * Create a store keeping its temporary files in the given folder (which should be the folder the store is written to).
+     *
+     * @param folder
+     *            folder for temporary files.
+     */
+    ViolationStore(final File folder) {
+        this.folder = folder;
+        fileOffsets = new SpillFile(folder);
+        fileNames = new SpillFile(folder);
+        messageOffsets = new SpillFile(folder);
+        messages = new SpillFile(folder);
+        segmentFileEntries = new SpillFile(folder);
+        ranges = new SpillFile(folder);
+        violationFiles = new SpillFile(folder);
+        violationChecks = new SpillFile(folder);
+        violationMessages = new SpillFile(folder);
+        violationSeverities = new SpillFile(folder);
+        lines = new SpillFile(folder);
+        columns = new SpillFile(folder);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void handle(final String component, final String packageName, final String fileName, final List<Violation> violations)
+        throws IOException {
+        final int componentIndex = components.indexOf(component);
+
+        if (violations.isEmpty()) {
+            return;
+        }
+
+        if (componentIndex != segmentComponent) {
+            finishSegment();
+            segmentComponent = componentIndex;
+            segmentStart = size;
+        }
+
+        final int fileIndex = getSegmentFile(fileName).add(size, violations.size());
+
+        for (final Violation violation : violations) {
+            final int checkIndex = checks.indexOf(violation.getSource());
+            checks.count(checkIndex);
+            components.count(componentIndex);
+
+            violationFiles.getOutput().writeInt(fileIndex);
+            violationChecks.getOutput().writeInt(checkIndex);
+            violationMessages.getOutput().writeInt(indexOfMessage(violation.getMessage()));
+            violationSeverities.getOutput().writeByte(severities.indexOf(violation.getSeverity()));
+            lines.getOutput().writeInt(violation.getLine());
+            columns.getOutput().writeInt(violation.getColumn());
+            size++;
+        }
+    }
+
+    /**
+     * Write the collected violations into the given file and delete the temporary files.
+     *
+     * @param storeFile
+     *            file to write the violations to.
+     * @throws IOException
+     *             when writing failed.
+     */
+    void write(final File storeFile) throws IOException {
+        finishSegment();
+
+        final File postings = writePostings();
+        final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(storeFile)));
+
+        try {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(size);
+
+            checks.write(output);
+            checks.writeCounts(output);
+
+            components.write(output);
+            components.writeCounts(output);
+
+            severities.write(output);
+
+            final long[] lengths =
+                new long[] { fileCount * 8L, fileNamesLength, messageCount * 8L, messagesLength,
+                    (long)segments.size() * SEGMENT_SIZE, (long)segmentFileCount * SEGMENT_FILE_SIZE, (long)rangeCount * RANGE_SIZE,
+                    size * 4L, (long)size * VIOLATION_SIZE, 0 };
+            long position = output.size() + SECTIONS * 8L + 5 * 4;
+
+            for (int i = 0; i < SECTIONS; i++) {
+                output.writeLong(position);
+                position += lengths[i];
+            }
+
+            output.writeInt(fileCount);
+            output.writeInt(messageCount);
+            output.writeInt(segments.size());
+            output.writeInt(segmentFileCount);
+            output.writeInt(rangeCount);
+
+            fileOffsets.copyTo(output);
+            fileNames.copyTo(output);
+            messageOffsets.copyTo(output);
+            messages.copyTo(output);
+
+            for (final int[] segment : segments) {
+                for (final int value : segment) {
+                    output.writeInt(value);
+                }
+            }
+
+            segmentFileEntries.copyTo(output);
+            ranges.copyTo(output);
+            copy(postings, output);
+
+            violationFiles.copyTo(output);
+            violationChecks.copyTo(output);
+            violationMessages.copyTo(output);
+            violationSeverities.copyTo(output);
+            lines.copyTo(output);
+            columns.copyTo(output);
+        }
+        finally {
+            output.close();
+            postings.delete();
+            close();
+        }
+    }
+
+    /**
+     * Delete the temporary files of this store (without writing it).
+     */
+    void close() {
+        fileOffsets.delete();
+        fileNames.delete();
+        messageOffsets.delete();
+        messages.delete();
+        segmentFileEntries.delete();
+        ranges.delete();
+        violationFiles.delete();
+        violationChecks.delete();
+        violationMessages.delete();
+        violationSeverities.delete();
+        lines.delete();
+        columns.delete();
+    }
+
+    /**
+     * Returns the file with the given path of the current segment, adding it to the dictionary of files if necessary.
+     *
+     * @param fileName
+     *            path of the file.
+     * @return the file with the given path.
+     * @throws IOException
+     *             when writing the file to the dictionary failed.
+     */
+    private SegmentFile getSegmentFile(final String fileName) throws IOException {
+        SegmentFile file = segmentFiles.get(fileName);
+
+        if (file == null) {
+            file = new SegmentFile(fileCount++);
+            segmentFiles.put(fileName, file);
+            fileOffsets.getOutput().writeLong(fileNamesLength);
+            fileNamesLength += writeString(fileNames.getOutput(), fileName);
+        }
+
+        return file;
+    }
+
+    /**
+     * Write the files of the current segment (sorted by path) and their ranges and record the segment.
+     *
+     * @throws IOException
+     *             when writing the files failed.
+     */
+    private void finishSegment() throws IOException {
+        if (segmentComponent == -1 || size == segmentStart) {
+            return;
+        }
+
+        segments.add(new int[] { segmentComponent, segmentStart, size - segmentStart, segmentFileCount, segmentFiles.size() });
+
+        for (final SegmentFile file : new TreeMap<String, SegmentFile>(segmentFiles).values()) {
+            final DataOutputStream output = segmentFileEntries.getOutput();
+            output.writeInt(file.index);
+            output.writeInt(rangeCount);
+            output.writeInt(file.rangeCount);
+            segmentFileCount++;
+
+            for (int i = 0; i < file.rangeCount * 2; i++) {
+                ranges.getOutput().writeInt(file.ranges[i]);
+            }
+
+            rangeCount += file.rangeCount;
+        }
+
+        segmentFiles.clear();
+        segmentComponent = -1;
+    }
+
+    /**
+     * Write the postings of the checks into a temporary file. The check column is read in chunks, the indexes of the violations
+     * of a chunk are grouped by check and appended to the postings of their checks.
+     *
+     * @return the temporary file containing the postings.
+     * @throws IOException
+     *             when reading the check column or writing the postings failed.
+     */
+    private File writePostings() throws IOException {
+        final File postings = File.createTempFile("checkstyle-violations", ".tmp", folder);
+        final RandomAccessFile output = new RandomAccessFile(postings, "rw");
+
+        try {
+            final int[] next = new int[checks.size()];
+
+            for (int i = 1; i < next.length; i++) {
+                next[i] = next[i - 1] + checks.getCount(i - 1);
+            }
+
+            output.setLength(size * 4L);
+
+            final FileChannel channel = output.getChannel();
+            final DataInputStream input = violationChecks.openInput();
+
+            try {
+                final int[] chunkChecks = new int[Math.min(POSTINGS_CHUNK, size)];
+                final ByteBuffer buffer = ByteBuffer.allocate(chunkChecks.length * 4);
+                final IntBuffer violations = buffer.asIntBuffer();
+
+                for (int chunkStart = 0; chunkStart < size; chunkStart += chunkChecks.length) {
+                    final int chunkSize = Math.min(chunkChecks.length, size - chunkStart);
+                    final int[] starts = new int[next.length + 1];
+
+                    for (int i = 0; i < chunkSize; i++) {
+                        chunkChecks[i] = input.readInt();
+                        starts[chunkChecks[i] + 1]++;
+                    }
+
+                    for (int i = 1; i < starts.length; i++) {
+                        starts[i] += starts[i - 1];
+                    }
+
+                    final int[] positions = Arrays.copyOf(starts, next.length);
+
+                    for (int i = 0; i < chunkSize; i++) {
+                        violations.put(positions[chunkChecks[i]]++, chunkStart + i);
+                    }
+
+                    for (int check = 0; check < next.length; check++) {
+                        final int count = starts[check + 1] - starts[check];
+
+                        if (count > 0) {
+                            buffer.limit((starts[check] + count) * 4).position(starts[check] * 4);
+                            channel.write(buffer, next[check] * 4L);
+                            next[check] += count;
+                        }
+                    }
+
+                    buffer.clear();
+                }
+            }
+            finally {
+                input.close();
+            }
+        }
+        catch (final IOException e) {
+            output.close();
+            postings.delete();
+            throw e;
+        }
+
+        output.close();
+
+        return postings;
+    }
+
+    /**
+     * Returns the index of the given message, adding it to the dictionary of messages when it was not used recently.
+     *
+     * @param message
+     *            the message (<code>null</code> is stored as empty string).
+     * @return the index of the given message.
+     * @throws IOException
+     *             when writing the message to the dictionary failed.
+     */
+    private int indexOfMessage(final String message) throws IOException {
+        final String key = message == null ? "" : message;
+        Integer index = recentMessages.get(key);
+
+        if (index == null) {
+            index = Integer.valueOf(messageCount++);
+            recentMessages.put(key, index);
+            messageOffsets.getOutput().writeLong(messagesLength);
+            messagesLength += writeString(messages.getOutput(), key);
+        }
+
+        return index.intValue();
+    }
+
+    /**
+     * Read the number of violations per check and per development component from the given store. Only the beginning of the file
+     * is read (sequentially, so reading the counts of many builds does not map their stores into memory).
+     *
+     * @param storeFile
+     *            the store to read.
+     * @return the number of violations per check and development component.
+     * @throws IOException
+     *             when the store could not be read or is not a violation store.
+     */
+    static Counts readCounts(final File storeFile) throws IOException {
+        final DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(storeFile)));
+
+        try {
+            final int version = readVersion(input, storeFile);
+
+            if (version < MIN_COUNTS_VERSION || version > VERSION) {
+                throw new IOException(String.format("%s is not a violation store.", storeFile));
+            }
+
+            final int violationCount = input.readInt();
+            final Map<String, Integer> checkCounts = readCounts(input);
+            final Map<String, Integer> componentCounts = readCounts(input);
+
+            return new Counts(violationCount, checkCounts, componentCounts);
+        }
+        catch (final EOFException e) {
+            throw new IOException(String.format("%s is truncated.", storeFile), e);
+        }
+        finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Read the magic number and the version of a store.
+     *
+     * @param input
+     *            stream positioned at the start of a store.
+     * @param storeFile
+     *            the store (for error messages).
+     * @return the version of the store.
+     * @throws IOException
+     *             when reading failed or the file is not a violation store.
+     */
+    static int readVersion(final DataInputStream input, final File storeFile) throws IOException {
+        if (input.readInt() != MAGIC) {
+            throw new IOException(String.format("%s is not a violation store.", storeFile));
+        }
+
+        return input.readInt();
+    }
+
+    /**
+     * Read a dictionary followed by a count per dictionary entry.
+     *
+     * @param input
+     *            stream positioned at the start of a dictionary.
+     * @return the counts mapped to the dictionary entries.
+     * @throws IOException
+     *             when reading failed or the store is corrupt.
+     */
+    private static Map<String, Integer> readCounts(final DataInputStream input) throws IOException {
+        final List<String> names = readDictionary(input);
+        final Map<String, Integer> counts = new LinkedHashMap<String, Integer>();
+
+        for (final String name : names) {
+            counts.put(name, Integer.valueOf(input.readInt()));
+        }
+
+        return counts;
+    }
+
+    /**
+     * Read a dictionary.
+     *
+     * @param input
+     *            stream positioned at the start of a dictionary.
+     * @return the strings of the dictionary in order of their index.
+     * @throws IOException
+     *             when reading failed or the store is corrupt.
+     */
+    static List<String> readDictionary(final DataInputStream input) throws IOException {
+        final int size = input.readInt();
+
+        if (size < 0) {
+            throw new IOException("Corrupt violation store.");
+        }
+
+        final List<String> names = new ArrayList<String>();
+
+        for (int i = 0; i < size; i++) {
+            final int length = input.readInt();
+
+            if (length < 0) {
+                throw new IOException("Corrupt violation store.");
+            }
+
+            final byte[] bytes = new byte[length];
+            input.readFully(bytes);
+            names.add(new String(bytes, UTF8));
+        }
+
+        return names;
+    }
+
+    /**
+     * Write the given string as length prefixed UTF-8 byte sequence.
+     *
+     * @param output
+     *            stream to write to.
+     * @param value
+     *            string to write.
+     * @return the number of bytes written.
+     * @throws IOException
+     *             when writing failed.
+     */
+    private static int writeString(final DataOutputStream output, final String value) throws IOException {
+        final byte[] bytes = value.getBytes(UTF8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+
+        return 4 + bytes.length;
+    }
+
+    /**
+     * Copy the content of the given file to the given stream.
+     *
+     * @param file
+     *            file to copy.
+     * @param target
+     *            stream to copy the content to.
+     * @throws IOException
+     *             when reading the file or writing to the given stream failed.
+     */
+    private static void copy(final File file, final OutputStream target) throws IOException {
+        final InputStream input = new FileInputStream(file);
+
+        try {
+            final byte[] buffer = new byte[8192];
+            int count;
+
+            while ((count = input.read(buffer)) > -1) {
+                target.write(buffer, 0, count);
+            }
+        }
+        finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Number of violations per check and development component read from a violation store.
+     *
+     * @author Dirk Weigenand
+     */
+    static final class Counts {
+        /**
+         * total number of violations.
+         */
+        private final int violationCount;
+
+        /**
+         * number of violations per check.
+         */
+        private final Map<String, Integer> checks;
+
+        /**
+         * number of violations per development component.
+         */
+        private final Map<String, Integer> components;
+
+        /**
+         * Create the counts read from a violation store.
+         *
+         * @param violationCount
+         *            total number of violations.
+         * @param checks
+         *            number of violations per check.
+         * @param components
+         *            number of violations per development component.
+         */
+        Counts(final int violationCount, final Map<String, Integer> checks, final Map<String, Integer> components) {
+            this.violationCount = violationCount;
+            this.checks = checks;
+            this.components = components;
+        }
+
+        /**
+         * @return the total number of violations.
+         */
+        int getViolationCount() {
+            return violationCount;
+        }
+
+        /**
+         * @return the number of violations per check.
+         */
+        Map<String, Integer> getChecks() {
+            return checks;
+        }
+
+        /**
+         * @return the number of violations per development component.
+         */
+        Map<String, Integer> getComponents() {
+            return components;
+        }
+    }
+
+    /**
+     * A file of the current segment and the ranges of its violations.
+     *
+     * @author Dirk Weigenand
+     */
+    private static final class SegmentFile {
+        /**
+         * index of the file.
+         */
+        private final int index;
+
+        /**
+         * first violation and number of violations of each range.
+         */
+        private int[] ranges = new int[2];
+
+        /**
+         * number of ranges.
+         */
+        private int rangeCount;
+
+        /**
+         * Create a file of the current segment.
+         *
+         * @param index
+         *            index of the file.
+         */
+        SegmentFile(final int index) {
+            this.index = index;
+        }
+
+        /**
+         * Add the given violations to the ranges of this file (extending the last range when the violations follow it).
+         *
+         * @param first
+         *            index of the first violation.
+         * @param count
+         *            number of violations.
+         * @return the index of this file.
+         */
+        int add(final int first, final int count) {
+            if (rangeCount > 0 && ranges[rangeCount * 2 - 2] + ranges[rangeCount * 2 - 1] == first) {
+                ranges[rangeCount * 2 - 1] += count;
+            }
+            else {
+                if (rangeCount * 2 == ranges.length) {
+                    ranges = Arrays.copyOf(ranges, ranges.length * 2);
+                }
+
+                ranges[rangeCount * 2] = first;
+                ranges[rangeCount * 2 + 1] = count;
+                rangeCount++;
+            }
+
+            return index;
+        }
+    }
+
+    /**
+     * Dictionary assigning consecutive indexes to strings.
+     *
+     * @author Dirk Weigenand
+     */
+    private static final class Dictionary {
+        /**
+         * indexes mapped to strings.
+         */
+        private final Map<String, Integer> indexes = new HashMap<String, Integer>();
+
+        /**
+         * strings in order of their index.
+         */
+        private final List<String> values = new ArrayList<String>();
+
+        /**
+         * number of occurrences counted per index.
+         */
+        private int[] counts = new int[16];
+
+        /**
+         * Returns the index of the given string, adding it to the dictionary if necessary.
+         *
+         * @param value
+         *            the string to look up (<code>null</code> is stored as empty string).
+         * @return the index of the given string.
+         */
+        int indexOf(final String value) {
+            final String key = value == null ? "" : value;
+            Integer index = indexes.get(key);
+
+            if (index == null) {
+                index = Integer.valueOf(values.size());
+                indexes.put(key, index);
+                values.add(key);
+            }
+
+            return index.intValue();
+        }
+
+        /**
+         * @return the number of strings in this dictionary.
+         */
+        int size() {
+            return values.size();
+        }
+
+        /**
+         * Count an occurrence of the string with the given index.
+         *
+         * @param index
+         *            index of a string of this dictionary.
+         */
+        void count(final int index) {
+            if (index >= counts.length) {
+                counts = Arrays.copyOf(counts, Math.max(counts.length * 2, index + 1));
+            }
+
+            counts[index]++;
+        }
+
+        /**
+         * Returns the number of occurrences counted for the string with the given index.
+         *
+         * @param index
+         *            index of a string of this dictionary.
+         * @return the number of occurrences counted.
+         */
+        int getCount(final int index) {
+            return index < counts.length ? counts[index] : 0;
+        }
+
+        /**
+         * Write the size and the strings of this dictionary.
+         *
+         * @param output
+         *            stream to write to.
+         * @throws IOException
+         *             when writing failed.
+         */
+        void write(final DataOutputStream output) throws IOException {
+            output.writeInt(values.size());
+
+            for (final String value : values) {
+                writeString(output, value);
+            }
+        }
+
+        /**
+         * Write the number of occurrences counted for each string of this dictionary.
+         *
+         * @param output
+         *            stream to write to.
+         * @throws IOException
+         *             when writing failed.
+         */
+        void writeCounts(final DataOutputStream output) throws IOException {
+            for (int i = 0; i < values.size(); i++) {
+                output.writeInt(getCount(i));
+            }
+        }
+    }
+
+    /**
+     * Temporary file receiving a column or dictionary of a store while violations are collected. The file is created when it is
+     * written to first.
+     *
+     * @author Dirk Weigenand
+     */
+    private static final class SpillFile {
+        /**
+         * folder to create the file in.
+         */
+        private final File folder;
+
+        /**
+         * the temporary file (<code>null</code> until written to).
+         */
+        private File file;
+
+        /**
+         * stream writing to the temporary file.
+         */
+        private DataOutputStream output;
+
+        /**
+         * Create a temporary file in the given folder.
+         *
+         * @param folder
+         *            folder to create the file in.
+         */
+        SpillFile(final File folder) {
+            this.folder = folder;
+        }
+
+        /**
+         * @return the stream writing to the temporary file (creating the file if necessary).
+         * @throws IOException
+         *             when the file could not be created.
+         */
+        DataOutputStream getOutput() throws IOException {
+            if (output == null) {
+                file = File.createTempFile("checkstyle-violations", ".tmp", folder);
+                output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+            }
+
+            return output;
+        }
+
+        /**
+         * Open a stream reading the content written so far.
+         *
+         * @return stream reading the content written so far.
+         * @throws IOException
+         *             when the file could not be opened.
+         */
+        DataInputStream openInput() throws IOException {
+            getOutput().flush();
+
+            return new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        }
+
+        /**
+         * Copy the content written so far to the given stream.
+         *
+         * @param target
+         *            stream to copy the content to.
+         * @throws IOException
+         *             when reading the temporary file or writing to the given stream failed.
+         */
+        void copyTo(final OutputStream target) throws IOException {
+            if (output != null) {
+                output.flush();
+                copy(file, target);
+            }
+        }
+
+        /**
+         * Close and delete the temporary file.
+         */
+        void delete() {
+            if (output != null) {
+                try {
+                    output.close();
+                }
+                catch (final IOException e) {
+                    // the file is deleted anyway.
+                }
+
+                file.delete();
+                output = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,563 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import hudson.model.AbstractBuild;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reads pages of violations from a {@link ViolationStore} without decoding the whole store. Only the small dictionaries of
+ * checks, development components and severities, the table of contents and the segments are read when opening a store.
+ *
+ * A page is located via the indexes of the store: the ranges of violations of a development component or file are looked up in
+ * the segments and their files (by binary search on the sorted paths), violations of a check within these ranges are found by
+ * binary search in the postings of the check. Then only the violations of the requested page are read, and file paths and
+ * messages are decoded only for them.
+ *
+ * The store is mapped into memory (except on Windows, where a mapped store could not be deleted with its build until the mapping
+ * is garbage collected, so the requested parts of the store are read from the file instead). It is never read into the heap as a
+ * whole.
+ *
+ * @author Dirk Weigenand
+ */
+final class ViolationStoreReader {
+    /**
+     * number of violations per page.
+     */
+    static final int PAGE_SIZE = 100;
+
+    /**
+     * Encoding of strings.
+     */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * the store.
+     */
+    private final RandomAccessFile store;
+
+    /**
+     * the mapped store (<code>null</code> when mapping is not supported).
+     */
+    private final ByteBuffer mapped;
+
+    /**
+     * total number of violations.
+     */
+    private final int violationCount;
+
+    /**
+     * names of checks in order of their index.
+     */
+    private final List<String> checks;
+
+    /**
+     * index of the first posting of each check.
+     */
+    private final int[] checkPostings;
+
+    /**
+     * names of development components in order of their index.
+     */
+    private final List<String> components;
+
+    /**
+     * severities in order of their index.
+     */
+    private final List<String> severities;
+
+    /**
+     * position of the sections of the store (see {@link ViolationStore}).
+     */
+    private final long[] sections = new long[ViolationStore.SECTIONS];
+
+    /**
+     * development component, first violation, number of violations, first segment file and number of segment files of each
+     * segment.
+     */
+    private final int[][] segments;
+
+    /**
+     * Open the given violation store.
+     *
+     * @param storeFile
+     *            the store to read.
+     * @throws IOException
+     *             when the store could not be read or is not a violation store.
+     */
+    private ViolationStoreReader(final File storeFile) throws IOException {
+        store = new RandomAccessFile(storeFile, "r");
+        final int segmentCount;
+
+        try {
+            final DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(storeFile)));
+
+            try {
+                if (ViolationStore.readVersion(input, storeFile) != ViolationStore.VERSION) {
+                    throw new IOException(String.format("%s is not a violation store of version %d.", storeFile,
+                        ViolationStore.VERSION));
+                }
+
+                violationCount = input.readInt();
+                checks = ViolationStore.readDictionary(input);
+                checkPostings = new int[checks.size()];
+
+                for (int i = 0, first = 0; i < checkPostings.length; i++) {
+                    checkPostings[i] = first;
+                    first += input.readInt();
+                }
+
+                components = ViolationStore.readDictionary(input);
+                skipInts(input, components.size());
+                severities = ViolationStore.readDictionary(input);
+
+                for (int i = 0; i < sections.length; i++) {
+                    sections[i] = input.readLong();
+                }
+
+                skipInts(input, 2);
+                segmentCount = input.readInt();
+            }
+            catch (final EOFException e) {
+                throw new IOException(String.format("%s is truncated.", storeFile), e);
+            }
+            finally {
+                input.close();
+            }
+
+            final FileChannel channel = store.getChannel();
+
+            if (sections[sections.length - 1] != channel.size()) {
+                throw new IOException(String.format("%s is truncated.", storeFile));
+            }
+
+            mapped = SourceFileProvider.MAPPING_SUPPORTED ? channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()) : null;
+
+            final ByteBuffer segmentTable = read(sections[4], segmentCount * ViolationStore.SEGMENT_SIZE);
+            segments = new int[segmentCount][];
+
+            for (int i = 0; i < segments.length; i++) {
+                segments[i] = new int[ViolationStore.SEGMENT_SIZE / 4];
+
+                for (int j = 0; j < segments[i].length; j++) {
+                    segments[i][j] = segmentTable.getInt();
+                }
+            }
+        }
+        catch (final IOException e) {
+            store.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Open the given violation store.
+     *
+     * @param storeFile
+     *            the store to read.
+     * @return a reader for the given store.
+     * @throws IOException
+     *             when the store could not be read or is not a violation store.
+     */
+    static ViolationStoreReader open(final File storeFile) throws IOException {
+        return new ViolationStoreReader(storeFile);
+    }
+
+    /**
+     * Close the store.
+     *
+     * @throws IOException
+     *             when closing the store failed.
+     */
+    void close() throws IOException {
+        store.close();
+    }
+
+    /**
+     * @return the total number of violations.
+     */
+    int getViolationCount() {
+        return violationCount;
+    }
+
+    /**
+     * Read a page of the violations matching the given filters. When filtering by development component only, the number of
+     * violations per file of the development component is determined as well.
+     *
+     * @param owner
+     *            the build the store belongs to.
+     * @param component
+     *            development component to show violations of (<code>null</code> for all development components).
+     * @param file
+     *            file to show violations of (<code>null</code> for all files).
+     * @param check
+     *            check to show violations of (<code>null</code> for all checks).
+     * @param page
+     *            number of page to read (starting with 1).
+     * @return the requested page.
+     * @throws IOException
+     *             when reading the store failed.
+     */
+    ViolationPage getPage(final AbstractBuild<?, ?> owner, final String component, final String file, final String check,
+        final int page) throws IOException {
+        final int componentIndex = component == null ? -1 : components.indexOf(component);
+        final int checkIndex = check == null ? -1 : checks.indexOf(check);
+
+        if (component != null && componentIndex == -1 || check != null && checkIndex == -1) {
+            return createEmptyPage(owner, component, file, check, page);
+        }
+
+        final List<int[]> ranges = new ArrayList<int[]>();
+        Map<String, Integer> fileCounts = Collections.<String, Integer> emptyMap();
+
+        if (file != null) {
+            for (final int[] segment : segments) {
+                if (componentIndex == -1 || segment[0] == componentIndex) {
+                    addRanges(findSegmentFile(segment, file), ranges);
+                }
+            }
+        }
+        else if (componentIndex != -1) {
+            fileCounts = new TreeMap<String, Integer>();
+
+            for (final int[] segment : segments) {
+                if (segment[0] == componentIndex) {
+                    ranges.add(new int[] { segment[1], segment[2] });
+                    countFiles(segment, checkIndex, fileCounts);
+                }
+            }
+        }
+        else {
+            ranges.add(new int[] { 0, violationCount });
+        }
+
+        final int[] pageViolations = new int[PAGE_SIZE];
+        int skip = (page - 1) * PAGE_SIZE;
+        int pageSize = 0;
+        int matches = 0;
+
+        for (final int[] range : ranges) {
+            final int first = checkIndex == -1 ? range[0] : findPosting(checkIndex, range[0]);
+            final int count = checkIndex == -1 ? range[1] : findPosting(checkIndex, range[0] + range[1]) - first;
+            final int start = Math.min(skip, count);
+            final int end = Math.min(count, start + PAGE_SIZE - pageSize);
+
+            if (end > start) {
+                final ByteBuffer postings = checkIndex == -1 ? null : read(sections[7] + (first + start) * 4L, (end - start) * 4);
+
+                for (int i = start; i < end; i++) {
+                    pageViolations[pageSize++] = postings == null ? first + i : postings.getInt();
+                }
+            }
+
+            skip -= start;
+            matches += count;
+        }
+
+        return new ViolationPage(owner, component, file, check, page, matches, createRows(pageViolations, pageSize), fileCounts);
+    }
+
+    /**
+     * Create an empty page.
+     *
+     * @param owner
+     *            the build the store belongs to.
+     * @param component
+     *            development component filter.
+     * @param file
+     *            file filter.
+     * @param check
+     *            check filter.
+     * @param page
+     *            number of page.
+     * @return an empty page.
+     */
+    private ViolationPage createEmptyPage(final AbstractBuild<?, ?> owner, final String component, final String file,
+        final String check, final int page) {
+        return new ViolationPage(owner, component, file, check, page, 0, Collections.<ViolationPage.Row> emptyList(),
+            Collections.<String, Integer> emptyMap());
+    }
+
+    /**
+     * Find the file with the given path among the files of the given segment (which are sorted by path).
+     *
+     * @param segment
+     *            segment to search.
+     * @param path
+     *            path of the file.
+     * @return the position of the entry of the file or <code>-1</code> when the segment contains no violations in this file.
+     * @throws IOException
+     *             when reading the store failed.
+     */
+    private long findSegmentFile(final int[] segment, final String path) throws IOException {
+        int low = 0;
+        int high = segment[4] - 1;
+
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            final long position = sections[5] + (long)(segment[3] + middle) * ViolationStore.SEGMENT_FILE_SIZE;
+            final int comparison = readString(getFilePosition(readInt(position))).compareTo(path);
+
+            if (comparison < 0) {
+                low = middle + 1;
+            }
+            else if (comparison > 0) {
+                high = middle - 1;
+            }
+            else {
+                return position;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Add the ranges of the segment file with the given position.
+     *
+     * @param position
+     *            position of the entry of the segment file (<code>-1</code> to add nothing).
+     * @param ranges
+     *            list to add the first violation and number of violations of each range to.
+     * @throws IOException
+     *             when reading the store failed.
+     */
+    private void addRanges(final long position, final List<int[]> ranges) throws IOException {
+        if (position != -1) {
+            final ByteBuffer entry = read(position + 4, 8);
+            final ByteBuffer fileRanges = read(sections[6] + entry.getInt() * (long)ViolationStore.RANGE_SIZE,
+                entry.getInt() * ViolationStore.RANGE_SIZE);
+
+            while (fileRanges.hasRemaining()) {
+                ranges.add(new int[] { fileRanges.getInt(), fileRanges.getInt() });
+            }
+        }
+    }
+
+    /**
+     * Add the number of violations (of the given check) in each file of the given segment to the given counts.
+     *
+     * @param segment
+     *            the segment.
+     * @param checkIndex
+     *            index of check to count violations of (<code>-1</code> for all checks).
+     * @param fileCounts
+     *            number of violations mapped to the paths of files.
+     * @throws IOException
+     *             when reading the store failed.
+     */
+    private void countFiles(final int[] segment, final int checkIndex, final Map<String, Integer> fileCounts)
+        throws IOException {
+        for (int i = 0; i < segment[4]; i++) {
+            final long position = sections[5] + (long)(segment[3] + i) * ViolationStore.SEGMENT_FILE_SIZE;
+            final List<int[]> ranges = new ArrayList<int[]>();
+            addRanges(position, ranges);
+            int count = 0;
+
+            for (final int[] range : ranges) {
+                count +=
+                    checkIndex == -1 ? range[1] : findPosting(checkIndex, range[0] + range[1]) - findPosting(checkIndex, range[0]);
+            }
+
+            if (count > 0) {
+                final String path = readString(getFilePosition(readInt(position)));
+                final Integer previous = fileCounts.get(path);
+                fileCounts.put(path, previous == null ? count : previous + count);
+            }
+        }
+    }
+
+    /**
+     * Find the first posting of the given check referring to a violation with an index equal to or greater than the given one.
+     *
+     * @param checkIndex
+     *            index of check.
+     * @param violation
+     *            index of violation.
+     * @return index of the posting (the index following the postings of the check when there is no such posting).
+     * @throws IOException
+     *             when reading the store failed.
+     */
+    private int findPosting(final int checkIndex, final int violation) throws IOException {
+        int low = checkPostings[checkIndex];
+        int high = checkIndex + 1 < checkPostings.length ? checkPostings[checkIndex + 1] : violationCount;
+
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+
+            if (readInt(sections[7] + middle * 4L) < violation) {
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * Create the rows of the given violations decoding their file paths and messages.
+     *
+     * @param pageViolations
+     *            indexes of violations.
+     * @param pageSize
+     *            number of violations.
+     * @return the rows of the given violations.
+     * @throws IOException
+     *             when reading the store failed.
+     */
+    private List<ViolationPage.Row> createRows(final int[] pageViolations, final int pageSize) throws IOException {
+        final Map<Integer, String> fileNames = new HashMap<Integer, String>();
+        final Map<Integer, String> messageTexts = new HashMap<Integer, String>();
+        final List<ViolationPage.Row> rows = new ArrayList<ViolationPage.Row>(pageSize);
+        final long columns = sections[8];
+        final long size = violationCount;
+
+        for (int i = 0; i < pageSize; i++) {
+            final long violation = pageViolations[i];
+            final Integer fileIndex = readInt(columns + violation * 4);
+            final Integer messageIndex = readInt(columns + size * 8 + violation * 4);
+
+            if (!fileNames.containsKey(fileIndex)) {
+                fileNames.put(fileIndex, readString(getFilePosition(fileIndex)));
+            }
+
+            if (!messageTexts.containsKey(messageIndex)) {
+                messageTexts.put(messageIndex,
+                    readString(sections[3] + readLong(sections[2] + messageIndex * 8L)));
+            }
+
+            rows.add(new ViolationPage.Row(fileNames.get(fileIndex), readInt(columns + size * 13 + violation * 4), readInt(columns
+                + size * 17 + violation * 4), severities.get(read(columns + size * 12 + violation, 1).get()), checks.get(readInt(columns
+                + size * 4 + violation * 4)), messageTexts.get(messageIndex)));
+        }
+
+        return rows;
+    }
+
+    /**
+     * Returns the position of the path of the file with the given index.
+     *
+     * @param fileIndex
+     *            index of file.
+     * @return the position of the path of the file.
+     * @throws IOException
+     *             when reading the store failed.
+     */
+    private long getFilePosition(final int fileIndex) throws IOException {
+        return sections[1] + readLong(sections[0] + fileIndex * 8L);
+    }
+
+    /**
+     * Read the string at the given position.
+     *
+     * @param position
+     *            position of the length of the string.
+     * @return the decoded string.
+     * @throws IOException
+     *             when reading the store failed.
+     */
+    private String readString(final long position) throws IOException {
+        final byte[] bytes = new byte[readInt(position)];
+        read(position + 4, bytes.length).get(bytes);
+
+        return new String(bytes, UTF8);
+    }
+
+    /**
+     * Read the integer at the given position.
+     *
+     * @param position
+     *            position of the integer.
+     * @return the integer.
+     * @throws IOException
+     *             when reading the store failed.
+     */
+    private int readInt(final long position) throws IOException {
+        return read(position, 4).getInt();
+    }
+
+    /**
+     * Read the long integer at the given position.
+     *
+     * @param position
+     *            position of the long integer.
+     * @return the long integer.
+     * @throws IOException
+     *             when reading the store failed.
+     */
+    private long readLong(final long position) throws IOException {
+        return read(position, 8).getLong();
+    }
+
+    /**
+     * Read the given number of bytes at the given position of the store.
+     *
+     * @param position
+     *            position of the bytes.
+     * @param length
+     *            number of bytes.
+     * @return a buffer containing the requested bytes.
+     * @throws IOException
+     *             when reading the store failed or the requested bytes are outside of the store.
+     */
+    private ByteBuffer read(final long position, final int length) throws IOException {
+        if (position < 0 || length < 0 || position + length > sections[sections.length - 1]) {
+            throw new IOException("Corrupt violation store.");
+        }
+
+        if (mapped != null) {
+            final ByteBuffer bytes = mapped.duplicate();
+            bytes.position((int)position);
+            bytes.limit((int)position + length);
+
+            return bytes.slice();
+        }
+
+        final ByteBuffer bytes = ByteBuffer.allocate(length);
+
+        while (bytes.hasRemaining()) {
+            if (store.getChannel().read(bytes, position + bytes.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+
+        bytes.flip();
+
+        return bytes;
+    }
+
+    /**
+     * Skip the given number of integers.
+     *
+     * @param input
+     *            stream to skip integers of.
+     * @param count
+     *            number of integers to skip.
+     * @throws IOException
+     *             when reading failed.
+     */
+    private static void skipInts(final DataInputStream input, final int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            input.readInt();
+        }
+    }
+}
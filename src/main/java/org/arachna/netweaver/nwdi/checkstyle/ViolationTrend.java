@@ -0,0 +1,104 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import hudson.model.AbstractBuild;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Queries the number of violations per check or development component over the history of a job using the
+ * {@link ViolationStore}s of its builds. The original checkstyle result files are not read.
+ *
+ * @author Dirk Weigenand
+ */
+public final class ViolationTrend {
+    /**
+     * Utility class.
+     */
+    private ViolationTrend() {
+    }
+
+    /**
+     * Determine the number of violations per check for the given build and its predecessors.
+     *
+     * @param build
+     *            the most recent build to consider.
+     * @param builds
+     *            maximum number of builds to consider.
+     * @return the number of violations per check mapped to build numbers (most recent build first). Builds without violation
+     *         store are omitted.
+     */
+    public static Map<Integer, Map<String, Integer>> getViolationsPerCheck(final AbstractBuild<?, ?> build, final int builds) {
+        return query(build, builds, true);
+    }
+
+    /**
+     * Determine the number of violations per development component for the given build and its predecessors.
+     *
+     * @param build
+     *            the most recent build to consider.
+     * @param builds
+     *            maximum number of builds to consider.
+     * @return the number of violations per development component mapped to build numbers (most recent build first). Builds
+     *         without violation store are omitted.
+     */
+    public static Map<Integer, Map<String, Integer>> getViolationsPerComponent(final AbstractBuild<?, ?> build, final int builds) {
+        return query(build, builds, false);
+    }
+
+    /**
+     * Read the counts of the given build and its predecessors.
+     *
+     * @param build
+     *            the most recent build to consider.
+     * @param builds
+     *            maximum number of builds to consider.
+     * @param perCheck
+     *            <code>true</code> to read the counts per check, <code>false</code> to read the counts per development component.
+     * @return the counts mapped to build numbers.
+     */
+    private static Map<Integer, Map<String, Integer>> query(final AbstractBuild<?, ?> build, final int builds,
+        final boolean perCheck) {
+        final Map<Integer, File> storeFiles = new LinkedHashMap<Integer, File>();
+        AbstractBuild<?, ?> current = build;
+
+        for (int i = 0; i < builds && current != null; i++) {
+            storeFiles.put(Integer.valueOf(current.getNumber()), new File(current.getRootDir(), ViolationStore.FILE_NAME));
+            current = current.getPreviousBuild();
+        }
+
+        return query(storeFiles, perCheck);
+    }
+
+    /**
+     * Read the counts of the given violation stores.
+     *
+     * @param storeFiles
+     *            violation stores mapped to the numbers of the builds they belong to.
+     * @param perCheck
+     *            <code>true</code> to read the counts per check, <code>false</code> to read the counts per development component.
+     * @return the counts mapped to build numbers (in the order of the given stores). Missing or unreadable stores are omitted.
+     */
+    static Map<Integer, Map<String, Integer>> query(final Map<Integer, File> storeFiles, final boolean perCheck) {
+        final Map<Integer, Map<String, Integer>> counts = new LinkedHashMap<Integer, Map<String, Integer>>();
+
+        for (final Map.Entry<Integer, File> storeFile : storeFiles.entrySet()) {
+            if (storeFile.getValue().isFile()) {
+                try {
+                    final ViolationStore.Counts storeCounts = ViolationStore.readCounts(storeFile.getValue());
+                    counts.put(storeFile.getKey(), perCheck ? storeCounts.getChecks() : storeCounts.getComponents());
+                }
+                catch (final IOException e) {
+                    // skip unreadable store.
+                }
+            }
+        }
+
+        return counts;
+    }
+}
@@ -0,0 +1,255 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import hudson.model.BuildListener;
+import hudson.util.StreamBuildListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.arachna.ant.AntHelper;
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+import org.arachna.netweaver.dc.types.DevelopmentComponentFactory;
+import org.arachna.netweaver.dc.types.PublicPart;
+import org.arachna.netweaver.dc.types.PublicPartReference;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for limiting the analysis of a build via {@link AnalysisBudget}.
+ *
+ * @author Dirk Weigenand
+ */
+public class AnalysisBudgetTest {
+    /**
+     * folder for the workspace.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * helper for determining the base locations of development components.
+     */
+    private AntHelper antHelper;
+
+    /**
+     * development components to check (in order).
+     */
+    private List<DevelopmentComponent> components;
+
+    /**
+     * log of checks.
+     */
+    private ByteArrayOutputStream log;
+
+    /**
+     * listener writing to the log.
+     */
+    private BuildListener listener;
+
+    /**
+     * check writing result files with two errors and recording the checked development components.
+     */
+    private RecordingCheck check;
+
+    /**
+     * Create the development components each with a result file of an earlier build.
+     *
+     * @throws IOException
+     *             when writing a result file failed.
+     */
+    @Before
+    public void setUp() throws IOException {
+        final DevelopmentComponentFactory dcFactory = new DevelopmentComponentFactory();
+        antHelper = new AntHelper(folder.getRoot().getAbsolutePath(), dcFactory);
+        components = new ArrayList<DevelopmentComponent>();
+
+        for (final String name : Arrays.asList("dc1", "dc2", "dc3")) {
+            final DevelopmentComponent component =
+                dcFactory.create("vendor.com", name, new PublicPart[] {}, new PublicPartReference[] {});
+            components.add(component);
+            writeResult(component, 1);
+        }
+
+        log = new ByteArrayOutputStream();
+        listener = new StreamBuildListener(log, Charset.forName("UTF-8"));
+        check = new RecordingCheck();
+    }
+
+    /**
+     * Without limits the given check is used as is.
+     */
+    @Test
+    public final void testUnlimitedBudget() {
+        final AnalysisBudget budget = new AnalysisBudget(antHelper, 0, 0);
+
+        assertFalse(budget.isLimited());
+        assertSame(check, budget.limit(check));
+    }
+
+    /**
+     * Once the errors found reach the limit, no further development components are checked.
+     *
+     * @throws Exception
+     *             when checking a development component failed.
+     */
+    @Test
+    public final void testStopsAtErrorLimit() throws Exception {
+        final AnalysisBudget budget = new AnalysisBudget(antHelper, 3, 0);
+        final ComponentCheck limited = budget.limit(check);
+
+        assertTrue(limited.execute(components.get(0), listener));
+        assertFalse(budget.isExhausted());
+        assertTrue(limited.execute(components.get(1), listener));
+        assertTrue(budget.isErrorLimitReached());
+        assertTrue(limited.execute(components.get(2), listener));
+
+        assertEquals(Arrays.asList("vendor.com~dc1", "vendor.com~dc2"), check.checked);
+        assertEquals(Collections.singletonList("vendor.com~dc3"), budget.getUncheckedComponents());
+        assertTrue(log.toString().contains("Skipping vendor.com~dc3: 3 errors reached."));
+    }
+
+    /**
+     * Development components are checked while the time budget lasts and skipped once it has been spent.
+     *
+     * @throws Exception
+     *             when checking a development component failed.
+     */
+    @Test
+    public final void testSkipsAfterTimeBudget() throws Exception {
+        final AnalysisBudget hour = new AnalysisBudget(antHelper, 0, 1, TimeUnit.HOURS);
+        assertTrue(hour.isLimited());
+        assertTrue(hour.limit(check).execute(components.get(0), listener));
+        assertFalse(hour.isTimeBudgetSpent());
+
+        final AnalysisBudget budget = new AnalysisBudget(antHelper, 0, 1, TimeUnit.NANOSECONDS);
+        Thread.sleep(1);
+        assertTrue(budget.isTimeBudgetSpent());
+
+        final ComponentCheck limited = budget.limit(check);
+
+        for (final DevelopmentComponent component : components) {
+            assertTrue(limited.execute(component, listener));
+        }
+
+        assertEquals(Collections.singletonList("vendor.com~dc1"), check.checked);
+        assertEquals(Arrays.asList("vendor.com~dc1", "vendor.com~dc2", "vendor.com~dc3"), budget.getUncheckedComponents());
+        assertTrue(log.toString().contains("Skipping vendor.com~dc3: time budget spent."));
+    }
+
+    /**
+     * Skipped development components are reported as not checked: their results of earlier builds are removed, so they are not
+     * aggregated as if they were checked without violations, and they are listed as not checked.
+     *
+     * @throws Exception
+     *             when checking a development component or aggregating the results failed.
+     */
+    @Test
+    public final void testUncheckedComponentsAreReported() throws Exception {
+        final AnalysisBudget budget = new AnalysisBudget(antHelper, 1, 0);
+        final ComponentCheck limited = budget.limit(check);
+
+        for (int i = components.size() - 1; i >= 0; i--) {
+            assertTrue(limited.execute(components.get(i), listener));
+        }
+
+        final ViolationIndex index = new ViolationIndex();
+        final ResultAggregator aggregator = new ResultAggregator(Collections.singleton(index));
+
+        for (final DevelopmentComponent component : components) {
+            aggregator.aggregate(component.getNormalizedName("~"), ResultFormat.findResultFile(getResultFolder(component)),
+                Collections.<String> emptyList());
+        }
+
+        assertEquals(Collections.singletonMap("vendor.com~dc3", Integer.valueOf(3)), index.getComponents());
+        assertEquals(Arrays.asList("vendor.com~dc1", "vendor.com~dc2"), budget.getUncheckedComponents());
+    }
+
+    /**
+     * Returns the folder containing the result files of the given development component.
+     *
+     * @param component
+     *            the development component.
+     * @return the folder containing the result files of the given development component.
+     */
+    private File getResultFolder(final DevelopmentComponent component) {
+        return new File(String.format(InProcessCheckstyleRunner.RESULT_XML_PATH_TEMPLATE, antHelper.getBaseLocation(component)))
+            .getParentFile();
+    }
+
+    /**
+     * Write a 'checkstyle-result.xml' with the given number of errors for the given development component.
+     *
+     * @param component
+     *            development component to write the result file for.
+     * @param errors
+     *            number of errors to report.
+     * @throws IOException
+     *             when writing the result file failed.
+     */
+    private void writeResult(final DevelopmentComponent component, final int errors) throws IOException {
+        final File resultFolder = getResultFolder(component);
+        resultFolder.mkdirs();
+
+        final StringBuilder result = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<checkstyle>\n");
+        result.append("<file name=\"A.java\">\n");
+
+        for (int i = 0; i < errors; i++) {
+            result.append(String.format("<error line=\"%d\" severity=\"error\" message=\"m\" source=\"MagicNumberCheck\"/>\n",
+                i + 1));
+        }
+
+        result.append("<error line=\"1\" severity=\"warning\" message=\"m\" source=\"TodoCommentCheck\"/>\n");
+        result.append("</file>\n</checkstyle>\n");
+
+        final OutputStream output =
+            new FileOutputStream(new File(resultFolder, ResultAggregator.AGGREGATED_RESULT_FILE_NAME));
+
+        try {
+            output.write(result.toString().getBytes("UTF-8"));
+        }
+        finally {
+            output.close();
+        }
+    }
+
+    /**
+     * Check writing a result file with two errors and recording the development components checked.
+     *
+     * @author Dirk Weigenand
+     */
+    private final class RecordingCheck implements ComponentCheck {
+        /**
+         * names of development components checked (in order).
+         */
+        private final List<String> checked = new ArrayList<String>();
+
+        /**
+         * {@inheritDoc}
+         */
+        public boolean execute(final DevelopmentComponent component, final BuildListener listener) throws IOException {
+            checked.add(component.getNormalizedName("~"));
+            writeResult(component, 2);
+
+            return true;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for pruning the {@link ArchiveCache}.
+ *
+ * @author Dirk Weigenand
+ */
+public class ArchiveCacheTest {
+    /**
+     * folder keeping the copies of archives.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Archives and partial copies not modified within the maximum age are deleted, recent ones are kept.
+     *
+     * @throws IOException
+     *             when creating the archives failed.
+     */
+    @Test
+    public final void testPrune() throws IOException {
+        final ArchiveCache cache = new ArchiveCache(folder.getRoot());
+        final long now = System.currentTimeMillis();
+        final File recent = createFile("recent.jar", now - ArchiveCache.MAX_AGE / 2);
+        final File stale = createFile("stale.jar", now - ArchiveCache.MAX_AGE - 1000);
+        final File abandoned = createFile("abandoned.tmp", now - ArchiveCache.MAX_AGE - 1000);
+
+        assertEquals(2, cache.prune(now));
+        assertTrue(recent.exists());
+        assertFalse(stale.exists());
+        assertFalse(abandoned.exists());
+    }
+
+    /**
+     * A missing folder is not an error.
+     */
+    @Test
+    public final void testPruneMissingFolder() {
+        assertEquals(0, new ArchiveCache(new File(folder.getRoot(), "missing")).prune(System.currentTimeMillis()));
+    }
+
+    /**
+     * Create a file with the given name and modification time.
+     *
+     * @param name
+     *            name of file.
+     * @param lastModified
+     *            modification time of file.
+     * @return the file.
+     * @throws IOException
+     *             when creating the file failed.
+     */
+    private File createFile(final String name, final long lastModified) throws IOException {
+        final File file = folder.newFile(name);
+        assertTrue(file.setLastModified(lastModified));
+
+        return file;
+    }
+}
@@ -0,0 +1,214 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for comparing violations with a {@link ViolationBaseline} via {@link BaselineDiff}.
+ *
+ * @author Dirk Weigenand
+ */
+public class BaselineDiffTest {
+    /**
+     * folder for the baseline file.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * the baseline file.
+     */
+    private File baselineFile;
+
+    /**
+     * violations reported as new.
+     */
+    private final List<String> newViolations = new ArrayList<String>();
+
+    /**
+     * handler collecting the violations reported as new.
+     */
+    private final ViolationHandler collector = new ViolationHandler() {
+        /**
+         * {@inheritDoc}
+         */
+        public void handle(final String component, final String packageName, final String fileName,
+            final List<Violation> violations) {
+            for (final Violation violation : violations) {
+                newViolations.add(String.format("%s:%s:%d", component, fileName, violation.getLine()));
+            }
+        }
+    };
+
+    /**
+     * Record a baseline of the development components 'dc1' (two identical violations and a magic number) and 'dc2' (one
+     * violation).
+     *
+     * @throws IOException
+     *             when writing the baseline failed.
+     */
+    @Before
+    public void setUp() throws IOException {
+        baselineFile = new File(folder.getRoot(), ViolationBaseline.FILE_NAME);
+
+        final ViolationBaseline.Recorder recorder = new ViolationBaseline.Recorder();
+        recorder.addComponent("dc1");
+        recorder.addComponent("dc2");
+        recorder.handle("dc1", "com.example", "src/com/example/A.java",
+            Arrays.asList(createViolation(10, "Line is too long."), createViolation(20, "Line is too long."),
+                new Violation(30, 5, "error", "'42' is a magic number.", "MagicNumberCheck")));
+        recorder.handle("dc2", "com.example", "src/com/example/B.java", Arrays.asList(createViolation(5, "Line is too long.")));
+        recorder.handle("dc3", "com.example", "src/com/example/C.java", Arrays.asList(createViolation(5, "Line is too long.")));
+        recorder.write(baselineFile, 7);
+    }
+
+    /**
+     * Violations are recognized after code above them was added and violations of an unregistered development component are not
+     * recorded.
+     *
+     * @throws IOException
+     *             when reading the baseline failed.
+     */
+    @Test
+    public final void testFingerprintIgnoresLineShifts() throws IOException {
+        final ViolationBaseline baseline = ViolationBaseline.read(baselineFile);
+        final BaselineDiff diff = new BaselineDiff(baseline, collector);
+        diff.addComponent("dc1");
+        diff.addComponent("dc2");
+        diff.handle("dc1", "com.example", "src/com/example/A.java",
+            Arrays.asList(createViolation(15, "Line is too long."), createViolation(25, "Line is too long."), new Violation(
+                35, 5, "error", "'42' is a magic number.", "MagicNumberCheck")));
+        diff.handle("dc2", "com.example", "src/com/example/B.java", Arrays.asList(createViolation(8, "Line is too long.")));
+
+        assertEquals(7, baseline.getBuildNumber());
+        assertEquals(4, baseline.size());
+        assertEquals(Arrays.asList("dc1", "dc2"), new ArrayList<String>(baseline.getComponents()));
+        assertEquals(Collections.<String> emptyList(), newViolations);
+        assertEquals(0, diff.getFixedCount());
+    }
+
+    /**
+     * Identical violations are counted: a third one is new, a missing one is fixed and can be read back from the baseline.
+     *
+     * @throws IOException
+     *             when reading the baseline failed.
+     */
+    @Test
+    public final void testIdenticalViolationsAreCounted() throws IOException {
+        final ViolationBaseline baseline = ViolationBaseline.read(baselineFile);
+        BaselineDiff diff = new BaselineDiff(baseline, collector);
+        diff.addComponent("dc1");
+        diff.handle("dc1", "com.example", "src/com/example/A.java",
+            Arrays.asList(createViolation(10, "Line is too long."), createViolation(20, "Line is too long."),
+                createViolation(40, "Line is too long."), new Violation(30, 5, "error", "'42' is a magic number.",
+                    "MagicNumberCheck")));
+
+        assertEquals(Collections.singletonList("dc1:src/com/example/A.java:40"), newViolations);
+        assertEquals(1, diff.getNewCount());
+        assertEquals(0, diff.getFixedCount());
+
+        diff = new BaselineDiff(baseline, collector);
+        diff.addComponent("dc1");
+        diff.handle("dc1", "com.example", "src/com/example/A.java", Arrays.asList(createViolation(10, "Line is too long.")));
+
+        assertEquals(2, diff.getFixedCount());
+
+        final BitSet fixed = new BitSet();
+        baseline.select("dc1", fixed);
+        fixed.clear(baseline.match("dc1", ViolationBaseline.fingerprint(DigestHelper.createDigest(DigestHelper.MD5),
+            "com.example", "src/com/example/A.java", createViolation(1, "Line is too long.")), new BitSet()));
+
+        final Map<String, List<Violation>> violations = baseline.readViolations(fixed);
+        assertEquals(Collections.singleton("src/com/example/A.java"), violations.keySet());
+
+        final List<Violation> fileViolations = violations.get("src/com/example/A.java");
+        assertEquals(2, fileViolations.size());
+        assertEquals(20, fileViolations.get(0).getLine());
+        assertEquals("Line is too long.", fileViolations.get(0).getMessage());
+        assertEquals(30, fileViolations.get(1).getLine());
+        assertEquals("MagicNumberCheck", fileViolations.get(1).getSource());
+    }
+
+    /**
+     * The violations of development components not checked are neither fixed nor new, development components missing from the
+     * baseline are added to it.
+     *
+     * @throws IOException
+     *             when reading or writing the baseline failed.
+     */
+    @Test
+    public final void testOnlyCheckedComponentsAreCompared() throws IOException {
+        final BaselineDiff diff = new BaselineDiff(ViolationBaseline.read(baselineFile), collector);
+        diff.addComponent("dc2");
+        diff.addComponent("dc3");
+        diff.handle("dc2", "com.example", "src/com/example/B.java", Collections.<Violation> emptyList());
+        diff.handle("dc3", "com.example", "src/com/example/C.java", Arrays.asList(createViolation(5, "Line is too long.")));
+
+        assertEquals(1, diff.getFixedCount());
+        assertEquals(0, diff.getNewCount());
+        assertEquals(Collections.singleton("dc3"), diff.getAddedComponents());
+
+        diff.writeBaseline(baselineFile);
+
+        final ViolationBaseline baseline = ViolationBaseline.read(baselineFile);
+        assertEquals(7, baseline.getBuildNumber());
+        assertEquals(5, baseline.size());
+        assertTrue(baseline.contains("dc3"));
+        assertTrue(baseline.match("dc3", ViolationBaseline.fingerprint(DigestHelper.createDigest(DigestHelper.MD5),
+            "com.example", "src/com/example/C.java", createViolation(9, "Line is too long.")), new BitSet()) >= 0);
+    }
+
+    /**
+     * Re-recording a baseline keeps the sections of the development components not checked.
+     *
+     * @throws IOException
+     *             when reading or writing the baseline failed.
+     */
+    @Test
+    public final void testSectionsAreCarriedOver() throws IOException {
+        final ViolationBaseline.Recorder recorder = new ViolationBaseline.Recorder();
+        recorder.addComponent("dc2");
+        recorder.handle("dc2", "com.example", "src/com/example/B.java", Collections.<Violation> emptyList());
+        ViolationBaseline.read(baselineFile).copyTo(recorder, Collections.singleton("dc1"));
+        recorder.write(baselineFile, 8);
+
+        final ViolationBaseline baseline = ViolationBaseline.read(baselineFile);
+        assertEquals(8, baseline.getBuildNumber());
+        assertEquals(3, baseline.size());
+        assertEquals(Arrays.asList("dc1", "dc2"), new ArrayList<String>(baseline.getComponents()));
+
+        final BitSet indexes = new BitSet();
+        baseline.select("dc1", indexes);
+        assertEquals(3, baseline.readViolations(indexes).get("src/com/example/A.java").size());
+    }
+
+    /**
+     * Create a violation of the line length check.
+     *
+     * @param line
+     *            line of violation.
+     * @param message
+     *            message of violation.
+     * @return the violation.
+     */
+    private Violation createViolation(final int line, final String message) {
+        return new Violation(line, 1, "warning", message, "LineLengthCheck");
+    }
+}
@@ -3,8 +3,17 @@
  */
 package org.arachna.netweaver.nwdi.checkstyle;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 
 import org.apache.velocity.app.VelocityEngine;
@@ -20,6 +29,7 @@ import org.custommonkey.xmlunit.exceptions.XpathException;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.xml.sax.SAXException;
 
 /**
@@ -47,6 +57,11 @@ public class BuildFileGeneratorTest extends XMLTestCase {
      */
     private static final String VENDOR = "vendor.com";
 
+    /**
+     * content replacing a generated build file for detecting whether it has been written again.
+     */
+    private static final String MARKER = "not generated again";
+
     /**
      * Instance under test.
      */
@@ -135,6 +150,154 @@ public class BuildFileGeneratorTest extends XMLTestCase {
         assertXpathEvaluatesTo("1", "count(/project/target[@name='checkstyle-vendor.com~dc1'])");
     }
 
+    /**
+     * An existing build file is neither rendered nor written again when the inputs it was generated from did not change. Changing
+     * any of the inputs (checkstyle configuration, excludes, sources excluded by their content, class path or source folders)
+     * or removing the fingerprint generates the build file again.
+     *
+     * @throws IOException
+     *             when reading or writing a file failed.
+     */
+    @Test
+    public final void testBuildFileIsOnlyGeneratedWhenInputsChanged() throws IOException {
+        final TemporaryFolder workspace = new TemporaryFolder();
+        workspace.create();
+
+        try {
+            final CountingVelocityEngine engine = new CountingVelocityEngine();
+            final AntHelper antHelper = new AntHelper(workspace.getRoot().getAbsolutePath(), dcFactory);
+            final DevelopmentComponent component = dcFactory.get(VENDOR, DC1);
+            final File sourceFolder = new File(antHelper.getBaseLocation(component), "src/packages");
+            sourceFolder.mkdirs();
+
+            final File buildFile =
+                new File(createGenerator(engine, antHelper, "config.xml", Collections.<String> emptySet()).execute(component)
+                    .getBuildFile());
+            assertEquals(1, engine.renderings);
+            assertTrue(new File(buildFile.getPath() + BuildFileGenerator.FINGERPRINT_SUFFIX).isFile());
+
+            write(buildFile, MARKER);
+            write(new File(sourceFolder, "Generated.java"), "// @generated\n");
+            createGenerator(engine, antHelper, "config.xml", Collections.<String> emptySet()).execute(component);
+            assertEquals(1, engine.renderings);
+            assertEquals(MARKER, read(buildFile));
+
+            assertGeneratedAgain(engine, buildFile, component,
+                createGenerator(engine, antHelper, "other-config.xml", Collections.<String> emptySet()));
+            assertGeneratedAgain(engine, buildFile, component, new BuildFileGenerator(engine, antHelper, "config.xml",
+                Arrays.asList("**/Generated.java"), Collections.<String> emptySet()));
+            assertGeneratedAgain(engine, buildFile, component,
+                createGenerator(engine, antHelper, "config.xml", Collections.singleton("@generated")));
+
+            component.setOutputFolder("other-classes");
+            assertGeneratedAgain(engine, buildFile, component,
+                createGenerator(engine, antHelper, "config.xml", Collections.singleton("@generated")));
+
+            component.addSourceFolder("src/other");
+            assertGeneratedAgain(engine, buildFile, component,
+                createGenerator(engine, antHelper, "config.xml", Collections.singleton("@generated")));
+
+            assertTrue(new File(buildFile.getPath() + BuildFileGenerator.FINGERPRINT_SUFFIX).delete());
+            assertGeneratedAgain(engine, buildFile, component,
+                createGenerator(engine, antHelper, "config.xml", Collections.singleton("@generated")));
+        }
+        finally {
+            workspace.delete();
+        }
+    }
+
+    /**
+     * Replace the given build file by a marker, run the given generator and assert the build file was rendered and written
+     * again.
+     *
+     * @param engine
+     *            engine used by the generator.
+     * @param buildFile
+     *            the build file generated.
+     * @param component
+     *            development component to generate the build file for.
+     * @param buildFileGenerator
+     *            generator to run.
+     * @throws IOException
+     *             when reading or writing the build file failed.
+     */
+    private void assertGeneratedAgain(final CountingVelocityEngine engine, final File buildFile,
+        final DevelopmentComponent component, final BuildFileGenerator buildFileGenerator) throws IOException {
+        final int renderings = engine.renderings;
+        write(buildFile, MARKER);
+
+        buildFileGenerator.execute(component);
+
+        assertEquals(renderings + 1, engine.renderings);
+        assertFalse(MARKER.equals(read(buildFile)));
+    }
+
+    /**
+     * Create a generator without exclude patterns.
+     *
+     * @param engine
+     *            engine to render build files with.
+     * @param antHelper
+     *            helper for determining source folders and class path.
+     * @param configuration
+     *            path to checkstyle configuration.
+     * @param excludeContainsRegexps
+     *            regular expressions for excluding sources by their content.
+     * @return the generator.
+     */
+    private BuildFileGenerator createGenerator(final VelocityEngine engine, final AntHelper antHelper,
+        final String configuration, final Collection<String> excludeContainsRegexps) {
+        return new BuildFileGenerator(engine, antHelper, configuration, new HashSet<String>(), excludeContainsRegexps);
+    }
+
+    /**
+     * Write the given content into the given file.
+     *
+     * @param file
+     *            file to write.
+     * @param content
+     *            content to write.
+     * @throws IOException
+     *             when writing the file failed.
+     */
+    private void write(final File file, final String content) throws IOException {
+        final OutputStream output = new FileOutputStream(file);
+
+        try {
+            output.write(content.getBytes("UTF-8"));
+        }
+        finally {
+            output.close();
+        }
+    }
+
+    /**
+     * Read the content of the given file.
+     *
+     * @param file
+     *            file to read.
+     * @return content of file.
+     * @throws IOException
+     *             when reading the file failed.
+     */
+    private String read(final File file) throws IOException {
+        final InputStream input = new FileInputStream(file);
+
+        try {
+            final byte[] content = new byte[(int)file.length()];
+            int offset = 0;
+
+            while (offset < content.length) {
+                offset += input.read(content, offset, content.length - offset);
+            }
+
+            return new String(content, "UTF-8");
+        }
+        finally {
+            input.close();
+        }
+    }
+
     private void assertXpathEvaluatesTo(final String expected, final String xPath) {
         try {
             assertXpathEvaluatesTo(expected, xPath, createBuildFile());
@@ -163,4 +326,27 @@ public class BuildFileGeneratorTest extends XMLTestCase {
 
         return content.toString();
     }
+
+    /**
+     * Velocity engine counting the build files rendered.
+     *
+     * @author Dirk Weigenand
+     */
+    private static final class CountingVelocityEngine extends VelocityEngine {
+        /**
+         * number of build files rendered.
+         */
+        private int renderings;
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean invokeVelocimacro(final String vmName, final String logTag, final String[] params,
+            final Context context, final Writer writer) {
+            renderings++;
+
+            return super.invokeVelocimacro(vmName, logTag, params, context, writer);
+        }
+    }
 }
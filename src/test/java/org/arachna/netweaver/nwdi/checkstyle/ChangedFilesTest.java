@@ -0,0 +1,108 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+import org.arachna.netweaver.dc.types.DevelopmentComponentFactory;
+import org.arachna.netweaver.dc.types.PublicPart;
+import org.arachna.netweaver.dc.types.PublicPartReference;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ChangedFiles}.
+ *
+ * @author Dirk Weigenand
+ */
+public class ChangedFilesTest {
+    /**
+     * base location of development component.
+     */
+    private static final String BASE = "/workspace/.dtc/DCs/vendor.com/dc1/_comp";
+
+    /**
+     * development component whose files are changed.
+     */
+    private DevelopmentComponent component;
+
+    /**
+     * development component without changed files.
+     */
+    private DevelopmentComponent other;
+
+    /**
+     * Instance under test.
+     */
+    private ChangedFiles changedFiles;
+
+    /**
+     * Create development components and changed files.
+     */
+    @Before
+    public void setUp() {
+        final DevelopmentComponentFactory dcFactory = new DevelopmentComponentFactory();
+        component = dcFactory.create("vendor.com", "dc1", new PublicPart[] {}, new PublicPartReference[] {});
+        other = dcFactory.create("vendor.com", "dc2", new PublicPart[] {}, new PublicPartReference[] {});
+        changedFiles =
+            new ChangedFiles(Arrays.asList("/ws/Track/SC/vendor.com/dc1/_comp/src/packages/com/example/Changed.java",
+                "\\ws\\Track\\SC\\vendor.com\\dc1\\_comp\\src\\packages\\com\\example\\Windows.java"));
+    }
+
+    /**
+     * A file whose path relative to the component base matches the end of an affected path is changed.
+     */
+    @Test
+    public final void testContainsMatchingSuffix() {
+        assertTrue(changedFiles.contains(component, BASE, new File(BASE, "src/packages/com/example/Changed.java")));
+    }
+
+    /**
+     * Affected paths using '\' as separator are matched as well.
+     */
+    @Test
+    public final void testContainsMatchingSuffixWithBackslashes() {
+        assertTrue(changedFiles.contains(component, BASE + "/", new File(BASE, "src/packages/com/example/Windows.java")));
+    }
+
+    /**
+     * A file with the same name in another package is not changed.
+     */
+    @Test
+    public final void testSameNameInOtherPackageIsNotChanged() {
+        assertFalse(changedFiles.contains(component, BASE, new File(BASE, "src/packages/com/other/Changed.java")));
+    }
+
+    /**
+     * A file with the same relative path in another development component is not changed.
+     */
+    @Test
+    public final void testSamePathInOtherComponentIsNotChanged() {
+        final String base = "/workspace/.dtc/DCs/vendor.com/dc2/_comp";
+
+        assertFalse(changedFiles.contains(other, base, new File(base, "src/packages/com/example/Changed.java")));
+    }
+
+    /**
+     * A file outside the base location of the development component is not changed.
+     */
+    @Test
+    public final void testFileOutsideBaseIsNotChanged() {
+        assertFalse(changedFiles.contains(component, BASE, new File("/elsewhere/src/packages/com/example/Changed.java")));
+    }
+
+    /**
+     * Only development components with affected paths are affected.
+     */
+    @Test
+    public final void testAffects() {
+        assertTrue(changedFiles.affects(component));
+        assertFalse(changedFiles.affects(other));
+    }
+}
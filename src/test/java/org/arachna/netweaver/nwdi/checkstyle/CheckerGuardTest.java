@@ -0,0 +1,140 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.puppycrawl.tools.checkstyle.Checker;
+
+/**
+ * Tests for running checkers concurrently via {@link CheckerGuard}.
+ *
+ * @author Dirk Weigenand
+ */
+public class CheckerGuardTest {
+    /**
+     * number of checkers run concurrently.
+     */
+    private static final int CHECKERS = 16;
+
+    /**
+     * folder for the checked source.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * the checked source file.
+     */
+    private File source;
+
+    /**
+     * Write the source file to check.
+     *
+     * @throws IOException
+     *             when writing the source failed.
+     */
+    @Before
+    public void setUp() throws IOException {
+        source = folder.newFile("Example.java");
+
+        final FileOutputStream output = new FileOutputStream(source);
+
+        try {
+            for (int i = 0; i < CHECKERS; i++) {
+                output.write(String.format("// marker%d%n", i).getBytes("UTF-8"));
+            }
+        }
+        finally {
+            output.close();
+        }
+    }
+
+    /**
+     * Checkers adding their own patterns to the pattern cache of checkstyle while other checkers are running report the same
+     * violations as when run alone.
+     *
+     * @throws InterruptedException
+     *             when waiting for the checkers was interrupted.
+     * @throws ExecutionException
+     *             when a checker failed.
+     */
+    @Test
+    public final void testConcurrentCheckersWithDistinctPatterns() throws InterruptedException, ExecutionException {
+        final ExecutorService pool = Executors.newFixedThreadPool(CHECKERS / 2);
+        final List<Future<List<Violation>>> results = new ArrayList<Future<List<Violation>>>();
+
+        try {
+            for (int i = 0; i < CHECKERS; i++) {
+                final int marker = i;
+
+                results.add(pool.submit(new Callable<List<Violation>>() {
+                    /**
+                     * {@inheritDoc}
+                     */
+                    public List<Violation> call() throws Exception {
+                        return check(String.format("marker%d$", marker));
+                    }
+                }));
+            }
+
+            for (int i = 0; i < CHECKERS; i++) {
+                final List<Violation> violations = results.get(i).get();
+
+                assertEquals(1, violations.size());
+                assertEquals(i + 1, violations.get(0).getLine());
+            }
+        }
+        finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Check the source file for lines matching the given regular expression.
+     *
+     * @param format
+     *            regular expression.
+     * @return the violations found.
+     * @throws Exception
+     *             when configuring the checker failed.
+     */
+    private List<Violation> check(final String format) throws Exception {
+        final Checker checker = new Checker();
+        checker.setModuleClassLoader(Checker.class.getClassLoader());
+
+        final ViolationCollector collector = new ViolationCollector();
+
+        try {
+            CheckerGuard.configure(checker, ConfigurationHelper.parse(String.format("<?xml version=\"1.0\"?>\n<!DOCTYPE module "
+                + "PUBLIC \"-//Puppy Crawl//DTD Check Configuration 1.3//EN\" \"http://www.puppycrawl.com/dtds/configuration_1_3.dtd\">"
+                + "\n<module name=\"Checker\"><module name=\"RegexpSingleline\"><property name=\"format\" value=\"%s\"/>"
+                + "</module></module>", format)));
+            checker.addListener(collector);
+            CheckerGuard.process(checker, Collections.singletonList(source));
+        }
+        finally {
+            checker.destroy();
+        }
+
+        return collector.getViolations(source.getAbsolutePath());
+    }
+}
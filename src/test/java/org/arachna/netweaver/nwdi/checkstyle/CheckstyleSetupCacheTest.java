@@ -0,0 +1,102 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for the class loaders kept by {@link CheckstyleSetupCache}.
+ *
+ * @author Dirk Weigenand
+ */
+public class CheckstyleSetupCacheTest {
+    /**
+     * folder for archives.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Instance under test.
+     */
+    private final CheckstyleSetupCache cache = CheckstyleSetupCache.getInstance();
+
+    /**
+     * Class loaders are shared for unchanged archives and stay open while cached.
+     *
+     * @throws IOException
+     *             when creating the archive failed.
+     */
+    @Test
+    public final void testClassLoaderIsShared() throws IOException {
+        final List<File> archives = Collections.singletonList(folder.newFile("shared.jar"));
+        final ClassLoader classLoader = cache.getClassLoader(archives);
+        cache.release(classLoader);
+        final int open = cache.getOpenClassLoaders();
+
+        final ClassLoader shared = cache.getClassLoader(archives);
+        cache.release(shared);
+
+        assertSame(classLoader, shared);
+        assertEquals(open, cache.getOpenClassLoaders());
+    }
+
+    /**
+     * A class loader replaced because its archive changed is closed once its last user released it.
+     *
+     * @throws IOException
+     *             when creating the archive failed.
+     */
+    @Test
+    public final void testReplacedClassLoaderIsClosedWhenReleased() throws IOException {
+        final File archive = folder.newFile("replaced.jar");
+        final List<File> archives = Collections.singletonList(archive);
+        final ClassLoader classLoader = cache.getClassLoader(archives);
+        final int open = cache.getOpenClassLoaders();
+
+        assertTrue(archive.setLastModified(archive.lastModified() - 10000));
+        final ClassLoader replacement = cache.getClassLoader(archives);
+        assertNotSame(classLoader, replacement);
+        assertEquals("replaced class loader is still in use", open + 1, cache.getOpenClassLoaders());
+
+        cache.release(classLoader);
+        assertEquals(open, cache.getOpenClassLoaders());
+
+        cache.release(replacement);
+        assertEquals(open, cache.getOpenClassLoaders());
+    }
+
+    /**
+     * Evicted class loaders are closed unless they are still in use.
+     *
+     * @throws IOException
+     *             when creating the archives failed.
+     */
+    @Test
+    public final void testEvictedClassLoadersAreClosed() throws IOException {
+        final ClassLoader inUse = cache.getClassLoader(Collections.singletonList(folder.newFile("in-use.jar")));
+
+        for (int i = 0; i < CheckstyleSetupCache.MAX_CLASS_LOADERS; i++) {
+            cache.release(cache.getClassLoader(Collections.singletonList(folder.newFile(i + ".jar"))));
+        }
+
+        assertEquals("cache is full, the evicted class loader is still in use", CheckstyleSetupCache.MAX_CLASS_LOADERS + 1,
+            cache.getOpenClassLoaders());
+
+        cache.release(inUse);
+        assertEquals(CheckstyleSetupCache.MAX_CLASS_LOADERS, cache.getOpenClassLoaders());
+    }
+}
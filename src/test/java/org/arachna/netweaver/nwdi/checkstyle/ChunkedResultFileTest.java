@@ -0,0 +1,335 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link ChunkedResultFile} and the selection of result files by {@link ResultFormat}.
+ *
+ * @author Dirk Weigenand
+ */
+public class ChunkedResultFileTest {
+    /**
+     * number of files written for the round trip (enough to span several chunks).
+     */
+    private static final int FILES = 3000;
+
+    /**
+     * number of violations written per file for the round trip.
+     */
+    private static final int VIOLATIONS_PER_FILE = 5;
+
+    /**
+     * folder for result files.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * the result file.
+     */
+    private File resultFile;
+
+    /**
+     * Create the result file name.
+     */
+    @Before
+    public void setUp() {
+        resultFile = new File(folder.getRoot(), ChunkedResultFile.FILE_NAME);
+    }
+
+    /**
+     * Files and violations written are read back chunk by chunk in the order they were written.
+     *
+     * @throws IOException
+     *             when writing or reading the result file failed.
+     */
+    @Test
+    public final void testRoundTrip() throws IOException {
+        write(0, 0);
+
+        final ChunkedResultFile result = ChunkedResultFile.open(resultFile);
+        assertTrue(result.getChunkCount() > 1);
+        assertEquals(FILES * VIOLATIONS_PER_FILE, result.getViolationCount());
+        assertEquals(0, result.getOmittedViolations());
+        assertEquals(FILES, result.getErrorCount());
+
+        int file = 0;
+        int violations = 0;
+
+        for (int chunk = 0; chunk < result.getChunkCount(); chunk++) {
+            final Map<String, List<Violation>> chunkViolations = result.readChunk(chunk);
+            assertEquals(result.getFileCount(chunk), chunkViolations.size());
+
+            for (final Map.Entry<String, List<Violation>> fileViolations : chunkViolations.entrySet()) {
+                assertEquals(getFileName(file), fileViolations.getKey());
+                assertViolations(createViolations(file), fileViolations.getValue());
+                violations += fileViolations.getValue().size();
+                file++;
+            }
+
+            assertEquals(result.getViolationCount(chunk), violations(chunkViolations));
+        }
+
+        assertEquals(FILES, file);
+        assertEquals(FILES * VIOLATIONS_PER_FILE, violations);
+    }
+
+    /**
+     * Violations exceeding the cap per file are omitted but counted.
+     *
+     * @throws IOException
+     *             when writing or reading the result file failed.
+     */
+    @Test
+    public final void testCapPerFile() throws IOException {
+        write(2, 0);
+
+        final ChunkedResultFile result = ChunkedResultFile.open(resultFile);
+        assertEquals(FILES * 2, result.getViolationCount());
+        assertEquals(FILES * (VIOLATIONS_PER_FILE - 2), result.getOmittedViolations());
+        assertEquals("omitted errors are counted", FILES, result.getErrorCount());
+        assertViolations(createViolations(0).subList(0, 2), result.readChunk(0).get(getFileName(0)));
+    }
+
+    /**
+     * Violations exceeding the cap per check are omitted but counted, the cap applies across files.
+     *
+     * @throws IOException
+     *             when writing or reading the result file failed.
+     */
+    @Test
+    public final void testCapPerCheck() throws IOException {
+        write(0, 10);
+
+        final ChunkedResultFile result = ChunkedResultFile.open(resultFile);
+        assertEquals(VIOLATIONS_PER_FILE * 10, result.getViolationCount());
+        assertEquals(FILES * VIOLATIONS_PER_FILE - VIOLATIONS_PER_FILE * 10, result.getOmittedViolations());
+        assertEquals(FILES, result.getErrorCount());
+
+        final Map<String, List<Violation>> chunkViolations = result.readChunk(0);
+        assertViolations(createViolations(9), chunkViolations.get(getFileName(9)));
+        assertEquals(0, chunkViolations.get(getFileName(10)).size());
+    }
+
+    /**
+     * Both caps applied together: the cap per file counts stored violations only, so once a check reached its cap the next check
+     * fills the files.
+     *
+     * @throws IOException
+     *             when writing or reading the result file failed.
+     */
+    @Test
+    public final void testCapPerFileAndCheck() throws IOException {
+        write(1, 10);
+
+        final ChunkedResultFile result = ChunkedResultFile.open(resultFile);
+        assertEquals(VIOLATIONS_PER_FILE * 10, result.getViolationCount());
+        assertEquals(FILES * VIOLATIONS_PER_FILE - VIOLATIONS_PER_FILE * 10, result.getOmittedViolations());
+
+        final Map<String, List<Violation>> chunkViolations = result.readChunk(0);
+        assertViolations(createViolations(9).subList(0, 1), chunkViolations.get(getFileName(9)));
+        assertViolations(createViolations(10).subList(1, 2), chunkViolations.get(getFileName(10)));
+    }
+
+    /**
+     * A truncated result file is rejected when opening it.
+     *
+     * @throws IOException
+     *             when writing or truncating the result file failed.
+     */
+    @Test
+    public final void testTruncatedFileIsRejected() throws IOException {
+        write(0, 0);
+
+        final long length = resultFile.length();
+
+        for (final long truncatedLength : new long[] { length - 1, length - 12, length / 2, 9, 4 }) {
+            truncate(truncatedLength);
+
+            try {
+                ChunkedResultFile.open(resultFile);
+                fail(String.format("truncated to %d bytes", truncatedLength));
+            }
+            catch (final IOException e) {
+                // expected
+            }
+        }
+    }
+
+    /**
+     * A chunk truncated after opening the result file is reported when reading it.
+     *
+     * @throws IOException
+     *             when writing or truncating the result file failed.
+     */
+    @Test
+    public final void testTruncatedChunkIsRejected() throws IOException {
+        write(0, 0);
+
+        final ChunkedResultFile result = ChunkedResultFile.open(resultFile);
+        truncate(resultFile.length() / 2);
+
+        try {
+            for (int chunk = 0; chunk < result.getChunkCount(); chunk++) {
+                result.readChunk(chunk);
+            }
+
+            fail();
+        }
+        catch (final IOException e) {
+            // expected
+        }
+    }
+
+    /**
+     * The most recent result file of a folder is used, 'checkstyle-result.xml' when there is none.
+     *
+     * @throws IOException
+     *             when creating the result files failed.
+     */
+    @Test
+    public final void testFindResultFile() throws IOException {
+        final File xmlFile = new File(folder.getRoot(), ResultAggregator.AGGREGATED_RESULT_FILE_NAME);
+        assertEquals(xmlFile, ResultFormat.findResultFile(folder.getRoot()));
+
+        write(0, 0);
+        assertEquals(resultFile, ResultFormat.findResultFile(folder.getRoot()));
+
+        assertTrue(xmlFile.createNewFile());
+        assertTrue(xmlFile.setLastModified(resultFile.lastModified() + 2000));
+        assertEquals(xmlFile, ResultFormat.findResultFile(folder.getRoot()));
+
+        assertTrue(resultFile.setLastModified(xmlFile.lastModified()));
+        assertEquals(resultFile, ResultFormat.findResultFile(folder.getRoot()));
+    }
+
+    /**
+     * Write the test files and violations using the given caps.
+     *
+     * @param maxViolationsPerFile
+     *            maximum number of violations stored per file (0 for no limit).
+     * @param maxViolationsPerCheck
+     *            maximum number of violations stored per check (0 for no limit).
+     * @throws IOException
+     *             when writing the result file failed.
+     */
+    private void write(final int maxViolationsPerFile, final int maxViolationsPerCheck) throws IOException {
+        final ResultWriter writer = new ChunkedResultFile.Writer(resultFile, maxViolationsPerFile, maxViolationsPerCheck);
+
+        try {
+            writer.start();
+
+            for (int file = 0; file < FILES; file++) {
+                writer.write(getFileName(file), createViolations(file));
+            }
+
+            writer.finish();
+        }
+        finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Truncate the result file to the given length.
+     *
+     * @param length
+     *            new length of the result file.
+     * @throws IOException
+     *             when truncating failed.
+     */
+    private void truncate(final long length) throws IOException {
+        final RandomAccessFile file = new RandomAccessFile(resultFile, "rw");
+
+        try {
+            file.setLength(length);
+        }
+        finally {
+            file.close();
+        }
+    }
+
+    /**
+     * Returns the name of the file with the given index.
+     *
+     * @param file
+     *            index of file.
+     * @return the name of the file with the given index.
+     */
+    private static String getFileName(final int file) {
+        return String.format("/workspace/src/packages/com/example/p%d/Class%d.java", file % 10, file);
+    }
+
+    /**
+     * Create the violations of the file with the given index: one error and otherwise warnings, each reported by another check.
+     *
+     * @param file
+     *            index of file.
+     * @return the violations of the file with the given index.
+     */
+    private static List<Violation> createViolations(final int file) {
+        final List<Violation> violations = new ArrayList<Violation>();
+
+        for (int i = 0; i < VIOLATIONS_PER_FILE; i++) {
+            violations.add(new Violation(file + i, i, i == 0 ? "error" : "warning", String.format(
+                "Violation %d of file %d with a message long enough to fill several chunks.", i, file), i == 4 ? null
+                : "com.puppycrawl.tools.checkstyle.checks.Check" + i));
+        }
+
+        return violations;
+    }
+
+    /**
+     * Count the violations of the given chunk.
+     *
+     * @param chunkViolations
+     *            violations of a chunk mapped to file names.
+     * @return the number of violations of the chunk.
+     */
+    private static int violations(final Map<String, List<Violation>> chunkViolations) {
+        int count = 0;
+
+        for (final List<Violation> fileViolations : chunkViolations.values()) {
+            count += fileViolations.size();
+        }
+
+        return count;
+    }
+
+    /**
+     * Assert that the given violations have the same fields as the expected ones.
+     *
+     * @param expected
+     *            expected violations.
+     * @param actual
+     *            violations read.
+     */
+    private static void assertViolations(final List<Violation> expected, final List<Violation> actual) {
+        assertEquals(expected.size(), actual.size());
+
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getLine(), actual.get(i).getLine());
+            assertEquals(expected.get(i).getColumn(), actual.get(i).getColumn());
+            assertEquals(expected.get(i).getSeverity(), actual.get(i).getSeverity());
+            assertEquals(expected.get(i).getMessage(), actual.get(i).getMessage());
+            assertEquals(expected.get(i).getSource(), actual.get(i).getSource());
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Collections;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+
+/**
+ * Tests for setting the encoding of sources in a checkstyle configuration via {@link ConfigurationHelper}.
+ *
+ * @author Dirk Weigenand
+ */
+public class ConfigurationHelperTest {
+    /**
+     * checkstyle configuration reporting lines containing an umlaut and configuring an encoding of its own.
+     */
+    private static final String CONFIGURATION = "<?xml version=\"1.0\"?>\n"
+        + "<!DOCTYPE module PUBLIC \"-//Puppy Crawl//DTD Check Configuration 1.3//EN\" "
+        + "\"http://www.puppycrawl.com/dtds/configuration_1_3.dtd\">\n" + "<module name=\"Checker\">\n"
+        + "  <property name=\"charset\" value=\"US-ASCII\"/>\n" + "  <module name=\"RegexpSingleline\">\n"
+        + "    <property name=\"format\" value=\"ä\"/>\n" + "  </module>\n" + "</module>\n";
+
+    /**
+     * folder for sources.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * The configured encoding replaces the one of the configuration, the document type is kept.
+     *
+     * @throws CheckstyleException
+     *             when the configuration could not be parsed.
+     */
+    @Test
+    public final void testCharsetReplacesConfiguredCharset() throws CheckstyleException {
+        final String configuration = ConfigurationHelper.setCharset(CONFIGURATION, "ISO-8859-1");
+        final Configuration parsed = ConfigurationHelper.parse(configuration);
+
+        assertEquals("ISO-8859-1", parsed.getAttribute(ConfigurationHelper.CHARSET_PROPERTY));
+        assertTrue(configuration.contains("-//Puppy Crawl//DTD Check Configuration 1.3//EN"));
+        assertEquals(1, parsed.getChildren().length);
+    }
+
+    /**
+     * Checkstyle and the exclude filter decode sources using the configured encoding.
+     *
+     * @throws CheckstyleException
+     *             when the configuration could not be parsed or the checker could not be configured.
+     * @throws IOException
+     *             when writing or reading the source failed.
+     */
+    @Test
+    public final void testSourcesAreDecodedWithCharset() throws CheckstyleException, IOException {
+        final File source = folder.newFile("A.java");
+        final OutputStream output = new FileOutputStream(source);
+
+        try {
+            output.write("// ä\n".getBytes("ISO-8859-1"));
+        }
+        finally {
+            output.close();
+        }
+
+        assertEquals(1, check(ConfigurationHelper.setCharset(CONFIGURATION, "ISO-8859-1"), source));
+        assertEquals(0, check(ConfigurationHelper.setCharset(CONFIGURATION, "UTF-8"), source));
+
+        assertTrue(new ContentExcludeFilter(Collections.singleton("ä"), 0, Charset.forName("ISO-8859-1"), null)
+            .isExcluded(source));
+        assertFalse(new ContentExcludeFilter(Collections.singleton("ä"), 0, Charset.forName("UTF-8"), null)
+            .isExcluded(source));
+    }
+
+    /**
+     * Check the given source using the given configuration.
+     *
+     * @param configuration
+     *            the checkstyle configuration as XML.
+     * @param source
+     *            the source to check.
+     * @return the number of errors found.
+     * @throws CheckstyleException
+     *             when the configuration could not be parsed or the checker could not be configured.
+     */
+    private int check(final String configuration, final File source) throws CheckstyleException {
+        final Checker checker = new Checker();
+
+        try {
+            checker.setModuleClassLoader(Checker.class.getClassLoader());
+            CheckerGuard.configure(checker, ConfigurationHelper.parse(configuration));
+
+            return CheckerGuard.process(checker, Collections.singletonList(source));
+        }
+        finally {
+            checker.destroy();
+        }
+    }
+}
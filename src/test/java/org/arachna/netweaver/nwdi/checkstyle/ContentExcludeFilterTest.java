@@ -0,0 +1,157 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link ContentExcludeFilter}.
+ *
+ * @author Dirk Weigenand
+ */
+public class ContentExcludeFilterTest {
+    /**
+     * encoding of sources.
+     */
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * folder for source files.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Only the configured number of lines at the top of a file is examined, <code>0</code> examines the whole file.
+     *
+     * @throws IOException
+     *             when reading or writing a file failed.
+     */
+    @Test
+    public final void testHeaderLineLimit() throws IOException {
+        final File file = createFile("A.java", "package com.example;\n\n// @generated\npublic class A {}\n");
+        final Collection<String> regexps = Collections.singleton("@generated");
+
+        assertFalse(new ContentExcludeFilter(regexps, 2, UTF_8, null).isExcluded(file));
+        assertTrue(new ContentExcludeFilter(regexps, 3, UTF_8, null).isExcluded(file));
+        assertTrue(new ContentExcludeFilter(regexps, 0, UTF_8, null).isExcluded(file));
+    }
+
+    /**
+     * Regular expressions are matched against each line on its own (like the 'containsregexp' selector of Ant): they match
+     * anywhere in a line, '^' and '$' anchor at the bounds of a line and expressions never match across lines.
+     *
+     * @throws IOException
+     *             when reading or writing a file failed.
+     */
+    @Test
+    public final void testRegexpsMatchLineByLine() throws IOException {
+        final File file = createFile("A.java", "package com.example;\n\npublic class A {\n    // generated by wsimport\n}\n");
+
+        assertTrue(new ContentExcludeFilter(Collections.singleton("generated by")).isExcluded(file));
+        assertTrue(new ContentExcludeFilter(Collections.singleton("^public class")).isExcluded(file));
+        assertTrue(new ContentExcludeFilter(Collections.singleton("wsimport$")).isExcluded(file));
+        assertFalse(new ContentExcludeFilter(Collections.singleton("^class")).isExcluded(file));
+        assertFalse(new ContentExcludeFilter(Collections.singleton("A \\{\\s+//")).isExcluded(file));
+        assertFalse(new ContentExcludeFilter(Collections.singleton("(?s)class.*wsimport")).isExcluded(file));
+    }
+
+    /**
+     * Decisions are cached per content hash, a cached decision is used without reading the file and counted like a decision made
+     * by reading the file. A cache is valid only for the settings it was created for.
+     *
+     * @throws IOException
+     *             when reading or writing a file failed.
+     */
+    @Test
+    public final void testDecisionCacheHits() throws IOException {
+        final Collection<String> regexps = Collections.singleton("@generated");
+        final ContentExcludeFilter.DecisionCache cache = new ContentExcludeFilter.DecisionCache(regexps, 0, UTF_8);
+        final ContentExcludeFilter filter = new ContentExcludeFilter(regexps, 0, UTF_8, cache);
+        final File generated = createFile("A.java", "// @generated\n");
+        final File handWritten = createFile("B.java", "// written by hand\n");
+
+        assertTrue(filter.isExcluded(generated, "hash-a"));
+        assertFalse(filter.isExcluded(handWritten, "hash-b"));
+
+        assertTrue(generated.delete());
+        assertTrue(handWritten.delete());
+
+        assertTrue(filter.isExcluded(generated, "hash-a"));
+        assertFalse(filter.isExcluded(handWritten, "hash-b"));
+        assertTrue(new ContentExcludeFilter(regexps, 0, UTF_8, cache).isExcluded(generated, "hash-a"));
+        assertEquals(Collections.singletonMap("@generated", Integer.valueOf(2)), filter.getExcludedCounts());
+
+        assertTrue(cache.isValidFor(regexps, 0, UTF_8));
+        assertFalse(cache.isValidFor(regexps, 1, UTF_8));
+        assertFalse(cache.isValidFor(regexps, 0, Charset.forName("ISO-8859-1")));
+        assertFalse(cache.isValidFor(Arrays.asList("@generated", "DO NOT EDIT"), 0, UTF_8));
+    }
+
+    /**
+     * Excluded files are counted for the first matching regular expression, expressions that did not exclude any file are omitted.
+     *
+     * @throws IOException
+     *             when reading or writing a file failed.
+     */
+    @Test
+    public final void testExcludedCountsPerRegexp() throws IOException {
+        final ContentExcludeFilter filter =
+            new ContentExcludeFilter(Arrays.asList("@generated", "DO NOT EDIT", "never matches"));
+
+        assertTrue(filter.isExcluded(createFile("A.java", "// @generated\n")));
+        assertTrue(filter.isExcluded(createFile("B.java", "// @generated\n// DO NOT EDIT\n")));
+        assertTrue(filter.isExcluded(createFile("C.java", "// DO NOT EDIT\n")));
+        assertFalse(filter.isExcluded(createFile("D.java", "// written by hand\n")));
+
+        final Map<String, Integer> expected = new LinkedHashMap<String, Integer>();
+        expected.put("@generated", Integer.valueOf(2));
+        expected.put("DO NOT EDIT", Integer.valueOf(1));
+        assertEquals(expected, filter.getExcludedCounts());
+
+        assertFalse(new ContentExcludeFilter(Collections.<String> emptyList()).isExcluded(new File(folder.getRoot(), "E.java")));
+    }
+
+    /**
+     * Create a source file with the given content.
+     *
+     * @param name
+     *            name of file.
+     * @param content
+     *            content of file.
+     * @return the file created.
+     * @throws IOException
+     *             when writing the file failed.
+     */
+    private File createFile(final String name, final String content) throws IOException {
+        final File file = folder.newFile(name);
+        final OutputStream output = new FileOutputStream(file);
+
+        try {
+            output.write(content.getBytes(UTF_8.name()));
+        }
+        finally {
+            output.close();
+        }
+
+        return file;
+    }
+}
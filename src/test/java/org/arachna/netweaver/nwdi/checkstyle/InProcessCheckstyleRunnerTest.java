@@ -0,0 +1,413 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import hudson.model.BuildListener;
+import hudson.util.StreamBuildListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.tools.ant.DirectoryScanner;
+import org.arachna.ant.AntHelper;
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+import org.arachna.netweaver.dc.types.DevelopmentComponentFactory;
+import org.arachna.netweaver.dc.types.PublicPart;
+import org.arachna.netweaver.dc.types.PublicPartReference;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.XMLLogger;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+
+/**
+ * Tests for running checkstyle on the sources of a development component via {@link InProcessCheckstyleRunner}. The results of
+ * all ways of running checkstyle are compared to those checkstyle's own {@link XMLLogger} writes (as the Ant task does).
+ *
+ * @author Dirk Weigenand
+ */
+public class InProcessCheckstyleRunnerTest {
+    /**
+     * checkstyle configuration with checks reporting violations per file, per line and per folder.
+     */
+    private static final String CONFIGURATION = "<?xml version=\"1.0\"?>\n"
+        + "<!DOCTYPE module PUBLIC \"-//Puppy Crawl//DTD Check Configuration 1.3//EN\" "
+        + "\"http://www.puppycrawl.com/dtds/configuration_1_3.dtd\">\n" + "<module name=\"Checker\">\n"
+        + "  <module name=\"JavadocPackage\"/>\n" + "  <module name=\"NewlineAtEndOfFile\"/>\n"
+        + "  <module name=\"TreeWalker\">\n" + "    <module name=\"MagicNumber\"/>\n" + "    <module name=\"TodoComment\"/>\n"
+        + "  </module>\n" + "</module>\n";
+
+    /**
+     * number of package folders of the development component.
+     */
+    private static final int FOLDERS = 5;
+
+    /**
+     * number of source files per package folder (enough for checking the sources with several threads).
+     */
+    private static final int FILES_PER_FOLDER = 50;
+
+    /**
+     * folder for the workspace.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * the parsed checkstyle configuration.
+     */
+    private Configuration configuration;
+
+    /**
+     * helper for determining the source folders of the development component.
+     */
+    private AntHelper antHelper;
+
+    /**
+     * development component to check.
+     */
+    private DevelopmentComponent component;
+
+    /**
+     * folder containing the packages of the development component.
+     */
+    private File sourceFolder;
+
+    /**
+     * Create the development component and its sources.
+     *
+     * @throws CheckstyleException
+     *             when the configuration could not be parsed.
+     * @throws IOException
+     *             when writing the sources failed.
+     */
+    @Before
+    public void setUp() throws CheckstyleException, IOException {
+        configuration = ConfigurationHelper.parse(CONFIGURATION);
+
+        final DevelopmentComponentFactory dcFactory = new DevelopmentComponentFactory();
+        component = dcFactory.create("vendor.com", "dc1", new PublicPart[] {}, new PublicPartReference[] {});
+        component.addSourceFolder("src/packages");
+        antHelper = new AntHelper(folder.getRoot().getAbsolutePath(), dcFactory);
+        sourceFolder = new File(antHelper.getBaseLocation(component), "src/packages");
+
+        for (int i = 0; i < FOLDERS; i++) {
+            for (int j = 0; j < FILES_PER_FOLDER; j++) {
+                writeSource(i, j, j % 3 == 0);
+            }
+        }
+    }
+
+    /**
+     * Checking all sources reports the same violations in the same order as checkstyle's XML logger used by the Ant task.
+     *
+     * @throws Exception
+     *             when running checkstyle or reading the results failed.
+     */
+    @Test
+    public final void testFullRunEqualsAntResult() throws Exception {
+        final List<String> violations = run(createRunner(false, null, 1));
+
+        assertTrue(violations.size() > FOLDERS * FILES_PER_FOLDER);
+        assertEquals(runAntStyle(), violations);
+    }
+
+    /**
+     * Checking the sources with several threads reports the same violations in the same order as checking them with one thread
+     * (the sources are checked by several threads only when checkers may run concurrently in this JVM).
+     *
+     * @throws Exception
+     *             when running checkstyle or reading the results failed.
+     */
+    @Test
+    public final void testParallelRunEqualsSequentialRun() throws Exception {
+        final List<String> sequential = run(createRunner(false, null, 1));
+
+        assertEquals(sequential, run(createRunner(false, null, 2)));
+        assertEquals(sequential, run(createRunner(false, null, FOLDERS + 1)));
+    }
+
+    /**
+     * The files of a folder are put into the same partition in their original order, folders are assigned largest first to the
+     * smallest partition and empty partitions are omitted.
+     *
+     * @throws IOException
+     *             when writing the files failed.
+     */
+    @Test
+    public final void testPartitionKeepsFoldersTogether() throws IOException {
+        final List<File> files = new ArrayList<File>();
+        files.add(createFile("small/B.java", 100));
+        files.add(createFile("large/B.java", 100));
+        files.add(createFile("medium/A.java", 150));
+        files.add(createFile("large/A.java", 200));
+        files.add(createFile("small/A.java", 50));
+        files.add(createFile("medium/B.java", 50));
+
+        final List<List<File>> partitions = InProcessCheckstyleRunner.partition(files, 2);
+        assertEquals(Arrays.asList(Arrays.asList(files.get(1), files.get(3)),
+            Arrays.asList(files.get(2), files.get(5), files.get(0), files.get(4))), partitions);
+        assertEquals(partitions, InProcessCheckstyleRunner.partition(files, 2));
+        assertEquals(3, InProcessCheckstyleRunner.partition(files, 5).size());
+    }
+
+    /**
+     * An incremental check reports the same violations as a full check, on the first check as well as after a source has been
+     * changed and another one removed, rechecking only the folders of these sources.
+     *
+     * @throws Exception
+     *             when running checkstyle or reading the results failed.
+     */
+    @Test
+    public final void testIncrementalRunEqualsFullRun() throws Exception {
+        final ByteArrayOutputStream log = new ByteArrayOutputStream();
+        assertEquals(run(createRunner(false, null, 1)), run(createRunner(true, null, 1), log));
+        assertTrue(log.toString().contains(String.format("checking %1$d of %1$d files", FOLDERS * FILES_PER_FOLDER)));
+
+        writeSource(1, 1, true);
+        assertTrue(new File(sourceFolder, "com/example/a3/A2.java").delete());
+        log.reset();
+
+        final List<String> incremental = run(createRunner(true, null, 1), log);
+        assertEquals(run(createRunner(false, null, 1)), incremental);
+        assertEquals(runAntStyle(), incremental);
+        assertTrue(log.toString().contains(
+            String.format("checking %d of %d files", 2 * FILES_PER_FOLDER - 1, FOLDERS * FILES_PER_FOLDER - 1)));
+    }
+
+    /**
+     * Checking the files changed by the integrated activities reports the same violations as a full check, rechecking only the
+     * folders of the changed files.
+     *
+     * @throws Exception
+     *             when running checkstyle or reading the results failed.
+     */
+    @Test
+    public final void testChangedFilesRunEqualsFullRun() throws Exception {
+        final List<String> noChanges = Collections.emptyList();
+        assertEquals(run(createRunner(false, null, 1)), run(createRunner(false, new ChangedFiles(noChanges), 1)));
+
+        writeSource(2, 1, true);
+
+        final ByteArrayOutputStream log = new ByteArrayOutputStream();
+        final ChangedFiles changedFiles =
+            new ChangedFiles(Collections.singletonList("/ws/Track/SC/vendor.com/dc1/_comp/src/packages/com/example/a2/A1.java"));
+        final List<String> changed = run(createRunner(false, changedFiles, 1), log);
+
+        assertEquals(run(createRunner(false, null, 1)), changed);
+        assertEquals(runAntStyle(), changed);
+        assertTrue(log.toString().contains(
+            String.format("checking %d of %d files", FILES_PER_FOLDER, FOLDERS * FILES_PER_FOLDER)));
+    }
+
+    /**
+     * Create a file of the given size.
+     *
+     * @param path
+     *            path of file relative to the temporary folder.
+     * @param size
+     *            size of file in bytes.
+     * @return the file created.
+     * @throws IOException
+     *             when writing the file failed.
+     */
+    private File createFile(final String path, final int size) throws IOException {
+        final File file = new File(folder.getRoot(), path);
+        file.getParentFile().mkdirs();
+
+        final OutputStream output = new FileOutputStream(file);
+
+        try {
+            output.write(new byte[size]);
+        }
+        finally {
+            output.close();
+        }
+
+        return file;
+    }
+
+    /**
+     * Write a source file reporting a magic number, an optional 'TODO' comment and (for every seventh file) a missing newline at
+     * its end.
+     *
+     * @param packageIndex
+     *            index of package of source.
+     * @param classIndex
+     *            index of class in package.
+     * @param withTodo
+     *            whether the source shall contain a 'TODO' comment.
+     * @throws IOException
+     *             when writing the source failed.
+     */
+    private void writeSource(final int packageIndex, final int classIndex, final boolean withTodo) throws IOException {
+        final File packageFolder = new File(sourceFolder, "com/example/a" + packageIndex);
+        packageFolder.mkdirs();
+
+        final Writer writer = new FileWriter(new File(packageFolder, "A" + classIndex + ".java"));
+
+        try {
+            writer.write(String.format("package com.example.a%d;\n\npublic class A%d {\n    public int value() {\n",
+                packageIndex, classIndex));
+
+            if (withTodo) {
+                writer.write("        // TODO: compute value\n");
+            }
+
+            writer.write(String.format("        return %d;\n    }\n}", classIndex + packageIndex + 3));
+
+            if (classIndex % 7 != 0) {
+                writer.write('\n');
+            }
+        }
+        finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Create a runner writing uncompressed results.
+     *
+     * @param incremental
+     *            whether only sources changed since the last check shall be checked.
+     * @param changedFiles
+     *            files changed by the integrated activities (<code>null</code> to check all sources).
+     * @param fileParallelism
+     *            maximum number of threads checking the sources.
+     * @return the runner.
+     */
+    private InProcessCheckstyleRunner createRunner(final boolean incremental, final ChangedFiles changedFiles,
+        final int fileParallelism) {
+        return new InProcessCheckstyleRunner(configuration, "hash", antHelper, new HashSet<String>(), new ContentExcludeFilter(
+            Collections.<String> emptyList()), incremental, changedFiles, new ClassPathResolver(antHelper),
+            new SourceFileProvider(), new TimingRecorder(false), fileParallelism, ResultFormat.XML,
+            Collections.<SourceFileConsumer> emptyList());
+    }
+
+    /**
+     * Run checkstyle on the development component using the given runner.
+     *
+     * @param runner
+     *            runner to use.
+     * @return the violations of the result file written in the order of the result file.
+     * @throws Exception
+     *             when running checkstyle or reading the result file failed.
+     */
+    private List<String> run(final InProcessCheckstyleRunner runner) throws Exception {
+        return run(runner, new ByteArrayOutputStream());
+    }
+
+    /**
+     * Run checkstyle on the development component using the given runner.
+     *
+     * @param runner
+     *            runner to use.
+     * @param log
+     *            stream to write progress messages to.
+     * @return the violations of the result file written in the order of the result file.
+     * @throws Exception
+     *             when running checkstyle or reading the result file failed.
+     */
+    private List<String> run(final InProcessCheckstyleRunner runner, final OutputStream log) throws Exception {
+        final BuildListener listener = new StreamBuildListener(log, Charset.forName("UTF-8"));
+        assertTrue(runner.execute(component, listener));
+
+        return read(new File(String.format(InProcessCheckstyleRunner.RESULT_XML_PATH_TEMPLATE,
+            antHelper.getBaseLocation(component))));
+    }
+
+    /**
+     * Run checkstyle on all sources of the development component writing the results via checkstyle's {@link XMLLogger} like the
+     * Ant task does (scanning the sources via a {@link DirectoryScanner}).
+     *
+     * @return the violations of the result file written in the order of the result file.
+     * @throws Exception
+     *             when running checkstyle or reading the result file failed.
+     */
+    private List<String> runAntStyle() throws Exception {
+        final DirectoryScanner scanner = new DirectoryScanner();
+        scanner.setBasedir(sourceFolder);
+        scanner.setIncludes(new String[] { "**/*.java" });
+        scanner.scan();
+
+        final List<File> files = new ArrayList<File>();
+
+        for (final String fileName : scanner.getIncludedFiles()) {
+            files.add(new File(sourceFolder, fileName));
+        }
+
+        final File resultFile = folder.newFile();
+        final Checker checker = new Checker();
+
+        try {
+            checker.setModuleClassLoader(Checker.class.getClassLoader());
+            CheckerGuard.configure(checker, configuration);
+            checker.addListener(new XMLLogger(new FileOutputStream(resultFile), true));
+            CheckerGuard.process(checker, files);
+        }
+        finally {
+            checker.destroy();
+        }
+
+        return read(resultFile);
+    }
+
+    /**
+     * Read the violations of the given result file.
+     *
+     * @param resultFile
+     *            result file to read.
+     * @return the violations in the order of the result file (file name, line, column, severity, message and source separated by
+     *         '|').
+     * @throws IOException
+     *             when reading the result file failed.
+     * @throws SAXException
+     *             when the result file could not be parsed.
+     * @throws ParserConfigurationException
+     *             when no XML parser is available.
+     */
+    private List<String> read(final File resultFile) throws IOException, SAXException, ParserConfigurationException {
+        final NodeList fileElements =
+            DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(resultFile).getElementsByTagName("file");
+        final List<String> violations = new ArrayList<String>();
+
+        for (int i = 0; i < fileElements.getLength(); i++) {
+            final Element fileElement = (Element)fileElements.item(i);
+            final NodeList errors = fileElement.getElementsByTagName("error");
+
+            for (int j = 0; j < errors.getLength(); j++) {
+                final Element error = (Element)errors.item(j);
+                violations.add(String.format("%s|%s|%s|%s|%s|%s", fileElement.getAttribute("name"), error.getAttribute("line"),
+                    error.getAttribute("column"), error.getAttribute("severity"), error.getAttribute("message"),
+                    error.getAttribute("source")));
+            }
+        }
+
+        return violations;
+    }
+}
@@ -0,0 +1,173 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.FileContents;
+
+/**
+ * Tests for {@link ProfilingModuleFactory}.
+ *
+ * @author Dirk Weigenand
+ */
+public class ProfilingModuleFactoryTest {
+    /**
+     * folder for sources and the cache file of the tree walker.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * the checked source file.
+     */
+    private File source;
+
+    /**
+     * cache file of the tree walker.
+     */
+    private File cacheFile;
+
+    /**
+     * Write the source file to check.
+     *
+     * @throws IOException
+     *             when writing the source failed.
+     */
+    @Before
+    public void setUp() throws IOException {
+        source = new File(folder.getRoot(), "Example.java");
+        cacheFile = new File(folder.getRoot(), "cache.properties");
+
+        final FileOutputStream output = new FileOutputStream(source);
+
+        try {
+            output.write(("public class Example {\n    public int size(int a, int b) {\n        return a * 42 + b * 17;\n    }\n"
+                + "    public void run(int a, int b, int c) {\n    }\n}\n").getBytes("UTF-8"));
+        }
+        finally {
+            output.close();
+        }
+    }
+
+    /**
+     * Profiled checks report the same violations as unprofiled checks, the CPU time of each check and the parser is recorded and
+     * the tree walker writes its cache file.
+     *
+     * @throws CheckstyleException
+     *             when configuring the checker failed.
+     */
+    @Test
+    public final void testProfiledChecksReportSameViolations() throws CheckstyleException {
+        final List<Violation> expected = check(null);
+        final CheckProfile profile = new CheckProfile();
+        final List<Violation> violations =
+            check(new ProfilingModuleFactory(Checker.class.getClassLoader(), profile,
+                Collections.<SourceFileConsumer> emptyList()));
+
+        assertEquals(3, expected.size());
+        assertEquals(expected.size(), violations.size());
+
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getLine(), violations.get(i).getLine());
+            assertEquals(expected.get(i).getMessage(), violations.get(i).getMessage());
+            assertEquals(expected.get(i).getSource(), violations.get(i).getSource());
+        }
+
+        final Map<String, Long> invocations = new HashMap<String, Long>();
+
+        for (final CheckTiming timing : profile.getTimings()) {
+            invocations.put(timing.getCheck(), Long.valueOf(timing.getInvocations()));
+        }
+
+        assertTrue(invocations.get("MagicNumber").longValue() > 0);
+        assertTrue(invocations.get("ParameterNumber").longValue() > 0);
+        assertEquals(Long.valueOf(1), invocations.get(ProfilingModuleFactory.PARSER));
+        assertTrue("the cache file of the tree walker is kept", cacheFile.exists());
+    }
+
+    /**
+     * Consumers receive each walked source once.
+     *
+     * @throws CheckstyleException
+     *             when configuring the checker failed.
+     */
+    @Test
+    public final void testSourcesArePassedToConsumers() throws CheckstyleException {
+        final List<String> consumed = new ArrayList<String>();
+        final SourceFileConsumer consumer = new SourceFileConsumer() {
+            /**
+             * {@inheritDoc}
+             */
+            @Override
+            public void consume(final File file, final FileContents contents, final DetailAST root) {
+                consumed.add(String.format("%s:%d:%s", file.getName(), contents.getLines().length, root.getText()));
+            }
+        };
+
+        final List<Violation> violations =
+            check(new ProfilingModuleFactory(Checker.class.getClassLoader(), null, Collections.singletonList(consumer)));
+
+        assertEquals(3, violations.size());
+        assertEquals(Collections.singletonList("Example.java:7:CLASS_DEF"), consumed);
+    }
+
+    /**
+     * Check the source file with the given module factory.
+     *
+     * @param moduleFactory
+     *            module factory to use (<code>null</code> for checkstyle's default).
+     * @return the violations found.
+     * @throws CheckstyleException
+     *             when configuring the checker failed.
+     */
+    private List<Violation> check(final ProfilingModuleFactory moduleFactory) throws CheckstyleException {
+        final String configuration =
+            String.format("<?xml version=\"1.0\"?>\n<!DOCTYPE module PUBLIC \"-//Puppy Crawl//DTD Check Configuration 1.3//EN\" "
+                + "\"http://www.puppycrawl.com/dtds/configuration_1_3.dtd\">\n<module name=\"Checker\"><module name=\"TreeWalker\">"
+                + "<property name=\"cacheFile\" value=\"%s\"/><module name=\"MagicNumber\"/><module name=\"ParameterNumber\">"
+                + "<property name=\"max\" value=\"2\"/><property name=\"tokens\" value=\"METHOD_DEF\"/></module></module></module>",
+                cacheFile.getAbsolutePath());
+        final Checker checker = new Checker();
+        checker.setModuleClassLoader(Checker.class.getClassLoader());
+
+        if (moduleFactory == null) {
+            checker.configure(ConfigurationHelper.parse(configuration));
+        }
+        else {
+            checker.setModuleFactory(moduleFactory);
+            checker.configure(moduleFactory.profile(ConfigurationHelper.parse(configuration)));
+        }
+
+        final ViolationCollector collector = new ViolationCollector();
+
+        try {
+            checker.addListener(collector);
+            checker.process(Collections.singletonList(source));
+        }
+        finally {
+            checker.destroy();
+        }
+
+        return collector.getViolations(source.getAbsolutePath());
+    }
+}
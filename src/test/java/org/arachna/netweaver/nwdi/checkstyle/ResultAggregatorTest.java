@@ -0,0 +1,251 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for merging result files via {@link ResultAggregator} and counting their violations via {@link ViolationIndex}.
+ *
+ * @author Dirk Weigenand
+ */
+public class ResultAggregatorTest {
+    /**
+     * source folder of first development component.
+     */
+    private static final String DC1_SOURCES = "/ws/dc1/src/packages";
+
+    /**
+     * source folder of second development component.
+     */
+    private static final String DC2_SOURCES = "/ws/dc2/src/packages";
+
+    /**
+     * folder for result files.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * handler recording the files passed to it.
+     */
+    private RecordingHandler recorder;
+
+    /**
+     * index counting the violations passed to it.
+     */
+    private ViolationIndex index;
+
+    /**
+     * Instance under test.
+     */
+    private ResultAggregator aggregator;
+
+    /**
+     * Create the aggregator.
+     */
+    @Before
+    public void setUp() {
+        recorder = new RecordingHandler();
+        index = new ViolationIndex();
+        aggregator = new ResultAggregator(Arrays.asList(recorder, index));
+    }
+
+    /**
+     * The result files of several development components are merged file by file in the order of the result files, violations
+     * are read with all their attributes and files without violations are passed on as well.
+     *
+     * @throws IOException
+     *             when writing or reading a result file failed.
+     */
+    @Test
+    public final void testMergeResultFiles() throws IOException {
+        aggregateResults();
+
+        final Map<String, String> expected = new LinkedHashMap<String, String>();
+        expected.put(DC1_SOURCES + "/com/example/A.java", "dc1|com.example|2");
+        expected.put(DC1_SOURCES + "/com/example/b/B.java", "dc1|com.example.b|1");
+        expected.put(DC1_SOURCES + "/C.java", "dc1|" + ResultAggregator.DEFAULT_PACKAGE + "|0");
+        expected.put(DC2_SOURCES + "/com/example/A.java", "dc2|com.example|1");
+        expected.put("/elsewhere/D.java", "dc2|" + ResultAggregator.DEFAULT_PACKAGE + "|1");
+        assertEquals(expected, recorder.files);
+
+        final Violation violation = recorder.violations.get(1);
+        assertEquals(12, violation.getLine());
+        assertEquals(0, violation.getColumn());
+        assertEquals("warning", violation.getSeverity());
+        assertEquals("Line is longer than 120 characters (found 130) & <wrapped>.", violation.getMessage());
+        assertEquals("LineLengthCheck", violation.getSource());
+    }
+
+    /**
+     * Violations are counted per development component, package, severity and check.
+     *
+     * @throws IOException
+     *             when writing or reading a result file failed.
+     */
+    @Test
+    public final void testCounts() throws IOException {
+        aggregateResults();
+
+        assertEquals(5, index.getViolationCount());
+        assertEquals(counts("dc1", 3, "dc2", 2), index.getComponents());
+        assertEquals(counts(ResultAggregator.DEFAULT_PACKAGE, 1, "com.example", 3, "com.example.b", 1), index.getPackages());
+        assertEquals(counts("error", 2, "warning", 3), index.getSeverities());
+        assertEquals(counts("LineLengthCheck", 2, "MagicNumberCheck", 2, "TodoCommentCheck", 1), index.getChecks());
+    }
+
+    /**
+     * Document type declarations of result files are ignored: external entities declared by them are not read and result files
+     * declaring one are read like any other.
+     *
+     * @throws IOException
+     *             when writing or reading a result file failed.
+     */
+    @Test
+    public final void testResultFileWithDtd() throws IOException {
+        final File missingDtd = new File(folder.getRoot(), "missing/checkstyle.dtd");
+        final File resultFile =
+            createResultFile("dtd.xml", "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" + "<!DOCTYPE checkstyle [\n"
+                + "<!ENTITY % external SYSTEM \"" + missingDtd.toURI() + "\">\n" + "%external;\n" + "]>\n"
+                + "<checkstyle version=\"5.6\">\n" + "<file name=\"" + DC1_SOURCES + "/com/example/A.java\">\n"
+                + "<error line=\"1\" severity=\"error\" message=\"m\" source=\"TodoCommentCheck\"/>\n" + "</file>\n"
+                + "</checkstyle>\n");
+
+        aggregator.aggregate("dc1", resultFile, Collections.singleton(DC1_SOURCES));
+
+        assertEquals(Collections.singletonMap(DC1_SOURCES + "/com/example/A.java", "dc1|com.example|1"), recorder.files);
+        assertEquals(1, index.getViolationCount());
+    }
+
+    /**
+     * Missing result files are skipped.
+     *
+     * @throws IOException
+     *             when reading a result file failed.
+     */
+    @Test
+    public final void testMissingResultFileIsSkipped() throws IOException {
+        aggregator.aggregate("dc1", new File(folder.getRoot(), "missing.xml"), Collections.singleton(DC1_SOURCES));
+
+        assertTrue(recorder.files.isEmpty());
+        assertEquals(0, index.getViolationCount());
+    }
+
+    /**
+     * Write the result files of two development components and aggregate them.
+     *
+     * @throws IOException
+     *             when writing or reading a result file failed.
+     */
+    private void aggregateResults() throws IOException {
+        final File dc1 =
+            createResultFile("dc1.xml", "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" + "<checkstyle version=\"5.6\">\n"
+                + "<file name=\"" + DC1_SOURCES + "/com/example/A.java\">\n"
+                + "<error line=\"3\" column=\"16\" severity=\"error\" message=\"'42' is a magic number.\" "
+                + "source=\"MagicNumberCheck\"/>\n"
+                + "<error line=\"12\" severity=\"warning\" "
+                + "message=\"Line is longer than 120 characters (found 130) &amp; &lt;wrapped&gt;.\" "
+                + "source=\"LineLengthCheck\"/>\n" + "</file>\n" + "<file name=\"" + DC1_SOURCES + "/com/example/b/B.java\">\n"
+                + "<error line=\"5\" column=\"7\" severity=\"warning\" message=\"Comment matches to-do format 'TODO:'.\" "
+                + "source=\"TodoCommentCheck\"/>\n" + "</file>\n" + "<file name=\"" + DC1_SOURCES + "/C.java\">\n" + "</file>\n"
+                + "</checkstyle>\n");
+        final File dc2 =
+            createResultFile("dc2.xml", "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" + "<checkstyle version=\"5.6\">\n"
+                + "<file name=\"" + DC2_SOURCES + "/com/example/A.java\">\n"
+                + "<error line=\"4\" column=\"16\" severity=\"error\" message=\"'7' is a magic number.\" "
+                + "source=\"MagicNumberCheck\"/>\n" + "</file>\n" + "<file name=\"/elsewhere/D.java\">\n"
+                + "<error line=\"1\" severity=\"warning\" message=\"Line is too long.\" source=\"LineLengthCheck\"/>\n"
+                + "</file>\n" + "</checkstyle>\n");
+
+        aggregator.aggregate("dc1", dc1, Collections.singleton(DC1_SOURCES));
+        aggregator.aggregate("dc2", dc2, Collections.singleton(DC2_SOURCES));
+    }
+
+    /**
+     * Write a result file with the given content.
+     *
+     * @param name
+     *            name of result file.
+     * @param content
+     *            content of result file.
+     * @return the result file.
+     * @throws IOException
+     *             when writing the result file failed.
+     */
+    private File createResultFile(final String name, final String content) throws IOException {
+        final File file = folder.newFile(name);
+        final OutputStream output = new FileOutputStream(file);
+
+        try {
+            output.write(content.getBytes("UTF-8"));
+        }
+        finally {
+            output.close();
+        }
+
+        return file;
+    }
+
+    /**
+     * Create a map of counts from the given names and counts.
+     *
+     * @param namesAndCounts
+     *            names each followed by its count.
+     * @return the counts mapped to their names.
+     */
+    private Map<String, Integer> counts(final Object... namesAndCounts) {
+        final Map<String, Integer> counts = new LinkedHashMap<String, Integer>();
+
+        for (int i = 0; i < namesAndCounts.length; i += 2) {
+            counts.put((String)namesAndCounts[i], (Integer)namesAndCounts[i + 1]);
+        }
+
+        return counts;
+    }
+
+    /**
+     * Handler recording the files and violations passed to it.
+     *
+     * @author Dirk Weigenand
+     */
+    private static final class RecordingHandler implements ViolationHandler {
+        /**
+         * development component, package and number of violations (separated by '|') mapped to the files in the order they were
+         * passed.
+         */
+        private final Map<String, String> files = new LinkedHashMap<String, String>();
+
+        /**
+         * all violations passed.
+         */
+        private final List<Violation> violations = new ArrayList<Violation>();
+
+        /**
+         * {@inheritDoc}
+         */
+        public void handle(final String component, final String packageName, final String fileName,
+            final List<Violation> violations) {
+            files.put(fileName, String.format("%s|%s|%d", component, packageName, violations.size()));
+            this.violations.addAll(violations);
+        }
+    }
+}
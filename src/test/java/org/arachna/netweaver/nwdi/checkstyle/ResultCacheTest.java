@@ -0,0 +1,190 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link ResultCache}.
+ *
+ * @author Dirk Weigenand
+ */
+public class ResultCacheTest {
+    /**
+     * key of cache under test.
+     */
+    private static final String KEY = "configuration|classpath";
+
+    /**
+     * path of cached source file.
+     */
+    private static final String FILE_NAME = "/workspace/src/packages/com/example/Example.java";
+
+    /**
+     * folder for cache files.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * cache file.
+     */
+    private File cacheFile;
+
+    /**
+     * Create the cache file name.
+     */
+    @Before
+    public void setUp() {
+        cacheFile = new File(folder.getRoot(), "checkstyle-cache.bin.gz");
+    }
+
+    /**
+     * Entries written are read back with all fields of their violations.
+     *
+     * @throws IOException
+     *             when writing the cache failed.
+     */
+    @Test
+    public final void testRoundTrip() throws IOException {
+        saveCache(KEY);
+
+        final ResultCache cache = ResultCache.load(cacheFile, KEY);
+        assertEquals(new HashSet<String>(Arrays.asList(FILE_NAME, "/workspace/src/packages/Empty.java")), new HashSet<String>(cache
+            .getFileNames()));
+
+        final ResultCache.Entry entry = cache.get(FILE_NAME);
+        assertEquals("0123abcd", entry.getContentHash());
+
+        final List<Violation> violations = entry.getViolations();
+        assertEquals(2, violations.size());
+        assertViolation(violations.get(0), 12, 5, "warning", "'42' is a magic number.", "MagicNumberCheck");
+        assertViolation(violations.get(1), 1, 0, "error", "Unicode äöü", null);
+        assertTrue(cache.get("/workspace/src/packages/Empty.java").getViolations().isEmpty());
+    }
+
+    /**
+     * A cache created for another checkstyle configuration or class path is discarded.
+     *
+     * @throws IOException
+     *             when writing the cache failed.
+     */
+    @Test
+    public final void testOtherKeyInvalidatesCache() throws IOException {
+        saveCache(KEY);
+
+        final ResultCache cache = ResultCache.load(cacheFile, "other configuration|classpath");
+        assertTrue(cache.getFileNames().isEmpty());
+        assertNull(cache.get(FILE_NAME));
+    }
+
+    /**
+     * A missing cache file yields an empty cache.
+     */
+    @Test
+    public final void testMissingFileYieldsEmptyCache() {
+        assertTrue(ResultCache.load(cacheFile, KEY).getFileNames().isEmpty());
+    }
+
+    /**
+     * A corrupt cache file yields an empty cache.
+     *
+     * @throws IOException
+     *             when writing the cache file failed.
+     */
+    @Test
+    public final void testCorruptFileYieldsEmptyCache() throws IOException {
+        final FileOutputStream output = new FileOutputStream(cacheFile);
+
+        try {
+            output.write(new byte[] { 0x1f, (byte)0x8b, 1, 2, 3 });
+        }
+        finally {
+            output.close();
+        }
+
+        assertTrue(ResultCache.load(cacheFile, KEY).getFileNames().isEmpty());
+    }
+
+    /**
+     * Updating a cache replaces all of its entries.
+     *
+     * @throws IOException
+     *             when writing the cache failed.
+     */
+    @Test
+    public final void testUpdateReplacesEntries() throws IOException {
+        saveCache(KEY);
+
+        final ResultCache cache = ResultCache.load(cacheFile, KEY);
+        final Map<String, ResultCache.Entry> entries = new HashMap<String, ResultCache.Entry>();
+        entries.put("/workspace/src/packages/Other.java", new ResultCache.Entry("ffff", Collections.<Violation>emptyList()));
+        cache.update(entries);
+        cache.save(cacheFile);
+
+        final ResultCache reloaded = ResultCache.load(cacheFile, KEY);
+        assertEquals(Collections.singleton("/workspace/src/packages/Other.java"), new HashSet<String>(reloaded.getFileNames()));
+        assertEquals("ffff", reloaded.get("/workspace/src/packages/Other.java").getContentHash());
+    }
+
+    /**
+     * Write a cache with two entries using the given key.
+     *
+     * @param key
+     *            key of cache.
+     * @throws IOException
+     *             when writing the cache failed.
+     */
+    private void saveCache(final String key) throws IOException {
+        final ResultCache cache = ResultCache.load(cacheFile, key);
+        final Map<String, ResultCache.Entry> entries = new HashMap<String, ResultCache.Entry>();
+        entries.put(FILE_NAME, new ResultCache.Entry("0123abcd", Arrays.asList(new Violation(12, 5, "warning",
+            "'42' is a magic number.", "MagicNumberCheck"), new Violation(1, 0, "error", "Unicode äöü", null))));
+        entries.put("/workspace/src/packages/Empty.java", new ResultCache.Entry("4567", Collections.<Violation>emptyList()));
+        cache.update(entries);
+        cache.save(cacheFile);
+    }
+
+    /**
+     * Assert the fields of the given violation.
+     *
+     * @param violation
+     *            violation to verify.
+     * @param line
+     *            expected line.
+     * @param column
+     *            expected column.
+     * @param severity
+     *            expected severity.
+     * @param message
+     *            expected message.
+     * @param source
+     *            expected source.
+     */
+    private static void assertViolation(final Violation violation, final int line, final int column, final String severity,
+        final String message, final String source) {
+        assertEquals(line, violation.getLine());
+        assertEquals(column, violation.getColumn());
+        assertEquals(severity, violation.getSeverity());
+        assertEquals(message, violation.getMessage());
+        assertEquals(source, violation.getSource());
+    }
+}
@@ -0,0 +1,239 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link SourceFileProvider}.
+ *
+ * @author Dirk Weigenand
+ */
+public class SourceFileProviderTest {
+    /**
+     * size of test files in bytes.
+     */
+    private static final int FILE_SIZE = 40;
+
+    /**
+     * folder for source files.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Instance under test (caching two test files at most).
+     */
+    private SourceFileProvider provider;
+
+    /**
+     * Create the provider.
+     */
+    @Before
+    public void setUp() {
+        provider = new SourceFileProvider(FILE_SIZE * 2 + FILE_SIZE / 2);
+    }
+
+    /**
+     * A file is read once and served from the cache afterwards.
+     *
+     * @throws IOException
+     *             when reading a file failed.
+     */
+    @Test
+    public final void testContentIsCached() throws IOException {
+        final File file = createFile("A.java", 'a', FILE_SIZE);
+
+        assertArrayEquals(createContent('a', FILE_SIZE), provider.getBytes(file));
+        assertEquals(DigestHelper.digest(ByteBuffer.wrap(createContent('a', FILE_SIZE))), provider.digest(file));
+        assertArrayEquals(createContent('a', FILE_SIZE), readStream(provider.open(file)));
+
+        assertEquals(1, provider.getMisses());
+        assertEquals(2, provider.getHits());
+        assertEquals(FILE_SIZE, provider.getBytesRead());
+    }
+
+    /**
+     * The least recently used contents are evicted once the total size of the cached contents exceeds the capacity.
+     *
+     * @throws IOException
+     *             when reading a file failed.
+     */
+    @Test
+    public final void testLeastRecentlyUsedContentIsEvicted() throws IOException {
+        final File first = createFile("First.java", 'a', FILE_SIZE);
+        final File second = createFile("Second.java", 'b', FILE_SIZE);
+        final File third = createFile("Third.java", 'c', FILE_SIZE);
+
+        provider.getContent(first);
+        provider.getContent(second);
+        provider.getContent(first);
+        provider.getContent(third);
+        assertEquals(3, provider.getMisses());
+        assertEquals(1, provider.getHits());
+
+        provider.getContent(first);
+        provider.getContent(third);
+        assertEquals("first and third file are still cached", 3, provider.getHits());
+
+        provider.getContent(second);
+        assertEquals("second file was evicted", 4, provider.getMisses());
+    }
+
+    /**
+     * Files larger than the capacity are not cached.
+     *
+     * @throws IOException
+     *             when reading a file failed.
+     */
+    @Test
+    public final void testLargeFilesAreNotCached() throws IOException {
+        final File small = createFile("Small.java", 'a', FILE_SIZE);
+        final File large = createFile("Large.java", 'b', FILE_SIZE * 3);
+
+        provider.getContent(small);
+        assertArrayEquals(createContent('b', FILE_SIZE * 3), provider.getBytes(large));
+        provider.getContent(large);
+        provider.getContent(small);
+
+        assertEquals(3, provider.getMisses());
+        assertEquals(1, provider.getHits());
+    }
+
+    /**
+     * Cached content is invalidated when the size of the file changes.
+     *
+     * @throws IOException
+     *             when reading or writing a file failed.
+     */
+    @Test
+    public final void testSizeChangeInvalidatesContent() throws IOException {
+        final File file = createFile("A.java", 'a', FILE_SIZE);
+        final long lastModified = file.lastModified();
+        provider.getContent(file);
+
+        createFile("A.java", 'b', FILE_SIZE + 1);
+        assertTrue(file.setLastModified(lastModified));
+
+        assertArrayEquals(createContent('b', FILE_SIZE + 1), provider.getBytes(file));
+        assertEquals(2, provider.getMisses());
+    }
+
+    /**
+     * Cached content is invalidated when the modification time of the file changes.
+     *
+     * @throws IOException
+     *             when reading or writing a file failed.
+     */
+    @Test
+    public final void testModificationTimeChangeInvalidatesContent() throws IOException {
+        final File file = createFile("A.java", 'a', FILE_SIZE);
+        final long lastModified = file.lastModified();
+        provider.getContent(file);
+
+        createFile("A.java", 'b', FILE_SIZE);
+        assertTrue(file.setLastModified(lastModified + 2000));
+
+        assertArrayEquals(createContent('b', FILE_SIZE), provider.getBytes(file));
+        assertEquals(2, provider.getMisses());
+        assertEquals(0, provider.getHits());
+    }
+
+    /**
+     * A file grown since its length was determined is read completely.
+     *
+     * @throws IOException
+     *             when reading a file failed.
+     */
+    @Test
+    public final void testGrownFileIsReadCompletely() throws IOException {
+        final File file = createFile("A.java", 'a', FILE_SIZE * 10);
+
+        for (final long length : new long[] { 0, 1, FILE_SIZE, FILE_SIZE * 10 - 1 }) {
+            final ByteBuffer content = SourceFileProvider.read(file, length);
+            final byte[] bytes = new byte[content.remaining()];
+            content.get(bytes);
+
+            assertArrayEquals(createContent('a', FILE_SIZE * 10), bytes);
+        }
+    }
+
+    /**
+     * Create a file with the given name consisting of the given number of the given character.
+     *
+     * @param name
+     *            name of file.
+     * @param c
+     *            character to fill the file with.
+     * @param size
+     *            size of file in bytes.
+     * @return the file.
+     * @throws IOException
+     *             when writing the file failed.
+     */
+    private File createFile(final String name, final char c, final int size) throws IOException {
+        final File file = new File(folder.getRoot(), name);
+        final FileOutputStream output = new FileOutputStream(file);
+
+        try {
+            output.write(createContent(c, size));
+        }
+        finally {
+            output.close();
+        }
+
+        return file;
+    }
+
+    /**
+     * Create content consisting of the given number of the given character.
+     *
+     * @param c
+     *            character to fill the content with.
+     * @param size
+     *            size of content in bytes.
+     * @return the content.
+     */
+    private static byte[] createContent(final char c, final int size) {
+        final byte[] content = new byte[size];
+        Arrays.fill(content, (byte)c);
+
+        return content;
+    }
+
+    /**
+     * Read the given stream completely.
+     *
+     * @param input
+     *            stream to read.
+     * @return the bytes read.
+     * @throws IOException
+     *             when reading failed.
+     */
+    private static byte[] readStream(final InputStream input) throws IOException {
+        final byte[] buffer = new byte[FILE_SIZE * 2];
+        int length = 0;
+        int count;
+
+        while ((count = input.read(buffer, length, buffer.length - length)) > 0) {
+            length += count;
+        }
+
+        return Arrays.copyOf(buffer, length);
+    }
+}
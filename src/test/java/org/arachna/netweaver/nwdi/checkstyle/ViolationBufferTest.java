@@ -0,0 +1,250 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessage;
+import com.puppycrawl.tools.checkstyle.api.SeverityLevel;
+import com.puppycrawl.tools.checkstyle.checks.coding.MagicNumberCheck;
+import com.puppycrawl.tools.checkstyle.checks.sizes.LineLengthCheck;
+
+/**
+ * Tests for {@link ViolationBuffer}.
+ *
+ * @author Dirk Weigenand
+ */
+public class ViolationBufferTest {
+    /**
+     * first audited file.
+     */
+    private static final String FIRST = "/workspace/src/packages/com/example/First.java";
+
+    /**
+     * second audited file.
+     */
+    private static final String SECOND = "/workspace/src/packages/com/example/Second.java";
+
+    /**
+     * Instance under test.
+     */
+    private ViolationBuffer buffer;
+
+    /**
+     * Create the buffer.
+     */
+    @Before
+    public void setUp() {
+        buffer = new ViolationBuffer();
+    }
+
+    /**
+     * Violations keep line, column, severity, message and check.
+     */
+    @Test
+    public final void testAdd() {
+        buffer.add(createEvent(FIRST, 12, 5, SeverityLevel.WARNING, MagicNumberCheck.class));
+
+        final List<Violation> violations = buffer.getViolations(FIRST);
+        assertEquals(1, violations.size());
+        assertEquals(12, violations.get(0).getLine());
+        assertEquals(5, violations.get(0).getColumn());
+        assertEquals("warning", violations.get(0).getSeverity());
+        assertEquals("'12' is a magic number.", violations.get(0).getMessage());
+        assertEquals(MagicNumberCheck.class.getName(), violations.get(0).getSource());
+    }
+
+    /**
+     * The arrays grow beyond their initial capacity for files and violations without losing violations.
+     */
+    @Test
+    public final void testGrowth() {
+        final int files = 100;
+        final int violationsPerFile = 30;
+
+        for (int v = 0; v < violationsPerFile; v++) {
+            for (int f = 0; f < files; f++) {
+                buffer.add(createEvent(getFileName(f), v + 1, f, SeverityLevel.WARNING, MagicNumberCheck.class));
+            }
+        }
+
+        assertEquals(files * violationsPerFile, buffer.size());
+
+        for (int f = 0; f < files; f++) {
+            final List<Violation> violations = buffer.getViolations(getFileName(f));
+            assertEquals(violationsPerFile, violations.size());
+
+            for (int v = 0; v < violationsPerFile; v++) {
+                assertEquals(v + 1, violations.get(v).getLine());
+                assertEquals(f, violations.get(v).getColumn());
+            }
+        }
+    }
+
+    /**
+     * Names of checks are dictionary encoded, i.e. violations of the same check share the name of the check.
+     */
+    @Test
+    public final void testChecksAreDictionaryEncoded() {
+        buffer.add(createEvent(FIRST, 1, 0, SeverityLevel.WARNING, MagicNumberCheck.class));
+        buffer.add(createEvent(SECOND, 2, 0, SeverityLevel.ERROR, LineLengthCheck.class));
+        buffer.add(createEvent(SECOND, 3, 0, SeverityLevel.INFO, MagicNumberCheck.class));
+
+        final String first = buffer.getViolations(FIRST).get(0).getSource();
+        final List<Violation> second = buffer.getViolations(SECOND);
+        assertSame(first, second.get(1).getSource());
+        assertEquals(LineLengthCheck.class.getName(), second.get(0).getSource());
+        assertEquals("error", second.get(0).getSeverity());
+        assertEquals("info", second.get(1).getSeverity());
+    }
+
+    /**
+     * Violations reported for several files in turn are returned per file in the order they were reported.
+     */
+    @Test
+    public final void testViolationsAreLinkedPerFile() {
+        buffer.add(createEvent(FIRST, 1, 0, SeverityLevel.WARNING, MagicNumberCheck.class));
+        buffer.add(createEvent(SECOND, 10, 0, SeverityLevel.WARNING, MagicNumberCheck.class));
+        buffer.add(createEvent(FIRST, 2, 0, SeverityLevel.WARNING, LineLengthCheck.class));
+        buffer.add(createEvent(SECOND, 20, 0, SeverityLevel.WARNING, MagicNumberCheck.class));
+        buffer.add(createEvent(FIRST, 3, 0, SeverityLevel.WARNING, MagicNumberCheck.class));
+
+        assertLines(buffer.getViolations(FIRST), 1, 2, 3);
+        assertLines(buffer.getViolations(SECOND), 10, 20);
+    }
+
+    /**
+     * Files registered without violations are audited but have no violations, unknown files were not audited.
+     */
+    @Test
+    public final void testFilesWithoutViolations() {
+        buffer.addFile(FIRST);
+
+        assertTrue(buffer.contains(FIRST));
+        assertTrue(buffer.getViolations(FIRST).isEmpty());
+        assertFalse(buffer.contains(SECOND));
+        assertNull(buffer.getViolations(SECOND));
+    }
+
+    /**
+     * Exceptions are reported as errors of the file.
+     */
+    @Test
+    public final void testAddException() {
+        buffer.addException(FIRST, new IllegalStateException("broken"), "TreeWalker");
+
+        final List<Violation> violations = buffer.getViolations(FIRST);
+        assertEquals(1, violations.size());
+        assertEquals("error", violations.get(0).getSeverity());
+        assertEquals("java.lang.IllegalStateException: broken", violations.get(0).getMessage());
+        assertEquals("TreeWalker", violations.get(0).getSource());
+    }
+
+    /**
+     * A cleared buffer contains no files and violations and can be filled again.
+     */
+    @Test
+    public final void testClearAndReuse() {
+        for (int i = 0; i < 200; i++) {
+            buffer.add(createEvent(FIRST, i, 0, SeverityLevel.WARNING, MagicNumberCheck.class));
+        }
+
+        buffer.clear();
+        assertEquals(0, buffer.size());
+        assertFalse(buffer.contains(FIRST));
+        assertNull(buffer.getViolations(FIRST));
+
+        buffer.add(createEvent(SECOND, 7, 0, SeverityLevel.WARNING, LineLengthCheck.class));
+        buffer.add(createEvent(FIRST, 8, 0, SeverityLevel.WARNING, MagicNumberCheck.class));
+
+        assertEquals(2, buffer.size());
+        assertLines(buffer.getViolations(SECOND), 7);
+        assertLines(buffer.getViolations(FIRST), 8);
+        assertEquals(MagicNumberCheck.class.getName(), buffer.getViolations(FIRST).get(0).getSource());
+    }
+
+    /**
+     * Adding the content of another buffer merges files present in both buffers and keeps files without violations.
+     */
+    @Test
+    public final void testAddAll() {
+        buffer.add(createEvent(FIRST, 1, 0, SeverityLevel.WARNING, MagicNumberCheck.class));
+
+        final ViolationBuffer other = new ViolationBuffer();
+        other.add(createEvent(SECOND, 5, 0, SeverityLevel.ERROR, LineLengthCheck.class));
+        other.add(createEvent(FIRST, 2, 0, SeverityLevel.WARNING, LineLengthCheck.class));
+        other.addFile("/workspace/src/packages/Clean.java");
+        other.addException(SECOND, new IllegalStateException("broken"), "TreeWalker");
+
+        buffer.addAll(other);
+
+        assertEquals(4, buffer.size());
+        assertLines(buffer.getViolations(FIRST), 1, 2);
+        assertLines(buffer.getViolations(SECOND), 5, 0);
+        assertEquals(LineLengthCheck.class.getName(), buffer.getViolations(FIRST).get(1).getSource());
+        assertEquals("'5' is a magic number.", buffer.getViolations(SECOND).get(0).getMessage());
+        assertEquals("java.lang.IllegalStateException: broken", buffer.getViolations(SECOND).get(1).getMessage());
+        assertTrue(buffer.contains("/workspace/src/packages/Clean.java"));
+        assertTrue(buffer.getViolations("/workspace/src/packages/Clean.java").isEmpty());
+    }
+
+    /**
+     * Assert the lines of the given violations.
+     *
+     * @param violations
+     *            violations to verify.
+     * @param lines
+     *            expected lines.
+     */
+    private static void assertLines(final List<Violation> violations, final int... lines) {
+        assertEquals(lines.length, violations.size());
+
+        for (int i = 0; i < lines.length; i++) {
+            assertEquals(lines[i], violations.get(i).getLine());
+        }
+    }
+
+    /**
+     * Returns the name of the file with the given index.
+     *
+     * @param file
+     *            index of file.
+     * @return the name of the file with the given index.
+     */
+    private static String getFileName(final int file) {
+        return String.format("/workspace/src/packages/com/example/Class%d.java", file);
+    }
+
+    /**
+     * Create an event reporting a magic number violation (the message of the magic number check is used for all checks).
+     *
+     * @param fileName
+     *            name of audited file.
+     * @param line
+     *            line of violation.
+     * @param column
+     *            column of violation.
+     * @param severity
+     *            severity of violation.
+     * @param check
+     *            check reporting the violation.
+     * @return the event.
+     */
+    private AuditEvent createEvent(final String fileName, final int line, final int column, final SeverityLevel severity,
+        final Class<?> check) {
+        return new AuditEvent(this, fileName, new LocalizedMessage(line, column,
+            "com.puppycrawl.tools.checkstyle.checks.coding.messages", "magic.number", new Object[] { Integer.toString(line) },
+            severity, null, check, null));
+    }
+}
@@ -0,0 +1,228 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import static org.arachna.netweaver.nwdi.checkstyle.ViolationStoreReader.PAGE_SIZE;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for writing a {@link ViolationStore} and reading it back.
+ *
+ * @author Dirk Weigenand
+ */
+public class ViolationStoreTest {
+    /**
+     * folder for the store and its temporary files.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Violations, counts and file paths are read back as written and the temporary files are deleted.
+     *
+     * @throws IOException
+     *             when writing or reading the store failed.
+     */
+    @Test
+    public final void testWriteAndRead() throws IOException {
+        final ViolationStore store = new ViolationStore(folder.getRoot());
+        store.handle("dc1", "com.example", "A.java",
+            Arrays.asList(new Violation(1, 2, "warning", "Line is too long.", "LineLengthCheck"), new Violation(3, 4, "error",
+                "'42' is a magic number.", "MagicNumberCheck")));
+        store.handle("dc1", "com.example", "B.java",
+            Collections.singletonList(new Violation(5, 6, "warning", "Line is too long.", "LineLengthCheck")));
+        store.handle("dc2", "com.example", "A.java",
+            Collections.singletonList(new Violation(7, 8, "warning", "Line is too long.", "LineLengthCheck")));
+
+        final File storeFile = new File(folder.getRoot(), ViolationStore.FILE_NAME);
+        store.write(storeFile);
+
+        assertEquals(Collections.singletonList(ViolationStore.FILE_NAME), Arrays.asList(folder.getRoot().list()));
+
+        final ViolationStore.Counts counts = ViolationStore.readCounts(storeFile);
+        assertEquals(4, counts.getViolationCount());
+        assertEquals(Integer.valueOf(3), counts.getChecks().get("LineLengthCheck"));
+        assertEquals(Integer.valueOf(1), counts.getChecks().get("MagicNumberCheck"));
+        assertEquals(Integer.valueOf(3), counts.getComponents().get("dc1"));
+        assertEquals(Integer.valueOf(1), counts.getComponents().get("dc2"));
+
+        final ViolationStoreReader reader = ViolationStoreReader.open(storeFile);
+        final ViolationPage page = reader.getPage(null, "dc1", null, null, 1);
+        assertEquals(3, page.getMatches());
+        assertEquals(Integer.valueOf(2), page.getFiles().get("A.java"));
+        assertEquals(Integer.valueOf(1), page.getFiles().get("B.java"));
+
+        final ViolationPage.Row row = page.getRows().get(1);
+        assertEquals("A.java", row.getFile());
+        assertEquals(3, row.getLine());
+        assertEquals(4, row.getColumn());
+        assertEquals("error", row.getSeverity());
+        assertEquals("MagicNumberCheck", row.getCheck());
+        assertEquals("'42' is a magic number.", row.getMessage());
+
+        assertEquals(1, reader.getPage(null, "dc2", null, null, 1).getMatches());
+        reader.close();
+    }
+
+    /**
+     * Violations are filtered by development component, file and check via the indexes of the store, also when the violations of
+     * a development component or file are not consecutive, and pages continue across ranges of violations.
+     *
+     * @throws IOException
+     *             when writing or reading the store failed.
+     */
+    @Test
+    public final void testFiltersAndPaging() throws IOException {
+        final ViolationStore store = new ViolationStore(folder.getRoot());
+
+        for (int i = 0; i < 3; i++) {
+            store.handle("dc1", "com.example", "B.java", createViolations(i * 1000, 60));
+            store.handle("dc1", "com.example", "A.java", createViolations(i * 1000 + 500, 10));
+            store.handle("dc2", "com.example", "B.java", createViolations(i * 1000, 5));
+        }
+
+        final File storeFile = new File(folder.getRoot(), ViolationStore.FILE_NAME);
+        store.write(storeFile);
+
+        final ViolationStoreReader reader = ViolationStoreReader.open(storeFile);
+
+        try {
+            ViolationPage page = reader.getPage(null, "dc1", null, null, 2);
+            assertEquals(210, page.getMatches());
+            assertEquals(Integer.valueOf(180), page.getFiles().get("B.java"));
+            assertEquals(Integer.valueOf(30), page.getFiles().get("A.java"));
+            assertEquals(PAGE_SIZE, page.getRows().size());
+            assertEquals(1031, page.getRows().get(0).getLine());
+            assertEquals("A.java", page.getRows().get(30).getFile());
+
+            page = reader.getPage(null, "dc1", null, "MagicNumberCheck", 1);
+            assertEquals(105, page.getMatches());
+            assertEquals(Integer.valueOf(90), page.getFiles().get("B.java"));
+            assertEquals(Integer.valueOf(15), page.getFiles().get("A.java"));
+            assertEquals(1, page.getRows().get(0).getLine());
+            assertEquals("MagicNumberCheck", page.getRows().get(99).getCheck());
+
+            page = reader.getPage(null, "dc1", "A.java", "LineLengthCheck", 1);
+            assertEquals(15, page.getMatches());
+            assertEquals(502, page.getRows().get(0).getLine());
+            assertEquals(2510, page.getRows().get(14).getLine());
+
+            page = reader.getPage(null, null, "B.java", null, 3);
+            assertEquals(195, page.getMatches());
+            assertEquals(0, page.getRows().size());
+            assertEquals(95, reader.getPage(null, null, "B.java", null, 2).getRows().size());
+
+            assertEquals(0, reader.getPage(null, "dc2", "A.java", null, 1).getMatches());
+            assertEquals(0, reader.getPage(null, "dc3", null, null, 1).getMatches());
+            assertEquals(0, reader.getPage(null, null, null, "TodoCommentCheck", 1).getMatches());
+            assertEquals(225, reader.getPage(null, null, null, null, 1).getMatches());
+        }
+        finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Files without violations are not added to the store.
+     *
+     * @throws IOException
+     *             when writing the store failed.
+     */
+    @Test
+    public final void testFilesWithoutViolationsAreOmitted() throws IOException {
+        final File withoutEmptyFile = writeStore("without", false);
+        final File withEmptyFile = writeStore("with", true);
+
+        assertEquals(withoutEmptyFile.length(), withEmptyFile.length());
+    }
+
+    /**
+     * Messages evicted from the cache of recently used messages are added to the dictionary again and still read back correctly.
+     *
+     * @throws IOException
+     *             when writing or reading the store failed.
+     */
+    @Test
+    public final void testEvictedMessages() throws IOException {
+        final ViolationStore store = new ViolationStore(folder.getRoot());
+        final List<Violation> violations = new ArrayList<Violation>();
+
+        for (int i = 0; i <= ViolationStore.MESSAGE_CACHE_SIZE; i++) {
+            violations.add(new Violation(i + 1, 1, "warning", "message " + i, "TodoCommentCheck"));
+        }
+
+        violations.add(new Violation(ViolationStore.MESSAGE_CACHE_SIZE + 2, 1, "warning", "message 0", "TodoCommentCheck"));
+        store.handle("dc1", "com.example", "A.java", violations);
+
+        final File storeFile = new File(folder.getRoot(), ViolationStore.FILE_NAME);
+        store.write(storeFile);
+
+        final ViolationStoreReader reader = ViolationStoreReader.open(storeFile);
+        final int lastPage = violations.size() / ViolationStoreReader.PAGE_SIZE + 1;
+        final List<ViolationPage.Row> rows = reader.getPage(null, null, null, null, lastPage).getRows();
+
+        assertEquals(violations.size(), reader.getViolationCount());
+        assertEquals("message 0", rows.get(rows.size() - 1).getMessage());
+        assertEquals("message " + ViolationStore.MESSAGE_CACHE_SIZE, rows.get(rows.size() - 2).getMessage());
+        reader.close();
+    }
+
+    /**
+     * Create violations on consecutive lines alternating between the magic number and the line length check.
+     *
+     * @param firstLine
+     *            line of first violation.
+     * @param count
+     *            number of violations.
+     * @return the violations.
+     */
+    private List<Violation> createViolations(final int firstLine, final int count) {
+        final List<Violation> violations = new ArrayList<Violation>();
+
+        for (int i = 0; i < count; i++) {
+            violations.add(i % 2 == 0 ? new Violation(firstLine + i + 1, 1, "error", "'42' is a magic number.",
+                "MagicNumberCheck") : new Violation(firstLine + i + 1, 1, "warning", "Line is too long.", "LineLengthCheck"));
+        }
+
+        return violations;
+    }
+
+    /**
+     * Write a store with a violation in one file and optionally an audited file without violations.
+     *
+     * @param name
+     *            name of folder to write the store to.
+     * @param withEmptyFile
+     *            whether to add a file without violations.
+     * @return the store.
+     * @throws IOException
+     *             when writing the store failed.
+     */
+    private File writeStore(final String name, final boolean withEmptyFile) throws IOException {
+        final File storeFolder = folder.newFolder(name);
+        final ViolationStore store = new ViolationStore(storeFolder);
+        store.handle("dc1", "com.example", "A.java",
+            Collections.singletonList(new Violation(1, 2, "warning", "Line is too long.", "LineLengthCheck")));
+
+        if (withEmptyFile) {
+            store.handle("dc1", "com.example", "Empty.java", Collections.<Violation> emptyList());
+        }
+
+        final File storeFile = new File(storeFolder, ViolationStore.FILE_NAME);
+        store.write(storeFile);
+
+        return storeFile;
+    }
+}
@@ -0,0 +1,109 @@
+/**
+ *
+ */
+package org.arachna.netweaver.nwdi.checkstyle;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for querying the counts of several {@link ViolationStore}s via {@link ViolationTrend}.
+ *
+ * @author Dirk Weigenand
+ */
+public class ViolationTrendTest {
+    /**
+     * folder for the stores.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Counts per check and development component are returned per build in the order of the builds, missing and unreadable
+     * stores are omitted.
+     *
+     * @throws IOException
+     *             when writing the stores failed.
+     */
+    @Test
+    public final void testQuery() throws IOException {
+        final Map<Integer, File> storeFiles = new LinkedHashMap<Integer, File>();
+        storeFiles.put(Integer.valueOf(4), writeStore("4", 3));
+        storeFiles.put(Integer.valueOf(3), new File(folder.getRoot(), "missing"));
+        storeFiles.put(Integer.valueOf(2), writeCorruptStore());
+        storeFiles.put(Integer.valueOf(1), writeStore("1", 1));
+
+        final Map<Integer, Map<String, Integer>> checks = ViolationTrend.query(storeFiles, true);
+        assertEquals(Arrays.asList(Integer.valueOf(4), Integer.valueOf(1)), Arrays.asList(checks.keySet().toArray()));
+        assertEquals(Integer.valueOf(3), checks.get(Integer.valueOf(4)).get("LineLengthCheck"));
+        assertEquals(Integer.valueOf(1), checks.get(Integer.valueOf(4)).get("MagicNumberCheck"));
+        assertEquals(Integer.valueOf(1), checks.get(Integer.valueOf(1)).get("LineLengthCheck"));
+
+        final Map<Integer, Map<String, Integer>> components = ViolationTrend.query(storeFiles, false);
+        assertEquals(Integer.valueOf(4), components.get(Integer.valueOf(4)).get("dc1"));
+        assertEquals(Integer.valueOf(0), components.get(Integer.valueOf(4)).get("dc2"));
+        assertEquals(Integer.valueOf(2), components.get(Integer.valueOf(1)).get("dc1"));
+    }
+
+    /**
+     * Write a store containing the given number of line length violations and a magic number in 'dc1' and no violations in
+     * 'dc2'.
+     *
+     * @param name
+     *            name of the folder of the store.
+     * @param lineLengthViolations
+     *            number of line length violations.
+     * @return the store.
+     * @throws IOException
+     *             when writing the store failed.
+     */
+    private File writeStore(final String name, final int lineLengthViolations) throws IOException {
+        final File buildFolder = folder.newFolder(name);
+        final ViolationStore store = new ViolationStore(buildFolder);
+
+        for (int i = 0; i < lineLengthViolations; i++) {
+            store.handle("dc1", "com.example", "A.java",
+                Arrays.asList(new Violation(i + 1, 1, "warning", "Line is too long.", "LineLengthCheck")));
+        }
+
+        store.handle("dc1", "com.example", "B.java",
+            Arrays.asList(new Violation(1, 1, "error", "'42' is a magic number.", "MagicNumberCheck")));
+        store.handle("dc2", "com.example", "C.java", Arrays.<Violation> asList());
+
+        final File storeFile = new File(buildFolder, ViolationStore.FILE_NAME);
+        store.write(storeFile);
+
+        return storeFile;
+    }
+
+    /**
+     * Write a file that is not a violation store.
+     *
+     * @return the file.
+     * @throws IOException
+     *             when writing the file failed.
+     */
+    private File writeCorruptStore() throws IOException {
+        final File storeFile = folder.newFile("corrupt");
+        final FileOutputStream output = new FileOutputStream(storeFile);
+
+        try {
+            output.write(new byte[] { 1, 2, 3 });
+        }
+        finally {
+            output.close();
+        }
+
+        return storeFile;
+    }
+}